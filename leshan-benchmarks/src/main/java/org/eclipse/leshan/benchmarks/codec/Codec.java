@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.codec;
+
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mEncoder;
+import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.eclipse.leshan.core.node.codec.LwM2mValueChecker;
+import org.eclipse.leshan.core.request.ContentFormat;
+
+/**
+ * Codecs which can be benchmarked.
+ * <p>
+ * Each content format is encoded/decoded with {@link DefaultLwM2mEncoder}/{@link DefaultLwM2mDecoder}.
+ * {@link #SENML_CBOR_STREAMING} uses the streaming SenML-CBOR implementation instead of the CBOR-Java one.
+ */
+public enum Codec {
+    TEXT(ContentFormat.TEXT, false), //
+    OPAQUE(ContentFormat.OPAQUE, false), //
+    CBOR(ContentFormat.CBOR, false), //
+    TLV(ContentFormat.TLV, false), //
+    JSON(ContentFormat.JSON, false), //
+    SENML_JSON(ContentFormat.SENML_JSON, false), //
+    SENML_CBOR(ContentFormat.SENML_CBOR, false), //
+    SENML_CBOR_STREAMING(ContentFormat.SENML_CBOR, true);
+
+    private final ContentFormat format;
+    private final boolean streaming;
+
+    private Codec(ContentFormat format, boolean streaming) {
+        this.format = format;
+        this.streaming = streaming;
+    }
+
+    public ContentFormat getFormat() {
+        return format;
+    }
+
+    public LwM2mEncoder createEncoder() {
+        return new DefaultLwM2mEncoder(DefaultLwM2mEncoder.getDefaultNodeEncoders(false, streaming),
+                DefaultLwM2mEncoder.getDefaultPathEncoder(), new LwM2mValueChecker());
+    }
+
+    public LwM2mDecoder createDecoder() {
+        return new DefaultLwM2mDecoder(DefaultLwM2mDecoder.getDefaultNodeDecoders(false, streaming));
+    }
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.codec;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mMultipleResource;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode and decode a Device object instance (/3/0) with all content formats supporting object instances.
+ * <p>
+ * <code>size</code> is the number of resource instances of each multiple resource (power sources, voltages, currents
+ * and error codes), so payload grows from a typical Device read to a large one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NodeCodecBenchmark {
+
+    @Param({ "TLV", "JSON", "SENML_JSON", "SENML_CBOR", "SENML_CBOR_STREAMING" })
+    public Codec codec;
+
+    @Param({ "1", "10", "100", "1000" })
+    public int size;
+
+    private LwM2mModel model;
+    private LwM2mEncoder encoder;
+    private LwM2mDecoder decoder;
+    private LwM2mPath path;
+    private LwM2mObjectInstance instance;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        model = new StaticModel(ObjectLoader.loadDefault());
+        encoder = codec.createEncoder();
+        decoder = codec.createDecoder();
+        path = new LwM2mPath(3, 0);
+        instance = createDeviceInstance(size);
+        encoded = encoder.encode(instance, codec.getFormat(), path, model);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return encoder.encode(instance, codec.getFormat(), path, model);
+    }
+
+    @Benchmark
+    public LwM2mNode decode() {
+        return decoder.decode(encoded, codec.getFormat(), path, model);
+    }
+
+    static LwM2mObjectInstance createDeviceInstance(int size) {
+        Map<Integer, Long> powerSources = new HashMap<>();
+        Map<Integer, Long> voltages = new HashMap<>();
+        Map<Integer, Long> currents = new HashMap<>();
+        Map<Integer, Long> errorCodes = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            powerSources.put(i, (long) (i % 8));
+            voltages.put(i, 3800L + i);
+            currents.put(i, 125L * i);
+            errorCodes.put(i, (long) (i % 9));
+        }
+        return new LwM2mObjectInstance(0, //
+                LwM2mSingleResource.newStringResource(0, "Eclipse Leshan"), //
+                LwM2mSingleResource.newStringResource(1, "Benchmark Device"), //
+                LwM2mSingleResource.newStringResource(2, "1234567890"), //
+                LwM2mSingleResource.newStringResource(3, "2.0.0"), //
+                LwM2mMultipleResource.newIntegerResource(6, powerSources), //
+                LwM2mMultipleResource.newIntegerResource(7, voltages), //
+                LwM2mMultipleResource.newIntegerResource(8, currents), //
+                LwM2mSingleResource.newIntegerResource(9, 95), //
+                LwM2mSingleResource.newIntegerResource(10, 15), //
+                LwM2mMultipleResource.newIntegerResource(11, errorCodes), //
+                LwM2mSingleResource.newDateResource(13, new Date(1_600_000_000_000L)), //
+                LwM2mSingleResource.newStringResource(14, "+02:00"), //
+                LwM2mSingleResource.newStringResource(15, "Europe/Paris"), //
+                LwM2mSingleResource.newStringResource(16, "U"));
+    }
+}
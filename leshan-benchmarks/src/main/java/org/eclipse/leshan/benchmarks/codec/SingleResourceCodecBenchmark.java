@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.codec;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode and decode a single resource with all content formats.
+ * <p>
+ * The Device manufacturer (/3/0/0) string resource is used, except for {@link Codec#OPAQUE} which uses the Firmware
+ * package (/5/0/0) opaque resource. <code>size</code> is the length of the value (in chars or bytes).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SingleResourceCodecBenchmark {
+
+    @Param({ "TEXT", "OPAQUE", "CBOR", "TLV", "JSON", "SENML_JSON", "SENML_CBOR", "SENML_CBOR_STREAMING" })
+    public Codec codec;
+
+    @Param({ "16", "1024" })
+    public int size;
+
+    private LwM2mModel model;
+    private LwM2mEncoder encoder;
+    private LwM2mDecoder decoder;
+    private LwM2mPath path;
+    private LwM2mSingleResource resource;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        model = new StaticModel(ObjectLoader.loadDefault());
+        encoder = codec.createEncoder();
+        decoder = codec.createDecoder();
+        if (codec == Codec.OPAQUE) {
+            byte[] value = new byte[size];
+            Arrays.fill(value, (byte) 0xA5);
+            path = new LwM2mPath(5, 0, 0);
+            resource = LwM2mSingleResource.newBinaryResource(0, value);
+        } else {
+            char[] value = new char[size];
+            Arrays.fill(value, 'a');
+            path = new LwM2mPath(3, 0, 0);
+            resource = LwM2mSingleResource.newStringResource(0, new String(value));
+        }
+        encoded = encoder.encode(resource, codec.getFormat(), path, model);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return encoder.encode(resource, codec.getFormat(), path, model);
+    }
+
+    @Benchmark
+    public LwM2mNode decode() {
+        return decoder.decode(encoded, codec.getFormat(), path, model);
+    }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.codec;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResourceInstance;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
+import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode and decode timestamped nodes as sent by a client with the Send operation.
+ * <p>
+ * <code>size</code> is the number of timestamps, each timestamp contains 3 values so the number of SenML records is 3
+ * times bigger.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimestampedNodesCodecBenchmark {
+
+    @Param({ "SENML_JSON", "SENML_CBOR", "SENML_CBOR_STREAMING" })
+    public Codec codec;
+
+    @Param({ "10", "100", "1000", "5000" })
+    public int size;
+
+    private LwM2mModel model;
+    private LwM2mEncoder encoder;
+    private LwM2mDecoder decoder;
+    private TimestampedLwM2mNodes nodes;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        model = new StaticModel(ObjectLoader.loadDefault());
+        encoder = codec.createEncoder();
+        decoder = codec.createDecoder();
+
+        TimestampedLwM2mNodes.Builder builder = TimestampedLwM2mNodes.builder();
+        LwM2mPath batteryLevel = new LwM2mPath(3, 0, 9);
+        LwM2mPath voltage = new LwM2mPath(3, 0, 7, 0);
+        LwM2mPath currentTime = new LwM2mPath(3, 0, 13);
+        for (int i = 0; i < size; i++) {
+            Instant timestamp = Instant.ofEpochSecond(1_600_000_000L + i, (i % 4) * 250_000_000);
+            builder.put(timestamp, batteryLevel, LwM2mSingleResource.newIntegerResource(9, 100 - i % 100));
+            builder.put(timestamp, voltage, LwM2mResourceInstance.newIntegerInstance(0, 3800 + i % 400));
+            builder.put(timestamp, currentTime,
+                    LwM2mSingleResource.newDateResource(13, new Date(timestamp.toEpochMilli())));
+        }
+        nodes = builder.build();
+        encoded = encoder.encodeTimestampedNodes(nodes, codec.getFormat(), model);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return encoder.encodeTimestampedNodes(nodes, codec.getFormat(), model);
+    }
+
+    @Benchmark
+    public TimestampedLwM2mNodes decode() {
+        return decoder.decodeTimestampedNodes(encoded, codec.getFormat(), model);
+    }
+}
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.codec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.ResourceModel;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mMultipleResource;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.LwM2mResourceInstance;
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.node.codec.LwM2mValueChecker;
+import org.eclipse.leshan.core.node.codec.LwM2mValueConverter;
+import org.eclipse.leshan.core.node.codec.tlv.LwM2mNodeTlvEncoder;
+import org.eclipse.leshan.core.tlv.Tlv;
+import org.eclipse.leshan.core.tlv.Tlv.TlvType;
+import org.eclipse.leshan.core.tlv.TlvEncoder;
+import org.eclipse.leshan.core.tlv.TlvWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare TLV encoding using a tree of {@link Tlv} encoded by {@link TlvEncoder#encode(Tlv[])} (the way
+ * {@link LwM2mNodeTlvEncoder} worked before) with the current {@link TlvWriter} based {@link LwM2mNodeTlvEncoder}.
+ * <p>
+ * <code>payload</code> is an {@link LwM2mObject} (/3 with 4 Device instances), an {@link LwM2mObjectInstance} (/3/0)
+ * or an {@link LwM2mMultipleResource} (/3/0/7). <code>size</code> is the number of instances of each multiple resource.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TlvEncoderBenchmark {
+
+    public enum Encoder {
+        /** {@link Tlv} tree encoded with {@link TlvEncoder#encode(Tlv[])} */
+        TREE,
+        /** {@link LwM2mNodeTlvEncoder} creating a new {@link TlvWriter} for each encoding */
+        WRITER,
+        /** {@link LwM2mNodeTlvEncoder} reusing the same {@link TlvWriter} */
+        REUSED_WRITER
+    }
+
+    public enum Payload {
+        OBJECT, INSTANCE, MULTIPLE_RESOURCE
+    }
+
+    @Param({ "TREE", "WRITER", "REUSED_WRITER" })
+    public Encoder encoder;
+
+    @Param({ "OBJECT", "INSTANCE", "MULTIPLE_RESOURCE" })
+    public Payload payload;
+
+    @Param({ "1", "10", "100" })
+    public int size;
+
+    private LwM2mModel model;
+    private LwM2mValueConverter converter;
+    private LwM2mNodeTlvEncoder nodeEncoder;
+    private TlvWriter writer;
+    private LwM2mPath path;
+    private LwM2mNode node;
+
+    @Setup
+    public void setup() {
+        model = new StaticModel(ObjectLoader.loadDefault());
+        converter = new LwM2mValueChecker();
+        nodeEncoder = new LwM2mNodeTlvEncoder();
+        writer = new TlvWriter();
+
+        LwM2mObjectInstance instance = NodeCodecBenchmark.createDeviceInstance(size);
+        switch (payload) {
+        case OBJECT:
+            List<LwM2mObjectInstance> instances = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                instances.add(new LwM2mObjectInstance(i, instance.getResources().values()));
+            }
+            path = new LwM2mPath(3);
+            node = new LwM2mObject(3, instances);
+            break;
+        case INSTANCE:
+            path = new LwM2mPath(3, 0);
+            node = instance;
+            break;
+        case MULTIPLE_RESOURCE:
+            path = new LwM2mPath(3, 0, 7);
+            node = instance.getResource(7);
+            break;
+        default:
+            throw new IllegalStateException("Unsupported payload " + payload);
+        }
+
+        // ensure both ways produce the same payload
+        if (!Arrays.equals(new TreeEncoder(path, model, converter).encode(node),
+                nodeEncoder.encode(node, path, model, converter))) {
+            throw new IllegalStateException("Tlv tree and TlvWriter encodings differ for " + payload);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        switch (encoder) {
+        case TREE:
+            return new TreeEncoder(path, model, converter).encode(node);
+        case WRITER:
+            return nodeEncoder.encode(node, path, model, converter);
+        case REUSED_WRITER:
+            writer.reset();
+            nodeEncoder.encode(node, path, model, converter, writer);
+            return writer.toByteArray();
+        default:
+            throw new IllegalStateException("Unsupported encoder " + encoder);
+        }
+    }
+
+    /**
+     * Build a {@link Tlv} tree for the node, then encode it with {@link TlvEncoder#encode(Tlv[])}.
+     * <p>
+     * Only supports nodes used by this benchmark.
+     */
+    private static class TreeEncoder {
+
+        private final LwM2mPath path;
+        private final LwM2mModel model;
+        private final LwM2mValueConverter converter;
+
+        TreeEncoder(LwM2mPath path, LwM2mModel model, LwM2mValueConverter converter) {
+            this.path = path;
+            this.model = model;
+            this.converter = converter;
+        }
+
+        byte[] encode(LwM2mNode node) {
+            Tlv[] tlvs;
+            if (node instanceof LwM2mObject) {
+                LwM2mObject object = (LwM2mObject) node;
+                tlvs = new Tlv[object.getInstances().size()];
+                int i = 0;
+                for (Entry<Integer, LwM2mObjectInstance> instance : object.getInstances().entrySet()) {
+                    Tlv[] resources = encodeResources(instance.getValue().getResources().values(),
+                            new LwM2mPath(object.getId(), instance.getKey()));
+                    tlvs[i] = new Tlv(TlvType.OBJECT_INSTANCE, resources, null, instance.getKey());
+                    i++;
+                }
+            } else if (node instanceof LwM2mObjectInstance) {
+                // the instanceId is part of the request path so the instance TLV layer is not needed.
+                tlvs = encodeResources(((LwM2mObjectInstance) node).getResources().values(), path);
+            } else if (node instanceof LwM2mResource) {
+                tlvs = new Tlv[] { encodeResource((LwM2mResource) node, path) };
+            } else {
+                throw new IllegalArgumentException("Unsupported node " + node);
+            }
+            return TlvEncoder.encode(tlvs).array();
+        }
+
+        private Tlv[] encodeResources(Collection<LwM2mResource> resources, LwM2mPath instancePath) {
+            Tlv[] rTlvs = new Tlv[resources.size()];
+            int i = 0;
+            for (LwM2mResource resource : resources) {
+                rTlvs[i] = encodeResource(resource, instancePath.append(resource.getId()));
+                i++;
+            }
+            return rTlvs;
+        }
+
+        private Tlv encodeResource(LwM2mResource resource, LwM2mPath resourcePath) {
+            ResourceModel rSpec = model.getResourceModel(path.getObjectId(), resource.getId());
+            Type expectedType = rSpec != null ? rSpec.type : resource.getType();
+
+            if (resource.isMultiInstances()) {
+                Tlv[] instances = new Tlv[resource.getInstances().size()];
+                int i = 0;
+                for (LwM2mResourceInstance resourceInstance : resource.getInstances().values()) {
+                    LwM2mPath resourceInstancePath = resourcePath.append(resourceInstance.getId());
+                    Object convertedValue = converter.convertValue(resourceInstance.getValue(),
+                            resourceInstance.getType(), expectedType, resourceInstancePath);
+                    instances[i] = new Tlv(TlvType.RESOURCE_INSTANCE, null,
+                            encodeTlvValue(convertedValue, expectedType), resourceInstance.getId());
+                    i++;
+                }
+                return new Tlv(TlvType.MULTIPLE_RESOURCE, instances, null, resource.getId());
+            } else {
+                Object convertedValue = converter.convertValue(resource.getValue(), resource.getType(), expectedType,
+                        resourcePath);
+                return new Tlv(TlvType.RESOURCE_VALUE, null, encodeTlvValue(convertedValue, expectedType),
+                        resource.getId());
+            }
+        }
+
+        private byte[] encodeTlvValue(Object value, Type type) {
+            switch (type) {
+            case STRING:
+                return TlvEncoder.encodeString((String) value);
+            case INTEGER:
+            case UNSIGNED_INTEGER:
+                return TlvEncoder.encodeInteger((Number) value);
+            case FLOAT:
+                return TlvEncoder.encodeFloat((Number) value);
+            case BOOLEAN:
+                return TlvEncoder.encodeBoolean((Boolean) value);
+            case TIME:
+                return TlvEncoder.encodeDate((Date) value);
+            case OPAQUE:
+                return (byte[]) value;
+            case OBJLNK:
+                return TlvEncoder.encodeObjlnk((ObjectLink) value);
+            default:
+                throw new IllegalArgumentException("Unsupported type " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.e2e;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.client.californium.LeshanClient;
+import org.eclipse.leshan.client.californium.LeshanClientBuilder;
+import org.eclipse.leshan.client.object.Device;
+import org.eclipse.leshan.client.object.Security;
+import org.eclipse.leshan.client.object.Server;
+import org.eclipse.leshan.client.resource.ObjectsInitializer;
+import org.eclipse.leshan.core.LwM2mId;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.response.ObserveCompositeResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.server.californium.LeshanServer;
+import org.eclipse.leshan.server.californium.LeshanServerBuilder;
+import org.eclipse.leshan.server.model.VersionedModelProvider;
+import org.eclipse.leshan.server.observation.ObservationListener;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure round-trip time of requests between a {@link LeshanServer} and a {@link LeshanClient} running in the same
+ * JVM and communicating over loopback UDP (no DTLS).
+ * <ul>
+ * <li><code>read</code> : server reads the Device object instance and waits for the response.</li>
+ * <li><code>observe</code> : client triggers a change of UTC offset (observed by the server) and server waits for
+ * the notification.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ClientServerBenchmark {
+
+    private static final long TIMEOUT_IN_MS = 5000;
+    private static final String ENDPOINT = "leshan-benchmark-client";
+
+    @Param({ "TLV", "SENML_CBOR" })
+    public String format;
+
+    private LeshanServer server;
+    private LeshanClient client;
+    private Device device;
+    private Registration registration;
+    private ContentFormat contentFormat;
+    private final BlockingQueue<ObserveResponse> notifications = new LinkedBlockingQueue<>();
+
+    @Setup
+    public void setup() throws InterruptedException {
+        contentFormat = ContentFormat.fromName(format);
+
+        // create server
+        LeshanServerBuilder serverBuilder = new LeshanServerBuilder();
+        serverBuilder.setLocalAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        serverBuilder.disableSecuredEndpoint();
+        serverBuilder.setObjectModelProvider(new VersionedModelProvider(ObjectLoader.loadDefault()));
+        server = serverBuilder.build();
+
+        CountDownLatch registered = new CountDownLatch(1);
+        server.getRegistrationService().addListener(new RegistrationListener() {
+            @Override
+            public void registered(Registration registration, Registration previousReg,
+                    Collection<Observation> previousObservations) {
+                registered.countDown();
+            }
+
+            @Override
+            public void updated(RegistrationUpdate update, Registration updatedReg, Registration previousReg) {
+            }
+
+            @Override
+            public void unregistered(Registration registration, Collection<Observation> observations,
+                    boolean expired, Registration newReg) {
+            }
+        });
+        server.getObservationService().addListener(new ObservationListener() {
+            @Override
+            public void newObservation(Observation observation, Registration registration) {
+            }
+
+            @Override
+            public void cancelled(Observation observation) {
+            }
+
+            @Override
+            public void onResponse(SingleObservation observation, Registration registration,
+                    ObserveResponse response) {
+                notifications.offer(response);
+            }
+
+            @Override
+            public void onResponse(CompositeObservation observation, Registration registration,
+                    ObserveCompositeResponse response) {
+            }
+
+            @Override
+            public void onError(Observation observation, Registration registration, Exception error) {
+            }
+        });
+        server.start();
+
+        // create client
+        InetSocketAddress serverAddress = server.getUnsecuredAddress();
+        ObjectsInitializer initializer = new ObjectsInitializer(new StaticModel(ObjectLoader.loadDefault()));
+        initializer.setInstancesForObject(LwM2mId.SECURITY, Security
+                .noSec("coap://" + serverAddress.getHostString() + ":" + serverAddress.getPort(), 12345));
+        initializer.setInstancesForObject(LwM2mId.SERVER, new Server(12345, 300));
+        device = new Device("Eclipse Leshan", "Benchmark", "12345");
+        initializer.setInstancesForObject(LwM2mId.DEVICE, device);
+
+        LeshanClientBuilder clientBuilder = new LeshanClientBuilder(ENDPOINT);
+        clientBuilder.setObjects(initializer.createAll());
+        client = clientBuilder.build();
+        client.start();
+
+        if (!registered.await(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Client did not register");
+        }
+        registration = server.getRegistrationService().getByEndpoint(ENDPOINT);
+
+        // observe UTC offset
+        ObserveResponse response = server.send(registration, new ObserveRequest(contentFormat, 3, 0, 14),
+                TIMEOUT_IN_MS);
+        if (response == null || !response.isSuccess()) {
+            throw new IllegalStateException("Unable to observe UTC offset : " + response);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (client != null) {
+            client.destroy(true);
+        }
+        if (server != null) {
+            server.destroy();
+        }
+    }
+
+    @Benchmark
+    public ReadResponse read() throws InterruptedException {
+        ReadResponse response = server.send(registration, new ReadRequest(contentFormat, 3, 0), TIMEOUT_IN_MS);
+        if (response == null || !response.isSuccess()) {
+            throw new IllegalStateException("Read failed : " + response);
+        }
+        return response;
+    }
+
+    @Benchmark
+    public ObserveResponse observe() throws InterruptedException {
+        device.fireResourceChange(14);
+        ObserveResponse notification = notifications.poll(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
+        if (notification == null) {
+            throw new IllegalStateException("No notification received");
+        }
+        return notification;
+    }
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.link;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.link.ByteArrayLinkParser;
+import org.eclipse.leshan.core.link.DefaultLinkParser;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.link.LinkParseException;
+import org.eclipse.leshan.core.link.LinkParser;
+import org.eclipse.leshan.core.link.lwm2m.DefaultLwM2mLinkParser;
+import org.eclipse.leshan.core.link.lwm2m.LwM2mLinkParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parse CoRE Link Format payload of a Register request (<code>/rd</code>).
+ * <p>
+ * <code>size</code> is the number of links in the payload: 1 object link with a version attribute for 4 object
+ * instance links.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkParserBenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    public int size;
+
+    private final LinkParser coreLinkParser = new DefaultLinkParser();
+    private final LinkParser byteArrayLinkParser = new ByteArrayLinkParser();
+    private final LwM2mLinkParser registerLinkParser = new DefaultLwM2mLinkParser();
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        StringBuilder b = new StringBuilder("</>;rt=\"oma.lwm2m\";ct=11543");
+        for (int i = 1; i < size; i++) {
+            int objectId = i / 5;
+            int instanceId = i % 5 - 1;
+            if (instanceId < 0) {
+                b.append(",</").append(objectId).append(">;ver=1.1");
+            } else {
+                b.append(",</").append(objectId).append("/").append(instanceId).append(">");
+            }
+        }
+        payload = b.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Link[] parseCoreLinkFormat() throws LinkParseException {
+        return coreLinkParser.parseCoreLinkFormat(payload);
+    }
+
+    @Benchmark
+    public Link[] parseCoreLinkFormatFromBytes() throws LinkParseException {
+        return byteArrayLinkParser.parseCoreLinkFormat(payload);
+    }
+
+    /**
+     * Parse payload with LWM2M attributes validation as done by the server on Register request.
+     */
+    @Benchmark
+    public Link[] parseRegisterPayload() throws LinkParseException {
+        return registerLinkParser.parseCoreLinkFormat(payload);
+    }
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.model;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.model.DDFFileParser;
+import org.eclipse.leshan.core.model.InvalidDDFFileException;
+import org.eclipse.leshan.core.model.InvalidModelException;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.ObjectModel;
+import org.eclipse.leshan.core.model.ObjectModelBundle;
+import org.eclipse.leshan.core.model.SaxDDFFileParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Load all embedded DDF files (without validation) with DOM or SAX parser, sequentially or in parallel, and compare it
+ * with decoding of an {@link ObjectModelBundle} containing the same models.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectLoaderBenchmark {
+
+    private static final String[] PATHS = new String[] { "/models/0-1_0.xml", "/models/0-1_1.xml", "/models/0.xml",
+            "/models/1-1_0.xml", "/models/1-1_1.xml", "/models/2-1_0.xml", "/models/2.xml", "/models/3-1_0.xml",
+            "/models/3-1_1.xml", "/models/3.xml", "/models/4-1_0.xml", "/models/4-1_1.xml", "/models/4-1_2.xml",
+            "/models/4.xml", "/models/5-1_0.xml", "/models/5.xml", "/models/6.xml", "/models/7.xml", "/models/21.xml" };
+
+    @Param({ "dom", "sax" })
+    public String parser;
+
+    @Param({ "false", "true" })
+    public boolean parallel;
+
+    private DDFFileParser ddfFileParser;
+    private byte[] bundle;
+
+    @Setup
+    public void setup() throws IOException, InvalidModelException, InvalidDDFFileException {
+        ddfFileParser = "sax".equals(parser) ? new SaxDDFFileParser() : new DDFFileParser();
+        bundle = ObjectModelBundle.write(ObjectLoader.loadDdfResources(PATHS), 0, false);
+    }
+
+    @Benchmark
+    public List<ObjectModel> loadDdfResources() throws IOException, InvalidModelException, InvalidDDFFileException {
+        if (parallel) {
+            return ObjectLoader.loadDdfResources(PATHS, ddfFileParser, null, ForkJoinPool.commonPool());
+        } else {
+            return ObjectLoader.loadDdfResources(PATHS, ddfFileParser, null);
+        }
+    }
+
+    @Benchmark
+    public List<ObjectModel> loadBundle() throws IOException, InvalidModelException {
+        return ObjectModelBundle.fromBytes(bundle).getObjectModels();
+    }
+}
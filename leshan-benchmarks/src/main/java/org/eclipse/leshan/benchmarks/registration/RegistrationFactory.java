@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.registration;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.link.LinkParseException;
+import org.eclipse.leshan.core.link.lwm2m.DefaultLwM2mLinkParser;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Create realistic {@link Registration} for benchmarks.
+ */
+class RegistrationFactory {
+
+    private final Link[] objectLinks;
+
+    /**
+     * @param nbObjects number of object in registration, each object has 2 instances.
+     */
+    RegistrationFactory(int nbObjects) {
+        StringBuilder b = new StringBuilder("</>;rt=\"oma.lwm2m\";ct=11543");
+        for (int i = 0; i < nbObjects; i++) {
+            b.append(",</").append(i).append(">;ver=1.1");
+            b.append(",</").append(i).append("/0>");
+            b.append(",</").append(i).append("/1>");
+        }
+        try {
+            objectLinks = new DefaultLwM2mLinkParser()
+                    .parseCoreLinkFormat(b.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (LinkParseException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    Registration create(int index) {
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 10000 + index % 50000);
+        return new Registration.Builder("reg" + index, "endpoint" + index, Identity.unsecure(address)) //
+                .objectLinks(objectLinks) //
+                .extractDataFromObjectLink(true) //
+                .supportedContentFormats(ContentFormat.TLV, ContentFormat.SENML_CBOR, ContentFormat.TEXT) //
+                .bindingMode(EnumSet.of(BindingMode.U, BindingMode.Q)) //
+                .lifeTimeInSec(86400L) //
+                .build();
+    }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.registration;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.server.redis.serialization.BinaryRegistrationSerDes;
+import org.eclipse.leshan.server.redis.serialization.RegistrationSerDes;
+import org.eclipse.leshan.server.registration.Registration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialize and deserialize a {@link Registration} as done by the Redis registration store, with the JSON
+ * {@link RegistrationSerDes} and the {@link BinaryRegistrationSerDes}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistrationSerDesBenchmark {
+
+    @Param({ "json", "binary" })
+    public String serDes;
+
+    @Param({ "5", "50" })
+    public int nbObjects;
+
+    private RegistrationSerDes registrationSerDes;
+    private Registration registration;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() {
+        registrationSerDes = serDes.equals("binary") ? new BinaryRegistrationSerDes() : new RegistrationSerDes();
+        registration = new RegistrationFactory(nbObjects).create(0);
+        serialized = registrationSerDes.bSerialize(registration);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return registrationSerDes.bSerialize(registration);
+    }
+
+    @Benchmark
+    public Registration deserialize() {
+        return registrationSerDes.deserialize(serialized);
+    }
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks.registration;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.server.californium.registration.CaliforniumRegistrationStore;
+import org.eclipse.leshan.server.californium.registration.ConcurrentInMemoryRegistrationStore;
+import org.eclipse.leshan.server.californium.registration.InMemoryRegistrationStore;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.UpdatedRegistration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Add, update and lookup registrations in in-memory registration stores under contention.
+ * <p>
+ * The store is filled with <code>nbRegistrations</code> registrations before measurement, then each operation targets
+ * a random registration. The <code>mixed</code> group simulates a server where lookups (requests sent to devices) are
+ * more frequent than updates.
+ * <p>
+ * Store expiration tasks are not started, so registrations never expire during the benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistrationStoreBenchmark {
+
+    @Param({ "InMemoryRegistrationStore", "ConcurrentInMemoryRegistrationStore" })
+    public String store;
+
+    @Param({ "10000" })
+    public int nbRegistrations;
+
+    private CaliforniumRegistrationStore registrationStore;
+    private Registration[] registrations;
+    private RegistrationUpdate[] updates;
+
+    @Setup
+    public void setup() {
+        if (store.equals("ConcurrentInMemoryRegistrationStore")) {
+            registrationStore = new ConcurrentInMemoryRegistrationStore();
+        } else {
+            registrationStore = new InMemoryRegistrationStore();
+        }
+
+        RegistrationFactory factory = new RegistrationFactory(10);
+        registrations = new Registration[nbRegistrations];
+        updates = new RegistrationUpdate[nbRegistrations];
+        for (int i = 0; i < nbRegistrations; i++) {
+            registrations[i] = factory.create(i);
+            updates[i] = new RegistrationUpdate(registrations[i].getId(), registrations[i].getIdentity(), 86400L,
+                    null, null, null, null, null);
+            registrationStore.addRegistration(registrations[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (registrationStore instanceof Destroyable) {
+            ((Destroyable) registrationStore).destroy();
+        }
+    }
+
+    private int randomIndex() {
+        return ThreadLocalRandom.current().nextInt(nbRegistrations);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Registration getByEndpoint() {
+        return registrationStore.getRegistrationByEndpoint(registrations[randomIndex()].getEndpoint());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Registration getById() {
+        return registrationStore.getRegistration(registrations[randomIndex()].getId());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public UpdatedRegistration update() {
+        return registrationStore.updateRegistration(updates[randomIndex()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Deregistration add() {
+        // registration already exists so this replaces it, size of the store stays constant
+        return registrationStore.addRegistration(registrations[randomIndex()]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public Registration mixedLookup() {
+        return getByEndpoint();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public UpdatedRegistration mixedUpdate() {
+        return update();
+    }
+}
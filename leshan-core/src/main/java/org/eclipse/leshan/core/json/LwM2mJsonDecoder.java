@@ -21,4 +21,14 @@ package org.eclipse.leshan.core.json;
 public interface LwM2mJsonDecoder {
 
     JsonRootObject fromJsonLwM2m(String jsonString) throws LwM2mJsonException;
+
+    /**
+     * Decode a {@link JsonRootObject} from the given bytes.
+     * <p>
+     * Default implementation converts content to a {@link String} first, implementations which are able to read bytes
+     * directly should override it.
+     */
+    default JsonRootObject fromJsonLwM2m(byte[] content) throws LwM2mJsonException {
+        return fromJsonLwM2m(new String(content));
+    }
 }
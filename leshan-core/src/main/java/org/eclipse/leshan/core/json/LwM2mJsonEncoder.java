@@ -22,4 +22,14 @@ public interface LwM2mJsonEncoder {
 
     public String toJsonLwM2m(JsonRootObject jro) throws LwM2mJsonException;
 
+    /**
+     * Encode the given {@link JsonRootObject} as bytes.
+     * <p>
+     * Default implementation encodes to a {@link String} first, implementations which are able to write bytes directly
+     * should override it.
+     */
+    default byte[] toJsonLwM2mBytes(JsonRootObject jro) throws LwM2mJsonException {
+        return toJsonLwM2m(jro).getBytes();
+    }
+
 }
@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.json.jackson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.json.JsonArrayEntry;
+import org.eclipse.leshan.core.json.JsonRootObject;
+import org.eclipse.leshan.core.json.LwM2mJsonDecoder;
+import org.eclipse.leshan.core.json.LwM2mJsonEncoder;
+import org.eclipse.leshan.core.json.LwM2mJsonException;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.util.datatype.ULong;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Helper for encoding/decoding LWM2M JSON format using jackson streaming API.
+ * <p>
+ * Unlike {@link LwM2mJsonJacksonEncoderDecoder}, no intermediate {@code JsonNode} tree is created : entries are written
+ * directly with a {@link JsonGenerator} and read with a {@link JsonParser}. Produced content is the same.
+ */
+public class LwM2mJsonStreamingEncoderDecoder implements LwM2mJsonDecoder, LwM2mJsonEncoder {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    @Override
+    public String toJsonLwM2m(JsonRootObject jro) throws LwM2mJsonException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = factory.createGenerator(writer)) {
+            writeRootObject(generator, jro);
+        } catch (IOException e) {
+            throw new LwM2mJsonException("Unable to serialize LWM2M JSON.", e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public byte[] toJsonLwM2mBytes(JsonRootObject jro) throws LwM2mJsonException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            writeRootObject(generator, jro);
+        } catch (IOException e) {
+            throw new LwM2mJsonException("Unable to serialize LWM2M JSON.", e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public JsonRootObject fromJsonLwM2m(String jsonString) throws LwM2mJsonException {
+        try (JsonParser parser = factory.createParser(jsonString)) {
+            return readRootObject(parser);
+        } catch (IOException e) {
+            throw new LwM2mJsonException("Unable to parse LWM2M JSON.", e);
+        }
+    }
+
+    @Override
+    public JsonRootObject fromJsonLwM2m(byte[] content) throws LwM2mJsonException {
+        try (JsonParser parser = factory.createParser(content)) {
+            return readRootObject(parser);
+        } catch (IOException e) {
+            throw new LwM2mJsonException("Unable to parse LWM2M JSON.", e);
+        }
+    }
+
+    protected void writeRootObject(JsonGenerator generator, JsonRootObject jro) throws IOException, LwM2mJsonException {
+        generator.writeStartObject();
+        if (jro.getBaseName() != null)
+            generator.writeStringField("bn", jro.getBaseName());
+
+        if (jro.getResourceList() != null) {
+            generator.writeArrayFieldStart("e");
+            for (JsonArrayEntry jae : jro.getResourceList()) {
+                writeEntry(generator, jae);
+            }
+            generator.writeEndArray();
+        }
+
+        if (jro.getBaseTime() != null) {
+            generator.writeFieldName("bt");
+            generator.writeNumber(jro.getBaseTime());
+        }
+        generator.writeEndObject();
+    }
+
+    protected void writeEntry(JsonGenerator generator, JsonArrayEntry jae) throws IOException, LwM2mJsonException {
+        generator.writeStartObject();
+        if (jae.getName() != null)
+            generator.writeStringField("n", jae.getName());
+        Type type = jae.getType();
+        if (type != null) {
+            switch (type) {
+            case FLOAT:
+                Number value = jae.getFloatValue();
+                generator.writeFieldName("v");
+                // integer
+                if (value instanceof Byte || value instanceof Short) {
+                    generator.writeNumber(value.shortValue());
+                } else if (value instanceof Integer) {
+                    generator.writeNumber(value.intValue());
+                } else if (value instanceof Long) {
+                    generator.writeNumber(value.longValue());
+                } else if (value instanceof BigInteger) {
+                    generator.writeNumber((BigInteger) value);
+                }
+                // unsigned integer
+                else if (value instanceof ULong) {
+                    generator.writeNumber(((ULong) value).toBigInteger());
+                }
+                // floating-point
+                else if (value instanceof Float) {
+                    generator.writeNumber(value.floatValue());
+                } else if (value instanceof Double) {
+                    generator.writeNumber(value.doubleValue());
+                } else if (value instanceof BigDecimal) {
+                    generator.writeNumber((BigDecimal) value);
+                } else {
+                    throw new LwM2mJsonException("Unsupported number type %s for entry %s", value.getClass(), jae);
+                }
+                break;
+            case BOOLEAN:
+                generator.writeBooleanField("bv", jae.getBooleanValue());
+                break;
+            case OBJLNK:
+                generator.writeStringField("ov", jae.getObjectLinkValue());
+                break;
+            case STRING:
+                generator.writeStringField("sv", jae.getStringValue());
+                break;
+            default:
+                throw new LwM2mJsonException("JsonArrayEntry MUST have a value : %s", jae);
+            }
+        }
+        if (jae.getTime() != null) {
+            generator.writeFieldName("t");
+            generator.writeNumber(jae.getTime());
+        }
+        generator.writeEndObject();
+    }
+
+    protected JsonRootObject readRootObject(JsonParser parser) throws IOException, LwM2mJsonException {
+        JsonToken token = parser.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw new LwM2mJsonException("Unable to parse LWM2M JSON: JsonObject expected but was %s", token);
+        }
+
+        JsonRootObject jro = new JsonRootObject();
+        List<JsonArrayEntry> entries = null;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            token = parser.nextToken();
+            switch (field) {
+            case "e":
+                if (token == JsonToken.START_ARRAY) {
+                    entries = new ArrayList<>();
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        entries.add(readEntry(parser, token));
+                    }
+                }
+                break;
+            case "bn":
+                if (token == JsonToken.VALUE_STRING)
+                    jro.setBaseName(parser.getText());
+                break;
+            case "bt":
+                if (token.isNumeric())
+                    jro.setBaseTime(readBigDecimal(parser));
+                break;
+            default:
+                break;
+            }
+            parser.skipChildren();
+        }
+
+        if (entries == null)
+            throw new LwM2mJsonException("'e' field is missing for %s", jro);
+        jro.setResourceList(entries);
+        return jro;
+    }
+
+    protected JsonArrayEntry readEntry(JsonParser parser, JsonToken token) throws IOException, LwM2mJsonException {
+        JsonArrayEntry jae = new JsonArrayEntry();
+        if (token == JsonToken.START_OBJECT) {
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                token = parser.nextToken();
+                switch (field) {
+                case "n":
+                    if (token == JsonToken.VALUE_STRING)
+                        jae.setName(parser.getText());
+                    break;
+                case "t":
+                    if (token.isNumeric())
+                        jae.setTime(readBigDecimal(parser));
+                    break;
+                case "v":
+                    if (token.isNumeric())
+                        jae.setFloatValue(parser.getNumberValue());
+                    break;
+                case "bv":
+                    if (token.isBoolean())
+                        jae.setBooleanValue(parser.getBooleanValue());
+                    break;
+                case "sv":
+                    if (token == JsonToken.VALUE_STRING)
+                        jae.setStringValue(parser.getText());
+                    break;
+                case "ov":
+                    if (token == JsonToken.VALUE_STRING)
+                        jae.setObjectLinkValue(parser.getText());
+                    break;
+                default:
+                    break;
+                }
+                parser.skipChildren();
+            }
+        } else {
+            parser.skipChildren();
+        }
+
+        if (jae.getType() == null) {
+            throw new LwM2mJsonException("Missing value(v,bv,ov,sv) field for entry %s", jae);
+        }
+        return jae;
+    }
+
+    private BigDecimal readBigDecimal(JsonParser parser) throws IOException {
+        // same textual representation than the one used by tree based decoder
+        return new BigDecimal(parser.getNumberValue().toString());
+    }
+}
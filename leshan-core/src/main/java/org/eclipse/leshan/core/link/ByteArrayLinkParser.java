@@ -0,0 +1,369 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.link;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.leshan.core.link.attributes.Attribute;
+import org.eclipse.leshan.core.link.attributes.AttributeModel;
+import org.eclipse.leshan.core.link.attributes.AttributeParser;
+import org.eclipse.leshan.core.link.attributes.Attributes;
+import org.eclipse.leshan.core.link.attributes.DefaultAttributeParser;
+import org.eclipse.leshan.core.link.attributes.InvalidAttributeException;
+
+/**
+ * A {@link LinkParser} which works directly on the byte array.
+ * <p>
+ * It accepts the same grammar and produces the same {@link Link}s than {@link DefaultLinkParser}, but :
+ * <ul>
+ * <li>content is not decoded to a {@link String} first, only URI references and attribute values are,</li>
+ * <li>characters are checked against lookup tables,</li>
+ * <li>names of attributes known by the {@link AttributeParser} are interned, so no new {@link String} is created for
+ * them.</li>
+ * </ul>
+ * Attribute values are still parsed by the {@link AttributeParser}, using
+ * {@link AttributeParser#parseCoreLinkValue(String, String)}.
+ * <p>
+ * This is meant to be used for large payloads like Register/Update requests of gateways which can contain thousands of
+ * links.
+ */
+public class ByteArrayLinkParser implements LinkParser {
+
+    // character classes, see DefaultLinkParser for grammar.
+    private static final boolean[] PCHAR = charClass("-._~" + "!$&'()*+,;=:@");
+    private static final boolean[] ATTR_CHAR = charClass("!#$&+-.^_`|~");
+    private static final boolean[] PTOKEN_CHAR = charClass("!#$%&'()*+-./:<=>?@[]^_`{|}~");
+
+    private final AttributeParser attributeParser;
+    private final NameTable knownNames;
+
+    public ByteArrayLinkParser() {
+        this(new DefaultAttributeParser());
+    }
+
+    public ByteArrayLinkParser(AttributeParser attributeParser) {
+        this.attributeParser = attributeParser;
+        if (attributeParser instanceof DefaultAttributeParser) {
+            this.knownNames = new NameTable(((DefaultAttributeParser) attributeParser).getKnownAttributes().keySet());
+        } else {
+            List<String> names = new ArrayList<>();
+            for (AttributeModel<?> model : Attributes.ALL) {
+                names.add(model.getName());
+            }
+            this.knownNames = new NameTable(names);
+        }
+    }
+
+    /**
+     * Parse a byte arrays representation of a {@code String} encoding with UTF_8 {@link Charset}.
+     *
+     * @see DefaultLinkParser#parseCoreLinkFormat(byte[])
+     */
+    @Override
+    public Link[] parseCoreLinkFormat(byte[] bytes) throws LinkParseException {
+        // manage null/empty case
+        if (bytes == null || bytes.length == 0) {
+            return new Link[] {};
+        }
+
+        Cursor cursor = new Cursor(bytes);
+        List<Link> links = new ArrayList<>();
+        while (true) {
+            // consume link-value
+            links.add(consumeLinkValue(cursor));
+
+            // no more link value we finished
+            if (!cursor.hasMoreByte()) {
+                break;
+            }
+
+            // consume separator ','
+            cursor.consume(',');
+        }
+        return links.toArray(new Link[links.size()]);
+    }
+
+    /**
+     * link-value = "<" URI-Reference ">" *( ";" link-param )
+     */
+    private Link consumeLinkValue(Cursor cursor) throws LinkParseException {
+        // consume URI-Reference
+        cursor.consume('<');
+        String uriReference = consumeUriReference(cursor);
+        cursor.consume('>');
+
+        // consume Attribute
+        List<Attribute> attrs = new ArrayList<>();
+        while (cursor.nextByteIs(';')) {
+            cursor.position++;
+            attrs.add(consumeLinkParam(cursor));
+        }
+
+        try {
+            return new Link(uriReference, attrs);
+        } catch (IllegalArgumentException e) {
+            throw new LinkParseException(e, "Unable to parse %s", cursor.content());
+        }
+    }
+
+    /**
+     * path-absolute = "/" [ segment-nz *( "/" segment ) ]
+     */
+    private String consumeUriReference(Cursor cursor) throws LinkParseException {
+        int start = cursor.position;
+        cursor.consume('/');
+        if (consumeSegment(cursor)) {
+            // segment is not empty, so this is a segment-nz, we continue
+            while (cursor.nextByteIs('/')) {
+                cursor.position++;
+                consumeSegment(cursor);
+            }
+        } // else segment is empty and so this is the end of URI reference
+        return cursor.string(start, cursor.position);
+    }
+
+    /**
+     * segment = *pchar
+     *
+     * @return <code>true</code> if segment is not empty.
+     */
+    private boolean consumeSegment(Cursor cursor) throws LinkParseException {
+        int start = cursor.position;
+        while (cursor.hasMoreByte()) {
+            int b = cursor.nextByte();
+            if (is(PCHAR, b)) {
+                cursor.position++;
+            } else if (b == '%') {
+                // pct-encoded
+                cursor.position++;
+                cursor.consumeHexDig();
+                cursor.consumeHexDig();
+            } else {
+                break;
+            }
+        }
+        return cursor.position != start;
+    }
+
+    /**
+     * link-extension = ( parmname [ "=" ( ptoken / quoted-string ) ] )
+     */
+    private Attribute consumeLinkParam(Cursor cursor) throws LinkParseException {
+        // consume parmname
+        int start = cursor.position;
+        while (cursor.hasMoreByte() && is(ATTR_CHAR, cursor.nextByte())) {
+            cursor.position++;
+        }
+        if (cursor.position == start) {
+            throw new LinkParseException("Unable to parse [%s] : parmname should not be empty after %s",
+                    cursor.content(), cursor.alreadyParsed());
+        }
+        String parmName = knownNames.get(cursor.bytes, start, cursor.position);
+        if (parmName == null) {
+            parmName = cursor.string(start, cursor.position);
+        }
+
+        try {
+            if (!cursor.nextByteIs('=')) {
+                return attributeParser.createEmptyAttribute(parmName);
+            }
+            // consume '='
+            cursor.position++;
+            int valueStart = cursor.position;
+            int valueEnd = consumeValue(cursor);
+            return attributeParser.parseCoreLinkValue(parmName, cursor.string(valueStart, valueEnd));
+        } catch (InvalidAttributeException e) {
+            throw new LinkParseException(e, "Invalid Link %s :", cursor.content());
+        }
+    }
+
+    /**
+     * Consume a ptoken or a quoted-string.
+     *
+     * @return end position of the value.
+     */
+    private int consumeValue(Cursor cursor) throws LinkParseException {
+        // quoted-string = ( <"> *(qdtext | quoted-pair ) <"> )
+        if (cursor.nextByteIs('\"')) {
+            int start = cursor.position;
+            cursor.position++;
+            while (!cursor.nextByteIs('\"')) {
+                if (!cursor.hasMoreByte()) {
+                    throw new LinkParseException("Unable to parse [%s] : missing ending quote to '%s'",
+                            cursor.content(), cursor.string(start, cursor.bytes.length));
+                }
+                // handle escaping
+                cursor.position += cursor.nextByteIs('\\') ? 2 : 1;
+            }
+            cursor.position++;
+        }
+        // ptoken = 1*ptokenchar
+        else {
+            while (cursor.hasMoreByte() && is(PTOKEN_CHAR, cursor.nextByte())) {
+                cursor.position++;
+            }
+        }
+        return cursor.position;
+    }
+
+    private static boolean is(boolean[] charClass, int b) {
+        return b < charClass.length && charClass[b];
+    }
+
+    private static boolean[] charClass(String chars) {
+        boolean[] charClass = new boolean[128];
+        for (int c = 'a'; c <= 'z'; c++) {
+            charClass[c] = true;
+        }
+        for (int c = 'A'; c <= 'Z'; c++) {
+            charClass[c] = true;
+        }
+        for (int c = '0'; c <= '9'; c++) {
+            charClass[c] = true;
+        }
+        for (int i = 0; i < chars.length(); i++) {
+            charClass[chars.charAt(i)] = true;
+        }
+        return charClass;
+    }
+
+    /**
+     * Position in the content to parse.
+     */
+    private static class Cursor {
+        private final byte[] bytes;
+        private int position;
+
+        public Cursor(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        public boolean hasMoreByte() {
+            return position < bytes.length;
+        }
+
+        /**
+         * @return next byte as unsigned value. User must check before if there is more byte available with
+         *         {@link #hasMoreByte()}
+         */
+        public int nextByte() {
+            return bytes[position] & 0xFF;
+        }
+
+        public boolean nextByteIs(char c) {
+            return position < bytes.length && bytes[position] == c;
+        }
+
+        public void consume(char c) throws LinkParseException {
+            if (!hasMoreByte()) {
+                throw new LinkParseException("Unable to parse [%s] : unexpected EOF, expected '%s' character after %s",
+                        content(), c, alreadyParsed());
+            }
+            if (bytes[position] != c) {
+                throw new LinkParseException("Unable to parse [%s] : unexpected byte '%s', expected '%s' after %s",
+                        content(), (char) nextByte(), c, alreadyParsed());
+            }
+            position++;
+        }
+
+        public void consumeHexDig() throws LinkParseException {
+            // HEXDIG = DIGIT / "A" / "B" / "C" / "D" / "E" / "F"
+            if (!hasMoreByte()) {
+                throw new LinkParseException("Unable to parse [%s] : unexpected EOF, expected 'HEXDIG' after %s",
+                        content(), alreadyParsed());
+            }
+            int b = nextByte();
+            if (!((b >= '0' && b <= '9') || (b >= 'A' && b <= 'F'))) {
+                throw new LinkParseException("Unable to parse [%s] : unexpected byte '%s', expected 'HEXDIG' after %s",
+                        content(), (char) b, alreadyParsed());
+            }
+            position++;
+        }
+
+        public String string(int start, int end) {
+            return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        public String content() {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        public String alreadyParsed() {
+            return string(0, Math.min(position, bytes.length));
+        }
+    }
+
+    /**
+     * An open addressing hash table to find an existing name {@link String} from its ASCII bytes.
+     */
+    private static class NameTable {
+        private final String[] names;
+        private final byte[][] encodedNames;
+        private final int mask;
+
+        public NameTable(Collection<String> knownNames) {
+            int size = Integer.highestOneBit(Math.max(knownNames.size(), 1) * 4);
+            names = new String[size];
+            encodedNames = new byte[size][];
+            mask = size - 1;
+            for (String name : knownNames) {
+                byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+                int i = hash(encoded, 0, encoded.length) & mask;
+                while (names[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                names[i] = name;
+                encodedNames[i] = encoded;
+            }
+        }
+
+        /**
+         * @return the known name encoded between <code>start</code> and <code>end</code> or <code>null</code>.
+         */
+        public String get(byte[] bytes, int start, int end) {
+            int i = hash(bytes, start, end) & mask;
+            while (names[i] != null) {
+                if (equals(encodedNames[i], bytes, start, end)) {
+                    return names[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        private static int hash(byte[] bytes, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + bytes[i];
+            }
+            return h ^ (h >>> 16);
+        }
+
+        private static boolean equals(byte[] name, byte[] bytes, int start, int end) {
+            if (name.length != end - start)
+                return false;
+            for (int i = 0; i < name.length; i++) {
+                if (name[i] != bytes[start + i])
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -19,7 +19,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 
-import org.eclipse.leshan.core.link.DefaultLinkParser;
+import org.eclipse.leshan.core.link.ByteArrayLinkParser;
 import org.eclipse.leshan.core.link.Link;
 import org.eclipse.leshan.core.link.LinkParseException;
 import org.eclipse.leshan.core.link.LinkParser;
@@ -49,12 +49,12 @@ public class DefaultLwM2mLinkParser implements LwM2mLinkParser {
         suppportedAttributes.addAll(LwM2mAttributes.ALL);
 
         // Create default link Parser
-        this.parser = new DefaultLinkParser(new DefaultAttributeParser(suppportedAttributes));
+        this.parser = new ByteArrayLinkParser(new DefaultAttributeParser(suppportedAttributes));
     }
 
     public DefaultLwM2mLinkParser(Collection<? extends AttributeModel<?>> suppportedAttributes) {
         // Create default link Parser
-        this.parser = new DefaultLinkParser(new DefaultAttributeParser(suppportedAttributes));
+        this.parser = new ByteArrayLinkParser(new DefaultAttributeParser(suppportedAttributes));
     }
 
     public DefaultLwM2mLinkParser(LinkParser internalLinkParser) {
@@ -102,7 +102,7 @@ public class DefaultLwM2mLinkParser implements LwM2mLinkParser {
                 lwm2mAttrSet.validate(lwm2mPath);
 
                 // create link and replace it
-                lwm2mLinks[i] = new LwM2mLink(rootpath, new LwM2mPath(path), lwm2mAttrSet);
+                lwm2mLinks[i] = new LwM2mLink(rootpath, LwM2mPath.intern(lwm2mPath), lwm2mAttrSet);
             } catch (IllegalArgumentException e) {
                 String strLink = new String(bytes, StandardCharsets.UTF_8);
                 throw new LinkParseException(e, "Unable to parse link %s in %s", links[i], strLink);
@@ -149,7 +149,7 @@ public class DefaultLwM2mLinkParser implements LwM2mLinkParser {
                     attributes.validate(lwm2mPath);
 
                     // create link and replace it
-                    links[i] = new MixedLwM2mLink(rootPath, LwM2mPath.parse(path, rootPath), attributes);
+                    links[i] = new MixedLwM2mLink(rootPath, LwM2mPath.intern(lwm2mPath), attributes);
                 } catch (IllegalArgumentException e) {
                     String strLink = new String(bytes, StandardCharsets.UTF_8);
                     throw new LinkParseException(e, "Unable to parse link %s in %s", links[i], strLink);
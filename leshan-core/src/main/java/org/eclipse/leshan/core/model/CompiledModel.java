@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * An immutable {@link LwM2mModel} optimized for lookup.
+ * <p>
+ * Object and resource models are indexed in arrays, so {@link #getResourceModel(int, int)} and
+ * {@link #getObjectModel(int)} do not allocate anything: small ids are array indexes, bigger ones are found by binary
+ * search.
+ * <p>
+ * This model is intended to be built once and shared by all the clients supporting the same objects (see
+ * VersionedModelProvider).
+ */
+public class CompiledModel implements LwM2mModel {
+
+    private final IdTable<ObjectModel> objects;
+    private final IdTable<IdTable<ResourceModel>> resources;
+    private final Collection<ObjectModel> objectModels;
+
+    public CompiledModel(Collection<ObjectModel> objectModels) {
+        Map<Integer, ObjectModel> objectsById = new HashMap<>();
+        for (ObjectModel objectModel : objectModels) {
+            objectsById.put(objectModel.id, objectModel);
+        }
+        Map<Integer, IdTable<ResourceModel>> resourcesById = new HashMap<>();
+        for (ObjectModel objectModel : objectsById.values()) {
+            resourcesById.put(objectModel.id, new IdTable<>(objectModel.resources));
+        }
+        this.objects = new IdTable<>(objectsById);
+        this.resources = new IdTable<>(resourcesById);
+        this.objectModels = Collections.unmodifiableList(new ArrayList<>(objectsById.values()));
+    }
+
+    @Override
+    public ResourceModel getResourceModel(int objectId, int resourceId) {
+        IdTable<ResourceModel> objectResources = resources.get(objectId);
+        if (objectResources != null) {
+            return objectResources.get(resourceId);
+        }
+        return null;
+    }
+
+    @Override
+    public ObjectModel getObjectModel(int objectId) {
+        return objects.get(objectId);
+    }
+
+    @Override
+    public Collection<ObjectModel> getObjectModels() {
+        return objectModels;
+    }
+
+    /**
+     * An immutable map from id to value. Ids lower than {@link #DENSE_LIMIT} are indexes of an array, other ones are
+     * looked up by binary search in a sorted array.
+     */
+    private static class IdTable<T> {
+
+        private static final int DENSE_LIMIT = 1024;
+
+        private final Object[] dense;
+        private final int[] sparseIds;
+        private final Object[] sparseValues;
+
+        IdTable(Map<Integer, T> values) {
+            int maxDenseId = -1;
+            int nbSparse = 0;
+            for (Integer id : values.keySet()) {
+                if (id >= 0 && id < DENSE_LIMIT) {
+                    maxDenseId = Math.max(maxDenseId, id);
+                } else {
+                    nbSparse++;
+                }
+            }
+
+            dense = new Object[maxDenseId + 1];
+            sparseIds = new int[nbSparse];
+            List<Entry<Integer, T>> sparse = new ArrayList<>(nbSparse);
+            for (Entry<Integer, T> entry : values.entrySet()) {
+                int id = entry.getKey();
+                if (id >= 0 && id < DENSE_LIMIT) {
+                    dense[id] = entry.getValue();
+                } else {
+                    sparse.add(entry);
+                }
+            }
+
+            sparse.sort(Entry.comparingByKey());
+            sparseValues = new Object[nbSparse];
+            for (int i = 0; i < nbSparse; i++) {
+                sparseIds[i] = sparse.get(i).getKey();
+                sparseValues[i] = sparse.get(i).getValue();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int id) {
+            if (id >= 0 && id < dense.length) {
+                return (T) dense[id];
+            }
+            if (sparseIds.length == 0) {
+                return null;
+            }
+            int index = Arrays.binarySearch(sparseIds, id);
+            return index >= 0 ? (T) sparseValues[index] : null;
+        }
+    }
+}
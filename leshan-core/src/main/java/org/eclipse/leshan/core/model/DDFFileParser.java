@@ -109,7 +109,11 @@ public class DDFFileParser {
 
         try {
             // Parse XML file
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            // DocumentBuilderFactory is not guaranteed to be thread-safe
+            DocumentBuilder builder;
+            synchronized (factory) {
+                builder = factory.newDocumentBuilder();
+            }
             Document document = builder.parse(inputStream);
 
             // Get DDF file validator
@@ -285,40 +289,7 @@ public class DDFFileParser {
                 }
                 break;
             case "Type":
-                switch (field.getTextContent()) {
-                case "String":
-                    type = Type.STRING;
-                    break;
-                case "Integer":
-                    type = Type.INTEGER;
-                    break;
-                case "Float":
-                    type = Type.FLOAT;
-                    break;
-                case "Boolean":
-                    type = Type.BOOLEAN;
-                    break;
-                case "Opaque":
-                    type = Type.OPAQUE;
-                    break;
-                case "Time":
-                    type = Type.TIME;
-                    break;
-                case "Objlnk":
-                    type = Type.OBJLNK;
-                    break;
-                case "Unsigned Integer":
-                    type = Type.UNSIGNED_INTEGER;
-                    break;
-                case "Corelnk":
-                    type = Type.CORELINK;
-                    break;
-                case "":
-                    type = Type.NONE;
-                    break;
-                default:
-                    break;
-                }
+                type = parseType(field.getTextContent(), type);
                 break;
             case "RangeEnumeration":
                 rangeEnumeration = field.getTextContent();
@@ -335,4 +306,41 @@ public class DDFFileParser {
         }
         return new ResourceModel(id, name, operations, multiple, mandatory, type, rangeEnumeration, units, description);
     }
+
+    /**
+     * @return the {@link Type} corresponding to the given DDF value or <code>defaultType</code> if value is unknown.
+     */
+    static Type parseType(String value, Type defaultType) {
+        switch (value) {
+        case "String":
+            return Type.STRING;
+        case "Integer":
+            return Type.INTEGER;
+        case "Float":
+            return Type.FLOAT;
+        case "Boolean":
+            return Type.BOOLEAN;
+        case "Opaque":
+            return Type.OPAQUE;
+        case "Time":
+            return Type.TIME;
+        case "Objlnk":
+            return Type.OBJLNK;
+        case "Unsigned Integer":
+            return Type.UNSIGNED_INTEGER;
+        case "Corelnk":
+            return Type.CORELINK;
+        case "":
+            return Type.NONE;
+        default:
+            return defaultType;
+        }
+    }
+
+    /**
+     * @return <code>true</code> if DDF files are validated against LWM2M schema.
+     */
+    protected boolean isValidatingDdf() {
+        return ddfValidator != null || ddfValidatorFactory != null;
+    }
 }
@@ -22,9 +22,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
 import org.eclipse.leshan.core.LwM2m.Version;
@@ -288,6 +292,58 @@ public class ObjectLoader {
         return models;
     }
 
+    /**
+     * Load object definition from DDF resources following rules of {@link Class#getResourceAsStream(String)}, parsing
+     * files concurrently on the given {@link ForkJoinPool}.
+     * <p>
+     * Result and raised exception are the same than
+     * {@link #loadDdfResources(String[], DDFFileParser, ObjectModelValidator)} : models are returned in
+     * <code>paths</code> order and if several files are invalid, the exception of the first one is raised.
+     * <code>ddfFileParser</code> and <code>modelValidator</code> must be thread-safe, e.g. {@link SaxDDFFileParser} and
+     * {@link DefaultObjectModelValidator}.
+     *
+     * @param paths An array of paths to DDF files.
+     * @param ddfFileParser a ddfFileParser which could do validation optionally.
+     * @param modelValidator an Object model validator to ensure model is valid, see
+     *        {@link DefaultObjectModelValidator}. If {@code null} then there will be no validation.
+     * @param pool the pool used to parse files, e.g. {@link ForkJoinPool#commonPool()}.
+     *
+     * @throws InvalidDDFFileException if DDF file is invalid
+     */
+    public static List<ObjectModel> loadDdfResources(String[] paths, final DDFFileParser ddfFileParser,
+            final ObjectModelValidator modelValidator, ForkJoinPool pool)
+            throws IOException, InvalidModelException, InvalidDDFFileException {
+        List<ForkJoinTask<DdfLoadingResult>> tasks = new ArrayList<>(paths.length);
+        for (final String path : paths) {
+            tasks.add(pool.submit(new DdfLoadingTask(path) {
+                @Override
+                protected List<ObjectModel> load() throws Exception {
+                    try (InputStream input = ObjectLoader.class.getResourceAsStream(path)) {
+                        if (input == null) {
+                            throw new FileNotFoundException(String.format("%s not found", path));
+                        }
+                        return loadDdfFile(input, path, ddfFileParser, modelValidator);
+                    }
+                }
+            }));
+        }
+
+        // merge results in paths order
+        List<ObjectModel> models = new ArrayList<>();
+        for (ForkJoinTask<DdfLoadingResult> task : tasks) {
+            DdfLoadingResult result = task.join();
+            if (result.error instanceof IOException) {
+                throw (IOException) result.error;
+            } else if (result.error instanceof InvalidModelException) {
+                throw (InvalidModelException) result.error;
+            } else if (result.error instanceof InvalidDDFFileException) {
+                throw (InvalidDDFFileException) result.error;
+            }
+            models.addAll(result.getModels());
+        }
+        return models;
+    }
+
     /**
      * Load object definitions from directory.
      * <p>
@@ -314,6 +370,104 @@ public class ObjectLoader {
                 validate ? new DefaultObjectModelValidator() : null);
     }
 
+    /**
+     * Load object definitions from directory using a precompiled {@link ObjectModelBundle}.
+     * <p>
+     * All models are decoded, use {@link #loadBundleFromDir(File, File, boolean)} to decode them only when they are
+     * used.
+     * <p>
+     * Invalid model will be logged and ignored.
+     *
+     * @param modelsDir the directory containing all the ddf file definition.
+     * @param bundleFile the bundle file to use or create.
+     * @param validate true if you want model validation. Validation is not free and it could make sense to not validate
+     *        model if you already trust it.
+     * @see #loadBundleFromDir(File, File, boolean)
+     */
+    public static List<ObjectModel> loadObjectsFromDir(File modelsDir, File bundleFile, boolean validate) {
+        try {
+            return loadBundleFromDir(modelsDir, bundleFile, validate).getObjectModels();
+        } catch (InvalidModelException e) {
+            LOG.warn(MessageFormat.format("Unable to load object models from bundle {0}", bundleFile.getAbsolutePath()),
+                    e);
+            return loadObjectsFromDir(modelsDir, validate);
+        }
+    }
+
+    /**
+     * Get the {@link ObjectModelBundle} of a directory.
+     * <p>
+     * If <code>bundleFile</code> exists and was created from the current content of <code>modelsDir</code> (and with
+     * validation if <code>validate</code> is true), it is used. Else DDF files are parsed like in
+     * {@link #loadObjectsFromDir(File, boolean)} and the bundle file is (re)created for next time.
+     * <p>
+     * Models are decoded only when they are accessed, e.g. using {@link ObjectModelBundle#getLwM2mModel()}.
+     *
+     * @param modelsDir the directory containing all the ddf file definition.
+     * @param bundleFile the bundle file to use or create.
+     * @param validate true if you want model validation. Validation is not free and it could make sense to not validate
+     *        model if you already trust it.
+     */
+    public static ObjectModelBundle loadBundleFromDir(File modelsDir, File bundleFile, boolean validate) {
+        long sourceStamp = computeSourceStamp(modelsDir);
+
+        // try to use existing bundle
+        if (bundleFile.isFile()) {
+            try {
+                ObjectModelBundle bundle = ObjectModelBundle.open(bundleFile);
+                if (bundle.getSourceStamp() == sourceStamp && (!validate || bundle.isValidated())) {
+                    LOG.debug("Loading object models from bundle {}", bundleFile.getAbsolutePath());
+                    return bundle;
+                }
+                LOG.debug("Object models bundle {} is stale", bundleFile.getAbsolutePath());
+            } catch (IOException e) {
+                LOG.warn(MessageFormat.format("Unable to load object models from bundle {0}",
+                        bundleFile.getAbsolutePath()), e);
+            }
+        }
+
+        // fall back to DDF files
+        List<ObjectModel> models = loadObjectsFromDir(modelsDir, validate);
+        try {
+            ObjectModelBundle.write(models, sourceStamp, validate, bundleFile);
+            return ObjectModelBundle.open(bundleFile);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn(MessageFormat.format("Unable to write object models bundle {0}", bundleFile.getAbsolutePath()), e);
+        }
+        // bundle file can not be used, keep it in memory
+        try {
+            return ObjectModelBundle.fromBytes(ObjectModelBundle.write(models, sourceStamp, validate));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create object models bundle", e);
+        }
+    }
+
+    /**
+     * Compute a stamp identifying the DDF files of a directory from their names, sizes and last modification dates.
+     *
+     * @param modelsDir the directory containing all the ddf file definition.
+     * @return the stamp, used by {@link #loadObjectsFromDir(File, File, boolean)} to detect stale
+     *         {@link ObjectModelBundle}.
+     */
+    public static long computeSourceStamp(File modelsDir) {
+        File[] files = modelsDir.listFiles();
+        if (files == null)
+            return 0;
+        Arrays.sort(files);
+
+        // FNV-1a hash
+        long stamp = 0xcbf29ce484222325L;
+        for (File file : files) {
+            if (!file.getName().endsWith(".xml"))
+                continue;
+            for (long value : new long[] { file.getName().hashCode(), file.length(), file.lastModified() }) {
+                stamp ^= value;
+                stamp *= 0x100000001b3L;
+            }
+        }
+        return stamp;
+    }
+
     /**
      * Load object definitions from directory.
      * <p>
@@ -354,4 +508,103 @@ public class ObjectLoader {
         }
         return models;
     }
+
+    /**
+     * Load object definitions from directory, parsing files concurrently on the given {@link ForkJoinPool}.
+     * <p>
+     * Result and logs are the same than {@link #loadObjectsFromDir(File, DDFFileParser, ObjectModelValidator)} : models
+     * are returned in the same order and invalid models are logged in this order and ignored.
+     * <code>ddfFileParser</code> and <code>modelValidator</code> must be thread-safe, e.g. {@link SaxDDFFileParser} and
+     * {@link DefaultObjectModelValidator}.
+     *
+     * @param modelsDir the directory containing all the ddf file definition.
+     * @param ddfFileParser a ddfFileParser which could do validation optionally.
+     * @param modelValidator an Object model validator to ensure model is valid, see
+     *        {@link DefaultObjectModelValidator}. If {@code null} then there will be no validation.
+     * @param pool the pool used to parse files, e.g. {@link ForkJoinPool#commonPool()}.
+     */
+    public static List<ObjectModel> loadObjectsFromDir(File modelsDir, final DDFFileParser ddfFileParser,
+            final ObjectModelValidator modelValidator, ForkJoinPool pool) {
+        List<ObjectModel> models = new ArrayList<>();
+
+        // check if the folder is usable
+        if (!modelsDir.isDirectory() || !modelsDir.canRead()) {
+            LOG.error(MessageFormat.format(
+                    "Models folder {0} is not a directory or you are not allowed to list its content",
+                    modelsDir.getPath()));
+            return models;
+        }
+
+        // parse all files
+        List<File> files = new ArrayList<>();
+        List<ForkJoinTask<DdfLoadingResult>> tasks = new ArrayList<>();
+        for (final File file : modelsDir.listFiles()) {
+            if (!file.canRead() || !file.getName().endsWith(".xml"))
+                continue;
+
+            files.add(file);
+            tasks.add(pool.submit(new DdfLoadingTask(file.getAbsolutePath()) {
+                @Override
+                protected List<ObjectModel> load() throws Exception {
+                    LOG.debug("Loading object models from DDF file {}", file.getAbsolutePath());
+                    try (FileInputStream input = new FileInputStream(file)) {
+                        return loadDdfFile(input, file.getName(), ddfFileParser, modelValidator);
+                    }
+                }
+            }));
+        }
+
+        // merge results in files order
+        for (int i = 0; i < tasks.size(); i++) {
+            DdfLoadingResult result = tasks.get(i).join();
+            if (result.error instanceof IOException || result.error instanceof InvalidModelException
+                    || result.error instanceof InvalidDDFFileException) {
+                LOG.warn(MessageFormat.format("Unable to load object models for {0}", files.get(i).getAbsolutePath()),
+                        result.error);
+            } else {
+                models.addAll(result.getModels());
+            }
+        }
+        return models;
+    }
+
+    private static class DdfLoadingResult {
+        private final List<ObjectModel> models;
+        private final Exception error;
+
+        public DdfLoadingResult(List<ObjectModel> models, Exception error) {
+            this.models = models;
+            this.error = error;
+        }
+
+        /**
+         * @return loaded models or rethrow unexpected runtime exception, like sequential loading would do.
+         */
+        public List<ObjectModel> getModels() {
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            }
+            return models;
+        }
+    }
+
+    private static abstract class DdfLoadingTask implements Callable<DdfLoadingResult> {
+        private final String name;
+
+        public DdfLoadingTask(String name) {
+            this.name = name;
+        }
+
+        protected abstract List<ObjectModel> load() throws Exception;
+
+        @Override
+        public DdfLoadingResult call() {
+            try {
+                return new DdfLoadingResult(load(), null);
+            } catch (Exception e) {
+                LOG.trace("Unable to load {}", name, e);
+                return new DdfLoadingResult(null, e);
+            }
+        }
+    }
 }
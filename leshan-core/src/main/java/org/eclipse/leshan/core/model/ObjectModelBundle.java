@@ -0,0 +1,421 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.leshan.core.LwM2m.Version;
+import org.eclipse.leshan.core.model.ResourceModel.Operations;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+
+/**
+ * A binary file containing already parsed (and optionally validated) {@link ObjectModel}s.
+ * <p>
+ * Reading a bundle is much cheaper than parsing and validating DDF files. The file is memory-mapped and only an index
+ * (object id, version) is read when it is opened. Each {@link ObjectModel} is decoded lazily the first time it is
+ * accessed.
+ * <p>
+ * The bundle keeps a <code>sourceStamp</code> which identifies the DDF files used to create it, so user can detect if
+ * the bundle is stale. See {@link ObjectLoader#loadBundleFromDir(File, File, boolean)}.
+ */
+public class ObjectModelBundle {
+
+    private static final int MAGIC_NUMBER = 0x4C4D4F42; // "LMOB"
+    // must be incremented each time the format changes, bundles with another format version are rejected.
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte FALSE = 0;
+    private static final byte TRUE = 1;
+    private static final byte NULL = 2;
+
+    private final ByteBuffer content;
+    private final long sourceStamp;
+    private final boolean validated;
+
+    // index sorted by object id then version
+    private final int[] ids;
+    private final String[] versions;
+    private final int[] offsets;
+    private final AtomicReferenceArray<ObjectModel> models;
+
+    private ObjectModelBundle(ByteBuffer content) throws IOException {
+        this.content = content;
+        try {
+            if (content.getInt() != MAGIC_NUMBER) {
+                throw new IOException("Invalid object model bundle : bad magic number");
+            }
+            int formatVersion = content.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException(String.format("Unsupported object model bundle format version %d (expected %d)",
+                        formatVersion, FORMAT_VERSION));
+            }
+            sourceStamp = content.getLong();
+            validated = content.get() == TRUE;
+
+            int size = content.getInt();
+            ids = new int[size];
+            versions = new String[size];
+            offsets = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = content.getInt();
+                versions[i] = readString(content);
+                offsets[i] = content.getInt();
+            }
+            models = new AtomicReferenceArray<>(size);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Invalid object model bundle : truncated content", e);
+        }
+    }
+
+    /**
+     * Open a bundle file. The file is memory-mapped, so it should not be modified while the bundle is used.
+     * {@link #write(Collection, long, boolean, File)} never modifies an existing file in place.
+     *
+     * @param file the bundle file.
+     * @throws IOException if file can not be read or is not a valid bundle.
+     */
+    public static ObjectModelBundle open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ObjectModelBundle(content);
+        }
+    }
+
+    /**
+     * Create a bundle from an array of bytes produced by {@link #write(Collection, long, boolean)}.
+     *
+     * @throws IOException if content is not a valid bundle.
+     */
+    public static ObjectModelBundle fromBytes(byte[] content) throws IOException {
+        return new ObjectModelBundle(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * @return the stamp of the sources used to create this bundle. See {@link #write(Collection, long, boolean, File)}.
+     */
+    public long getSourceStamp() {
+        return sourceStamp;
+    }
+
+    /**
+     * @return <code>true</code> if models were validated before being added to this bundle.
+     */
+    public boolean isValidated() {
+        return validated;
+    }
+
+    /**
+     * @return the number of models in this bundle.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return all the models of this bundle, sorted by object id then version. All models are decoded.
+     */
+    public List<ObjectModel> getObjectModels() throws InvalidModelException {
+        List<ObjectModel> result = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            result.add(getModel(i));
+        }
+        return result;
+    }
+
+    /**
+     * @return the model of the object in the given version or <code>null</code> if there is no such model in this
+     *         bundle. Only this model is decoded.
+     */
+    public ObjectModel getObjectModel(int objectId, String version) throws InvalidModelException {
+        for (int i = firstIndexOf(objectId); i >= 0 && i < ids.length && ids[i] == objectId; i++) {
+            if (versions[i].equals(version)) {
+                return getModel(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the most recent version of the object model or <code>null</code> if there is no model for this object in
+     *         this bundle. Only this model is decoded.
+     */
+    public ObjectModel getObjectModel(int objectId) throws InvalidModelException {
+        int i = firstIndexOf(objectId);
+        if (i < 0 || i >= ids.length || ids[i] != objectId)
+            return null;
+
+        // index is sorted by version, so last one is the most recent
+        while (i + 1 < ids.length && ids[i + 1] == objectId) {
+            i++;
+        }
+        return getModel(i);
+    }
+
+    /**
+     * Create a {@link LwM2mModel} with the most recent version of each object of this bundle. Models are decoded lazily
+     * the first time they are accessed, e.g. <code>new StaticModelProvider(bundle.getLwM2mModel())</code> only decodes
+     * models of objects used by clients.
+     * <p>
+     * As {@link LwM2mModel} methods can not throw {@link InvalidModelException}, an {@link IllegalStateException} is
+     * raised if a model can not be decoded.
+     */
+    public LwM2mModel getLwM2mModel() {
+        return new LwM2mModel() {
+            @Override
+            public ResourceModel getResourceModel(int objectId, int resourceId) {
+                ObjectModel objectModel = getObjectModel(objectId);
+                if (objectModel == null)
+                    return null;
+
+                return objectModel.resources.get(resourceId);
+            }
+
+            @Override
+            public ObjectModel getObjectModel(int objectId) {
+                try {
+                    return ObjectModelBundle.this.getObjectModel(objectId);
+                } catch (InvalidModelException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            @Override
+            public Collection<ObjectModel> getObjectModels() {
+                List<ObjectModel> result = new ArrayList<>();
+                for (int i = 0; i < ids.length; i++) {
+                    // index is sorted by version, so last one is the most recent
+                    if (i + 1 == ids.length || ids[i + 1] != ids[i]) {
+                        result.add(getObjectModel(ids[i]));
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+    private int firstIndexOf(int objectId) {
+        int i = Arrays.binarySearch(ids, objectId);
+        while (i > 0 && ids[i - 1] == objectId) {
+            i--;
+        }
+        return i;
+    }
+
+    private ObjectModel getModel(int index) throws InvalidModelException {
+        ObjectModel model = models.get(index);
+        if (model == null) {
+            // several threads could decode the same model, this is harmless.
+            ByteBuffer buffer = content.duplicate();
+            ((Buffer) buffer).position(offsets[index]); // cast for Java 8 compatibility
+            try {
+                model = readObjectModel(buffer);
+            } catch (RuntimeException e) {
+                throw new InvalidModelException(e, "Unable to decode model %d/%s from bundle", ids[index],
+                        versions[index]);
+            }
+            models.set(index, model);
+        }
+        return model;
+    }
+
+    /**
+     * Write models in a bundle file.
+     * <p>
+     * Content is written in a temporary file then moved to the target file, so bundles already opened on the previous
+     * file are not impacted.
+     *
+     * @param models the models to write, there must not be 2 models with same id and version.
+     * @param sourceStamp a value identifying sources of models, e.g. {@link ObjectLoader#computeSourceStamp(File)}.
+     * @param validated <code>true</code> if models were validated.
+     * @param file the target file
+     */
+    public static void write(Collection<ObjectModel> models, long sourceStamp, boolean validated, File file)
+            throws IOException {
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                out.write(write(models, sourceStamp, validated));
+            }
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    /**
+     * Write models in a bundle as an array of bytes.
+     *
+     * @see #write(Collection, long, boolean, File)
+     */
+    public static byte[] write(Collection<ObjectModel> models, long sourceStamp, boolean validated) throws IOException {
+        List<ObjectModel> sortedModels = new ArrayList<>(models);
+        Collections.sort(sortedModels, new Comparator<ObjectModel>() {
+            @Override
+            public int compare(ObjectModel m1, ObjectModel m2) {
+                int res = Integer.compare(m1.id, m2.id);
+                return res != 0 ? res : new Version(m1.version).compareTo(new Version(m2.version));
+            }
+        });
+
+        // encode models
+        ByteArrayOutputStream modelsContent = new ByteArrayOutputStream();
+        DataOutputStream modelsOut = new DataOutputStream(modelsContent);
+        int[] relativeOffsets = new int[sortedModels.size()];
+        for (int i = 0; i < sortedModels.size(); i++) {
+            relativeOffsets[i] = modelsOut.size();
+            writeObjectModel(modelsOut, sortedModels.get(i));
+        }
+
+        // encode header and index
+        ByteArrayOutputStream indexContent = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(indexContent);
+        for (ObjectModel model : sortedModels) {
+            indexOut.writeInt(model.id);
+            writeString(indexOut, model.version);
+            // offset is written later
+        }
+        int headerSize = 4 + 4 + 8 + 1 + 4 + indexOut.size() + 4 * sortedModels.size();
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(headerSize + modelsOut.size());
+        DataOutputStream out = new DataOutputStream(result);
+        out.writeInt(MAGIC_NUMBER);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(sourceStamp);
+        out.writeByte(validated ? TRUE : FALSE);
+        out.writeInt(sortedModels.size());
+        for (int i = 0; i < sortedModels.size(); i++) {
+            ObjectModel model = sortedModels.get(i);
+            out.writeInt(model.id);
+            writeString(out, model.version);
+            out.writeInt(headerSize + relativeOffsets[i]);
+        }
+        modelsContent.writeTo(out);
+        out.flush();
+        return result.toByteArray();
+    }
+
+    private static void writeObjectModel(DataOutputStream out, ObjectModel model) throws IOException {
+        out.writeInt(model.id);
+        writeString(out, model.name);
+        writeString(out, model.description);
+        writeString(out, model.version);
+        writeBoolean(out, model.multiple);
+        writeBoolean(out, model.mandatory);
+        writeString(out, model.urn);
+        writeString(out, model.lwm2mVersion);
+        writeString(out, model.description2);
+
+        out.writeInt(model.resources.size());
+        for (ResourceModel resource : model.resources.values()) {
+            out.writeInt(resource.id);
+            writeString(out, resource.name);
+            // enums are written by name, so adding or reordering constants does not change decoded values.
+            writeString(out, resource.operations == null ? null : resource.operations.name());
+            writeBoolean(out, resource.multiple);
+            writeBoolean(out, resource.mandatory);
+            writeString(out, resource.type == null ? null : resource.type.name());
+            writeString(out, resource.rangeEnumeration);
+            writeString(out, resource.units);
+            writeString(out, resource.description);
+        }
+    }
+
+    private static ObjectModel readObjectModel(ByteBuffer in) {
+        int id = in.getInt();
+        String name = readString(in);
+        String description = readString(in);
+        String version = readString(in);
+        Boolean multiple = readBoolean(in);
+        Boolean mandatory = readBoolean(in);
+        String urn = readString(in);
+        String lwm2mVersion = readString(in);
+        String description2 = readString(in);
+
+        int nbResources = in.getInt();
+        List<ResourceModel> resources = new ArrayList<>(nbResources);
+        for (int i = 0; i < nbResources; i++) {
+            int resourceId = in.getInt();
+            String resourceName = readString(in);
+            String operations = readString(in);
+            Boolean resourceMultiple = readBoolean(in);
+            Boolean resourceMandatory = readBoolean(in);
+            String type = readString(in);
+            String rangeEnumeration = readString(in);
+            String units = readString(in);
+            String resourceDescription = readString(in);
+            resources.add(new ResourceModel(resourceId, resourceName,
+                    operations == null ? null : Operations.valueOf(operations), resourceMultiple, resourceMandatory,
+                    type == null ? null : Type.valueOf(type), rangeEnumeration, units, resourceDescription));
+        }
+        return new ObjectModel(id, name, description, version, multiple, mandatory, resources, urn, lwm2mVersion,
+                description2);
+    }
+
+    private static void writeBoolean(DataOutputStream out, Boolean value) throws IOException {
+        out.writeByte(value == null ? NULL : value ? TRUE : FALSE);
+    }
+
+    private static Boolean readBoolean(ByteBuffer in) {
+        byte value = in.get();
+        return value == NULL ? null : value == TRUE;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        // DataOutputStream.writeUTF() is limited to 65535 bytes, which could be too small for descriptions.
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
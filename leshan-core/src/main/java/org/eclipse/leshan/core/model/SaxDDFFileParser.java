@@ -0,0 +1,345 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
+import org.eclipse.leshan.core.model.ResourceModel.Operations;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A {@link DDFFileParser} which uses the SAX streaming API instead of building a DOM document.
+ * <p>
+ * It creates the same {@link ObjectModel}s than {@link DDFFileParser}, with less memory and CPU.
+ * <p>
+ * Validation against LWM2M schema needs a DOM document (see {@link DDFFileValidator}), so when a
+ * {@link DDFFileValidator} or a {@link DDFFileValidatorFactory} is used, parsing is delegated to {@link DDFFileParser}.
+ * <p>
+ * This class is thread-safe and so could be used to load several files concurrently, see
+ * {@link ObjectLoader#loadObjectsFromDir(java.io.File, DDFFileParser, ObjectModelValidator, java.util.concurrent.ForkJoinPool)}.
+ */
+public class SaxDDFFileParser extends DDFFileParser {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SaxDDFFileParser.class);
+
+    private final SAXParserFactory factory;
+
+    public SaxDDFFileParser() {
+        super();
+        factory = createParserFactory();
+    }
+
+    /**
+     * Build a SaxDDFFileParser with a given {@link DDFFileValidator}.
+     *
+     * @param ddfValidator a {@link DDFFileValidator} or {@code null} if no validation required.
+     */
+    public SaxDDFFileParser(DDFFileValidator ddfValidator) {
+        super(ddfValidator);
+        factory = createParserFactory();
+    }
+
+    /**
+     * Build a SaxDDFFileParser with a given {@link DDFFileValidatorFactory}.
+     *
+     * @param ddfFileValidatorFactory a {@link DDFFileValidatorFactory} or {@code null} if no validation required.
+     */
+    public SaxDDFFileParser(DDFFileValidatorFactory ddfFileValidatorFactory) {
+        super(ddfFileValidatorFactory);
+        factory = createParserFactory();
+    }
+
+    protected SAXParserFactory createParserFactory() {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory;
+    }
+
+    @Override
+    public List<ObjectModel> parse(InputStream inputStream, String streamName)
+            throws InvalidDDFFileException, IOException {
+        if (isValidatingDdf()) {
+            return super.parse(inputStream, streamName);
+        }
+
+        streamName = streamName == null ? "" : streamName;
+
+        LOG.debug("Parsing DDF file {}", streamName);
+
+        try {
+            // SAXParserFactory is not guaranteed to be thread-safe
+            SAXParser parser;
+            synchronized (factory) {
+                parser = factory.newSAXParser();
+            }
+            DDFHandler handler = new DDFHandler();
+            parser.parse(inputStream, handler);
+            return handler.objects;
+        } catch (SAXException e) {
+            throw new InvalidDDFFileException(e, "Invalid DDF file %s", streamName);
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Unable to create SAX Parser", e);
+        }
+    }
+
+    /**
+     * Build {@link ObjectModel}s from SAX events.
+     * <p>
+     * Like {@link DDFFileParser}, all &lt;Object&gt; elements under the document element are parsed, and value of a
+     * field is the concatenated text of all its descendants (like DOM {@code Node.getTextContent()}).
+     */
+    private static class DDFHandler extends DefaultHandler {
+
+        private final ArrayList<ObjectModel> objects = new ArrayList<>();
+
+        // current depth in the document, document element has depth 1
+        private int depth;
+        // depth of the current element, 0 if we are not in this element.
+        private int objectDepth;
+        private int resourcesDepth;
+        private int itemDepth;
+        private int fieldDepth;
+
+        // current field
+        private String fieldName;
+        private final StringBuilder text = new StringBuilder();
+
+        // current object
+        private Integer id;
+        private String name;
+        private String description;
+        private String version;
+        private Boolean multiple;
+        private Boolean mandatory;
+        private Map<Integer, ResourceModel> resources;
+        private String urn;
+        private String description2;
+        private String lwm2mVersion;
+
+        // current resource
+        private Integer resourceId;
+        private String resourceName;
+        private Operations operations;
+        private Boolean resourceMultiple;
+        private Boolean resourceMandatory;
+        private Type type;
+        private String rangeEnumeration;
+        private String units;
+        private String resourceDescription;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            depth++;
+            if (fieldDepth != 0) {
+                // element inside a field, only its text matters
+                return;
+            }
+
+            if (objectDepth == 0) {
+                if (depth > 1 && "Object".equals(qName)) {
+                    startObject();
+                }
+            } else if (itemDepth != 0) {
+                startField(qName);
+            } else if (resourcesDepth != 0) {
+                if (depth == resourcesDepth + 1 && "Item".equals(qName)) {
+                    startResource(attributes.getValue("ID"));
+                } else {
+                    startField(qName);
+                }
+            } else if ("Resources".equals(qName)) {
+                resourcesDepth = depth;
+            } else {
+                startField(qName);
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (fieldDepth != 0) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            characters(ch, start, length);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (depth == fieldDepth) {
+                if (itemDepth != 0) {
+                    endResourceField(text.toString());
+                } else if (resourcesDepth == 0) {
+                    endObjectField(text.toString());
+                }
+                fieldDepth = 0;
+            } else if (depth == itemDepth) {
+                resources.put(resourceId, new ResourceModel(resourceId, resourceName, operations, resourceMultiple,
+                        resourceMandatory, type, rangeEnumeration, units, resourceDescription));
+                itemDepth = 0;
+            } else if (depth == resourcesDepth) {
+                resourcesDepth = 0;
+            } else if (depth == objectDepth) {
+                objects.add(new ObjectModel(id, name, description, version, multiple, mandatory, resources.values(),
+                        urn, lwm2mVersion, description2));
+                objectDepth = 0;
+            }
+            depth--;
+        }
+
+        private void startField(String qName) {
+            fieldDepth = depth;
+            fieldName = qName;
+            text.setLength(0);
+        }
+
+        private void startObject() {
+            objectDepth = depth;
+            id = null;
+            name = null;
+            description = null;
+            version = ObjectModel.DEFAULT_VERSION;
+            multiple = null;
+            mandatory = null;
+            resources = new LinkedHashMap<>();
+            urn = null;
+            description2 = null;
+            lwm2mVersion = LwM2mVersion.getDefault().toString();
+        }
+
+        private void endObjectField(String value) {
+            switch (fieldName) {
+            case "ObjectID":
+                id = Integer.valueOf(value);
+                break;
+            case "Name":
+                name = value;
+                break;
+            case "Description1":
+                description = value;
+                break;
+            case "ObjectVersion":
+                if (!StringUtils.isEmpty(value)) {
+                    version = value;
+                }
+                break;
+            case "MultipleInstances":
+                multiple = parseMultiple(value, multiple);
+                break;
+            case "Mandatory":
+                mandatory = parseMandatory(value, mandatory);
+                break;
+            case "ObjectURN":
+                urn = value;
+                break;
+            case "LWM2MVersion":
+                if (!StringUtils.isEmpty(value)) {
+                    lwm2mVersion = value;
+                }
+                break;
+            case "Description2":
+                description2 = value;
+                break;
+            default:
+                break;
+            }
+        }
+
+        private void startResource(String strId) {
+            itemDepth = depth;
+            resourceId = Integer.valueOf(strId);
+            resourceName = null;
+            operations = null;
+            resourceMultiple = false;
+            resourceMandatory = false;
+            type = null;
+            rangeEnumeration = null;
+            units = null;
+            resourceDescription = null;
+        }
+
+        private void endResourceField(String value) {
+            switch (fieldName) {
+            case "Name":
+                resourceName = value;
+                break;
+            case "Operations":
+                if (!value.isEmpty()) {
+                    operations = Operations.valueOf(value);
+                } else {
+                    operations = Operations.NONE;
+                }
+                break;
+            case "MultipleInstances":
+                resourceMultiple = parseMultiple(value, resourceMultiple);
+                break;
+            case "Mandatory":
+                resourceMandatory = parseMandatory(value, resourceMandatory);
+                break;
+            case "Type":
+                type = parseType(value, type);
+                break;
+            case "RangeEnumeration":
+                rangeEnumeration = value;
+                break;
+            case "Units":
+                units = value;
+                break;
+            case "Description":
+                resourceDescription = value;
+                break;
+            default:
+                break;
+            }
+        }
+
+        private static Boolean parseMultiple(String value, Boolean defaultValue) {
+            if ("Multiple".equals(value)) {
+                return true;
+            } else if ("Single".equals(value)) {
+                return false;
+            }
+            return defaultValue;
+        }
+
+        private static Boolean parseMandatory(String value, Boolean defaultValue) {
+            if ("Mandatory".equals(value)) {
+                return true;
+            } else if ("Optional".equals(value)) {
+                return false;
+            }
+            return defaultValue;
+        }
+    }
+}
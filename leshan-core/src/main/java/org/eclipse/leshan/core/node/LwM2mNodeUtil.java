@@ -79,7 +79,7 @@ public class LwM2mNodeUtil {
         return isUnsignedInt(id);
     }
 
-    private static String getInvalidObjectIdCause(Integer id) {
+    static String getInvalidObjectIdCause(Integer id) {
         if (!isValidObjectId(id)) {
             return String.format("Invalid object id %d, It MUST be an unsigned int.", id);
         }
@@ -101,7 +101,7 @@ public class LwM2mNodeUtil {
         return id != null && 0 <= id && id <= 65534;
     }
 
-    private static String getInvalidObjectInstanceIdCause(Integer id) {
+    static String getInvalidObjectInstanceIdCause(Integer id) {
         if (!isValidObjectInstanceId(id)) {
             return String.format("Invalid object instance id %d, It MUST be an unsigned int. (65535 is reserved)", id);
         }
@@ -135,7 +135,7 @@ public class LwM2mNodeUtil {
         return isUnsignedInt(id);
     }
 
-    private static String getInvalidResourceIdCause(Integer id) {
+    static String getInvalidResourceIdCause(Integer id) {
         if (!isValidResourceId(id)) {
             return String.format("Invalid resource id %d, It MUST be an unsigned int.", id);
         }
@@ -156,7 +156,7 @@ public class LwM2mNodeUtil {
         return isUnsignedInt(id);
     }
 
-    private static String getInvalidResourceInstanceIdCause(Integer id) {
+    static String getInvalidResourceInstanceIdCause(Integer id) {
         if (!isValidResourceInstanceId(id)) {
             return String.format("Invalid resource instance id %d, It MUST be an unsigned int.", id);
         }
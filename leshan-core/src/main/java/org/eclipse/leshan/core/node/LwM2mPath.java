@@ -17,11 +17,16 @@ package org.eclipse.leshan.core.node;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.leshan.core.util.Validate;
 
 /**
  * A path pointing to a LwM2M node (root, object, object instance, resource or resource instance).
+ * <p>
+ * Ids are packed in a single <code>long</code> (16 bits by level, object id in high-order bits) and the number of
+ * levels is stored as depth, so comparing or hashing a path does not need any unboxing.
  */
 public class LwM2mPath implements Comparable<LwM2mPath> {
 
@@ -31,15 +36,24 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
     public static final byte RESOURCE_DEPTH = 4;
     public static final byte RESOURCE_INSTANCE_DEPTH = 5;
 
-    private final Integer objectId;
-    private final Integer objectInstanceId;
-    private final Integer resourceId;
-    private final Integer resourceInstanceId;
+    private static final int BITS_BY_LEVEL = 16;
+    private static final int ID_MASK = 0xFFFF;
+
+    /** Maximum number of paths kept by {@link #intern(LwM2mPath)} */
+    private static final int MAX_INTERNED_PATHS = 8192;
+    private static final ConcurrentMap<LwM2mPath, LwM2mPath> internedPaths = new ConcurrentHashMap<>();
+
+    // object instance id is stored with an offset of 1 to be able to store LwM2mObjectInstance.UNDEFINED (-1)
+    private final long ids;
+    private final byte depth;
+
+    // lazily computed string representation
+    private String string;
 
     public final static LwM2mPath ROOTPATH = new LwM2mPath();
 
     private LwM2mPath() {
-        this(null, null, null, null);
+        this(ROOT_DEPTH, 0, 0, 0, 0);
     }
 
     /**
@@ -50,7 +64,7 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
      * @throws InvalidLwM2mPathException if you try to create path with invalid inputs
      */
     public LwM2mPath(int objectId) throws InvalidLwM2mPathException {
-        this(objectId, null, null, null);
+        this(OBJECT_DEPTH, objectId, 0, 0, 0);
         validate();
     }
 
@@ -63,7 +77,7 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
      * @throws InvalidLwM2mPathException if you try to create path with invalid inputs
      */
     public LwM2mPath(int objectId, int objectInstanceId) throws InvalidLwM2mPathException {
-        this(objectId, objectInstanceId, null, null);
+        this(OBJECT_INSTANCE_DEPTH, objectId, objectInstanceId, 0, 0);
         validate();
     }
 
@@ -77,7 +91,7 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
      * @throws InvalidLwM2mPathException if you try to create path with invalid inputs
      */
     public LwM2mPath(int objectId, int objectInstanceId, int resourceId) throws InvalidLwM2mPathException {
-        this(objectId, objectInstanceId, resourceId, null);
+        this(RESOURCE_DEPTH, objectId, objectInstanceId, resourceId, 0);
         validate();
     }
 
@@ -93,7 +107,7 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
      */
     public LwM2mPath(int objectId, int objectInstanceId, int resourceId, int resourceInstanceId)
             throws InvalidLwM2mPathException {
-        this((Integer) objectId, (Integer) objectInstanceId, (Integer) resourceId, (Integer) resourceInstanceId);
+        this(RESOURCE_INSTANCE_DEPTH, objectId, objectInstanceId, resourceId, resourceInstanceId);
         validate();
     }
 
@@ -106,32 +120,122 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
      */
     public LwM2mPath(String path) throws InvalidLwM2mPathException {
         Validate.notNull(path);
-        if (path.startsWith("/")) {
-            path = path.substring(1);
+
+        // ignore leading slash and trailing ones
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.length();
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
         }
-        if (path.endsWith("/")) {
-            path = path.substring(0, path.length() - 1);
+
+        long ids = 0;
+        byte depth = ROOT_DEPTH;
+        int i = start;
+        while (i < end) {
+            if (depth == RESOURCE_INSTANCE_DEPTH) {
+                throw new InvalidLwM2mPathException("Invalid length for path: %s", path);
+            }
+            // parse id without creating any substring
+            long id = 0;
+            int firstDigit = i;
+            for (; i < end && path.charAt(i) != '/'; i++) {
+                char c = path.charAt(i);
+                if (c < '0' || c > '9') {
+                    throw new InvalidLwM2mPathException("Invalid elements in path: %s", path);
+                }
+                id = id * 10 + (c - '0');
+                if (id > Integer.MAX_VALUE) {
+                    throw new InvalidLwM2mPathException("Invalid elements in path: %s", path);
+                }
+            }
+            if (i == firstDigit) {
+                throw new InvalidLwM2mPathException("Invalid elements in path: %s", path);
+            }
+            depth++;
+            ids = withId(ids, depth, (int) id);
+            // skip separator
+            i++;
         }
-        String[] p = path.split("/");
-        if (0 > p.length || p.length > 4) {
-            throw new InvalidLwM2mPathException("Invalid length for path: ", path);
+        this.ids = ids;
+        this.depth = depth;
+        validate();
+    }
+
+    protected LwM2mPath(Integer objectId, Integer objectInstanceId, Integer resourceId, Integer resourceInstanceId) {
+        this(getDepth(objectId, objectInstanceId, resourceId, resourceInstanceId), objectId == null ? 0 : objectId,
+                objectInstanceId == null ? 0 : objectInstanceId, resourceId == null ? 0 : resourceId,
+                resourceInstanceId == null ? 0 : resourceInstanceId);
+    }
+
+    private LwM2mPath(byte depth, int objectId, int objectInstanceId, int resourceId, int resourceInstanceId) {
+        long ids = 0;
+        if (depth >= OBJECT_DEPTH)
+            ids = withId(ids, OBJECT_DEPTH, objectId);
+        if (depth >= OBJECT_INSTANCE_DEPTH)
+            ids = withId(ids, OBJECT_INSTANCE_DEPTH, objectInstanceId);
+        if (depth >= RESOURCE_DEPTH)
+            ids = withId(ids, RESOURCE_DEPTH, resourceId);
+        if (depth >= RESOURCE_INSTANCE_DEPTH)
+            ids = withId(ids, RESOURCE_INSTANCE_DEPTH, resourceInstanceId);
+        this.ids = ids;
+        this.depth = depth;
+    }
+
+    private static byte getDepth(Integer objectId, Integer objectInstanceId, Integer resourceId,
+            Integer resourceInstanceId) throws InvalidLwM2mPathException {
+        if ((objectId == null && objectInstanceId != null) || (objectInstanceId == null && resourceId != null)
+                || (resourceId == null && resourceInstanceId != null)) {
+            throw new InvalidLwM2mPathException("Invalid LWM2M path (%d,%d,%d,%d)", objectId, objectInstanceId,
+                    resourceId, resourceInstanceId);
         }
-        try {
-            this.objectId = (p.length >= 1 && !p[0].isEmpty()) ? Integer.valueOf(p[0]) : null;
-            this.objectInstanceId = (p.length >= 2) ? Integer.valueOf(p[1]) : null;
-            this.resourceId = (p.length >= 3) ? Integer.valueOf(p[2]) : null;
-            this.resourceInstanceId = (p.length == 4) ? Integer.valueOf(p[3]) : null;
-            validate();
-        } catch (NumberFormatException e) {
-            throw new InvalidLwM2mPathException(e, "Invalid elements in path: ", path);
+        if (resourceInstanceId != null)
+            return RESOURCE_INSTANCE_DEPTH;
+        if (resourceId != null)
+            return RESOURCE_DEPTH;
+        if (objectInstanceId != null)
+            return OBJECT_INSTANCE_DEPTH;
+        if (objectId != null)
+            return OBJECT_DEPTH;
+        return ROOT_DEPTH;
+    }
+
+    /**
+     * Add the id of the given level to packed ids.
+     *
+     * @throws InvalidLwM2mPathException if id can not be stored on 16 bits, which means this is not a valid id.
+     */
+    private static long withId(long ids, byte level, int id) throws InvalidLwM2mPathException {
+        int value = level == OBJECT_INSTANCE_DEPTH ? id + 1 : id;
+        if (value < 0 || value > ID_MASK) {
+            String cause;
+            switch (level) {
+            case OBJECT_DEPTH:
+                cause = LwM2mNodeUtil.getInvalidObjectIdCause(id);
+                break;
+            case OBJECT_INSTANCE_DEPTH:
+                cause = LwM2mNodeUtil.getInvalidObjectInstanceIdCause(id);
+                break;
+            case RESOURCE_DEPTH:
+                cause = LwM2mNodeUtil.getInvalidResourceIdCause(id);
+                break;
+            default:
+                cause = LwM2mNodeUtil.getInvalidResourceInstanceIdCause(id);
+                break;
+            }
+            throw new InvalidLwM2mPathException(cause);
         }
+        return ids | ((long) value << shift(level));
     }
 
-    protected LwM2mPath(Integer objectId, Integer objectInstanceId, Integer resourceId, Integer resourceInstanceId) {
-        this.objectId = objectId;
-        this.objectInstanceId = objectInstanceId;
-        this.resourceId = resourceId;
-        this.resourceInstanceId = resourceInstanceId;
+    private static int shift(byte level) {
+        return (RESOURCE_INSTANCE_DEPTH - level) * BITS_BY_LEVEL;
+    }
+
+    private Integer getId(byte level) {
+        if (depth < level)
+            return null;
+        int id = (int) (ids >>> shift(level)) & ID_MASK;
+        return level == OBJECT_INSTANCE_DEPTH ? id - 1 : id;
     }
 
     /**
@@ -181,31 +285,13 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
      * @return true if the current path start with the given path
      */
     public boolean startWith(LwM2mPath start) {
-        // object id
-        if (start.getObjectId() == null)
-            return true;
-        if (!start.getObjectId().equals(this.getObjectId())) {
-            return false;
-        }
-        // object instance id
-        if (start.getObjectInstanceId() == null)
-            return true;
-        if (!start.getObjectInstanceId().equals(this.getObjectInstanceId())) {
-            return false;
-        }
-        // resource id
-        if (start.getResourceId() == null)
-            return true;
-        if (!start.getResourceId().equals(this.getResourceId())) {
+        if (start.depth > depth)
             return false;
-        }
-        // resource instance id
-        if (start.getResourceInstanceId() == null)
+        if (start.depth == ROOT_DEPTH)
             return true;
-        if (!start.getResourceInstanceId().equals(this.getResourceInstanceId())) {
-            return false;
-        }
-        return true;
+        // keep only levels defined in start path
+        long mask = -1L << shift(start.depth);
+        return (ids & mask) == start.ids;
     }
 
     /**
@@ -214,7 +300,7 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
      * @return the object ID. Can be <code>null</code> when this is an root path.
      */
     public Integer getObjectId() {
-        return objectId;
+        return getId(OBJECT_DEPTH);
     }
 
     /**
@@ -223,7 +309,7 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
      * @return the object instance ID. Can be <code>null</code> when this is an root/object path.
      */
     public Integer getObjectInstanceId() {
-        return objectInstanceId;
+        return getId(OBJECT_INSTANCE_DEPTH);
     }
 
     /**
@@ -232,7 +318,7 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
      * @return the resource ID. Can be <code>null</code> when this is a root/object/object instance path.
      */
     public Integer getResourceId() {
-        return resourceId;
+        return getId(RESOURCE_DEPTH);
     }
 
     /**
@@ -242,42 +328,42 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
      *         path.
      */
     public Integer getResourceInstanceId() {
-        return resourceInstanceId;
+        return getId(RESOURCE_INSTANCE_DEPTH);
     }
 
     /**
      * @return <code>true</code> if this is the root path ("/").
      */
     public boolean isRoot() {
-        return objectId == null && objectInstanceId == null && resourceId == null && resourceInstanceId == null;
+        return depth == ROOT_DEPTH;
     }
 
     /**
      * @return <code>true</code> if this is an Object path.
      */
     public boolean isObject() {
-        return objectId != null && objectInstanceId == null && resourceId == null && resourceInstanceId == null;
+        return depth == OBJECT_DEPTH;
     }
 
     /**
      * @return <code>true</code> if this is an ObjectInstance path.
      */
     public boolean isObjectInstance() {
-        return objectId != null && objectInstanceId != null && resourceId == null && resourceInstanceId == null;
+        return depth == OBJECT_INSTANCE_DEPTH;
     }
 
     /**
      * @return <code>true</code> if this is a Resource path.
      */
     public boolean isResource() {
-        return objectId != null && objectInstanceId != null && resourceId != null && resourceInstanceId == null;
+        return depth == RESOURCE_DEPTH;
     }
 
     /**
      * @return <code>true</code> if this is a Resource instance path.
      */
     public boolean isResourceInstance() {
-        return objectId != null && objectInstanceId != null && resourceId != null && resourceInstanceId != null;
+        return depth == RESOURCE_INSTANCE_DEPTH;
     }
 
     /**
@@ -312,31 +398,27 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
      */
     @Override
     public String toString() {
-        StringBuilder b = new StringBuilder();
-        b.append("/");
-        if (getObjectId() != null) {
-            b.append(getObjectId());
-            if (getObjectInstanceId() != null) {
-                b.append("/").append(getObjectInstanceId());
-                if (getResourceId() != null) {
-                    b.append("/").append(getResourceId());
-                    if (getResourceInstanceId() != null) {
-                        b.append("/").append(getResourceInstanceId());
-                    }
-                }
+        String s = string;
+        if (s == null) {
+            StringBuilder b = new StringBuilder(4 + 6 * (depth - 1));
+            b.append("/");
+            for (byte level = OBJECT_DEPTH; level <= depth; level++) {
+                if (level > OBJECT_DEPTH)
+                    b.append("/");
+                b.append((int) getId(level));
             }
+            s = b.toString();
+            string = s;
         }
-        return b.toString();
+        return s;
     }
 
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + objectId;
-        result = prime * result + ((objectInstanceId == null) ? 0 : objectInstanceId.hashCode());
-        result = prime * result + ((resourceId == null) ? 0 : resourceId.hashCode());
-        result = prime * result + ((resourceInstanceId == null) ? 0 : resourceInstanceId.hashCode());
+        result = prime * result + (int) (ids ^ (ids >>> 32));
+        result = prime * result + depth;
         return result;
     }
 
@@ -352,64 +434,40 @@ public class LwM2mPath implements Comparable<LwM2mPath> {
             return false;
         }
         LwM2mPath other = (LwM2mPath) obj;
-        if (objectId == null) {
-            if (other.objectId != null) {
-                return false;
-            }
-        } else if (!objectId.equals(other.objectId)) {
-            return false;
-        }
-        if (objectInstanceId == null) {
-            if (other.objectInstanceId != null) {
-                return false;
-            }
-        } else if (!objectInstanceId.equals(other.objectInstanceId)) {
-            return false;
-        }
-        if (resourceId == null) {
-            if (other.resourceId != null) {
-                return false;
-            }
-        } else if (!resourceId.equals(other.resourceId)) {
-            return false;
-        }
-        if (resourceInstanceId == null) {
-            if (other.resourceInstanceId != null) {
-                return false;
-            }
-        } else if (!resourceInstanceId.equals(other.resourceInstanceId)) {
-            return false;
-        }
-        return true;
+        return ids == other.ids && depth == other.depth;
     }
 
     @Override
     public int compareTo(LwM2mPath o) {
-        int res = compareInteger(this.objectId, o.objectId);
-        if (res != 0 || this.objectId == null)
-            return res;
-
-        res = compareInteger(this.objectInstanceId, o.objectInstanceId);
-        if (res != 0 || this.objectInstanceId == null)
-            return res;
-
-        res = compareInteger(this.resourceId, o.resourceId);
-        if (res != 0 || this.resourceId == null)
+        // missing levels are stored as 0 and object instance id has an offset, so comparing ids as unsigned long is
+        // enough except when a path is a parent of the other one.
+        int res = Long.compareUnsigned(this.ids, o.ids);
+        if (res != 0)
             return res;
-
-        return compareInteger(this.resourceInstanceId, o.resourceInstanceId);
+        return Integer.compare(this.depth, o.depth);
     }
 
-    private int compareInteger(Integer i1, Integer i2) {
-        if (i1 == i2) {
-            return 0;
-        } else if (i1 == null) {
-            return -1;
-        } else if (i2 == null) {
-            return 1;
-        } else {
-            return i1.compareTo(i2);
-        }
+    /**
+     * Returns a canonical representation of the given path.
+     * <p>
+     * Root, object and object instance paths are shared by lot of registrations, links or observations. This method
+     * allows to keep only one instance of each of them in memory. Deeper paths, subclasses of {@link LwM2mPath} or new
+     * paths once the pool is full are returned as is.
+     *
+     * @param path the path to intern.
+     * @return a path equal to the given one.
+     */
+    public static LwM2mPath intern(LwM2mPath path) {
+        if (path.getClass() != LwM2mPath.class || path.depth > OBJECT_INSTANCE_DEPTH)
+            return path;
+
+        LwM2mPath interned = internedPaths.get(path);
+        if (interned != null)
+            return interned;
+        if (internedPaths.size() >= MAX_INTERNED_PATHS)
+            return path;
+        interned = internedPaths.putIfAbsent(path, path);
+        return interned == null ? path : interned;
     }
 
     /**
@@ -41,8 +41,9 @@ import org.eclipse.leshan.core.node.codec.text.LwM2mNodeTextDecoder;
 import org.eclipse.leshan.core.node.codec.tlv.LwM2mNodeTlvDecoder;
 import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.senml.cbor.streaming.SenMLCborStreamingEncoderDecoder;
 import org.eclipse.leshan.senml.cbor.upokecenter.SenMLCborUpokecenterEncoderDecoder;
-import org.eclipse.leshan.senml.json.jackson.SenMLJsonJacksonEncoderDecoder;
+import org.eclipse.leshan.senml.json.jackson.SenMLJsonStreamingEncoderDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +61,10 @@ import org.slf4j.LoggerFactory;
  * <li>{@link ContentFormat#JSON} (old one from LwM2m v1.0)</li>
  * </ul>
  * <p>
+ * A streaming implementation of {@link ContentFormat#SENML_CBOR} which reads SenML records directly from the content,
+ * without building an intermediate CBOR tree, can be used instead, see
+ * {@link #getDefaultNodeDecoders(boolean, boolean)}. JSON based formats are always read with Jackson streaming API.
+ * <p>
  * For {@link LwM2mPath} decoding, those formats are supported :
  * <ul>
  * <li>{@link ContentFormat#SENML_JSON}</li>
@@ -71,13 +76,28 @@ public class DefaultLwM2mDecoder implements LwM2mDecoder {
     private static final Logger LOG = LoggerFactory.getLogger(DefaultLwM2mDecoder.class);
 
     public static Map<ContentFormat, NodeDecoder> getDefaultNodeDecoders(boolean supportDeprecatedContentFormat) {
+        return getDefaultNodeDecoders(supportDeprecatedContentFormat, false);
+    }
+
+    /**
+     * @param supportDeprecatedContentFormat True to accept to decode old TLV and JSON code.
+     * @param streamingSenMLCbor True to read SenML-CBOR with {@link SenMLCborStreamingEncoderDecoder} which does not
+     *        build a CBOR tree.
+     */
+    public static Map<ContentFormat, NodeDecoder> getDefaultNodeDecoders(boolean supportDeprecatedContentFormat,
+            boolean streamingSenMLCbor) {
         Map<ContentFormat, NodeDecoder> decoders = new HashMap<>();
         decoders.put(ContentFormat.TEXT, new LwM2mNodeTextDecoder());
         decoders.put(ContentFormat.OPAQUE, new LwM2mNodeOpaqueDecoder());
         decoders.put(ContentFormat.CBOR, new LwM2mNodeCborDecoder());
-        decoders.put(ContentFormat.SENML_JSON, new LwM2mNodeSenMLDecoder(new SenMLJsonJacksonEncoderDecoder(), true));
-        decoders.put(ContentFormat.SENML_CBOR,
-                new LwM2mNodeSenMLDecoder(new SenMLCborUpokecenterEncoderDecoder(), false));
+        decoders.put(ContentFormat.SENML_JSON, new LwM2mNodeSenMLDecoder(new SenMLJsonStreamingEncoderDecoder(), true));
+        if (streamingSenMLCbor) {
+            decoders.put(ContentFormat.SENML_CBOR,
+                    new LwM2mNodeSenMLDecoder(new SenMLCborStreamingEncoderDecoder(), false));
+        } else {
+            decoders.put(ContentFormat.SENML_CBOR,
+                    new LwM2mNodeSenMLDecoder(new SenMLCborUpokecenterEncoderDecoder(), false));
+        }
 
         // tlv
         LwM2mNodeTlvDecoder tlvDecoder = new LwM2mNodeTlvDecoder();
@@ -95,7 +115,7 @@ public class DefaultLwM2mDecoder implements LwM2mDecoder {
 
     public static Map<ContentFormat, PathDecoder> getDefaultPathDecoder() {
         Map<ContentFormat, PathDecoder> decoders = new HashMap<>();
-        decoders.put(ContentFormat.SENML_JSON, new LwM2mPathSenMLDecoder(new SenMLJsonJacksonEncoderDecoder(true)));
+        decoders.put(ContentFormat.SENML_JSON, new LwM2mPathSenMLDecoder(new SenMLJsonStreamingEncoderDecoder(true)));
         decoders.put(ContentFormat.SENML_CBOR,
                 new LwM2mPathSenMLDecoder(new SenMLCborUpokecenterEncoderDecoder(false, true)));
 
@@ -29,6 +29,7 @@ import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
 import org.eclipse.leshan.core.node.codec.cbor.LwM2mNodeCborEncoder;
 import org.eclipse.leshan.core.node.codec.json.LwM2mNodeJsonEncoder;
 import org.eclipse.leshan.core.node.codec.opaque.LwM2mNodeOpaqueEncoder;
+import org.eclipse.leshan.core.node.codec.senml.LwM2mNodeSenMLCborEncoder;
 import org.eclipse.leshan.core.node.codec.senml.LwM2mNodeSenMLEncoder;
 import org.eclipse.leshan.core.node.codec.senml.LwM2mPathSenMLEncoder;
 import org.eclipse.leshan.core.node.codec.text.LwM2mNodeTextEncoder;
@@ -36,7 +37,7 @@ import org.eclipse.leshan.core.node.codec.tlv.LwM2mNodeTlvEncoder;
 import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.util.Validate;
 import org.eclipse.leshan.senml.cbor.upokecenter.SenMLCborUpokecenterEncoderDecoder;
-import org.eclipse.leshan.senml.json.jackson.SenMLJsonJacksonEncoderDecoder;
+import org.eclipse.leshan.senml.json.jackson.SenMLJsonStreamingEncoderDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +55,10 @@ import org.slf4j.LoggerFactory;
  * <li>{@link ContentFormat#JSON} (old one from LwM2m v1.0)</li>
  * </ul>
  * <p>
+ * A streaming implementation of {@link ContentFormat#SENML_CBOR} which does not create intermediate SenML records nor
+ * CBOR tree can be used instead, see {@link #getDefaultNodeEncoders(boolean, boolean)}. JSON based formats are always
+ * written with Jackson streaming API.
+ * <p>
  * For {@link LwM2mPath} encoding, those formats are supported :
  * <ul>
  * <li>{@link ContentFormat#SENML_JSON}</li>
@@ -65,12 +70,26 @@ public class DefaultLwM2mEncoder implements LwM2mEncoder {
     private static final Logger LOG = LoggerFactory.getLogger(DefaultLwM2mEncoder.class);
 
     public static Map<ContentFormat, NodeEncoder> getDefaultNodeEncoders(boolean supportDeprecatedContentFormat) {
+        return getDefaultNodeEncoders(supportDeprecatedContentFormat, false);
+    }
+
+    /**
+     * @param supportDeprecatedContentFormat True to accept to encode old TLV and JSON code.
+     * @param streamingSenMLCbor True to use {@link LwM2mNodeSenMLCborEncoder} which writes SenML-CBOR directly instead
+     *        of building SenML records then a CBOR tree.
+     */
+    public static Map<ContentFormat, NodeEncoder> getDefaultNodeEncoders(boolean supportDeprecatedContentFormat,
+            boolean streamingSenMLCbor) {
         Map<ContentFormat, NodeEncoder> encoders = new HashMap<>();
         encoders.put(ContentFormat.TEXT, new LwM2mNodeTextEncoder());
         encoders.put(ContentFormat.OPAQUE, new LwM2mNodeOpaqueEncoder());
         encoders.put(ContentFormat.CBOR, new LwM2mNodeCborEncoder());
-        encoders.put(ContentFormat.SENML_JSON, new LwM2mNodeSenMLEncoder(new SenMLJsonJacksonEncoderDecoder()));
-        encoders.put(ContentFormat.SENML_CBOR, new LwM2mNodeSenMLEncoder(new SenMLCborUpokecenterEncoderDecoder()));
+        encoders.put(ContentFormat.SENML_JSON, new LwM2mNodeSenMLEncoder(new SenMLJsonStreamingEncoderDecoder()));
+        if (streamingSenMLCbor) {
+            encoders.put(ContentFormat.SENML_CBOR, new LwM2mNodeSenMLCborEncoder());
+        } else {
+            encoders.put(ContentFormat.SENML_CBOR, new LwM2mNodeSenMLEncoder(new SenMLCborUpokecenterEncoderDecoder()));
+        }
 
         // tlv
         LwM2mNodeTlvEncoder tlvDecoder = new LwM2mNodeTlvEncoder();
@@ -88,7 +107,7 @@ public class DefaultLwM2mEncoder implements LwM2mEncoder {
 
     public static Map<ContentFormat, PathEncoder> getDefaultPathEncoder() {
         Map<ContentFormat, PathEncoder> encoders = new HashMap<>();
-        encoders.put(ContentFormat.SENML_JSON, new LwM2mPathSenMLEncoder(new SenMLJsonJacksonEncoderDecoder(true)));
+        encoders.put(ContentFormat.SENML_JSON, new LwM2mPathSenMLEncoder(new SenMLJsonStreamingEncoderDecoder(true)));
         encoders.put(ContentFormat.SENML_CBOR,
                 new LwM2mPathSenMLEncoder(new SenMLCborUpokecenterEncoderDecoder(false, true)));
 
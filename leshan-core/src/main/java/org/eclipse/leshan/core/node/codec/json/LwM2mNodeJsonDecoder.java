@@ -32,7 +32,7 @@ import org.eclipse.leshan.core.json.JsonArrayEntry;
 import org.eclipse.leshan.core.json.JsonRootObject;
 import org.eclipse.leshan.core.json.LwM2mJsonDecoder;
 import org.eclipse.leshan.core.json.LwM2mJsonException;
-import org.eclipse.leshan.core.json.jackson.LwM2mJsonJacksonEncoderDecoder;
+import org.eclipse.leshan.core.json.jackson.LwM2mJsonStreamingEncoderDecoder;
 import org.eclipse.leshan.core.link.LinkParser;
 import org.eclipse.leshan.core.link.lwm2m.DefaultLwM2mLinkParser;
 import org.eclipse.leshan.core.model.LwM2mModel;
@@ -67,7 +67,7 @@ public class LwM2mNodeJsonDecoder implements TimestampedNodeDecoder {
     private final LinkParser linkParser;
 
     public LwM2mNodeJsonDecoder() {
-        this(new LwM2mJsonJacksonEncoderDecoder(), new DefaultLwM2mLinkParser());
+        this(new LwM2mJsonStreamingEncoderDecoder(), new DefaultLwM2mLinkParser());
     }
 
     public LwM2mNodeJsonDecoder(LwM2mJsonDecoder jsonDecoder, LinkParser linkParser) {
@@ -80,8 +80,7 @@ public class LwM2mNodeJsonDecoder implements TimestampedNodeDecoder {
     public <T extends LwM2mNode> T decode(byte[] content, LwM2mPath path, LwM2mModel model, Class<T> nodeClass)
             throws CodecException {
         try {
-            String jsonStrValue = content != null ? new String(content) : "";
-            JsonRootObject json = decoder.fromJsonLwM2m(jsonStrValue);
+            JsonRootObject json = decoder.fromJsonLwM2m(content != null ? content : new byte[0]);
             List<TimestampedLwM2mNode> timestampedNodes = parseJSON(json, path, model, nodeClass);
             if (timestampedNodes.size() == 0) {
                 return null;
@@ -98,8 +97,7 @@ public class LwM2mNodeJsonDecoder implements TimestampedNodeDecoder {
     public List<TimestampedLwM2mNode> decodeTimestampedData(byte[] content, LwM2mPath path, LwM2mModel model,
             Class<? extends LwM2mNode> nodeClass) throws CodecException {
         try {
-            String jsonStrValue = new String(content);
-            JsonRootObject json = decoder.fromJsonLwM2m(jsonStrValue);
+            JsonRootObject json = decoder.fromJsonLwM2m(content);
             return parseJSON(json, path, model, nodeClass);
         } catch (LwM2mJsonException | InvalidLwM2mPathException e) {
             throw new CodecException(e, "Unable to deserialize json [path:%s]", path);
@@ -25,7 +25,7 @@ import org.eclipse.leshan.core.json.JsonArrayEntry;
 import org.eclipse.leshan.core.json.JsonRootObject;
 import org.eclipse.leshan.core.json.LwM2mJsonEncoder;
 import org.eclipse.leshan.core.json.LwM2mJsonException;
-import org.eclipse.leshan.core.json.jackson.LwM2mJsonJacksonEncoderDecoder;
+import org.eclipse.leshan.core.json.jackson.LwM2mJsonStreamingEncoderDecoder;
 import org.eclipse.leshan.core.link.DefaultLinkSerializer;
 import org.eclipse.leshan.core.link.Link;
 import org.eclipse.leshan.core.link.LinkSerializer;
@@ -58,7 +58,7 @@ public class LwM2mNodeJsonEncoder implements TimestampedNodeEncoder {
     private final LinkSerializer linkSerializer;
 
     public LwM2mNodeJsonEncoder() {
-        this(new LwM2mJsonJacksonEncoderDecoder(), new DefaultLinkSerializer());
+        this(new LwM2mJsonStreamingEncoderDecoder(), new DefaultLinkSerializer());
     }
 
     public LwM2mNodeJsonEncoder(LwM2mJsonEncoder jsonEncoder, LinkSerializer linkSerializer) {
@@ -83,7 +83,7 @@ public class LwM2mNodeJsonEncoder implements TimestampedNodeEncoder {
         jsonObject.setResourceList(internalEncoder.resourceList);
         jsonObject.setBaseName(internalEncoder.baseName);
         try {
-            return encoder.toJsonLwM2m(jsonObject).getBytes();
+            return encoder.toJsonLwM2mBytes(jsonObject);
         } catch (LwM2mJsonException e) {
             throw new CodecException(e, "Unable to encode node[path:%s] : %s", path, node);
         }
@@ -122,7 +122,7 @@ public class LwM2mNodeJsonEncoder implements TimestampedNodeEncoder {
         jsonObject.setResourceList(entries);
         jsonObject.setBaseName(internalEncoder.baseName);
         try {
-            return encoder.toJsonLwM2m(jsonObject).getBytes();
+            return encoder.toJsonLwM2mBytes(jsonObject);
         } catch (LwM2mJsonException e) {
             throw new CodecException(e, "Unable to encode timestamped nodes[path:%s] : %s", path, timestampedNodes);
         }
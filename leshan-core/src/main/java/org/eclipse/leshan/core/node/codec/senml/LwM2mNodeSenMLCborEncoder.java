@@ -0,0 +1,410 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node.codec.senml;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.leshan.core.link.DefaultLinkSerializer;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.link.LinkSerializer;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ResourceModel;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mNodeVisitor;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.LwM2mResourceInstance;
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.node.codec.LwM2mValueConverter;
+import org.eclipse.leshan.core.node.codec.MultiNodeEncoder;
+import org.eclipse.leshan.core.node.codec.TimestampedMultiNodeEncoder;
+import org.eclipse.leshan.core.node.codec.TimestampedNodeEncoder;
+import org.eclipse.leshan.core.util.TimestampUtil;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.core.util.cbor.CborWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A SenML-CBOR encoder writing {@link LwM2mNode} directly in CBOR.
+ * <p>
+ * Unlike {@link LwM2mNodeSenMLEncoder}, no SenML record or CBOR tree is created and timestamps are written from their
+ * seconds and nanoseconds (as integer or as decimal fraction). Base name and base time are only written when they
+ * change, as SenML resolution keeps them for the following records. Resources and resource instances use their parent
+ * path as base name, so consecutive nodes of the same instance (e.g. in a Send request) share it.
+ * <p>
+ * Content produced by this encoder can be decoded by any SenML-CBOR decoder.
+ */
+public class LwM2mNodeSenMLCborEncoder
+        implements TimestampedNodeEncoder, MultiNodeEncoder, TimestampedMultiNodeEncoder {
+    private static final Logger LOG = LoggerFactory.getLogger(LwM2mNodeSenMLCborEncoder.class);
+
+    // SenML CBOR labels (see https://datatracker.ietf.org/doc/html/rfc8428#section-6)
+    private static final int BASE_NAME = -2;
+    private static final int BASE_TIME = -3;
+    private static final int NAME = 0;
+    private static final int VALUE = 2;
+    private static final int STRING_VALUE = 3;
+    private static final int BOOLEAN_VALUE = 4;
+    private static final int DATA_VALUE = 8;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final LinkSerializer linkSerializer;
+
+    public LwM2mNodeSenMLCborEncoder() {
+        this(new DefaultLinkSerializer());
+    }
+
+    public LwM2mNodeSenMLCborEncoder(LinkSerializer linkSerializer) {
+        this.linkSerializer = linkSerializer;
+    }
+
+    @Override
+    public byte[] encode(LwM2mNode node, LwM2mPath path, LwM2mModel model, LwM2mValueConverter converter) {
+        Validate.notNull(node);
+        Validate.notNull(path);
+        Validate.notNull(model);
+
+        InternalEncoder internalEncoder = new InternalEncoder(model, converter);
+        internalEncoder.encode(path, node, null);
+        return internalEncoder.end();
+    }
+
+    @Override
+    public byte[] encodeNodes(Map<LwM2mPath, LwM2mNode> nodes, LwM2mModel model, LwM2mValueConverter converter)
+            throws CodecException {
+        Validate.notEmpty(nodes);
+
+        InternalEncoder internalEncoder = new InternalEncoder(model, converter);
+        for (Entry<LwM2mPath, LwM2mNode> entry : nodes.entrySet()) {
+            LwM2mNode node = entry.getValue();
+            if (node != null) {
+                internalEncoder.encode(entry.getKey(), node, null);
+            }
+            // else
+            // We just ignore null node as the LWM2M specification says that "Read-Composite operation is treated as
+            // non-atomic and handled as best effort by the client. That is, if any of the requested resources do not
+            // have a valid value to return, they will not be included in the response".
+            // Meaning that a given path could have no corresponding value.
+        }
+        return internalEncoder.end();
+    }
+
+    @Override
+    public byte[] encodeTimestampedData(List<TimestampedLwM2mNode> timestampedNodes, LwM2mPath path, LwM2mModel model,
+            LwM2mValueConverter converter) throws CodecException {
+        Validate.notNull(timestampedNodes);
+        Validate.notNull(path);
+        Validate.notNull(model);
+
+        InternalEncoder internalEncoder = new InternalEncoder(model, converter);
+        for (TimestampedLwM2mNode timestampedLwM2mNode : timestampedNodes) {
+            if (timestampedLwM2mNode.getTimestamp().getEpochSecond() < 268_435_456) {
+                // The smallest absolute Time value that can be expressed (2**28) is 1978-07-04 21:24:16 UTC.
+                // see https://tools.ietf.org/html/rfc8428#section-4.5.3
+                throw new CodecException(
+                        "Unable to encode timestamped node[path:%s] : invalid timestamp %s, timestamp should be greater or equals to 268,435,456",
+                        path, timestampedLwM2mNode.getTimestamp());
+            }
+            internalEncoder.encode(path, timestampedLwM2mNode.getNode(), timestampedLwM2mNode.getTimestamp());
+        }
+        return internalEncoder.end();
+    }
+
+    @Override
+    public byte[] encodeTimestampedNodes(TimestampedLwM2mNodes timestampedNodes, LwM2mModel model,
+            LwM2mValueConverter converter) throws CodecException {
+        Validate.notEmpty(timestampedNodes.getTimestamps());
+
+        InternalEncoder internalEncoder = new InternalEncoder(model, converter);
+        for (Instant timestamp : timestampedNodes.getTimestamps()) {
+            for (Entry<LwM2mPath, LwM2mNode> entry : timestampedNodes.getNodesAt(timestamp).entrySet()) {
+                LwM2mNode node = entry.getValue();
+                if (node != null) {
+                    internalEncoder.encode(entry.getKey(), node, timestamp);
+                }
+            }
+        }
+        return internalEncoder.end();
+    }
+
+    private class InternalEncoder implements LwM2mNodeVisitor {
+        // encoder inputs
+        private final LwM2mModel model;
+        private final LwM2mValueConverter converter;
+
+        // encoder output
+        private final CborWriter writer = new CborWriter();
+        private final int arrayMark = writer.startArray();
+        private int nbRecords = 0;
+
+        // last written base name and base time
+        private String lastBaseName;
+        private Instant lastBaseTime;
+
+        // current node
+        private LwM2mPath requestPath;
+        private int objectId;
+        private Instant baseTime;
+        private String baseName;
+        // number of path ids included in base name
+        private int baseNameDepth;
+        private final StringBuilder name = new StringBuilder();
+
+        InternalEncoder(LwM2mModel model, LwM2mValueConverter converter) {
+            this.model = model;
+            this.converter = converter;
+        }
+
+        void encode(LwM2mPath path, LwM2mNode node, Instant timestamp) {
+            requestPath = path;
+            objectId = path.getObjectId();
+            baseTime = timestamp;
+            node.accept(this);
+        }
+
+        byte[] end() {
+            writer.endArray(arrayMark, nbRecords);
+            return writer.toByteArray();
+        }
+
+        @Override
+        public void visit(LwM2mObject object) {
+            LOG.trace("Encoding Object {} into SenML-CBOR", object);
+            // Validate request path
+            if (!requestPath.isObject()) {
+                throw new CodecException("Invalid request path %s for object encoding", requestPath);
+            }
+
+            // Write SenML records
+            setBaseName(1);
+            for (LwM2mObjectInstance instance : object.getInstances().values()) {
+                for (LwM2mResource resource : instance.getResources().values()) {
+                    writeResource(instance.getId(), resource);
+                }
+            }
+        }
+
+        @Override
+        public void visit(LwM2mObjectInstance instance) {
+            LOG.trace("Encoding object instance {} into SenML-CBOR", instance);
+            // Validate request path
+            if (requestPath.isObject()) {
+                setBaseName(1);
+            } else if (requestPath.isObjectInstance()) {
+                setBaseName(2);
+            } else {
+                throw new CodecException("Invalid request path %s for instance encoding", requestPath);
+            }
+
+            // Write SenML records
+            for (LwM2mResource resource : instance.getResources().values()) {
+                writeResource(instance.getId(), resource);
+            }
+        }
+
+        @Override
+        public void visit(LwM2mResource resource) {
+            LOG.trace("Encoding resource {} into SenML-CBOR", resource);
+            if (!requestPath.isResource()) {
+                throw new CodecException("Invalid request path %s for resource encoding", requestPath);
+            }
+
+            // Use parent path as base name for single resource, so sibling resources can share it.
+            setBaseName(resource.isMultiInstances() ? 3 : 2);
+            writeResource(requestPath.getObjectInstanceId(), resource);
+        }
+
+        @Override
+        public void visit(LwM2mResourceInstance resourceInstance) {
+            LOG.trace("Encoding resource instance {} into SenML-CBOR", resourceInstance);
+            if (!requestPath.isResourceInstance()) {
+                throw new CodecException("Invalid request path %s for resource  instance encoding", requestPath);
+            }
+
+            // get type for this resource
+            ResourceModel rSpec = model.getResourceModel(objectId, requestPath.getResourceId());
+            Type expectedType = rSpec != null ? rSpec.type : resourceInstance.getType();
+
+            setBaseName(3);
+            writeRecord(requestPath, resourceInstance.getType(), expectedType, resourceInstance.getValue());
+        }
+
+        private void writeResource(int instanceId, LwM2mResource resource) {
+            // get type for this resource
+            ResourceModel rSpec = model.getResourceModel(objectId, resource.getId());
+            Type expectedType = rSpec != null ? rSpec.type : resource.getType();
+
+            if (resource.isMultiInstances()) {
+                for (Entry<Integer, LwM2mResourceInstance> entry : resource.getInstances().entrySet()) {
+                    writeRecord(new LwM2mPath(objectId, instanceId, resource.getId(), entry.getKey()),
+                            resource.getType(), expectedType, entry.getValue().getValue());
+                }
+            } else {
+                writeRecord(new LwM2mPath(objectId, instanceId, resource.getId()), resource.getType(), expectedType,
+                        resource.getValue());
+            }
+        }
+
+        /**
+         * Use the <code>depth</code> first ids of the request path as base name for records of current node.
+         */
+        private void setBaseName(int depth) {
+            baseNameDepth = depth;
+            StringBuilder bn = new StringBuilder("/");
+            for (int i = 0; i < depth; i++) {
+                bn.append(pathId(requestPath, i)).append('/');
+            }
+            baseName = bn.toString();
+        }
+
+        private void writeRecord(LwM2mPath recordPath, Type valueType, Type expectedType, Object value) {
+            // compute name relative to base name
+            name.setLength(0);
+            for (int i = baseNameDepth; i < 4; i++) {
+                Integer id = pathId(recordPath, i);
+                if (id == null) {
+                    break;
+                }
+                if (i > baseNameDepth) {
+                    name.append('/');
+                }
+                name.append(id.intValue());
+            }
+            boolean writeBaseName = !baseName.equals(lastBaseName);
+            boolean writeBaseTime = baseTime != null && !baseTime.equals(lastBaseTime);
+
+            writer.writeMapHeader((writeBaseName ? 1 : 0) + (writeBaseTime ? 1 : 0) + (name.length() > 0 ? 1 : 0) + 1);
+            if (writeBaseName) {
+                writer.writeInteger(BASE_NAME);
+                writer.writeTextString(baseName);
+                lastBaseName = baseName;
+            }
+            if (writeBaseTime) {
+                writer.writeInteger(BASE_TIME);
+                writeTime(baseTime);
+                lastBaseTime = baseTime;
+            }
+            if (name.length() > 0) {
+                writer.writeInteger(NAME);
+                writer.writeTextString(name);
+            }
+
+            // Convert value using expected type
+            Object convertedValue = converter.convertValue(value, valueType, expectedType, recordPath);
+            writeValue(convertedValue, expectedType, recordPath);
+            nbRecords++;
+        }
+
+        private void writeTime(Instant timestamp) {
+            long seconds = timestamp.getEpochSecond();
+            int nanos = timestamp.getNano();
+            if (nanos == 0) {
+                writer.writeInteger(seconds);
+            } else if (Math.abs(seconds) < Long.MAX_VALUE / NANOS_PER_SECOND - 1) {
+                // write as decimal fraction with the smallest mantissa
+                long mantissa = seconds * NANOS_PER_SECOND + nanos;
+                int exponent = -9;
+                while (mantissa % 10 == 0) {
+                    mantissa /= 10;
+                    exponent++;
+                }
+                writer.writeDecimal(mantissa, exponent);
+            } else {
+                writer.writeDecimal(TimestampUtil.fromInstant(timestamp));
+            }
+        }
+
+        private void writeValue(Object value, Type type, LwM2mPath resourcePath) {
+            LOG.trace("Encoding resource value {} in SenML-CBOR", value);
+
+            if (type == null || type == Type.NONE) {
+                throw new CodecException(
+                        "Unable to encode value for resource {} without type(probably a executable one)", resourcePath);
+            }
+
+            switch (type) {
+            case STRING:
+                writer.writeInteger(STRING_VALUE);
+                writer.writeTextString((String) value);
+                break;
+            case INTEGER:
+            case UNSIGNED_INTEGER:
+            case FLOAT:
+                writer.writeInteger(VALUE);
+                try {
+                    writer.writeNumber((Number) value);
+                } catch (IllegalArgumentException e) {
+                    throw new CodecException(e, "Invalid value [%s] for resource [%s] ", value, resourcePath);
+                }
+                break;
+            case BOOLEAN:
+                writer.writeInteger(BOOLEAN_VALUE);
+                writer.writeBoolean((Boolean) value);
+                break;
+            case TIME:
+                writer.writeInteger(VALUE);
+                writer.writeInteger(((Date) value).getTime() / 1000L);
+                break;
+            case OPAQUE:
+                writer.writeInteger(DATA_VALUE);
+                writer.writeByteString((byte[]) value);
+                break;
+            case OBJLNK:
+                String objlnk;
+                try {
+                    objlnk = ((ObjectLink) value).encodeToString();
+                } catch (IllegalArgumentException e) {
+                    throw new CodecException(e, "Invalid value [%s] for objectLink resource [%s] ", value,
+                            resourcePath);
+                }
+                writer.writeInteger(STRING_VALUE);
+                writer.writeTextString(objlnk);
+                break;
+            case CORELINK:
+                writer.writeInteger(STRING_VALUE);
+                writer.writeTextString(linkSerializer.serializeCoreLinkFormat((Link[]) value));
+                break;
+            default:
+                throw new CodecException("Invalid value type %s for %s", type, resourcePath);
+            }
+        }
+    }
+
+    private static Integer pathId(LwM2mPath path, int index) {
+        switch (index) {
+        case 0:
+            return path.getObjectId();
+        case 1:
+            return path.getObjectInstanceId();
+        case 2:
+            return path.getResourceId();
+        default:
+            return path.getResourceInstanceId();
+        }
+    }
+}
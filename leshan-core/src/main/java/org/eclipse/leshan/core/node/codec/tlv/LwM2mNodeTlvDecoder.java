@@ -15,7 +15,7 @@
  *******************************************************************************/
 package org.eclipse.leshan.core.node.codec.tlv;
 
-import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -39,15 +39,21 @@ import org.eclipse.leshan.core.node.LwM2mResourceInstance;
 import org.eclipse.leshan.core.node.LwM2mSingleResource;
 import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.core.node.codec.NodeDecoder;
-import org.eclipse.leshan.core.tlv.Tlv;
 import org.eclipse.leshan.core.tlv.Tlv.TlvType;
-import org.eclipse.leshan.core.tlv.TlvDecoder;
 import org.eclipse.leshan.core.tlv.TlvException;
+import org.eclipse.leshan.core.tlv.TlvReader;
 import org.eclipse.leshan.core.util.Hex;
 import org.eclipse.leshan.core.util.datatype.ULong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * TLV decoder for {@link LwM2mNode}.
+ * <p>
+ * Content is read with a {@link TlvReader}, so values are decoded directly from the content without intermediate TLV
+ * tree. {@link #decode(byte[], LwM2mPath, LwM2mModel, Class, Collection)} allows to decode only some parts of a big
+ * payload.
+ */
 public class LwM2mNodeTlvDecoder implements NodeDecoder {
 
     private static final Logger LOG = LoggerFactory.getLogger(LwM2mNodeTlvDecoder.class);
@@ -71,47 +77,80 @@ public class LwM2mNodeTlvDecoder implements NodeDecoder {
     @Override
     public <T extends LwM2mNode> T decode(byte[] content, LwM2mPath path, LwM2mModel model, Class<T> nodeClass)
             throws CodecException {
+        return decode(content, path, model, nodeClass, null);
+    }
+
+    /**
+     * Deserializes only the parts of a TLV content which are needed for the given paths.
+     * <p>
+     * Object instances, resources and resource instances which are neither a parent nor a child of one of the requested
+     * paths are skipped without being decoded, so the returned node only contains the requested paths. As skipped parts
+     * are not decoded, they are not validated either.
+     *
+     * @param content the content
+     * @param path the path of the node to build
+     * @param model the collection of supported object models
+     * @param nodeClass the class of the {@link LwM2mNode} to decode
+     * @param requestedPaths the paths to decode, <code>null</code> means the whole content.
+     * @return the resulting node
+     *
+     * @throws CodecException if there payload is malformed.
+     */
+    public <T extends LwM2mNode> T decode(byte[] content, LwM2mPath path, LwM2mModel model, Class<T> nodeClass,
+            Collection<LwM2mPath> requestedPaths) throws CodecException {
         try {
-            Tlv[] tlvs = TlvDecoder.decode(ByteBuffer.wrap(content != null ? content : new byte[0]));
-            return parseTlv(tlvs, path, model, nodeClass);
+            TlvReader tlvs = new TlvReader(content != null ? content : new byte[0]);
+            return parseTlv(tlvs, path, model, nodeClass, requestedPaths);
         } catch (TlvException | LwM2mNodeException | InvalidLwM2mPathException e) {
             throw new CodecException(String.format("Unable to decode tlv for path [%s]", path), e);
         }
     }
 
     @SuppressWarnings("unchecked")
-    private <T extends LwM2mNode> T parseTlv(Tlv[] tlvs, LwM2mPath path, LwM2mModel model, Class<T> nodeClass)
-            throws CodecException {
-        LOG.trace("Parsing TLV content for path {}: {}", path, tlvs);
+    private <T extends LwM2mNode> T parseTlv(TlvReader tlvs, LwM2mPath path, LwM2mModel model, Class<T> nodeClass,
+            Collection<LwM2mPath> requestedPaths) throws CodecException, TlvException {
+        LOG.trace("Parsing TLV content for path {}", path);
+
+        int nbTlvs = tlvs.count();
+        TlvType firstType = null;
+        int firstIdentifier = 0;
+        if (tlvs.next()) {
+            firstType = tlvs.getType();
+            firstIdentifier = tlvs.getIdentifier();
+        }
+        tlvs.reset();
 
         // Object
         if (nodeClass == LwM2mObject.class) {
-            Map<Integer, LwM2mObjectInstance> instances = new HashMap<>(tlvs.length);
+            Map<Integer, LwM2mObjectInstance> instances = new HashMap<>(nbTlvs);
 
             // is it an array of TLV resources?
-            if (tlvs.length > 0 && //
-                    (tlvs[0].getType() == TlvType.MULTIPLE_RESOURCE || tlvs[0].getType() == TlvType.RESOURCE_VALUE)) {
+            if (firstType == TlvType.MULTIPLE_RESOURCE || firstType == TlvType.RESOURCE_VALUE) {
 
                 ObjectModel oModel = model.getObjectModel(path.getObjectId());
                 if (oModel == null) {
                     LOG.warn("No model for object {}. The tlv is decoded assuming this is a single instance object",
                             path.getObjectId());
-                    instances.put(0, parseObjectInstanceTlv(tlvs, path.getObjectId(), 0, model));
+                    instances.put(0, parseObjectInstanceTlv(tlvs, path.getObjectId(), 0, model, requestedPaths));
                 } else if (!oModel.multiple) {
-                    instances.put(0, parseObjectInstanceTlv(tlvs, path.getObjectId(), 0, model));
+                    instances.put(0, parseObjectInstanceTlv(tlvs, path.getObjectId(), 0, model, requestedPaths));
                 } else {
                     // this is strange "create without instance ID" case ...
                     instances.put(LwM2mObjectInstance.UNDEFINED,
-                            parseObjectInstanceTlvWithoutId(tlvs, path.getObjectId(), model));
+                            parseObjectInstanceTlvWithoutId(tlvs, path.getObjectId(), model, requestedPaths));
                 }
             } else {
-                for (Tlv tlv : tlvs) {
-                    if (tlv.getType() != TlvType.OBJECT_INSTANCE)
+                while (tlvs.next()) {
+                    if (tlvs.getType() != TlvType.OBJECT_INSTANCE)
                         throw new CodecException("Expected TLV of type OBJECT_INSTANCE but was %s  [path:%s]",
-                                tlv.getType().name(), path);
+                                tlvs.getType().name(), path);
 
-                    LwM2mObjectInstance objectInstance = parseObjectInstanceTlv(tlv.getChildren(), path.getObjectId(),
-                            tlv.getIdentifier(), model);
+                    if (requestedPaths != null
+                            && !isRequested(new LwM2mPath(path.getObjectId(), tlvs.getIdentifier()), requestedPaths)) {
+                        continue;
+                    }
+                    LwM2mObjectInstance objectInstance = parseObjectInstanceTlv(tlvs.getChildren(), path.getObjectId(),
+                            tlvs.getIdentifier(), model, requestedPaths);
                     LwM2mObjectInstance previousObjectInstance = instances.put(objectInstance.getId(), objectInstance);
                     if (previousObjectInstance != null) {
                         throw new CodecException(
@@ -126,14 +165,15 @@ public class LwM2mNodeTlvDecoder implements NodeDecoder {
         // Object instance
         else if (nodeClass == LwM2mObjectInstance.class) {
 
-            if (tlvs.length == 1 && tlvs[0].getType() == TlvType.OBJECT_INSTANCE) {
-                if (path.isObjectInstance() && tlvs[0].getIdentifier() != path.getObjectInstanceId()) {
+            if (nbTlvs == 1 && firstType == TlvType.OBJECT_INSTANCE) {
+                if (path.isObjectInstance() && firstIdentifier != path.getObjectInstanceId()) {
                     throw new CodecException("Id conflict between path [%s] and instance TLV [object instance id=%d]",
-                            path, tlvs[0].getIdentifier());
+                            path, firstIdentifier);
                 }
                 // object instance TLV
-                return (T) parseObjectInstanceTlv(tlvs[0].getChildren(), path.getObjectId(), tlvs[0].getIdentifier(),
-                        model);
+                tlvs.next();
+                return (T) parseObjectInstanceTlv(tlvs.getChildren(), path.getObjectId(), firstIdentifier, model,
+                        requestedPaths);
             } else {
                 // array of TLV resources
                 // try to retrieve the instanceId from the path or the model
@@ -142,13 +182,13 @@ public class LwM2mNodeTlvDecoder implements NodeDecoder {
                     // single instance object?
                     ObjectModel oModel = model.getObjectModel(path.getObjectId());
                     if (oModel != null && !oModel.multiple) {
-                        return (T) parseObjectInstanceTlv(tlvs, path.getObjectId(), 0, model);
+                        return (T) parseObjectInstanceTlv(tlvs, path.getObjectId(), 0, model, requestedPaths);
                     } else {
                         throw new CodecException(
                                 "Object instance id is mandatory for multiple instances object [path:%s]", path);
                     }
                 } else {
-                    return (T) parseObjectInstanceTlv(tlvs, path.getObjectId(), instanceId, model);
+                    return (T) parseObjectInstanceTlv(tlvs, path.getObjectId(), instanceId, model, requestedPaths);
                 }
             }
         }
@@ -157,63 +197,73 @@ public class LwM2mNodeTlvDecoder implements NodeDecoder {
         else if (nodeClass == LwM2mResource.class) {
             // The object instance level should not be here, but if it is provided and
             // consistent we tolerate it
-            if (tlvs.length == 1 && tlvs[0].getType() == TlvType.OBJECT_INSTANCE) {
-                if (tlvs[0].getIdentifier() != path.getObjectInstanceId()) {
+            if (nbTlvs == 1 && firstType == TlvType.OBJECT_INSTANCE) {
+                if (firstIdentifier != path.getObjectInstanceId()) {
                     throw new CodecException("Id conflict between path [%s] and instance TLV [object instance id=%d]",
-                            path, tlvs[0].getIdentifier());
+                            path, firstIdentifier);
+                }
+                tlvs.next();
+                tlvs = tlvs.getChildren();
+                nbTlvs = tlvs.count();
+                if (tlvs.next()) {
+                    firstType = tlvs.getType();
+                    firstIdentifier = tlvs.getIdentifier();
                 }
-                tlvs = tlvs[0].getChildren();
+                tlvs.reset();
             }
 
             ResourceModel resourceModel = model.getResourceModel(path.getObjectId(), path.getResourceId());
-            if (tlvs.length == 0 && resourceModel != null && !resourceModel.multiple) {
+            if (nbTlvs == 0 && resourceModel != null && !resourceModel.multiple) {
                 // If there is no TlV value and we know that this resource is a single resource
                 // we raise an exception
                 // else we consider this is a multi-instance resource
                 throw new CodecException("TLV payload is mandatory for single resource %s", path);
-            } else if (tlvs.length == 1 && tlvs[0].getType() != TlvType.RESOURCE_INSTANCE) {
-                Tlv tlv = tlvs[0];
-                if (tlv.getType() != TlvType.RESOURCE_VALUE && tlv.getType() != TlvType.MULTIPLE_RESOURCE) {
+            } else if (nbTlvs == 1 && firstType != TlvType.RESOURCE_INSTANCE) {
+                tlvs.next();
+                if (tlvs.getType() != TlvType.RESOURCE_VALUE && tlvs.getType() != TlvType.MULTIPLE_RESOURCE) {
                     throw new CodecException(
                             "Expected TLV of type RESOURCE_VALUE or MUlTIPLE_RESOURCE but was %s [path:%s]",
-                            tlv.getType().name(), path);
+                            tlvs.getType().name(), path);
                 }
-                if (path.isResource() && path.getResourceId() != tlv.getIdentifier()) {
+                if (path.isResource() && path.getResourceId() != tlvs.getIdentifier()) {
                     throw new CodecException("Id conflict between path [%s] and resource TLV [resource id=%s]", path,
-                            tlv.getIdentifier());
+                            tlvs.getIdentifier());
                 }
-                return (T) parseResourceTlv(tlv, path, model);
+                return (T) parseResourceTlv(tlvs, path, model, requestedPaths);
             } else {
                 Type expectedRscType = getResourceType(path, model);
-                return (T) parseResourceInstancesTlv(tlvs, path, expectedRscType);
+                return (T) parseResourceInstancesTlv(tlvs, nbTlvs, path, expectedRscType, requestedPaths);
             }
         }
 
         // Resource Instance
         else if (nodeClass == LwM2mResourceInstance.class) {
-            if (tlvs.length == 0) {
+            if (nbTlvs == 0) {
                 throw new CodecException("TLV payload is mandatory for resource instance %s", path);
-            } else if (tlvs.length > 1) {
+            } else if (nbTlvs > 1) {
                 throw new CodecException("TLV payload must contain only 1 resource instance for %s", path);
             } else {
-                Tlv tlv = tlvs[0];
-                if (path.isResourceInstance() && path.getResourceInstanceId() != tlv.getIdentifier()) {
+                tlvs.next();
+                if (path.isResourceInstance() && path.getResourceInstanceId() != tlvs.getIdentifier()) {
                     throw new CodecException("Id conflict between path [%s] and resource instance TLV [resource id=%s]",
-                            path, tlv.getIdentifier());
+                            path, tlvs.getIdentifier());
                 }
                 Type expectedType = getResourceType(path, model);
-                return (T) parseResourceInstanceTlv(tlv, path, expectedType);
+                return (T) parseResourceInstanceTlv(tlvs, path, expectedType);
             }
         }
         throw new IllegalArgumentException("invalid node class: " + nodeClass);
     }
 
-    private LwM2mObjectInstance parseObjectInstanceTlv(Tlv[] rscTlvs, int objectId, int instanceId, LwM2mModel model)
-            throws CodecException {
-        Map<Integer, LwM2mResource> resources = new HashMap<>(rscTlvs.length);
-        for (Tlv rscTlv : rscTlvs) {
-            LwM2mPath resourcePath = new LwM2mPath(objectId, instanceId, rscTlv.getIdentifier());
-            LwM2mResource resource = parseResourceTlv(rscTlv, resourcePath, model);
+    private LwM2mObjectInstance parseObjectInstanceTlv(TlvReader rscTlvs, int objectId, int instanceId,
+            LwM2mModel model, Collection<LwM2mPath> requestedPaths) throws CodecException, TlvException {
+        Map<Integer, LwM2mResource> resources = new HashMap<>();
+        while (rscTlvs.next()) {
+            LwM2mPath resourcePath = new LwM2mPath(objectId, instanceId, rscTlvs.getIdentifier());
+            if (requestedPaths != null && !isRequested(resourcePath, requestedPaths)) {
+                continue;
+            }
+            LwM2mResource resource = parseResourceTlv(rscTlvs, resourcePath, model, requestedPaths);
             LwM2mResource previousResource = resources.put(resource.getId(), resource);
             if (previousResource != null) {
                 throw new CodecException("2 RESOURCE nodes (%s,%s) with the same identifier %d for path %s",
@@ -224,12 +274,15 @@ public class LwM2mNodeTlvDecoder implements NodeDecoder {
 
     }
 
-    private LwM2mObjectInstance parseObjectInstanceTlvWithoutId(Tlv[] rscTlvs, int objectId, LwM2mModel model)
-            throws CodecException {
-        Map<Integer, LwM2mResource> resources = new HashMap<>(rscTlvs.length);
-        for (Tlv rscTlv : rscTlvs) {
-            LwM2mPath resourcePath = new LwM2mIncompletePath(objectId, rscTlv.getIdentifier());
-            LwM2mResource resource = parseResourceTlv(rscTlv, resourcePath, model);
+    private LwM2mObjectInstance parseObjectInstanceTlvWithoutId(TlvReader rscTlvs, int objectId, LwM2mModel model,
+            Collection<LwM2mPath> requestedPaths) throws CodecException, TlvException {
+        Map<Integer, LwM2mResource> resources = new HashMap<>();
+        while (rscTlvs.next()) {
+            LwM2mPath resourcePath = new LwM2mIncompletePath(objectId, rscTlvs.getIdentifier());
+            if (requestedPaths != null && !isRequested(resourcePath, requestedPaths)) {
+                continue;
+            }
+            LwM2mResource resource = parseResourceTlv(rscTlvs, resourcePath, model, requestedPaths);
             LwM2mResource previousResource = resources.put(resource.getId(), resource);
             if (previousResource != null) {
                 throw new CodecException("2 RESOURCE nodes (%s,%s) with the same identifier %d for path %s",
@@ -239,81 +292,95 @@ public class LwM2mNodeTlvDecoder implements NodeDecoder {
         return new LwM2mObjectInstance(resources.values());
     }
 
-    private LwM2mResource parseResourceTlv(Tlv tlv, LwM2mPath resourcePath, LwM2mModel model) throws CodecException {
+    private LwM2mResource parseResourceTlv(TlvReader tlv, LwM2mPath resourcePath, LwM2mModel model,
+            Collection<LwM2mPath> requestedPaths) throws CodecException, TlvException {
         Type expectedType = getResourceType(resourcePath, model);
         Integer resourceId = tlv.getIdentifier();
         switch (tlv.getType()) {
         case MULTIPLE_RESOURCE:
-            return parseResourceInstancesTlv(tlv.getChildren(), resourcePath, expectedType);
+            TlvReader instances = tlv.getChildren();
+            return parseResourceInstancesTlv(instances, instances.count(), resourcePath, expectedType, requestedPaths);
         case RESOURCE_VALUE:
-            return LwM2mSingleResource.newResource(resourceId,
-                    parseTlvValue(tlv.getValue(), expectedType, resourcePath), expectedType);
+            return LwM2mSingleResource.newResource(resourceId, parseTlvValue(tlv, expectedType, resourcePath),
+                    expectedType);
         default:
             throw new CodecException("Invalid TLV type %s for resource %s", tlv.getType(), resourcePath);
         }
     }
 
-    private LwM2mMultipleResource parseResourceInstancesTlv(Tlv[] tlvs, LwM2mPath resourcePath, Type expectedType)
-            throws CodecException {
-        Map<Integer, LwM2mResourceInstance> instances = new HashMap<>(tlvs.length);
-        for (Tlv tlvChild : tlvs) {
-            if (tlvChild.getType() != TlvType.RESOURCE_INSTANCE)
+    private LwM2mMultipleResource parseResourceInstancesTlv(TlvReader tlvs, int nbTlvs, LwM2mPath resourcePath,
+            Type expectedType, Collection<LwM2mPath> requestedPaths) throws CodecException, TlvException {
+        Map<Integer, LwM2mResourceInstance> instances = new HashMap<>(nbTlvs);
+        while (tlvs.next()) {
+            if (tlvs.getType() != TlvType.RESOURCE_INSTANCE)
                 throw new CodecException("Expected TLV of type RESOURCE_INSTANCE but was %s for path %s",
-                        tlvChild.getType().name(), resourcePath.append(tlvChild.getIdentifier()));
+                        tlvs.getType().name(), resourcePath.append(tlvs.getIdentifier()));
 
-            LwM2mResourceInstance resourceInstance = parseResourceInstanceTlv(tlvChild,
-                    resourcePath.append(tlvChild.getIdentifier()), expectedType);
-            LwM2mResourceInstance previousResourceInstance = instances.put(tlvChild.getIdentifier(), resourceInstance);
+            LwM2mPath resourceInstancePath = resourcePath.append(tlvs.getIdentifier());
+            if (requestedPaths != null && !isRequested(resourceInstancePath, requestedPaths)) {
+                continue;
+            }
+            LwM2mResourceInstance resourceInstance = parseResourceInstanceTlv(tlvs, resourceInstancePath, expectedType);
+            LwM2mResourceInstance previousResourceInstance = instances.put(tlvs.getIdentifier(), resourceInstance);
             if (previousResourceInstance != null) {
                 throw new CodecException("2 RESOURCE_INSTANCE nodes (%s,%s) with the same identifier %d for path %s",
-                        previousResourceInstance, resourceInstance, tlvChild.getIdentifier(), resourcePath);
+                        previousResourceInstance, resourceInstance, tlvs.getIdentifier(), resourcePath);
             }
         }
         return new LwM2mMultipleResource(resourcePath.getResourceId(), expectedType, instances.values());
     }
 
-    private LwM2mResourceInstance parseResourceInstanceTlv(Tlv tlv, LwM2mPath resourceInstancePath, Type expectedType)
-            throws CodecException {
+    private LwM2mResourceInstance parseResourceInstanceTlv(TlvReader tlv, LwM2mPath resourceInstancePath,
+            Type expectedType) throws CodecException {
         Integer resourceInstanceId = tlv.getIdentifier();
         if (tlv.getType() != TlvType.RESOURCE_INSTANCE) {
             throw new CodecException("Expected TLV of type RESOURCE_INSTANCE but was %s for path %s", tlv.getType(),
                     resourceInstancePath);
         } else {
             return LwM2mResourceInstance.newInstance(resourceInstanceId,
-                    parseTlvValue(tlv.getValue(), expectedType, resourceInstancePath), expectedType);
+                    parseTlvValue(tlv, expectedType, resourceInstancePath), expectedType);
         }
 
     }
 
-    private Object parseTlvValue(byte[] value, Type expectedType, LwM2mPath path) throws CodecException {
+    private Object parseTlvValue(TlvReader tlv, Type expectedType, LwM2mPath path) throws CodecException {
         try {
-            LOG.trace("TLV value for path {} and expected type {}: {}", path, expectedType, value);
+            LOG.trace("TLV value for path {} and expected type {}", path, expectedType);
             switch (expectedType) {
             case STRING:
-                return TlvDecoder.decodeString(value);
+                return tlv.decodeString();
             case INTEGER:
-                return TlvDecoder.decodeInteger(value).longValue();
+                return tlv.decodeInteger();
             case UNSIGNED_INTEGER:
-                return ULong.valueOf(TlvDecoder.decodeInteger(value).longValue());
+                return ULong.valueOf(tlv.decodeInteger());
             case FLOAT:
-                return TlvDecoder.decodeFloat(value).doubleValue();
+                return tlv.decodeFloat();
             case BOOLEAN:
-                return TlvDecoder.decodeBoolean(value);
+                return tlv.decodeBoolean();
             case TIME:
-                return TlvDecoder.decodeDate(value);
+                return tlv.decodeDate();
             case OPAQUE:
-                return value;
+                return tlv.getValue();
             case OBJLNK:
-                return TlvDecoder.decodeObjlnk(value);
+                return tlv.decodeObjlnk();
             case CORELINK:
-                return linkParser.parseCoreLinkFormat(value);
+                return linkParser.parseCoreLinkFormat(tlv.getValue());
             default:
                 throw new CodecException("Unsupported type %s for path %s", expectedType, path);
             }
         } catch (TlvException | LinkParseException e) {
-            throw new CodecException(e, "Invalid content [%s] for type %s for path %s", Hex.encodeHexString(value),
-                    expectedType, path);
+            throw new CodecException(e, "Invalid content [%s] for type %s for path %s",
+                    Hex.encodeHexString(tlv.getValue()), expectedType, path);
+        }
+    }
+
+    private static boolean isRequested(LwM2mPath path, Collection<LwM2mPath> requestedPaths) {
+        for (LwM2mPath requestedPath : requestedPaths) {
+            if (path.startWith(requestedPath) || requestedPath.startWith(path)) {
+                return true;
+            }
         }
+        return false;
     }
 
     public Type getResourceType(LwM2mPath rscPath, LwM2mModel model) throws CodecException {
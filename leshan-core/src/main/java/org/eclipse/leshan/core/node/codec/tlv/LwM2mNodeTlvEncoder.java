@@ -15,9 +15,6 @@
  *******************************************************************************/
 package org.eclipse.leshan.core.node.codec.tlv;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.Collection;
 import java.util.Date;
 import java.util.Map.Entry;
 
@@ -39,15 +36,16 @@ import org.eclipse.leshan.core.node.ObjectLink;
 import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.core.node.codec.LwM2mValueConverter;
 import org.eclipse.leshan.core.node.codec.NodeEncoder;
-import org.eclipse.leshan.core.tlv.Tlv;
 import org.eclipse.leshan.core.tlv.Tlv.TlvType;
-import org.eclipse.leshan.core.tlv.TlvEncoder;
+import org.eclipse.leshan.core.tlv.TlvWriter;
 import org.eclipse.leshan.core.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * TLV encoder for {@link LwM2mNode}.
+ * <p>
+ * Nodes are written in a single pass with a {@link TlvWriter}, without building an intermediate TLV tree.
  */
 public class LwM2mNodeTlvEncoder implements NodeEncoder {
 
@@ -66,16 +64,27 @@ public class LwM2mNodeTlvEncoder implements NodeEncoder {
     @Override
     public byte[] encode(LwM2mNode node, LwM2mPath path, LwM2mModel model, LwM2mValueConverter converter)
             throws CodecException {
+        TlvWriter writer = new TlvWriter();
+        encode(node, path, model, converter, writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Encode a node in the given writer, this allows to reuse the same buffer for several encodings.
+     */
+    public void encode(LwM2mNode node, LwM2mPath path, LwM2mModel model, LwM2mValueConverter converter,
+            TlvWriter writer) throws CodecException {
         Validate.notNull(node);
         Validate.notNull(path);
         Validate.notNull(model);
+        Validate.notNull(writer);
 
         InternalEncoder internalEncoder = new InternalEncoder();
         internalEncoder.path = path;
         internalEncoder.model = model;
         internalEncoder.converter = converter;
+        internalEncoder.out = writer;
         node.accept(internalEncoder);
-        return internalEncoder.out.toByteArray();
     }
 
     private class InternalEncoder implements LwM2mNodeVisitor {
@@ -86,28 +95,17 @@ public class LwM2mNodeTlvEncoder implements NodeEncoder {
         private LwM2mValueConverter converter;
 
         // visitor output
-        private ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private TlvWriter out;
 
         @Override
         public void visit(LwM2mObject object) {
             LOG.trace("Encoding object {} into TLV", object);
 
-            Tlv[] tlvs;
-
             // encoded as an array of instances
-            tlvs = new Tlv[object.getInstances().size()];
-            int i = 0;
             for (Entry<Integer, LwM2mObjectInstance> instance : object.getInstances().entrySet()) {
-                Tlv[] resources = encodeResources(instance.getValue().getResources().values(),
-                        new LwM2mPath(object.getId(), instance.getKey()));
-                tlvs[i] = new Tlv(TlvType.OBJECT_INSTANCE, resources, null, instance.getKey());
-                i++;
-            }
-
-            try {
-                out.write(TlvEncoder.encode(tlvs).array());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+                int mark = out.start(TlvType.OBJECT_INSTANCE, instance.getKey());
+                encodeResources(instance.getValue(), new LwM2mPath(object.getId(), instance.getKey()));
+                out.end(mark);
             }
         }
 
@@ -115,23 +113,16 @@ public class LwM2mNodeTlvEncoder implements NodeEncoder {
         public void visit(LwM2mObjectInstance instance) {
             LOG.trace("Encoding object instance {} into TLV", instance);
 
-            Tlv[] tlvs;
             if (path.isObjectInstance() || instance.getId() == LwM2mObjectInstance.UNDEFINED) {
                 // the instanceId is part of the request path or is undefined
                 // so the instance TLV layer is not needed.
                 // encoded as an array of resource TLVs
-                tlvs = encodeResources(instance.getResources().values(), new LwM2mIncompletePath(path.getObjectId()));
+                encodeResources(instance, new LwM2mIncompletePath(path.getObjectId()));
             } else {
                 // encoded as an instance TLV
-                Tlv[] resources = encodeResources(instance.getResources().values(),
-                        new LwM2mPath(path.getObjectId(), instance.getId()));
-                tlvs = new Tlv[] { new Tlv(TlvType.OBJECT_INSTANCE, resources, null, instance.getId()) };
-            }
-
-            try {
-                out.write(TlvEncoder.encode(tlvs).array());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+                int mark = out.start(TlvType.OBJECT_INSTANCE, instance.getId());
+                encodeResources(instance, new LwM2mPath(path.getObjectId(), instance.getId()));
+                out.end(mark);
             }
         }
 
@@ -139,46 +130,31 @@ public class LwM2mNodeTlvEncoder implements NodeEncoder {
         public void visit(LwM2mResource resource) {
             LOG.trace("Encoding resource {} into TLV", resource);
 
-            Tlv rTlv = encodeResource(resource, path);
-
-            try {
-                out.write(TlvEncoder.encode(new Tlv[] { rTlv }).array());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+            encodeResource(resource, path);
         }
 
-        private Tlv[] encodeResources(Collection<LwM2mResource> resources, LwM2mPath instancePath) {
-            Tlv[] rTlvs = new Tlv[resources.size()];
-            int i = 0;
-            for (LwM2mResource resource : resources) {
-                rTlvs[i] = encodeResource(resource, instancePath.append(resource.getId()));
-                i++;
+        private void encodeResources(LwM2mObjectInstance instance, LwM2mPath instancePath) {
+            for (LwM2mResource resource : instance.getResources().values()) {
+                encodeResource(resource, instancePath.append(resource.getId()));
             }
-            return rTlvs;
         }
 
-        private Tlv encodeResource(LwM2mResource resource, LwM2mPath resourcePath) {
+        private void encodeResource(LwM2mResource resource, LwM2mPath resourcePath) {
             ResourceModel rSpec = model.getResourceModel(path.getObjectId(), resource.getId());
             Type expectedType = rSpec != null ? rSpec.type : resource.getType();
 
-            Tlv rTlv;
             if (resource.isMultiInstances()) {
-                Tlv[] instances = new Tlv[resource.getInstances().size()];
-                int i = 0;
+                int mark = out.start(TlvType.MULTIPLE_RESOURCE, resource.getId());
                 for (LwM2mResourceInstance resourceInstance : resource.getInstances().values()) {
                     LwM2mPath resourceInstancePath = resourcePath.append(resourceInstance.getId());
-                    instances[i] = encodeResourceInstance(resourceInstance, resourceInstancePath, expectedType);
-                    i++;
+                    encodeResourceInstance(resourceInstance, resourceInstancePath, expectedType);
                 }
-                rTlv = new Tlv(TlvType.MULTIPLE_RESOURCE, instances, null, resource.getId());
+                out.end(mark);
             } else {
                 Object convertedValue = converter.convertValue(resource.getValue(), resource.getType(), expectedType,
                         resourcePath);
-                rTlv = new Tlv(TlvType.RESOURCE_VALUE, null,
-                        this.encodeTlvValue(convertedValue, expectedType, resourcePath), resource.getId());
+                encodeTlvValue(TlvType.RESOURCE_VALUE, resource.getId(), convertedValue, expectedType, resourcePath);
             }
-            return rTlv;
         }
 
         @Override
@@ -188,24 +164,18 @@ public class LwM2mNodeTlvEncoder implements NodeEncoder {
             ResourceModel rSpec = model.getResourceModel(path.getObjectId(), path.getResourceId());
             Type expectedType = rSpec != null ? rSpec.type : resourceInstance.getType();
 
-            Tlv rTlv = encodeResourceInstance(resourceInstance, path, expectedType);
-
-            try {
-                out.write(TlvEncoder.encode(new Tlv[] { rTlv }).array());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+            encodeResourceInstance(resourceInstance, path, expectedType);
         }
 
-        private Tlv encodeResourceInstance(LwM2mResourceInstance resourceInstance, LwM2mPath resourceInstancePath,
+        private void encodeResourceInstance(LwM2mResourceInstance resourceInstance, LwM2mPath resourceInstancePath,
                 Type expectedType) {
             Object convertedValue = converter.convertValue(resourceInstance.getValue(), resourceInstance.getType(),
                     expectedType, resourceInstancePath);
-            return new Tlv(TlvType.RESOURCE_INSTANCE, null,
-                    this.encodeTlvValue(convertedValue, expectedType, resourceInstancePath), resourceInstance.getId());
+            encodeTlvValue(TlvType.RESOURCE_INSTANCE, resourceInstance.getId(), convertedValue, expectedType,
+                    resourceInstancePath);
         }
 
-        private byte[] encodeTlvValue(Object value, Type type, LwM2mPath path) {
+        private void encodeTlvValue(TlvType tlvType, int id, Object value, Type type, LwM2mPath path) {
             LOG.trace("Encoding value {} in TLV", value);
             if (type == null || type == Type.NONE) {
                 throw new CodecException(
@@ -215,22 +185,30 @@ public class LwM2mNodeTlvEncoder implements NodeEncoder {
             try {
                 switch (type) {
                 case STRING:
-                    return TlvEncoder.encodeString((String) value);
+                    out.writeString(tlvType, id, (String) value);
+                    break;
                 case INTEGER:
                 case UNSIGNED_INTEGER:
-                    return TlvEncoder.encodeInteger((Number) value);
+                    out.writeInteger(tlvType, id, ((Number) value).longValue());
+                    break;
                 case FLOAT:
-                    return TlvEncoder.encodeFloat((Number) value);
+                    out.writeFloat(tlvType, id, (Number) value);
+                    break;
                 case BOOLEAN:
-                    return TlvEncoder.encodeBoolean((Boolean) value);
+                    out.writeBoolean(tlvType, id, (Boolean) value);
+                    break;
                 case TIME:
-                    return TlvEncoder.encodeDate((Date) value);
+                    out.writeDate(tlvType, id, (Date) value);
+                    break;
                 case OPAQUE:
-                    return (byte[]) value;
+                    out.writeOpaque(tlvType, id, (byte[]) value);
+                    break;
                 case OBJLNK:
-                    return TlvEncoder.encodeObjlnk((ObjectLink) value);
+                    out.writeObjlnk(tlvType, id, (ObjectLink) value);
+                    break;
                 case CORELINK:
-                    return TlvEncoder.encodeString(linkSerializer.serializeCoreLinkFormat((Link[]) value));
+                    out.writeString(tlvType, id, linkSerializer.serializeCoreLinkFormat((Link[]) value));
+                    break;
                 default:
                     throw new CodecException("Invalid value %s for type %s of %s", value, type, path);
                 }
@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.tlv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.tlv.Tlv.TlvType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cursor over TLVs encoded in a byte array.
+ * <p>
+ * Unlike {@link TlvDecoder}, nothing is copied: the reader only keeps the type, identifier and value bounds of the
+ * current TLV and typed values are decoded directly from the original array. Children of a TLV are read with the reader
+ * returned by {@link #getChildren()}, so a TLV which is not needed can be skipped without decoding it.
+ *
+ * <pre>
+ * TlvReader reader = new TlvReader(content);
+ * while (reader.next()) {
+ *     if (reader.getType() == TlvType.RESOURCE_VALUE &amp;&amp; reader.getIdentifier() == 0) {
+ *         String manufacturer = reader.decodeString();
+ *     }
+ * }
+ * </pre>
+ *
+ * This class is not thread-safe.
+ */
+public class TlvReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TlvReader.class);
+
+    private final byte[] content;
+    private final int start;
+    private final int end;
+
+    // position of the next TLV
+    private int position;
+
+    // current TLV
+    private TlvType type;
+    private int identifier;
+    private int valueOffset;
+    private int valueLength;
+
+    public TlvReader(byte[] content) {
+        this(content, 0, content.length);
+    }
+
+    public TlvReader(byte[] content, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > content.length) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid bounds [%d, %d] for content of length %d", offset, length, content.length));
+        }
+        this.content = content;
+        this.start = offset;
+        this.end = offset + length;
+        this.position = offset;
+    }
+
+    /**
+     * Create a reader for the remaining bytes of the given buffer. Content is copied only if the buffer is not backed
+     * by an accessible array.
+     */
+    public TlvReader(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            this.content = buffer.array();
+            this.start = buffer.arrayOffset() + buffer.position();
+        } else {
+            this.content = new byte[buffer.remaining()];
+            buffer.duplicate().get(content);
+            this.start = 0;
+        }
+        this.end = start + buffer.remaining();
+        this.position = start;
+    }
+
+    /**
+     * Move to the next TLV.
+     *
+     * @return false if there is no more TLV.
+     * @throws TlvException if the TLV header is invalid.
+     */
+    public boolean next() throws TlvException {
+        if (position >= end) {
+            type = null;
+            return false;
+        }
+
+        // decode type
+        int typeByte = content[position++] & 0xFF;
+        switch (typeByte & 0b1100_0000) {
+        case 0b0000_0000:
+            type = TlvType.OBJECT_INSTANCE;
+            break;
+        case 0b0100_0000:
+            type = TlvType.RESOURCE_INSTANCE;
+            break;
+        case 0b1000_0000:
+            type = TlvType.MULTIPLE_RESOURCE;
+            break;
+        default:
+            type = TlvType.RESOURCE_VALUE;
+            break;
+        }
+
+        // decode identifier
+        if ((typeByte & 0b0010_0000) == 0) {
+            checkRemaining(1, "identifier");
+            identifier = content[position++] & 0xFF;
+        } else {
+            checkRemaining(2, "identifier");
+            identifier = readUnsigned(position, 2);
+            position += 2;
+        }
+
+        // decode length
+        switch (typeByte & 0b0001_1000) {
+        case 0b0000_0000:
+            valueLength = typeByte & 0b0000_0111;
+            break;
+        case 0b0000_1000:
+            checkRemaining(1, "length");
+            valueLength = readUnsigned(position++, 1);
+            break;
+        case 0b0001_0000:
+            checkRemaining(2, "length");
+            valueLength = readUnsigned(position, 2);
+            position += 2;
+            break;
+        default:
+            checkRemaining(3, "length");
+            valueLength = readUnsigned(position, 3);
+            position += 3;
+            break;
+        }
+
+        // skip value
+        checkRemaining(valueLength, "value");
+        valueOffset = position;
+        position += valueLength;
+
+        LOG.trace("reading {} {} (length: {})", type, identifier, valueLength);
+        return true;
+    }
+
+    /**
+     * Go back to the first TLV, {@link #next()} must be called to read it.
+     */
+    public void reset() {
+        position = start;
+        type = null;
+    }
+
+    /**
+     * @return the number of TLVs at this level, without moving the cursor.
+     * @throws TlvException if a TLV header is invalid.
+     */
+    public int count() throws TlvException {
+        TlvReader counter = new TlvReader(content, start, end - start);
+        int count = 0;
+        while (counter.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    public TlvType getType() {
+        return type;
+    }
+
+    public int getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * @return the offset of the value of the current TLV in the array returned by {@link #getContent()}.
+     */
+    public int getValueOffset() {
+        return valueOffset;
+    }
+
+    public int getValueLength() {
+        return valueLength;
+    }
+
+    /**
+     * @return the whole array read by this reader.
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * @return a reader for the TLVs contained by the current TLV.
+     */
+    public TlvReader getChildren() {
+        return new TlvReader(content, valueOffset, valueLength);
+    }
+
+    /**
+     * @return a copy of the value of the current TLV.
+     */
+    public byte[] getValue() {
+        return Arrays.copyOfRange(content, valueOffset, valueOffset + valueLength);
+    }
+
+    /**
+     * Decodes the current value as a string.
+     */
+    public String decodeString() {
+        return new String(content, valueOffset, valueLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the current value as a boolean.
+     */
+    public boolean decodeBoolean() throws TlvException {
+        if (valueLength == 1) {
+            byte value = content[valueOffset];
+            if (value == 0) {
+                return false;
+            } else if (value == 1) {
+                return true;
+            } else {
+                LOG.warn("Boolean value should be encoded as integer with value 0 or 1, not {}", value);
+                return false;
+            }
+        }
+        throw new TlvException("Invalid length for a boolean value: " + valueLength);
+    }
+
+    /**
+     * Decodes the current value as a signed integer.
+     */
+    public long decodeInteger() throws TlvException {
+        if (valueLength == 0 || valueLength > 8) {
+            throw new TlvException("Invalid length for an integer value: " + valueLength);
+        }
+        return readSigned();
+    }
+
+    /**
+     * Decodes the current value as a floating point number.
+     */
+    public double decodeFloat() throws TlvException {
+        if (valueLength == 4) {
+            return Float.intBitsToFloat(readUnsigned(valueOffset, 4));
+        } else if (valueLength == 8) {
+            return Double.longBitsToDouble(readSigned());
+        } else {
+            throw new TlvException("Invalid length for a float value: " + valueLength);
+        }
+    }
+
+    /**
+     * Decodes the current value as a date (number of seconds since epoch).
+     */
+    public Date decodeDate() throws TlvException {
+        if (valueLength == 0 || valueLength > 8) {
+            throw new TlvException("Invalid length for a time value: " + valueLength);
+        }
+        return new Date(readSigned() * 1000L);
+    }
+
+    /**
+     * Decodes the current value as an object link.
+     */
+    public ObjectLink decodeObjlnk() throws TlvException {
+        if (valueLength > 4) {
+            throw new TlvException("Invalid length for an objlnk value: " + valueLength);
+        }
+        // like TlvDecoder, missing bytes are considered as 0.
+        return new ObjectLink((valueByte(0) << 8) | valueByte(1), (valueByte(2) << 8) | valueByte(3));
+    }
+
+    private int valueByte(int index) {
+        return index < valueLength ? content[valueOffset + index] & 0xFF : 0;
+    }
+
+    private long readSigned() {
+        long value = content[valueOffset]; // sign extension
+        for (int i = 1; i < valueLength; i++) {
+            value = (value << 8) | (content[valueOffset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private int readUnsigned(int offset, int size) {
+        int value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (content[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private void checkRemaining(int size, String field) throws TlvException {
+        if (end - position < size) {
+            throw new TlvException(String.format("Invalid '%s' length: %d bytes expected but only %d available", field,
+                    size, end - position));
+        }
+    }
+}
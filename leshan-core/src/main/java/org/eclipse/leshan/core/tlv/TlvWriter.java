@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.tlv;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.tlv.Tlv.TlvType;
+
+/**
+ * A streaming TLV encoder writing directly in a growable byte array.
+ * <p>
+ * Unlike {@link TlvEncoder}, no intermediate {@link Tlv} tree or per-value buffer is needed: values are written as soon
+ * as they are known. When the length of a TLV is not known in advance (object instance, multiple resource, string), the
+ * largest header is reserved, then patched once the content is written and the content is moved back if the header is
+ * smaller. The produced bytes are the same as the ones produced by {@link TlvEncoder}.
+ * <p>
+ * A writer can be reused by calling {@link #reset()}. This class is not thread-safe.
+ *
+ * <pre>
+ * int instance = writer.start(TlvType.OBJECT_INSTANCE, 0);
+ * writer.writeString(TlvType.RESOURCE_VALUE, 0, "Leshan");
+ * writer.writeInteger(TlvType.RESOURCE_VALUE, 9, 100);
+ * writer.end(instance);
+ * byte[] tlv = writer.toByteArray();
+ * </pre>
+ */
+public class TlvWriter {
+
+    private static final int MAX_LENGTH_8BIT = 256;
+    private static final int MAX_LENGTH_16BIT = 65_536;
+    private static final int MAX_LENGTH_24BIT = 16_777_216;
+
+    // number of bytes reserved for the length when it is not known in advance
+    private static final int RESERVED_LENGTH_SIZE = 3;
+
+    private byte[] buffer;
+    private int position;
+
+    public TlvWriter() {
+        this(256);
+    }
+
+    public TlvWriter(int initialCapacity) {
+        this(new byte[initialCapacity]);
+    }
+
+    /**
+     * Create a writer using the given buffer. A bigger buffer is allocated if it is too small.
+     */
+    public TlvWriter(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Start a TLV containing other TLVs. Children must be written then {@link #end(int)} must be called with the
+     * returned mark.
+     *
+     * @return a mark to give to {@link #end(int)}
+     */
+    public int start(TlvType type, int identifier) {
+        int mark = position;
+        int headerSize = 1 + identifierSize(identifier) + RESERVED_LENGTH_SIZE;
+        ensureCapacity(headerSize);
+        buffer[mark] = (byte) (typeBits(type) | identifierBits(identifier));
+        writeIdentifier(mark + 1, identifier);
+        position += headerSize;
+        return mark;
+    }
+
+    /**
+     * End a TLV started by {@link #start(TlvType, int)}: the length is written and the content is moved if the length
+     * needs less bytes than reserved.
+     */
+    public void end(int mark) {
+        int contentStart = mark + 1 + identifierSize(buffer[mark]) + RESERVED_LENGTH_SIZE;
+        int length = position - contentStart;
+        int lengthSize = lengthSize(length);
+
+        buffer[mark] |= lengthBits(length);
+        writeLength(contentStart - RESERVED_LENGTH_SIZE, length, lengthSize);
+
+        int shift = RESERVED_LENGTH_SIZE - lengthSize;
+        if (shift > 0) {
+            System.arraycopy(buffer, contentStart, buffer, contentStart - shift, length);
+            position -= shift;
+        }
+    }
+
+    public void writeInteger(TlvType type, int identifier, long value) {
+        if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            writeHeader(type, identifier, 1);
+            buffer[position++] = (byte) value;
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            writeHeader(type, identifier, 2);
+            writeBigEndian(value, 2);
+        } else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            writeHeader(type, identifier, 4);
+            writeBigEndian(value, 4);
+        } else {
+            writeHeader(type, identifier, 8);
+            writeBigEndian(value, 8);
+        }
+    }
+
+    /**
+     * Write a floating point value: on 4 bytes for {@link Float}, on 8 bytes for other {@link Number}.
+     */
+    public void writeFloat(TlvType type, int identifier, Number value) {
+        if (value instanceof Float) {
+            writeHeader(type, identifier, 4);
+            writeBigEndian(Float.floatToIntBits(value.floatValue()), 4);
+        } else {
+            writeHeader(type, identifier, 8);
+            writeBigEndian(Double.doubleToLongBits(value.doubleValue()), 8);
+        }
+    }
+
+    public void writeBoolean(TlvType type, int identifier, boolean value) {
+        writeHeader(type, identifier, 1);
+        buffer[position++] = (byte) (value ? 1 : 0);
+    }
+
+    public void writeDate(TlvType type, int identifier, Date value) {
+        writeHeader(type, identifier, 4);
+        writeBigEndian((int) (value.getTime() / 1000L), 4);
+    }
+
+    public void writeObjlnk(TlvType type, int identifier, ObjectLink value) {
+        writeHeader(type, identifier, 4);
+        writeBigEndian(value.getObjectId(), 2);
+        writeBigEndian(value.getObjectInstanceId(), 2);
+    }
+
+    public void writeOpaque(TlvType type, int identifier, byte[] value) {
+        writeHeader(type, identifier, value.length);
+        System.arraycopy(value, 0, buffer, position, value.length);
+        position += value.length;
+    }
+
+    /**
+     * Write a string value encoded in UTF-8. Like {@link String#getBytes(java.nio.charset.Charset)}, unpaired
+     * surrogates are replaced by '?'.
+     */
+    public void writeString(TlvType type, int identifier, String value) {
+        int mark = start(type, identifier);
+        int length = value.length();
+        ensureCapacity(length * 3);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        end(mark);
+    }
+
+    /**
+     * @return the number of bytes written.
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * @return the internal buffer, only the {@link #size()} first bytes are meaningful.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return a copy of the written bytes.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Discard written bytes, so the writer can be reused.
+     */
+    public void reset() {
+        position = 0;
+    }
+
+    private void writeHeader(TlvType type, int identifier, int length) {
+        int lengthSize = lengthSize(length);
+        ensureCapacity(1 + identifierSize(identifier) + lengthSize + length);
+        buffer[position++] = (byte) (typeBits(type) | identifierBits(identifier) | lengthBits(length));
+        position += writeIdentifier(position, identifier);
+        writeLength(position, length, lengthSize);
+        position += lengthSize;
+    }
+
+    private int writeIdentifier(int offset, int identifier) {
+        if (identifier < MAX_LENGTH_8BIT) {
+            buffer[offset] = (byte) identifier;
+            return 1;
+        } else {
+            buffer[offset] = (byte) (identifier >> 8);
+            buffer[offset + 1] = (byte) identifier;
+            return 2;
+        }
+    }
+
+    private void writeLength(int offset, int length, int lengthSize) {
+        for (int i = lengthSize - 1; i >= 0; i--) {
+            buffer[offset + i] = (byte) length;
+            length >>= 8;
+        }
+    }
+
+    private void writeBigEndian(long value, int size) {
+        for (int i = size - 1; i >= 0; i--) {
+            buffer[position + i] = (byte) value;
+            value >>= 8;
+        }
+        position += size;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (position + needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + needed));
+        }
+    }
+
+    private static int typeBits(TlvType type) {
+        switch (type) {
+        case OBJECT_INSTANCE:
+            return 0b00_000000;
+        case RESOURCE_INSTANCE:
+            return 0b01_000000;
+        case MULTIPLE_RESOURCE:
+            return 0b10_000000;
+        case RESOURCE_VALUE:
+            return 0b11_000000;
+        default:
+            throw new IllegalArgumentException("unknown TLV type : '" + type + "'");
+        }
+    }
+
+    private static int identifierBits(int identifier) {
+        return identifier < MAX_LENGTH_8BIT ? 0b00_0000 : 0b10_0000;
+    }
+
+    private static int identifierSize(int identifier) {
+        return identifier < MAX_LENGTH_8BIT ? 1 : 2;
+    }
+
+    private static int identifierSize(byte typeByte) {
+        return (typeByte & 0b10_0000) == 0 ? 1 : 2;
+    }
+
+    private static int lengthBits(int length) {
+        if (length < 8) {
+            return length;
+        } else if (length < MAX_LENGTH_8BIT) {
+            return 0b0000_1000;
+        } else if (length < MAX_LENGTH_16BIT) {
+            return 0b0001_0000;
+        } else {
+            return 0b0001_1000;
+        }
+    }
+
+    private static int lengthSize(int length) {
+        if (length < 8) {
+            return 0;
+        } else if (length < MAX_LENGTH_8BIT) {
+            return 1;
+        } else if (length < MAX_LENGTH_16BIT) {
+            return 2;
+        } else if (length < MAX_LENGTH_24BIT) {
+            return 3;
+        } else {
+            throw new IllegalArgumentException("length should fit in max 24bits");
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds.
+ * <p>
+ * Durations are counted in power of 2 buckets: bucket <code>i</code> counts durations in <code>[2^i, 2^(i+1))</code>
+ * ns, bucket 0 also counts durations of 0 ns. Recording a duration does not allocate, so it can be used on hot paths.
+ */
+public class LatencyHistogram {
+
+    /** Number of buckets */
+    public static final int NB_BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[NB_BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param durationInNanos the duration in nanoseconds, negative values are counted as 0.
+     */
+    public void record(long durationInNanos) {
+        long duration = Math.max(0, durationInNanos);
+        buckets[bucketIndex(duration)].increment();
+        count.increment();
+        sum.add(duration);
+        max.accumulate(duration);
+    }
+
+    private static int bucketIndex(long duration) {
+        return duration == 0 ? 0 : 63 - Long.numberOfLeadingZeros(duration);
+    }
+
+    /**
+     * @return the number of recorded durations.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of all recorded durations in nanoseconds.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return the maximum recorded duration in nanoseconds.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return a snapshot of the number of durations counted by each bucket.
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[NB_BUCKETS];
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Get an approximation of a percentile: the upper bound of the bucket which contains it.
+     *
+     * @param percentile a value between 0 and 100.
+     * @return the upper bound in nanoseconds of the bucket containing the percentile, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        Validate.isTrue(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return (1L << (i + 1)) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Reset all the counters.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        long c = getCount();
+        return String.format("LatencyHistogram [count=%d, mean=%dns, p99=%dns, max=%dns]", c, c == 0 ? 0 : getSum() / c,
+                getPercentile(99), getMax());
+    }
+}
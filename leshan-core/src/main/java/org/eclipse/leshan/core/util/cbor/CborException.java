@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util.cbor;
+
+/**
+ * Exception raised by {@link CborReader} when CBOR content is invalid or not supported.
+ */
+public class CborException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public CborException(String message) {
+        super(message);
+    }
+
+    public CborException(String message, Object... args) {
+        super(String.format(message, args));
+    }
+
+    public CborException(Exception e, String message, Object... args) {
+        super(String.format(message, args), e);
+    }
+}
@@ -0,0 +1,474 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util.cbor;
+
+import static org.eclipse.leshan.core.util.cbor.CborWriter.FLOAT_16;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.FLOAT_32;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.FLOAT_64;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.MAJOR_TYPE_ARRAY;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.MAJOR_TYPE_BYTE_STRING;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.MAJOR_TYPE_MAP;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.MAJOR_TYPE_NEGATIVE_INTEGER;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.MAJOR_TYPE_SIMPLE;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.MAJOR_TYPE_TAG;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.MAJOR_TYPE_TEXT_STRING;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.MAJOR_TYPE_UNSIGNED_INTEGER;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.SIMPLE_FALSE;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.SIMPLE_TRUE;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.TAG_BIGFLOAT;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.TAG_DECIMAL_FRACTION;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.TAG_NEGATIVE_BIGNUM;
+import static org.eclipse.leshan.core.util.cbor.CborWriter.TAG_POSITIVE_BIGNUM;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.eclipse.leshan.core.util.datatype.ULong;
+
+/**
+ * A pull parser reading CBOR (<a href="https://datatracker.ietf.org/doc/html/rfc8949">RFC8949</a>) data items directly
+ * from a byte array, without building any intermediate tree.
+ * <p>
+ * Both definite and indefinite length items are supported. Containers are read by getting their header
+ * ({@link #readArrayHeader()}, {@link #readMapHeader()}) then by reading their items one by one. Items which are not
+ * needed can be ignored with {@link #skip()}.
+ *
+ * <pre>
+ * CborReader reader = new CborReader(content);
+ * int size = reader.readArrayHeader();
+ * for (int i = 0; size == CborReader.INDEFINITE ? !reader.isBreak() : i &lt; size; i++) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * This class is not thread-safe.
+ */
+public class CborReader {
+
+    /**
+     * Value returned by {@link #readArrayHeader()} and {@link #readMapHeader()} for indefinite length containers. Such
+     * containers end with a "break" (see {@link #isBreak()}).
+     */
+    public static final int INDEFINITE = -1;
+
+    private static final int INDEFINITE_LENGTH = 31;
+    private static final int BREAK = 0xFF;
+    private static final int MAX_DEPTH = 64;
+
+    private final byte[] content;
+    private final int end;
+    private int position;
+
+    public CborReader(byte[] content) {
+        this(content, 0, content.length);
+    }
+
+    public CborReader(byte[] content, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > content.length) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid bounds [%d, %d] for content of length %d", offset, length, content.length));
+        }
+        this.content = content;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    /**
+     * @return true if there are bytes left to read.
+     */
+    public boolean hasRemaining() {
+        return position < end;
+    }
+
+    /**
+     * @return the major type (0 to 7) of the next data item, without consuming it.
+     */
+    public int peekMajorType() throws CborException {
+        checkRemaining(1);
+        return (content[position] & 0xFF) >>> 5;
+    }
+
+    /**
+     * @return true if next byte is the "break" ending an indefinite length item.
+     */
+    public boolean isBreak() throws CborException {
+        checkRemaining(1);
+        return (content[position] & 0xFF) == BREAK;
+    }
+
+    public void readBreak() throws CborException {
+        if (!isBreak()) {
+            throw new CborException("Break expected at offset %d", position);
+        }
+        position++;
+    }
+
+    /**
+     * @return the number of items of the array or {@link #INDEFINITE}
+     */
+    public int readArrayHeader() throws CborException {
+        return readContainerHeader(MAJOR_TYPE_ARRAY);
+    }
+
+    /**
+     * @return the number of entries of the map or {@link #INDEFINITE}
+     */
+    public int readMapHeader() throws CborException {
+        return readContainerHeader(MAJOR_TYPE_MAP);
+    }
+
+    public long readTag() throws CborException {
+        expectMajorType(MAJOR_TYPE_TAG);
+        return readArgument(content[position++] & 0x1F);
+    }
+
+    /**
+     * Read an integer which fits in a signed 64 bits integer.
+     */
+    public long readLong() throws CborException {
+        int majorType = peekMajorType();
+        if (majorType != MAJOR_TYPE_UNSIGNED_INTEGER && majorType != MAJOR_TYPE_NEGATIVE_INTEGER) {
+            throw new CborException("Integer expected at offset %d but major type was %d", position, majorType);
+        }
+        int start = position;
+        long argument = readArgument(content[position++] & 0x1F);
+        if (argument < 0) {
+            throw new CborException("Integer at offset %d does not fit in 64 bits signed integer", start);
+        }
+        return majorType == MAJOR_TYPE_UNSIGNED_INTEGER ? argument : ~argument;
+    }
+
+    public boolean readBoolean() throws CborException {
+        checkRemaining(1);
+        int initialByte = content[position] & 0xFF;
+        if (initialByte == (MAJOR_TYPE_SIMPLE << 5 | SIMPLE_TRUE)) {
+            position++;
+            return true;
+        } else if (initialByte == (MAJOR_TYPE_SIMPLE << 5 | SIMPLE_FALSE)) {
+            position++;
+            return false;
+        }
+        throw new CborException("Boolean expected at offset %d", position);
+    }
+
+    public String readTextString() throws CborException {
+        expectMajorType(MAJOR_TYPE_TEXT_STRING);
+        int additionalInfo = content[position] & 0x1F;
+        if (additionalInfo != INDEFINITE_LENGTH) {
+            position++;
+            int length = readLength(additionalInfo);
+            String value = new String(content, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+        return new String(readChunks(MAJOR_TYPE_TEXT_STRING), StandardCharsets.UTF_8);
+    }
+
+    public byte[] readByteString() throws CborException {
+        expectMajorType(MAJOR_TYPE_BYTE_STRING);
+        int additionalInfo = content[position] & 0x1F;
+        if (additionalInfo != INDEFINITE_LENGTH) {
+            position++;
+            int length = readLength(additionalInfo);
+            byte[] value = Arrays.copyOfRange(content, position, position + length);
+            position += length;
+            return value;
+        }
+        return readChunks(MAJOR_TYPE_BYTE_STRING);
+    }
+
+    /**
+     * @return true if next data item is a number: an integer, a floating point value, a bignum (tag 2 or 3), a decimal
+     *         fraction (tag 4) or a bigfloat (tag 5).
+     */
+    public boolean isNumber() throws CborException {
+        checkRemaining(1);
+        int initialByte = content[position] & 0xFF;
+        switch (initialByte >>> 5) {
+        case MAJOR_TYPE_UNSIGNED_INTEGER:
+        case MAJOR_TYPE_NEGATIVE_INTEGER:
+            return true;
+        case MAJOR_TYPE_SIMPLE:
+            int additionalInfo = initialByte & 0x1F;
+            return additionalInfo == FLOAT_16 || additionalInfo == FLOAT_32 || additionalInfo == FLOAT_64;
+        case MAJOR_TYPE_TAG:
+            int start = position;
+            try {
+                long tag = readTag();
+                return tag == TAG_POSITIVE_BIGNUM || tag == TAG_NEGATIVE_BIGNUM || tag == TAG_DECIMAL_FRACTION
+                        || tag == TAG_BIGFLOAT;
+            } finally {
+                position = start;
+            }
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Read a number (see {@link #isNumber()}).
+     *
+     * @return a {@link Long} for integers which fit in 64 bits signed integer, a {@link ULong} for unsigned integers
+     *         which need 64 bits, a {@link BigInteger} for other integers, a {@link Double} for floating point values
+     *         and a {@link BigDecimal} for decimal fractions and bigfloats.
+     */
+    public Number readNumber() throws CborException {
+        int start = position;
+        int majorType = peekMajorType();
+        int additionalInfo = content[position] & 0x1F;
+        switch (majorType) {
+        case MAJOR_TYPE_UNSIGNED_INTEGER: {
+            position++;
+            long argument = readArgument(additionalInfo);
+            return argument >= 0 ? (Number) argument : ULong.valueOf(argument);
+        }
+        case MAJOR_TYPE_NEGATIVE_INTEGER: {
+            position++;
+            long argument = readArgument(additionalInfo);
+            return argument >= 0 ? (Number) ~argument : unsignedToBigInteger(argument).not();
+        }
+        case MAJOR_TYPE_SIMPLE:
+            position++;
+            switch (additionalInfo) {
+            case FLOAT_16:
+                return halfToDouble((int) readBigEndian(2));
+            case FLOAT_32:
+                return (double) Float.intBitsToFloat((int) readBigEndian(4));
+            case FLOAT_64:
+                return Double.longBitsToDouble(readBigEndian(8));
+            default:
+                break;
+            }
+            break;
+        case MAJOR_TYPE_TAG:
+            long tag = readTag();
+            if (tag == TAG_POSITIVE_BIGNUM) {
+                return normalize(new BigInteger(1, readByteString()));
+            } else if (tag == TAG_NEGATIVE_BIGNUM) {
+                return normalize(new BigInteger(1, readByteString()).not());
+            } else if (tag == TAG_DECIMAL_FRACTION || tag == TAG_BIGFLOAT) {
+                if (readArrayHeader() != 2) {
+                    throw new CborException("Invalid decimal fraction or bigfloat at offset %d", start);
+                }
+                long exponent = readLong();
+                BigInteger mantissa = toBigInteger(readNumber(), start);
+                if (exponent < Integer.MIN_VALUE || exponent > Integer.MAX_VALUE) {
+                    throw new CborException("Unsupported exponent %d at offset %d", exponent, start);
+                }
+                if (tag == TAG_DECIMAL_FRACTION) {
+                    return new BigDecimal(mantissa, (int) -exponent);
+                } else if (exponent >= 0) {
+                    return new BigDecimal(mantissa.shiftLeft((int) exponent));
+                } else {
+                    return new BigDecimal(mantissa).divide(new BigDecimal(BigInteger.ONE.shiftLeft((int) -exponent)));
+                }
+            }
+            break;
+        default:
+            break;
+        }
+        position = start;
+        throw new CborException("Number expected at offset %d", start);
+    }
+
+    /**
+     * Skip the next data item, including all its content.
+     */
+    public void skip() throws CborException {
+        skip(0);
+    }
+
+    private void skip(int depth) throws CborException {
+        if (depth > MAX_DEPTH) {
+            throw new CborException("Max nesting depth %d exceeded at offset %d", MAX_DEPTH, position);
+        }
+        int majorType = peekMajorType();
+        int additionalInfo = content[position] & 0x1F;
+        switch (majorType) {
+        case MAJOR_TYPE_UNSIGNED_INTEGER:
+        case MAJOR_TYPE_NEGATIVE_INTEGER:
+            position++;
+            readArgument(additionalInfo);
+            break;
+        case MAJOR_TYPE_BYTE_STRING:
+        case MAJOR_TYPE_TEXT_STRING:
+            if (additionalInfo == INDEFINITE_LENGTH) {
+                readChunks(majorType);
+            } else {
+                position++;
+                int length = readLength(additionalInfo);
+                position += length;
+            }
+            break;
+        case MAJOR_TYPE_ARRAY:
+        case MAJOR_TYPE_MAP:
+            int size = readContainerHeader(majorType);
+            int itemsPerEntry = majorType == MAJOR_TYPE_MAP ? 2 : 1;
+            if (size == INDEFINITE) {
+                while (!isBreak()) {
+                    for (int i = 0; i < itemsPerEntry; i++) {
+                        skip(depth + 1);
+                    }
+                }
+                readBreak();
+            } else {
+                for (long i = 0; i < (long) size * itemsPerEntry; i++) {
+                    skip(depth + 1);
+                }
+            }
+            break;
+        case MAJOR_TYPE_TAG:
+            readTag();
+            skip(depth + 1);
+            break;
+        default:
+            if (additionalInfo == INDEFINITE_LENGTH) {
+                throw new CborException("Unexpected break at offset %d", position);
+            }
+            position++;
+            readArgument(additionalInfo);
+            break;
+        }
+    }
+
+    private int readContainerHeader(int majorType) throws CborException {
+        expectMajorType(majorType);
+        int additionalInfo = content[position++] & 0x1F;
+        if (additionalInfo == INDEFINITE_LENGTH) {
+            return INDEFINITE;
+        }
+        long size = readArgument(additionalInfo);
+        // each item needs at least 1 byte
+        if (size < 0 || size > end - position) {
+            throw new CborException("Invalid size %d for container ending at offset %d", size, position);
+        }
+        return (int) size;
+    }
+
+    private byte[] readChunks(int majorType) throws CborException {
+        // skip initial byte of indefinite length string
+        position++;
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+        while (!isBreak()) {
+            expectMajorType(majorType);
+            int additionalInfo = content[position++] & 0x1F;
+            if (additionalInfo == INDEFINITE_LENGTH) {
+                throw new CborException("Nested indefinite length string at offset %d", position - 1);
+            }
+            int length = readLength(additionalInfo);
+            value.write(content, position, length);
+            position += length;
+        }
+        readBreak();
+        return value.toByteArray();
+    }
+
+    private int readLength(int additionalInfo) throws CborException {
+        long length = readArgument(additionalInfo);
+        if (length < 0 || length > end - position) {
+            throw new CborException("Invalid length %d at offset %d : only %d bytes available", length, position,
+                    end - position);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Read the argument of a data item, initial byte must already be consumed. The returned value must be considered as
+     * unsigned.
+     */
+    private long readArgument(int additionalInfo) throws CborException {
+        if (additionalInfo < 24) {
+            return additionalInfo;
+        }
+        switch (additionalInfo) {
+        case 24:
+            return readBigEndian(1);
+        case 25:
+            return readBigEndian(2);
+        case 26:
+            return readBigEndian(4);
+        case 27:
+            return readBigEndian(8);
+        default:
+            throw new CborException("Invalid additional information %d at offset %d", additionalInfo, position - 1);
+        }
+    }
+
+    private long readBigEndian(int size) throws CborException {
+        checkRemaining(size);
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (content[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    private void expectMajorType(int majorType) throws CborException {
+        int actual = peekMajorType();
+        if (actual != majorType) {
+            throw new CborException("Major type %d expected at offset %d but was %d", majorType, position, actual);
+        }
+    }
+
+    private void checkRemaining(int size) throws CborException {
+        if (end - position < size) {
+            throw new CborException("Unexpected end of content : %d bytes expected at offset %d but only %d available",
+                    size, position, end - position);
+        }
+    }
+
+    private static BigInteger toBigInteger(Number number, int offset) throws CborException {
+        if (number instanceof Long) {
+            return BigInteger.valueOf(number.longValue());
+        } else if (number instanceof ULong) {
+            return ((ULong) number).toBigInteger();
+        } else if (number instanceof BigInteger) {
+            return (BigInteger) number;
+        }
+        throw new CborException("Invalid mantissa %s at offset %d : integer expected", number, offset);
+    }
+
+    private static Number normalize(BigInteger value) {
+        if (value.bitLength() < 64) {
+            return value.longValue();
+        } else if (value.bitLength() == 64 && value.signum() > 0) {
+            return ULong.valueOf(value.longValue());
+        }
+        return value;
+    }
+
+    private static BigInteger unsignedToBigInteger(long value) {
+        BigInteger bigInteger = BigInteger.valueOf(value & Long.MAX_VALUE);
+        return value < 0 ? bigInteger.setBit(63) : bigInteger;
+    }
+
+    private static double halfToDouble(int half) {
+        int exponent = (half >> 10) & 0x1F;
+        int mantissa = half & 0x3FF;
+        double value;
+        if (exponent == 0) {
+            value = Math.scalb((double) mantissa, -24);
+        } else if (exponent != 31) {
+            value = Math.scalb((double) (mantissa + 1024), exponent - 25);
+        } else {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+}
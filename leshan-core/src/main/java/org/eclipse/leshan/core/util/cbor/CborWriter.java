@@ -0,0 +1,385 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util.cbor;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.eclipse.leshan.core.util.datatype.ULong;
+
+/**
+ * A streaming CBOR encoder (<a href="https://datatracker.ietf.org/doc/html/rfc8949">RFC8949</a>) writing directly in a
+ * growable byte array.
+ * <p>
+ * Only definite length items are written. When the size of an array is not known in advance, {@link #startArray()}
+ * reserves the largest header which is patched by {@link #endArray(int, int)}, the content is moved back if the header
+ * is smaller. Floating point values are written on 4 bytes when this does not lose precision.
+ * <p>
+ * A writer can be reused by calling {@link #reset()}. This class is not thread-safe.
+ *
+ * <pre>
+ * CborWriter writer = new CborWriter();
+ * writer.writeMapHeader(2);
+ * writer.writeInteger(0);
+ * writer.writeTextString("3/0/0");
+ * writer.writeInteger(3);
+ * writer.writeTextString("Leshan");
+ * byte[] cbor = writer.toByteArray();
+ * </pre>
+ */
+public class CborWriter {
+
+    public static final int MAJOR_TYPE_UNSIGNED_INTEGER = 0;
+    public static final int MAJOR_TYPE_NEGATIVE_INTEGER = 1;
+    public static final int MAJOR_TYPE_BYTE_STRING = 2;
+    public static final int MAJOR_TYPE_TEXT_STRING = 3;
+    public static final int MAJOR_TYPE_ARRAY = 4;
+    public static final int MAJOR_TYPE_MAP = 5;
+    public static final int MAJOR_TYPE_TAG = 6;
+    public static final int MAJOR_TYPE_SIMPLE = 7;
+
+    static final int TAG_POSITIVE_BIGNUM = 2;
+    static final int TAG_NEGATIVE_BIGNUM = 3;
+    static final int TAG_DECIMAL_FRACTION = 4;
+    static final int TAG_BIGFLOAT = 5;
+
+    static final int SIMPLE_FALSE = 20;
+    static final int SIMPLE_TRUE = 21;
+    static final int SIMPLE_NULL = 22;
+    static final int FLOAT_16 = 25;
+    static final int FLOAT_32 = 26;
+    static final int FLOAT_64 = 27;
+
+    // size of the header reserved by startArray() : initial byte + 4 bytes length
+    private static final int RESERVED_HEADER_SIZE = 5;
+
+    private byte[] buffer;
+    private int position;
+
+    public CborWriter() {
+        this(256);
+    }
+
+    public CborWriter(int initialCapacity) {
+        this(new byte[initialCapacity]);
+    }
+
+    /**
+     * Create a writer using the given buffer. A bigger buffer is allocated if it is too small.
+     */
+    public CborWriter(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    public void writeArrayHeader(int size) {
+        writeHeader(MAJOR_TYPE_ARRAY, size);
+    }
+
+    /**
+     * Start an array which size is not known yet. Items must be written then {@link #endArray(int, int)} must be called
+     * with the returned mark.
+     *
+     * @return a mark to give to {@link #endArray(int, int)}
+     */
+    public int startArray() {
+        int mark = position;
+        ensureCapacity(RESERVED_HEADER_SIZE);
+        position += RESERVED_HEADER_SIZE;
+        return mark;
+    }
+
+    /**
+     * End an array started by {@link #startArray()}.
+     *
+     * @param mark the value returned by {@link #startArray()}
+     * @param size the number of items written in the array
+     */
+    public void endArray(int mark, int size) {
+        int contentStart = mark + RESERVED_HEADER_SIZE;
+        int contentLength = position - contentStart;
+
+        position = mark;
+        writeHeader(MAJOR_TYPE_ARRAY, size);
+
+        if (position != contentStart) {
+            System.arraycopy(buffer, contentStart, buffer, position, contentLength);
+        }
+        position += contentLength;
+    }
+
+    public void writeMapHeader(int size) {
+        writeHeader(MAJOR_TYPE_MAP, size);
+    }
+
+    public void writeTag(long tag) {
+        writeHeader(MAJOR_TYPE_TAG, tag);
+    }
+
+    public void writeInteger(long value) {
+        if (value >= 0) {
+            writeHeader(MAJOR_TYPE_UNSIGNED_INTEGER, value);
+        } else {
+            // -1 - value, without overflow
+            writeHeader(MAJOR_TYPE_NEGATIVE_INTEGER, ~value);
+        }
+    }
+
+    /**
+     * Write the given bits as an unsigned 64 bits integer.
+     */
+    public void writeUnsignedInteger(long value) {
+        writeHeader(MAJOR_TYPE_UNSIGNED_INTEGER, value);
+    }
+
+    /**
+     * Write an integer, as a bignum if it does not fit in 64 bits.
+     */
+    public void writeInteger(BigInteger value) {
+        if (value.bitLength() < 64) {
+            writeInteger(value.longValue());
+        } else if (value.signum() >= 0) {
+            if (value.bitLength() == 64) {
+                writeUnsignedInteger(value.longValue());
+            } else {
+                writeTag(TAG_POSITIVE_BIGNUM);
+                writeByteString(unsignedMagnitude(value));
+            }
+        } else {
+            BigInteger encoded = value.not(); // -1 - value
+            if (encoded.bitLength() == 64) {
+                writeHeader(MAJOR_TYPE_NEGATIVE_INTEGER, encoded.longValue());
+            } else {
+                writeTag(TAG_NEGATIVE_BIGNUM);
+                writeByteString(unsignedMagnitude(encoded));
+            }
+        }
+    }
+
+    public void writeFloat(float value) {
+        ensureCapacity(5);
+        buffer[position++] = (byte) (MAJOR_TYPE_SIMPLE << 5 | FLOAT_32);
+        writeBigEndian(Float.floatToIntBits(value), 4);
+    }
+
+    /**
+     * Write a double, on 4 bytes if it can be converted to float without losing precision.
+     */
+    public void writeDouble(double value) {
+        float floatValue = (float) value;
+        if (floatValue == value || Double.isNaN(value)) {
+            writeFloat(floatValue);
+        } else {
+            ensureCapacity(9);
+            buffer[position++] = (byte) (MAJOR_TYPE_SIMPLE << 5 | FLOAT_64);
+            writeBigEndian(Double.doubleToLongBits(value), 8);
+        }
+    }
+
+    /**
+     * Write a decimal as a decimal fraction (tag 4), or as an integer if its scale is 0.
+     */
+    public void writeDecimal(BigDecimal value) {
+        if (value.scale() == 0) {
+            writeInteger(value.unscaledValue());
+        } else {
+            writeDecimal(value.unscaledValue(), -value.scale());
+        }
+    }
+
+    /**
+     * Write <code>mantissa * 10^exponent</code> as a decimal fraction (tag 4).
+     */
+    public void writeDecimal(long mantissa, int exponent) {
+        writeTag(TAG_DECIMAL_FRACTION);
+        writeArrayHeader(2);
+        writeInteger(exponent);
+        writeInteger(mantissa);
+    }
+
+    private void writeDecimal(BigInteger mantissa, int exponent) {
+        writeTag(TAG_DECIMAL_FRACTION);
+        writeArrayHeader(2);
+        writeInteger(exponent);
+        writeInteger(mantissa);
+    }
+
+    /**
+     * Write a number using the smallest encoding for its class: {@link Byte}, {@link Short}, {@link Integer},
+     * {@link Long}, {@link BigInteger} and {@link ULong} are written as integers, {@link Float} and {@link Double} as
+     * floating point values and {@link BigDecimal} as decimal fraction.
+     */
+    public void writeNumber(Number value) {
+        if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long) {
+            writeInteger(value.longValue());
+        } else if (value instanceof ULong) {
+            writeUnsignedInteger(value.longValue());
+        } else if (value instanceof BigInteger) {
+            writeInteger((BigInteger) value);
+        } else if (value instanceof Float) {
+            writeFloat(value.floatValue());
+        } else if (value instanceof Double) {
+            writeDouble(value.doubleValue());
+        } else if (value instanceof BigDecimal) {
+            writeDecimal((BigDecimal) value);
+        } else {
+            throw new IllegalArgumentException(String.format("Unsupported number class %s", value.getClass()));
+        }
+    }
+
+    public void writeBoolean(boolean value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) (MAJOR_TYPE_SIMPLE << 5 | (value ? SIMPLE_TRUE : SIMPLE_FALSE));
+    }
+
+    public void writeNull() {
+        ensureCapacity(1);
+        buffer[position++] = (byte) (MAJOR_TYPE_SIMPLE << 5 | SIMPLE_NULL);
+    }
+
+    public void writeByteString(byte[] value) {
+        writeHeader(MAJOR_TYPE_BYTE_STRING, value.length);
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, buffer, position, value.length);
+        position += value.length;
+    }
+
+    /**
+     * Write a text string encoded in UTF-8. Like {@link String#getBytes(java.nio.charset.Charset)}, unpaired surrogates
+     * are replaced by '?'.
+     */
+    public void writeTextString(CharSequence value) {
+        int length = value.length();
+        int utf8Length = utf8Length(value);
+        writeHeader(MAJOR_TYPE_TEXT_STRING, utf8Length);
+        ensureCapacity(utf8Length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes written.
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * @return the internal buffer, only the {@link #size()} first bytes are meaningful.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return a copy of the written bytes.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Discard written bytes, so the writer can be reused.
+     */
+    public void reset() {
+        position = 0;
+    }
+
+    private void writeHeader(int majorType, long argument) {
+        ensureCapacity(9);
+        int type = majorType << 5;
+        // argument is considered as unsigned
+        if (argument >= 0 && argument < 24) {
+            buffer[position++] = (byte) (type | argument);
+        } else if (argument >= 0 && argument < 0x100) {
+            buffer[position++] = (byte) (type | 24);
+            buffer[position++] = (byte) argument;
+        } else if (argument >= 0 && argument < 0x1_0000) {
+            buffer[position++] = (byte) (type | 25);
+            writeBigEndian(argument, 2);
+        } else if (argument >= 0 && argument < 0x1_0000_0000L) {
+            buffer[position++] = (byte) (type | 26);
+            writeBigEndian(argument, 4);
+        } else {
+            buffer[position++] = (byte) (type | 27);
+            writeBigEndian(argument, 8);
+        }
+    }
+
+    private void writeBigEndian(long value, int size) {
+        for (int i = size - 1; i >= 0; i--) {
+            buffer[position + i] = (byte) value;
+            value >>= 8;
+        }
+        position += size;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (position + needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + needed));
+        }
+    }
+
+    private static byte[] unsignedMagnitude(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0 && bytes.length > 1) {
+            // remove sign byte
+            return Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return bytes;
+    }
+
+    private static int utf8Length(CharSequence value) {
+        int length = value.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    utf8Length += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // 4 bytes for 2 chars
+                    utf8Length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    utf8Length += 2;
+                }
+            }
+        }
+        return utf8Length;
+    }
+}
@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.senml.cbor.streaming;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.eclipse.leshan.core.util.cbor.CborException;
+import org.eclipse.leshan.core.util.cbor.CborReader;
+import org.eclipse.leshan.core.util.cbor.CborWriter;
+import org.eclipse.leshan.core.util.datatype.ULong;
+import org.eclipse.leshan.senml.SenMLDecoder;
+import org.eclipse.leshan.senml.SenMLEncoder;
+import org.eclipse.leshan.senml.SenMLException;
+import org.eclipse.leshan.senml.SenMLPack;
+import org.eclipse.leshan.senml.SenMLRecord;
+
+/**
+ * Helper for encoding/decoding SenML CBOR using {@link CborWriter} and {@link CborReader}.
+ * <p>
+ * Unlike SenMLCborUpokecenterEncoderDecoder, no intermediate CBOR tree is created and times are decoded from their
+ * binary representation. Decoded numbers are the same: integers are {@link Long}, {@link ULong} or {@link BigInteger},
+ * floating point values are {@link Double} or {@link BigDecimal} if they can not be represented exactly as double.
+ */
+public class SenMLCborStreamingEncoderDecoder implements SenMLDecoder, SenMLEncoder {
+
+    // SenML CBOR labels (see https://datatracker.ietf.org/doc/html/rfc8428#section-6)
+    static final int BASE_NAME = -2;
+    static final int BASE_TIME = -3;
+    static final int NAME = 0;
+    static final int VALUE = 2;
+    static final int STRING_VALUE = 3;
+    static final int BOOLEAN_VALUE = 4;
+    static final int TIME = 6;
+    static final int DATA_VALUE = 8;
+    static final String OBJLNK_VALUE = "vlo";
+
+    // labels used internally while decoding
+    private static final int OBJLNK_VALUE_LABEL = Integer.MAX_VALUE;
+    private static final int UNKNOWN_LABEL = Integer.MIN_VALUE;
+
+    private final boolean allowNoValue;
+
+    public SenMLCborStreamingEncoderDecoder() {
+        this(false);
+    }
+
+    /**
+     * Create an Encoder/Decoder for SenML-CBOR.
+     * <p>
+     * SenML value is defined as mandatory in <a href="https://tools.ietf.org/html/rfc8428#section-4.2">rfc8428</a>, but
+     * SenML records used with a Read-Composite operation do not contain any value field, so
+     * <code>allowNoValue=true</code> can be used skip this validation.
+     *
+     * @param allowNoValue <code>True</code> to not check if there is a value for each SenML record.
+     */
+    public SenMLCborStreamingEncoderDecoder(boolean allowNoValue) {
+        this.allowNoValue = allowNoValue;
+    }
+
+    @Override
+    public byte[] toSenML(SenMLPack pack) throws SenMLException {
+        if (pack == null)
+            return null;
+
+        CborWriter writer = new CborWriter();
+        writer.writeArrayHeader(pack.getRecords().size());
+        for (SenMLRecord record : pack.getRecords()) {
+            boolean hasBaseName = record.getBaseName() != null && !record.getBaseName().isEmpty();
+            boolean hasName = record.getName() != null && !record.getName().isEmpty();
+            SenMLRecord.Type type = record.getType();
+            if (type == null && !allowNoValue) {
+                throw new SenMLException("Invalid SenML record : record must have a value (v,vb,vlo,vd,vs) : %s",
+                        record);
+            }
+
+            writer.writeMapHeader((hasBaseName ? 1 : 0) + (record.getBaseTime() != null ? 1 : 0) + (hasName ? 1 : 0)
+                    + (record.getTime() != null ? 1 : 0) + (type != null ? 1 : 0));
+            if (hasBaseName) {
+                writer.writeInteger(BASE_NAME);
+                writer.writeTextString(record.getBaseName());
+            }
+            if (record.getBaseTime() != null) {
+                writer.writeInteger(BASE_TIME);
+                writeTime(writer, record.getBaseTime());
+            }
+            if (hasName) {
+                writer.writeInteger(NAME);
+                writer.writeTextString(record.getName());
+            }
+            if (record.getTime() != null) {
+                writer.writeInteger(TIME);
+                writeTime(writer, record.getTime());
+            }
+            if (type != null) {
+                switch (type) {
+                case NUMBER:
+                    writer.writeInteger(VALUE);
+                    try {
+                        writer.writeNumber(record.getNumberValue());
+                    } catch (IllegalArgumentException e) {
+                        throw new SenMLException(e, "Unable to serialize SenML in CBOR : invalid value in %s", record);
+                    }
+                    break;
+                case BOOLEAN:
+                    writer.writeInteger(BOOLEAN_VALUE);
+                    writer.writeBoolean(record.getBooleanValue());
+                    break;
+                case OBJLNK:
+                    writer.writeTextString(OBJLNK_VALUE);
+                    writer.writeTextString(record.getObjectLinkValue());
+                    break;
+                case OPAQUE:
+                    writer.writeInteger(DATA_VALUE);
+                    writer.writeByteString(record.getOpaqueValue());
+                    break;
+                case STRING:
+                    writer.writeInteger(STRING_VALUE);
+                    writer.writeTextString(record.getStringValue());
+                    break;
+                default:
+                    throw new SenMLException("Unable to serialize SenML in CBOR : unsupported type %s in %s", type,
+                            record);
+                }
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    @Override
+    public SenMLPack fromSenML(byte[] data) throws SenMLException {
+        // handle empty payload
+        if (data.length == 0) {
+            return new SenMLPack();
+        }
+
+        try {
+            CborReader reader = new CborReader(data);
+            if (reader.peekMajorType() != CborWriter.MAJOR_TYPE_ARRAY) {
+                throw new SenMLException("Unable to parse SenML CBOR: Array expected but was major type %d",
+                        reader.peekMajorType());
+            }
+            SenMLPack pack = new SenMLPack();
+            int size = reader.readArrayHeader();
+            for (int i = 0; size == CborReader.INDEFINITE ? !reader.isBreak() : i < size; i++) {
+                pack.addRecord(readRecord(reader));
+            }
+            if (size == CborReader.INDEFINITE) {
+                reader.readBreak();
+            }
+            if (reader.hasRemaining()) {
+                throw new SenMLException("Unable to parse SenML CBOR: unexpected data after SenML pack");
+            }
+            return pack;
+        } catch (CborException e) {
+            throw new SenMLException("Unable to parse SenML CBOR.", e);
+        }
+    }
+
+    private SenMLRecord readRecord(CborReader reader) throws CborException, SenMLException {
+        if (reader.peekMajorType() != CborWriter.MAJOR_TYPE_MAP) {
+            throw new SenMLException("Invalid SenML record : map expected but was major type %d",
+                    reader.peekMajorType());
+        }
+        SenMLRecord record = new SenMLRecord();
+        boolean hasValue = false;
+        int size = reader.readMapHeader();
+        for (int i = 0; size == CborReader.INDEFINITE ? !reader.isBreak() : i < size; i++) {
+            // read label
+            int label;
+            int keyType = reader.peekMajorType();
+            if (keyType == CborWriter.MAJOR_TYPE_UNSIGNED_INTEGER
+                    || keyType == CborWriter.MAJOR_TYPE_NEGATIVE_INTEGER) {
+                long key = reader.readLong();
+                label = key >= Integer.MIN_VALUE && key <= Integer.MAX_VALUE ? (int) key : UNKNOWN_LABEL;
+            } else if (keyType == CborWriter.MAJOR_TYPE_TEXT_STRING) {
+                label = OBJLNK_VALUE.equals(reader.readTextString()) ? OBJLNK_VALUE_LABEL : UNKNOWN_LABEL;
+            } else {
+                reader.skip();
+                label = UNKNOWN_LABEL;
+            }
+
+            // read value, like for SenMLCborPackSerDes values with unexpected type are ignored
+            int valueType = reader.peekMajorType();
+            switch (label) {
+            case BASE_NAME:
+                if (valueType == CborWriter.MAJOR_TYPE_TEXT_STRING) {
+                    record.setBaseName(reader.readTextString());
+                    continue;
+                }
+                break;
+            case BASE_TIME:
+                if (reader.isNumber()) {
+                    record.setBaseTime(toTime(reader.readNumber()));
+                    continue;
+                }
+                break;
+            case NAME:
+                if (valueType == CborWriter.MAJOR_TYPE_TEXT_STRING) {
+                    record.setName(reader.readTextString());
+                    continue;
+                }
+                break;
+            case TIME:
+                if (reader.isNumber()) {
+                    record.setTime(toTime(reader.readNumber()));
+                    continue;
+                }
+                break;
+            case VALUE:
+                if (reader.isNumber()) {
+                    record.setNumberValue(toValue(reader.readNumber()));
+                    hasValue = true;
+                    continue;
+                }
+                break;
+            case BOOLEAN_VALUE:
+                if (valueType == CborWriter.MAJOR_TYPE_SIMPLE && !reader.isNumber()) {
+                    try {
+                        record.setBooleanValue(reader.readBoolean());
+                        hasValue = true;
+                        continue;
+                    } catch (CborException e) {
+                        // not a boolean : ignored
+                    }
+                }
+                break;
+            case STRING_VALUE:
+                if (valueType == CborWriter.MAJOR_TYPE_TEXT_STRING) {
+                    record.setStringValue(reader.readTextString());
+                    hasValue = true;
+                    continue;
+                }
+                break;
+            case OBJLNK_VALUE_LABEL:
+                if (valueType == CborWriter.MAJOR_TYPE_TEXT_STRING) {
+                    record.setObjectLinkValue(reader.readTextString());
+                    hasValue = true;
+                    continue;
+                }
+                break;
+            case DATA_VALUE:
+                if (valueType == CborWriter.MAJOR_TYPE_BYTE_STRING) {
+                    record.setOpaqueValue(reader.readByteString());
+                    hasValue = true;
+                    continue;
+                }
+                break;
+            default:
+                break;
+            }
+            reader.skip();
+        }
+        if (size == CborReader.INDEFINITE) {
+            reader.readBreak();
+        }
+
+        if (!allowNoValue && !hasValue)
+            throw new SenMLException("Invalid SenML record : record must have a value (v,vb,vlo,vd,vs) : %s", record);
+        return record;
+    }
+
+    private static void writeTime(CborWriter writer, BigDecimal time) {
+        BigDecimal stripped = time.signum() == 0 ? BigDecimal.ZERO : time.stripTrailingZeros();
+        if (stripped.scale() <= 0) {
+            writer.writeInteger(stripped.toBigIntegerExact());
+        } else {
+            writer.writeDecimal(stripped);
+        }
+    }
+
+    private static BigDecimal toTime(Number number) throws SenMLException {
+        if (number instanceof Long) {
+            return BigDecimal.valueOf(number.longValue());
+        } else if (number instanceof Double) {
+            double time = number.doubleValue();
+            if (Double.isNaN(time) || Double.isInfinite(time)) {
+                throw new SenMLException("Invalid SenML record : invalid time %s", number);
+            }
+            return BigDecimal.valueOf(time);
+        } else if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        } else if (number instanceof ULong) {
+            return new BigDecimal(((ULong) number).toBigInteger());
+        } else {
+            return new BigDecimal((BigInteger) number);
+        }
+    }
+
+    private static Number toValue(Number number) {
+        if (number instanceof BigDecimal) {
+            // like CBOR-Java, use double if there is no loss of precision
+            BigDecimal decimal = (BigDecimal) number;
+            double value = decimal.doubleValue();
+            if (!Double.isInfinite(value) && new BigDecimal(value).compareTo(decimal) == 0) {
+                return value;
+            }
+        }
+        return number;
+    }
+}
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.senml.json.jackson;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.util.Base64;
+import org.eclipse.leshan.core.util.datatype.ULong;
+import org.eclipse.leshan.senml.SenMLDecoder;
+import org.eclipse.leshan.senml.SenMLEncoder;
+import org.eclipse.leshan.senml.SenMLException;
+import org.eclipse.leshan.senml.SenMLPack;
+import org.eclipse.leshan.senml.SenMLRecord;
+import org.eclipse.leshan.senml.SenMLRecord.Type;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Helper for encoding/decoding SenML JSON using Jackson streaming API.
+ * <p>
+ * Unlike {@link SenMLJsonJacksonEncoderDecoder}, no {@code JsonNode} tree is created for each record : records are
+ * written directly to the output buffer with a {@link JsonGenerator} and read with a {@link JsonParser}. Produced
+ * content is the same.
+ */
+public class SenMLJsonStreamingEncoderDecoder implements SenMLDecoder, SenMLEncoder {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final boolean allowNoValue;
+
+    public SenMLJsonStreamingEncoderDecoder() {
+        this(false);
+    }
+
+    /**
+     * Create an Encoder/Decoder for SenML-JSON based on Jackson streaming API.
+     *
+     * SenML value is defined as mandatory in <a href="https://tools.ietf.org/html/rfc8428#section-4.2">rfc8428</a>, but
+     * SenML records used with a Read-Composite operation do not contain any value field, so
+     * <code>allowNoValue=true</code> can be used skip this validation.
+     *
+     * @param allowNoValue <code>True</code> to not check if there is a value for each SenML record.
+     */
+    public SenMLJsonStreamingEncoderDecoder(boolean allowNoValue) {
+        this.allowNoValue = allowNoValue;
+    }
+
+    @Override
+    public byte[] toSenML(SenMLPack pack) throws SenMLException {
+        if (pack == null)
+            return null;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            generator.writeStartArray();
+            for (SenMLRecord record : pack.getRecords()) {
+                writeRecord(generator, record);
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new SenMLException("Unable to serialize SenML JSON.", e);
+        }
+        return out.toByteArray();
+    }
+
+    protected void writeRecord(JsonGenerator generator, SenMLRecord record) throws IOException, SenMLException {
+        generator.writeStartObject();
+
+        if (record.getBaseName() != null && record.getBaseName().length() > 0) {
+            generator.writeStringField("bn", record.getBaseName());
+        }
+
+        if (record.getBaseTime() != null) {
+            generator.writeFieldName("bt");
+            generator.writeNumber(record.getBaseTime());
+        }
+
+        if (record.getName() != null && record.getName().length() > 0) {
+            generator.writeStringField("n", record.getName());
+        }
+
+        if (record.getTime() != null) {
+            generator.writeFieldName("t");
+            generator.writeNumber(record.getTime());
+        }
+
+        Type type = record.getType();
+        if (type != null) {
+            switch (type) {
+            case NUMBER:
+                writeNumberValue(generator, record.getNumberValue());
+                break;
+            case BOOLEAN:
+                generator.writeBooleanField("vb", record.getBooleanValue());
+                break;
+            case OBJLNK:
+                generator.writeStringField("vlo", record.getObjectLinkValue());
+                break;
+            case OPAQUE:
+                generator.writeStringField("vd", Base64.encodeBase64String(record.getOpaqueValue()));
+                break;
+            case STRING:
+                generator.writeStringField("vs", record.getStringValue());
+                break;
+            default:
+                break;
+            }
+        } else {
+            if (!allowNoValue)
+                throw new SenMLException("Invalid SenML record : record must have a value (v,vb,vlo,vd,vs) : %s",
+                        record);
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeNumberValue(JsonGenerator generator, Number value) throws IOException {
+        // integer
+        if (value instanceof Byte || value instanceof Short) {
+            generator.writeNumberField("v", value.shortValue());
+        } else if (value instanceof Integer) {
+            generator.writeNumberField("v", value.intValue());
+        } else if (value instanceof Long) {
+            generator.writeNumberField("v", value.longValue());
+        } else if (value instanceof BigInteger) {
+            generator.writeNumberField("v", (BigInteger) value);
+        }
+        // unsigned integer
+        else if (value instanceof ULong) {
+            generator.writeNumberField("v", ((ULong) value).toBigInteger());
+        }
+        // floating-point
+        else if (value instanceof Float) {
+            generator.writeNumberField("v", value.floatValue());
+        } else if (value instanceof Double) {
+            generator.writeNumberField("v", value.doubleValue());
+        } else if (value instanceof BigDecimal) {
+            generator.writeNumberField("v", (BigDecimal) value);
+        }
+    }
+
+    @Override
+    public SenMLPack fromSenML(byte[] jsonString) throws SenMLException {
+        // handle empty payload
+        if (jsonString == null || jsonString.length == 0) {
+            return new SenMLPack();
+        }
+
+        try (JsonParser parser = factory.createParser(jsonString)) {
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.START_ARRAY) {
+                throw new SenMLException("Unable to parse SenML JSON: JsonArray expected but was %s", token);
+            }
+
+            List<SenMLRecord> records = new ArrayList<>();
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new SenMLException("Unable to parse SenML JSON: JsonObject expected but was %s", token);
+                }
+                records.add(readRecord(parser));
+            }
+            return new SenMLPack(records);
+        } catch (IOException e) {
+            throw new SenMLException("Unable to parse SenML JSON.", e);
+        }
+    }
+
+    protected SenMLRecord readRecord(JsonParser parser) throws IOException, SenMLException {
+        SenMLRecord record = new SenMLRecord();
+        boolean hasValue = false;
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+            case "bn":
+                if (token == JsonToken.VALUE_STRING)
+                    record.setBaseName(parser.getText());
+                break;
+            case "bt":
+                if (token.isNumeric())
+                    record.setBaseTime(readBigDecimal(parser));
+                break;
+            case "n":
+                if (token == JsonToken.VALUE_STRING)
+                    record.setName(parser.getText());
+                break;
+            case "t":
+                if (token.isNumeric())
+                    record.setTime(readBigDecimal(parser));
+                break;
+            case "v":
+                if (token.isNumeric()) {
+                    record.setNumberValue(parser.getNumberValue());
+                    hasValue = true;
+                }
+                break;
+            case "vb":
+                if (token.isBoolean()) {
+                    record.setBooleanValue(parser.getBooleanValue());
+                    hasValue = true;
+                }
+                break;
+            case "vs":
+                if (token == JsonToken.VALUE_STRING) {
+                    record.setStringValue(parser.getText());
+                    hasValue = true;
+                }
+                break;
+            case "vlo":
+                if (token == JsonToken.VALUE_STRING) {
+                    record.setObjectLinkValue(parser.getText());
+                    hasValue = true;
+                }
+                break;
+            case "vd":
+                if (token == JsonToken.VALUE_STRING) {
+                    record.setOpaqueValue(Base64.decodeBase64(parser.getText()));
+                    hasValue = true;
+                }
+                break;
+            default:
+                break;
+            }
+            parser.skipChildren();
+        }
+
+        if (!allowNoValue && !hasValue)
+            throw new SenMLException("Invalid SenML record : record must have a value (v,vb,vlo,vd,vs) : %s", record);
+
+        return record;
+    }
+
+    private BigDecimal readBigDecimal(JsonParser parser) throws IOException {
+        // same textual representation than the one used by tree based decoder
+        return new BigDecimal(parser.getNumberValue().toString());
+    }
+}
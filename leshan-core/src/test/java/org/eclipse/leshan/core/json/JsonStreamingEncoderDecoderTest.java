@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.json.jackson.LwM2mJsonJacksonEncoderDecoder;
+import org.eclipse.leshan.core.json.jackson.LwM2mJsonStreamingEncoderDecoder;
+import org.eclipse.leshan.core.util.datatype.ULong;
+import org.junit.Test;
+
+/**
+ * Check that {@link LwM2mJsonStreamingEncoderDecoder} produces and accepts the same content than
+ * {@link LwM2mJsonJacksonEncoderDecoder}.
+ */
+public class JsonStreamingEncoderDecoderTest {
+
+    private static final LwM2mJsonJacksonEncoderDecoder reference = new LwM2mJsonJacksonEncoderDecoder();
+    private static final LwM2mJsonStreamingEncoderDecoder streaming = new LwM2mJsonStreamingEncoderDecoder();
+
+    @Test
+    public void encode_like_tree_based_encoder() throws LwM2mJsonException {
+        JsonRootObject jro = givenRootObjectWithAllTypes();
+
+        String expected = reference.toJsonLwM2m(jro);
+        assertEquals(expected, streaming.toJsonLwM2m(jro));
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), streaming.toJsonLwM2mBytes(jro));
+    }
+
+    @Test
+    public void decode_like_tree_based_decoder() throws LwM2mJsonException {
+        String json = reference.toJsonLwM2m(givenRootObjectWithAllTypes());
+
+        JsonRootObject expected = reference.fromJsonLwM2m(json);
+        assertEquals(expected, streaming.fromJsonLwM2m(json));
+        assertEquals(expected, streaming.fromJsonLwM2m(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void decode_ignoring_unknown_and_mistyped_fields() throws LwM2mJsonException {
+        String json = "{\"x\":{\"e\":[]},\"bn\":3,\"e\":[{\"n\":\"0\",\"v\":\"1\",\"sv\":\"a\",\"y\":[1,{}]}],\"bt\":1.5E9}";
+
+        JsonRootObject decoded = streaming.fromJsonLwM2m(json);
+        assertEquals(reference.fromJsonLwM2m(json), decoded);
+        assertEquals(new BigDecimal("1.5E9"), decoded.getBaseTime());
+    }
+
+    @Test(expected = LwM2mJsonException.class)
+    public void decode_without_entries() throws LwM2mJsonException {
+        streaming.fromJsonLwM2m("{\"bn\":\"/3/0/\"}");
+    }
+
+    @Test(expected = LwM2mJsonException.class)
+    public void decode_entry_without_value() throws LwM2mJsonException {
+        streaming.fromJsonLwM2m("{\"e\":[{\"n\":\"0\"}]}");
+    }
+
+    @Test(expected = LwM2mJsonException.class)
+    public void decode_truncated_content() throws LwM2mJsonException {
+        streaming.fromJsonLwM2m("{\"e\":[{\"n\":\"0\",\"sv\":\"a\"}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private JsonRootObject givenRootObjectWithAllTypes() {
+        List<JsonArrayEntry> entries = new ArrayList<>();
+        Number[] values = new Number[] { 1, Long.MAX_VALUE, new BigInteger("-18446744073709551616"), ULong.MAX, 1.5f,
+                0.1d, new BigDecimal("1.10") };
+        for (int i = 0; i < values.length; i++) {
+            JsonArrayEntry entry = new JsonArrayEntry();
+            entry.setName(Integer.toString(i));
+            entry.setFloatValue(values[i]);
+            entries.add(entry);
+        }
+        JsonArrayEntry bool = new JsonArrayEntry();
+        bool.setName("10");
+        bool.setBooleanValue(true);
+        bool.setTime(new BigDecimal("-5"));
+        entries.add(bool);
+        JsonArrayEntry objlnk = new JsonArrayEntry();
+        objlnk.setName("11");
+        objlnk.setObjectLinkValue("3:0");
+        entries.add(objlnk);
+        JsonArrayEntry string = new JsonArrayEntry();
+        string.setName("12/0");
+        string.setStringValue("héllo \"€\"\n");
+        string.setTime(new BigDecimal("1600000000.25"));
+        entries.add(string);
+
+        JsonRootObject jro = new JsonRootObject();
+        jro.setBaseName("/3442/0/");
+        jro.setBaseTime(new BigDecimal("1600000000"));
+        jro.setResourceList(entries);
+        return jro;
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.link;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Random;
+
+import org.eclipse.leshan.core.link.attributes.AttributeModel;
+import org.eclipse.leshan.core.link.attributes.Attributes;
+import org.eclipse.leshan.core.link.attributes.DefaultAttributeParser;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributes;
+import org.junit.Test;
+
+/**
+ * Differential test : {@link ByteArrayLinkParser} must accept and reject the same content than
+ * {@link DefaultLinkParser} and produce the same links.
+ */
+public class ByteArrayLinkParserTest {
+
+    private static final String[] VALID = new String[] { //
+            "</>", //
+            "</uri>", "</uri/>", "</uri//>", "</%20>", "</%2F/%AB>", //
+            "</-._~a-zA-Z0-9:@!$&'()*+,;=>", //
+            "</foo>;param=<,</bar>;param2=>", //
+            "</foo>;param=/", //
+            "</foo>;param=\",\",</bar>", //
+            "</foo>;param=\"\\\"\",</bar>", //
+            "</foo>;param=\"héllo €\";other=\"\"", //
+            "</foo>;valueless;!#$&+-.^_`|~=!#$%&'()*+-./:<=>?@[]^_`{|}~", //
+            "</>;rt=\"oma.lwm2m\";ct=11543,</1>;ver=1.1,</1/0>,</3>;ver=1.0,</3/0>", //
+            "</lwm2m>;rt=\"oma.lwm2m\";ct=\"60 110 112 11542 11543\",</lwm2m/1/0>", //
+            "</3/0/1>;pmin=10;pmax=60;gt=50;lt=3;st=1;epmin=1;epmax=10;edge=1;con=0;hqmax=5", //
+            "</3/0>;rt=\"oma.lwm2m.device x\";if=sensor;sz=1024;title=\"Device\";anchor=\"/3\";obs", //
+            "</3442/0/110>;dim=3;ssid=101;uri=\"coap://localhost\";lwm2m=1.1", //
+    };
+
+    private static final String[] INVALID = new String[] { //
+            "<file:///etc/hosts>", "</hosts?query>", "</%>", "</%a>", "</%1g>", "</%1f>", "</fóó>", //
+            "</foo>;pąrąm", "</foo>;param=ą", "</foo>;param=\"bar", "</foo>;param=\"bar\\\"", //
+            "</foo>;param=\"bar\\", "</>;=", "</>;param=", "</>; param=123", "</> ;param=123", "</>;param =123", //
+            "</>;param= 123", "</>;param=123 ", "<>", "</", "<//>", "//>", "</>,", "</>;", "</>;param=\"a\"b", //
+            "</>;ct=", "</>;ct=01", "</>;ct=\"1 \"", "</>;rt", "</>;ct", "</>;ver=\"1.1\"", "</1>;pmin=a", //
+            "</>;rt=a\"b", "</>;a=1;a=2", "</a>,,</b>" };
+
+    private final LinkParser reference;
+    private final LinkParser parser;
+
+    public ByteArrayLinkParserTest() {
+        // use LWM2M attributes too, to test the more complex case
+        Collection<AttributeModel<?>> attributes = new ArrayList<>();
+        attributes.addAll(Attributes.ALL);
+        attributes.addAll(LwM2mAttributes.ALL);
+        reference = new DefaultLinkParser(new DefaultAttributeParser(attributes));
+        parser = new ByteArrayLinkParser(new DefaultAttributeParser(attributes));
+    }
+
+    @Test
+    public void parse_like_default_parser() throws LinkParseException {
+        for (String content : VALID) {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            assertArrayEquals(content, reference.parseCoreLinkFormat(bytes), parser.parseCoreLinkFormat(bytes));
+        }
+    }
+
+    @Test
+    public void reject_like_default_parser() {
+        for (String content : INVALID) {
+            assertSameResult(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void parse_empty_content() throws LinkParseException {
+        assertEquals(0, parser.parseCoreLinkFormat(null).length);
+        assertEquals(0, parser.parseCoreLinkFormat(new byte[0]).length);
+    }
+
+    @Test
+    public void parse_large_registration_payload() throws LinkParseException {
+        StringBuilder b = new StringBuilder("</>;rt=\"oma.lwm2m\";ct=\"60 110 112 11542 11543\"");
+        for (int i = 0; i < 2000; i++) {
+            b.append(",</").append(i).append(">;ver=1.").append(i % 10);
+            b.append(",</").append(i).append("/0>,</").append(i).append("/1>");
+        }
+        byte[] bytes = b.toString().getBytes(StandardCharsets.UTF_8);
+
+        Link[] links = parser.parseCoreLinkFormat(bytes);
+        assertEquals(6001, links.length);
+        assertArrayEquals(reference.parseCoreLinkFormat(bytes), links);
+    }
+
+    @Test
+    public void parse_random_content_like_default_parser() {
+        // mutate valid content to explore grammar edges
+        Random random = new Random(42);
+        String alphabet = "<>/;,=\"\\ %aAfF019.-_~!#$&'()*+:@?[]^`{|}é";
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder content = new StringBuilder(VALID[random.nextInt(VALID.length)]);
+            int mutations = 1 + random.nextInt(3);
+            for (int j = 0; j < mutations; j++) {
+                int position = random.nextInt(content.length() + 1);
+                char c = alphabet.charAt(random.nextInt(alphabet.length()));
+                switch (random.nextInt(3)) {
+                case 0:
+                    content.insert(position, c);
+                    break;
+                case 1:
+                    if (position < content.length())
+                        content.deleteCharAt(position);
+                    break;
+                default:
+                    if (position < content.length())
+                        content.setCharAt(position, c);
+                    break;
+                }
+            }
+            assertSameResult(content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void assertSameResult(byte[] content) {
+        String strContent = new String(content, StandardCharsets.UTF_8);
+        Link[] expected;
+        try {
+            expected = reference.parseCoreLinkFormat(content);
+        } catch (Exception e) {
+            try {
+                parser.parseCoreLinkFormat(content);
+                fail(String.format("%s should be rejected : %s", strContent, e.getMessage()));
+            } catch (Exception actual) {
+                // default parser could fail with unexpected exception (e.g. on escaped char at the end of content)
+                if (!(actual instanceof LinkParseException)) {
+                    assertEquals(strContent, e.getClass(), actual.getClass());
+                }
+            }
+            return;
+        }
+        try {
+            Link[] actual = parser.parseCoreLinkFormat(content);
+            assertNotNull(actual);
+            assertArrayEquals(strContent, expected, actual);
+        } catch (Exception e) {
+            throw new AssertionError(String.format("%s should be accepted", strContent), e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.model.ResourceModel.Operations;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.junit.Test;
+
+public class CompiledModelTest {
+
+    @Test
+    public void compiled_model_returns_same_models_as_static_model() {
+        List<ObjectModel> objectModels = ObjectLoader.loadDefault();
+        StaticModel expected = new StaticModel(objectModels);
+        CompiledModel model = new CompiledModel(objectModels);
+
+        assertEquals(expected.getObjectModels().size(), model.getObjectModels().size());
+        for (ObjectModel objectModel : expected.getObjectModels()) {
+            assertSame(objectModel, model.getObjectModel(objectModel.id));
+            for (int resourceId = 0; resourceId < 100; resourceId++) {
+                assertSame(expected.getResourceModel(objectModel.id, resourceId),
+                        model.getResourceModel(objectModel.id, resourceId));
+            }
+        }
+    }
+
+    @Test
+    public void compiled_model_supports_big_ids() {
+        List<ObjectModel> objectModels = new ArrayList<>();
+        objectModels.add(createModel(3, 0));
+        objectModels.add(createModel(10241, 26241));
+        objectModels.add(createModel(42800, 65535));
+        CompiledModel model = new CompiledModel(objectModels);
+
+        assertEquals((Integer) 10241, model.getObjectModel(10241).id);
+        assertEquals((Integer) 26241, model.getResourceModel(10241, 26241).id);
+        assertEquals((Integer) 65535, model.getResourceModel(42800, 65535).id);
+        assertEquals((Integer) 0, model.getResourceModel(3, 0).id);
+
+        assertNull(model.getObjectModel(4));
+        assertNull(model.getObjectModel(10242));
+        assertNull(model.getObjectModel(-1));
+        assertNull(model.getResourceModel(3, 1));
+        assertNull(model.getResourceModel(10241, 0));
+    }
+
+    private ObjectModel createModel(Integer objectId, Integer resourceId) {
+        ResourceModel resourceModel = new ResourceModel(resourceId, "a resource", Operations.R, false, false,
+                Type.BOOLEAN, null, null, null);
+        return new ObjectModel(objectId, "Object " + objectId, null, "1.0", false, false, resourceModel);
+    }
+}
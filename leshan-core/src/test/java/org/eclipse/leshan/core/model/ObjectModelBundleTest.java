@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.leshan.core.model.ResourceModel.Operations;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ObjectModelBundleTest {
+
+    private File modelsDir;
+    private File bundleFile;
+
+    @Before
+    public void createModelsDir() throws IOException {
+        modelsDir = Files.createTempDirectory("models").toFile();
+        bundleFile = new File(modelsDir.getParentFile(), modelsDir.getName() + ".bundle");
+        for (String filename : new String[] { "3-1_0.xml", "3.xml", "6.xml" }) {
+            try (InputStream in = ObjectModelBundleTest.class.getResourceAsStream("/models/" + filename)) {
+                Files.copy(in, new File(modelsDir, filename).toPath());
+            }
+        }
+    }
+
+    @After
+    public void deleteModelsDir() {
+        for (File file : modelsDir.listFiles()) {
+            file.delete();
+        }
+        modelsDir.delete();
+        bundleFile.delete();
+    }
+
+    @Test
+    public void write_and_read_all_default_models() throws IOException, InvalidModelException {
+        List<ObjectModel> models = ObjectLoader.loadAllDefault();
+
+        ObjectModelBundle bundle = ObjectModelBundle.fromBytes(ObjectModelBundle.write(models, 42, true));
+
+        assertEquals(42, bundle.getSourceStamp());
+        assertTrue(bundle.isValidated());
+        assertEquals(models.size(), bundle.size());
+        assertEquals(sorted(models).toString(), bundle.getObjectModels().toString());
+    }
+
+    @Test
+    public void get_models_by_id_and_version() throws IOException, InvalidModelException {
+        List<ObjectModel> models = ObjectLoader.loadAllDefault();
+        ObjectModelBundle.write(models, 0, false, bundleFile);
+
+        ObjectModelBundle bundle = ObjectModelBundle.open(bundleFile);
+        assertFalse(bundle.isValidated());
+        assertEquals("1.3", bundle.getObjectModel(4).version);
+        assertEquals("1.0", bundle.getObjectModel(4, "1.0").version);
+        assertEquals((Integer) 4, bundle.getObjectModel(4, "1.1").id);
+        assertEquals(ObjectLoader.loadDefault().get(3).toString(), bundle.getObjectModel(3).toString());
+        assertNull(bundle.getObjectModel(4, "2.0"));
+        assertNull(bundle.getObjectModel(8));
+        assertNull(bundle.getObjectModel(-1));
+    }
+
+    @Test
+    public void write_and_read_null_and_big_values() throws IOException, InvalidModelException {
+        StringBuilder bigDescription = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            bigDescription.append("é€");
+        }
+        List<ResourceModel> resources = new ArrayList<>();
+        resources.add(new ResourceModel(0, "resource", null, null, null, null, null, null, bigDescription.toString()));
+        resources.add(new ResourceModel(65535, "other", Operations.RW, true, false, Type.CORELINK, "", "°C", ""));
+        List<ObjectModel> models = new ArrayList<>();
+        models.add(new ObjectModel(42800, null, null, "1.0", null, null, resources, null, null, null));
+
+        ObjectModelBundle bundle = ObjectModelBundle.fromBytes(ObjectModelBundle.write(models, -1, false));
+
+        assertEquals(models.toString(), bundle.getObjectModels().toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void read_invalid_bundle() throws IOException {
+        ObjectModelBundle.fromBytes(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+    }
+
+    @Test(expected = IOException.class)
+    public void read_truncated_bundle() throws IOException {
+        byte[] content = ObjectModelBundle.write(ObjectLoader.loadDefault(), 0, false);
+        byte[] truncated = new byte[30];
+        System.arraycopy(content, 0, truncated, 0, truncated.length);
+        ObjectModelBundle.fromBytes(truncated);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_bundle_with_other_format_version() throws IOException {
+        byte[] content = ObjectModelBundle.write(ObjectLoader.loadDefault(), 0, false);
+        // format version is the int following the magic number
+        content[7] = 1;
+        ObjectModelBundle.fromBytes(content);
+    }
+
+    @Test
+    public void load_from_dir_create_then_use_bundle() throws IOException {
+        List<ObjectModel> expected = ObjectLoader.loadObjectsFromDir(modelsDir, true);
+        assertFalse(bundleFile.exists());
+
+        // first load create the bundle
+        List<ObjectModel> models = ObjectLoader.loadObjectsFromDir(modelsDir, bundleFile, true);
+        assertEquals(sorted(expected).toString(), models.toString());
+        assertTrue(bundleFile.exists());
+        assertEquals(ObjectLoader.computeSourceStamp(modelsDir), ObjectModelBundle.open(bundleFile).getSourceStamp());
+
+        // second load use it
+        long lastModified = bundleFile.lastModified();
+        models = ObjectLoader.loadObjectsFromDir(modelsDir, bundleFile, true);
+        assertEquals(sorted(expected).toString(), models.toString());
+        assertEquals(lastModified, bundleFile.lastModified());
+    }
+
+    @Test
+    public void load_from_dir_detect_stale_bundle() throws IOException {
+        ObjectLoader.loadObjectsFromDir(modelsDir, bundleFile, false);
+        long stamp = ObjectModelBundle.open(bundleFile).getSourceStamp();
+
+        // bundle without validation is not used when validation is required
+        ObjectLoader.loadObjectsFromDir(modelsDir, bundleFile, true);
+        assertTrue(ObjectModelBundle.open(bundleFile).isValidated());
+
+        // modified file
+        File ddfFile = new File(modelsDir, "6.xml");
+        assertTrue(ddfFile.setLastModified(ddfFile.lastModified() - 10000));
+        assertNotEquals(stamp, ObjectLoader.computeSourceStamp(modelsDir));
+        ObjectLoader.loadObjectsFromDir(modelsDir, bundleFile, true);
+        assertEquals(ObjectLoader.computeSourceStamp(modelsDir), ObjectModelBundle.open(bundleFile).getSourceStamp());
+
+        // new file
+        try (InputStream in = ObjectModelBundleTest.class.getResourceAsStream("/models/7.xml")) {
+            Files.copy(in, new File(modelsDir, "7.xml").toPath());
+        }
+        List<ObjectModel> models = ObjectLoader.loadObjectsFromDir(modelsDir, bundleFile, true);
+        assertEquals(4, models.size());
+        assertEquals(4, ObjectModelBundle.open(bundleFile).size());
+    }
+
+    @Test
+    public void load_from_dir_ignore_corrupted_bundle() throws IOException {
+        Files.write(bundleFile.toPath(), new byte[] { 0, 1, 2 });
+
+        List<ObjectModel> models = ObjectLoader.loadObjectsFromDir(modelsDir, bundleFile, false);
+
+        assertEquals(3, models.size());
+        assertEquals(3, ObjectModelBundle.open(bundleFile).size());
+    }
+
+    @Test
+    public void load_bundle_from_dir_and_use_its_model() throws IOException {
+        ObjectModelBundle bundle = ObjectLoader.loadBundleFromDir(modelsDir, bundleFile, true);
+        assertTrue(bundleFile.exists());
+        assertEquals(3, bundle.size());
+
+        LwM2mModel model = bundle.getLwM2mModel();
+        assertEquals("1.2", model.getObjectModel(3).version);
+        assertEquals("Manufacturer", model.getResourceModel(3, 0).name);
+        assertNull(model.getResourceModel(3, 42));
+        assertNull(model.getObjectModel(4));
+        assertNull(model.getResourceModel(4, 0));
+
+        // only most recent version of each object
+        List<String> objects = new ArrayList<>();
+        for (ObjectModel objectModel : model.getObjectModels()) {
+            objects.add(objectModel.id + "/" + objectModel.version);
+        }
+        assertEquals("[3/1.2, 6/1.0]", objects.toString());
+    }
+
+    private List<ObjectModel> sorted(List<ObjectModel> models) {
+        List<ObjectModel> result = new ArrayList<>(models);
+        result.sort(new Comparator<ObjectModel>() {
+            @Override
+            public int compare(ObjectModel m1, ObjectModel m2) {
+                int res = Integer.compare(m1.id, m2.id);
+                return res != 0 ? res : m1.version.compareTo(m2.version);
+            }
+        });
+        return result;
+    }
+}
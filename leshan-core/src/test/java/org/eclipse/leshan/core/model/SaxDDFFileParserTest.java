@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Check that {@link SaxDDFFileParser} and parallel loading produce the same models than {@link DDFFileParser} and
+ * sequential loading.
+ */
+public class SaxDDFFileParserTest {
+
+    private static final String[] PATHS = getPaths();
+
+    private static String[] getPaths() {
+        String[] paths = new String[ObjectLoader.ddfpaths.length + 2];
+        for (int i = 0; i < ObjectLoader.ddfpaths.length; i++) {
+            paths[i] = "/models/" + ObjectLoader.ddfpaths[i];
+        }
+        paths[paths.length - 2] = "/models/3441.xml";
+        paths[paths.length - 1] = "/models/3442.xml";
+        return paths;
+    }
+
+    @Test
+    public void parse_like_dom_parser() throws IOException, InvalidModelException, InvalidDDFFileException {
+        List<ObjectModel> expected = ObjectLoader.loadDdfResources(PATHS, new DDFFileParser(), null);
+        List<ObjectModel> models = ObjectLoader.loadDdfResources(PATHS, new SaxDDFFileParser(), null);
+
+        assertEquals(expected.size(), models.size());
+        assertEquals(expected.toString(), models.toString());
+    }
+
+    @Test
+    public void parse_like_dom_parser_with_validation()
+            throws IOException, InvalidModelException, InvalidDDFFileException {
+        List<ObjectModel> expected = ObjectLoader.loadDdfResources(PATHS, true);
+        List<ObjectModel> models = ObjectLoader.loadDdfResources(PATHS,
+                new SaxDDFFileParser(new DefaultDDFFileValidatorFactory()), new DefaultObjectModelValidator());
+
+        assertEquals(expected.toString(), models.toString());
+    }
+
+    @Test
+    public void parse_text_content_like_dom_parser() throws IOException, InvalidDDFFileException {
+        String ddf = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" //
+                + "<LWM2M><Object ObjectType=\"MODefinition\"><Name>a <![CDATA[<b>]]> &amp; <i>c</i></Name>"
+                + "<ObjectID>42</ObjectID>" //
+                + "<Unknown><Name>x</Name></Unknown><ObjectVersion></ObjectVersion><MultipleInstances>Single"
+                + "</MultipleInstances><Resources><Foo/><Item ID=\"1\"><Name>r</Name><Operations></Operations>"
+                + "<Type>Unknown</Type><Description>d&#233;</Description></Item></Resources></Object>"
+                + "<Object><ObjectID>43</ObjectID></Object></LWM2M>";
+        byte[] content = ddf.getBytes(StandardCharsets.UTF_8);
+
+        List<ObjectModel> expected = new DDFFileParser().parse(new ByteArrayInputStream(content), "test");
+        List<ObjectModel> models = new SaxDDFFileParser().parse(new ByteArrayInputStream(content), "test");
+
+        assertEquals(2, models.size());
+        assertEquals("a <b> & c", models.get(0).name);
+        assertEquals(expected.toString(), models.toString());
+    }
+
+    @Test(expected = InvalidDDFFileException.class)
+    public void parse_invalid_xml() throws IOException, InvalidDDFFileException {
+        byte[] content = "<LWM2M><Object><ObjectID>42</ObjectID></Object>".getBytes(StandardCharsets.UTF_8);
+        new SaxDDFFileParser().parse(new ByteArrayInputStream(content), "test");
+    }
+
+    @Test
+    public void load_resources_in_parallel_like_sequential_loading()
+            throws IOException, InvalidModelException, InvalidDDFFileException {
+        List<ObjectModel> expected = ObjectLoader.loadDdfResources(PATHS, new DDFFileParser(), null);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (DDFFileParser parser : new DDFFileParser[] { new DDFFileParser(), new SaxDDFFileParser() }) {
+                List<ObjectModel> models = ObjectLoader.loadDdfResources(PATHS, parser, null, pool);
+                assertEquals(expected.toString(), models.toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void load_resources_in_parallel_raise_first_error()
+            throws IOException, InvalidModelException, InvalidDDFFileException {
+        String[] paths = new String[] { "/models/3.xml", "/models/unknown.xml", "/models/3441.xml",
+                "/models/other_unknown.xml" };
+        try {
+            ObjectLoader.loadDdfResources(paths, new SaxDDFFileParser(), null, ForkJoinPool.commonPool());
+            fail("FileNotFoundException expected");
+        } catch (FileNotFoundException e) {
+            assertEquals("/models/unknown.xml not found", e.getMessage());
+        }
+    }
+
+    @Test
+    public void load_dir_in_parallel_like_sequential_loading() throws IOException {
+        File modelsDir = Files.createTempDirectory("models").toFile();
+        try {
+            for (String path : PATHS) {
+                try (InputStream in = SaxDDFFileParserTest.class.getResourceAsStream(path)) {
+                    Files.copy(in, new File(modelsDir, new File(path).getName()).toPath());
+                }
+            }
+            // invalid files are ignored
+            Files.write(new File(modelsDir, "invalid.xml").toPath(), "<LWM2M>".getBytes(StandardCharsets.UTF_8));
+
+            List<ObjectModel> expected = ObjectLoader.loadObjectsFromDir(modelsDir, true);
+            List<ObjectModel> models = ObjectLoader.loadObjectsFromDir(modelsDir,
+                    new SaxDDFFileParser(new DefaultDDFFileValidatorFactory()), new DefaultObjectModelValidator(),
+                    ForkJoinPool.commonPool());
+
+            assertEquals(PATHS.length, models.size());
+            assertEquals(expected.toString(), models.toString());
+        } finally {
+            for (File file : modelsDir.listFiles()) {
+                file.delete();
+            }
+            modelsDir.delete();
+        }
+    }
+}
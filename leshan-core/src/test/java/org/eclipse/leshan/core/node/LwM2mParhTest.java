@@ -15,6 +15,10 @@
  *******************************************************************************/
 package org.eclipse.leshan.core.node;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -23,11 +27,11 @@ public class LwM2mParhTest {
 
     @Test
     public void test_compare_path() {
-        assertEquals("/", "/");
-        assertEquals("/1", "/1");
-        assertEquals("/1/2", "/1/2");
-        assertEquals("/1/2/3", "/1/2/3");
-        assertEquals("/1/2/3/4", "/1/2/3/4");
+        assertComparedEqual("/", "/");
+        assertComparedEqual("/1", "/1");
+        assertComparedEqual("/1/2", "/1/2");
+        assertComparedEqual("/1/2/3", "/1/2/3");
+        assertComparedEqual("/1/2/3/4", "/1/2/3/4");
 
         assertFirstSmaller("/", "/1");
         assertFirstSmaller("/", "/1/1");
@@ -64,7 +68,72 @@ public class LwM2mParhTest {
         assertFirstSmaller("/1/1/1/1", "/2/1/1/1");
     }
 
-    private void assertEquals(String path1, String path2) {
+    @Test
+    public void test_parse_path() {
+        LwM2mPath path = new LwM2mPath("/3/0/7/1");
+        assertEquals(Integer.valueOf(3), path.getObjectId());
+        assertEquals(Integer.valueOf(0), path.getObjectInstanceId());
+        assertEquals(Integer.valueOf(7), path.getResourceId());
+        assertEquals(Integer.valueOf(1), path.getResourceInstanceId());
+        assertTrue(path.isResourceInstance());
+
+        assertEquals(new LwM2mPath(65535, 65534, 65535, 65535), new LwM2mPath("65535/65534/65535/65535/"));
+        assertEquals(new LwM2mPath(3303, 0), new LwM2mPath("/3303/0"));
+        assertEquals(LwM2mPath.ROOTPATH, new LwM2mPath("/"));
+        assertEquals(LwM2mPath.ROOTPATH, new LwM2mPath(""));
+        assertNull(new LwM2mPath("/").getObjectId());
+    }
+
+    @Test
+    public void test_invalid_paths() {
+        for (String invalid : new String[] { "/3/0/1/2/3", "/3//1", "/a", "/-1", "/65536", "/3/65535", "/3/0/65536",
+                "/3/0/1/65536", "/99999999999" }) {
+            try {
+                new LwM2mPath(invalid);
+                org.junit.Assert.fail(invalid + " should be invalid");
+            } catch (InvalidLwM2mPathException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void test_to_string_equals_hashcode() {
+        assertEquals("/", LwM2mPath.ROOTPATH.toString());
+        assertEquals("/3/0/7/1", new LwM2mPath(3, 0, 7, 1).toString());
+        assertEquals("/3/undefined/7", new LwM2mIncompletePath(3, 7).toString());
+
+        assertEquals(new LwM2mPath(3, 0), new LwM2mPath("3/0"));
+        assertEquals(new LwM2mPath(3, 0).hashCode(), new LwM2mPath("3/0").hashCode());
+        assertFalse(new LwM2mPath(3, 0).equals(new LwM2mPath(3, 0, 0)));
+        assertFalse(new LwM2mPath(3).equals(new LwM2mIncompletePath(3)));
+    }
+
+    @Test
+    public void test_start_with() {
+        LwM2mPath path = new LwM2mPath(3, 0, 7, 1);
+        assertTrue(path.startWith(LwM2mPath.ROOTPATH));
+        assertTrue(path.startWith(new LwM2mPath(3)));
+        assertTrue(path.startWith(new LwM2mPath(3, 0, 7)));
+        assertTrue(path.startWith(path));
+        assertFalse(path.startWith(new LwM2mPath(3, 1)));
+        assertFalse(path.startWith(new LwM2mPath(3, 0, 7, 0)));
+        assertFalse(new LwM2mPath(3, 0).startWith(path));
+        assertFalse(new LwM2mPath(3, 0, 0).startWith(new LwM2mIncompletePath(3)));
+    }
+
+    @Test
+    public void test_intern() {
+        LwM2mPath interned = LwM2mPath.intern(new LwM2mPath(3, 0));
+        assertSame(interned, LwM2mPath.intern(new LwM2mPath("/3/0")));
+
+        LwM2mPath resource = new LwM2mPath(3, 0, 1);
+        assertSame(resource, LwM2mPath.intern(resource));
+        LwM2mPath incomplete = new LwM2mIncompletePath(3);
+        assertSame(incomplete, LwM2mPath.intern(incomplete));
+    }
+
+    private void assertComparedEqual(String path1, String path2) {
         assertTrue(new LwM2mPath(path1).compareTo(new LwM2mPath(path2)) == 0);
     }
 
@@ -52,6 +52,7 @@ import org.eclipse.leshan.core.node.LwM2mSingleResource;
 import org.eclipse.leshan.core.node.ObjectLink;
 import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
 import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
+import org.eclipse.leshan.core.node.codec.tlv.LwM2mNodeTlvDecoder;
 import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.tlv.Tlv;
 import org.eclipse.leshan.core.tlv.Tlv.TlvType;
@@ -339,6 +340,19 @@ public class LwM2mNodeDecoderTest {
         assertDeviceInstance(oInstance);
     }
 
+    @Test
+    public void tlv_device_object_instance0_only_requested_paths() throws CodecException {
+        LwM2mObjectInstance oInstance = new LwM2mNodeTlvDecoder().decode(ENCODED_DEVICE_WITH_INSTANCE,
+                new LwM2mPath(3, 0), model, LwM2mObjectInstance.class,
+                Arrays.asList(new LwM2mPath(3, 0, 0), new LwM2mPath(3, 0, 6, 1)));
+
+        assertEquals(0, oInstance.getId());
+        assertEquals(2, oInstance.getResources().size());
+        assertEquals("Open Mobile Alliance", oInstance.getResource(0).getValue());
+        assertEquals(1, oInstance.getResource(6).getInstances().size());
+        assertEquals(5L, oInstance.getResource(6).getValue(1));
+    }
+
     @Test
     public void tlv_server_object_multi_instance_with_only_1_instance() throws Exception {
         LwM2mObject oObject = ((LwM2mObject) decoder.decode(ENCODED_SERVER, ContentFormat.TLV, new LwM2mPath(1),
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node.codec.senml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.leshan.core.link.DefaultLinkSerializer;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.link.LinkSerializer;
+import org.eclipse.leshan.core.link.attributes.UnquotedStringAttribute;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mMultipleResource;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.LwM2mResourceInstance;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
+import org.eclipse.leshan.core.node.codec.LwM2mValueChecker;
+import org.eclipse.leshan.core.node.codec.LwM2mValueConverter;
+import org.eclipse.leshan.core.util.TestObjectLoader;
+import org.eclipse.leshan.core.util.datatype.ULong;
+import org.eclipse.leshan.senml.SenMLPack;
+import org.eclipse.leshan.senml.cbor.streaming.SenMLCborStreamingEncoderDecoder;
+import org.eclipse.leshan.senml.cbor.upokecenter.SenMLCborUpokecenterEncoderDecoder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Check that {@link LwM2mNodeSenMLCborEncoder} and {@link SenMLCborStreamingEncoderDecoder} are interoperable with the
+ * SenML-CBOR codec based on CBOR-Java.
+ */
+public class LwM2mNodeSenMLCborEncoderTest {
+
+    private static LwM2mModel model;
+    private static LwM2mValueConverter converter = new LwM2mValueChecker();
+
+    private final LwM2mNodeSenMLCborEncoder streamingEncoder = new LwM2mNodeSenMLCborEncoder();
+    private final LwM2mNodeSenMLDecoder streamingDecoder = new LwM2mNodeSenMLDecoder(
+            new SenMLCborStreamingEncoderDecoder(), false);
+
+    private final LwM2mNodeSenMLEncoder referenceEncoder = new LwM2mNodeSenMLEncoder(
+            new SenMLCborUpokecenterEncoderDecoder());
+    private final LwM2mNodeSenMLDecoder referenceDecoder = new LwM2mNodeSenMLDecoder(
+            new SenMLCborUpokecenterEncoderDecoder(), false);
+
+    @BeforeClass
+    public static void loadModel() {
+        model = new StaticModel(TestObjectLoader.loadAllDefault());
+    }
+
+    @Test
+    public void encode_decode_object_instance_with_all_types() {
+        assertInteroperable(new LwM2mPath(3442, 0), givenInstanceWithAllTypes(0), LwM2mObjectInstance.class);
+    }
+
+    @Test
+    public void encode_decode_object() {
+        assertInteroperable(new LwM2mPath(3442),
+                new LwM2mObject(3442, givenInstanceWithAllTypes(0), givenInstanceWithAllTypes(1)), LwM2mObject.class);
+    }
+
+    @Test
+    public void encode_decode_single_resource() {
+        assertInteroperable(new LwM2mPath(3442, 0, 110), LwM2mSingleResource.newStringResource(110, "héllo"),
+                LwM2mResource.class);
+    }
+
+    @Test
+    public void encode_decode_multiple_resource() {
+        Map<Integer, Long> values = new HashMap<>();
+        values.put(0, -1L);
+        values.put(5, Long.MIN_VALUE);
+        assertInteroperable(new LwM2mPath(3442, 0, 1120), LwM2mMultipleResource.newIntegerResource(1120, values),
+                LwM2mResource.class);
+    }
+
+    @Test
+    public void encode_decode_resource_instance() {
+        assertInteroperable(new LwM2mPath(3442, 0, 1130, 3), LwM2mResourceInstance.newFloatInstance(3, 0.1d),
+                LwM2mResourceInstance.class);
+    }
+
+    @Test
+    public void encode_decode_core_link_resource() {
+        LwM2mPath path = new LwM2mPath(3442, 0, 180);
+        Link[] links = new Link[] { new Link("/3", new UnquotedStringAttribute("ver", "1.1")), new Link("/1/0") };
+        LwM2mResource resource = LwM2mSingleResource.newCoreLinkResource(180, links);
+
+        LwM2mResource decoded = referenceDecoder.decode(streamingEncoder.encode(resource, path, model, converter), path,
+                model, LwM2mResource.class);
+        LinkSerializer serializer = new DefaultLinkSerializer();
+        assertEquals(serializer.serializeCoreLinkFormat(links),
+                serializer.serializeCoreLinkFormat((Link[]) decoded.getValue()));
+    }
+
+    @Test
+    public void encode_decode_nodes() {
+        Map<LwM2mPath, LwM2mNode> nodes = new LinkedHashMap<>();
+        nodes.put(new LwM2mPath(3442, 0, 110), LwM2mSingleResource.newStringResource(110, "string"));
+        nodes.put(new LwM2mPath(3442, 0, 120), LwM2mSingleResource.newIntegerResource(120, 64));
+        nodes.put(new LwM2mPath(3, 0), new LwM2mObjectInstance(0, LwM2mSingleResource.newStringResource(0, "Leshan")));
+        nodes.put(new LwM2mPath(3442, 0, 125), LwM2mSingleResource.newUnsignedIntegerResource(125, ULong.MAX));
+        List<LwM2mPath> paths = new ArrayList<>(nodes.keySet());
+
+        assertEquals(nodes,
+                referenceDecoder.decodeNodes(streamingEncoder.encodeNodes(nodes, model, converter), paths, model));
+        assertEquals(nodes,
+                streamingDecoder.decodeNodes(referenceEncoder.encodeNodes(nodes, model, converter), paths, model));
+    }
+
+    @Test
+    public void encode_decode_timestamped_nodes() {
+        Instant t1 = Instant.ofEpochSecond(1_600_000_000);
+        Instant t2 = Instant.ofEpochSecond(1_600_000_001, 250_000_000);
+        Instant t3 = Instant.ofEpochSecond(1_600_000_002, 123_456_789);
+        TimestampedLwM2mNodes nodes = TimestampedLwM2mNodes.builder() //
+                .put(t1, new LwM2mPath(3442, 0, 110), LwM2mSingleResource.newStringResource(110, "a")) //
+                .put(t1, new LwM2mPath(3442, 0, 120), LwM2mSingleResource.newIntegerResource(120, 1)) //
+                .put(t2, new LwM2mPath(3442, 0, 110), LwM2mSingleResource.newStringResource(110, "b")) //
+                .put(t3, new LwM2mPath(3442, 0, 140), LwM2mSingleResource.newBooleanResource(140, true)) //
+                .build();
+
+        assertEquals(nodes, referenceDecoder
+                .decodeTimestampedNodes(streamingEncoder.encodeTimestampedNodes(nodes, model, converter), model));
+        assertEquals(nodes, streamingDecoder
+                .decodeTimestampedNodes(referenceEncoder.encodeTimestampedNodes(nodes, model, converter), model));
+    }
+
+    @Test
+    public void encode_decode_timestamped_data() {
+        LwM2mPath path = new LwM2mPath(3442, 0);
+        List<TimestampedLwM2mNode> data = Arrays.asList(
+                // decoders return newest timestamp first
+                new TimestampedLwM2mNode(Instant.ofEpochSecond(1_600_000_010), givenInstanceWithAllTypes(0)),
+                new TimestampedLwM2mNode(Instant.ofEpochSecond(1_600_000_000, 1), givenInstanceWithAllTypes(0)));
+
+        assertEquals(data,
+                referenceDecoder.decodeTimestampedData(
+                        streamingEncoder.encodeTimestampedData(data, path, model, converter), path, model,
+                        LwM2mObjectInstance.class));
+        assertEquals(data,
+                streamingDecoder.decodeTimestampedData(
+                        referenceEncoder.encodeTimestampedData(data, path, model, converter), path, model,
+                        LwM2mObjectInstance.class));
+    }
+
+    @Test
+    public void base_name_is_written_only_when_it_changes() throws Exception {
+        Map<LwM2mPath, LwM2mNode> nodes = new LinkedHashMap<>();
+        nodes.put(new LwM2mPath(3, 0, 0), LwM2mSingleResource.newStringResource(0, "Leshan"));
+        nodes.put(new LwM2mPath(3, 0, 9), LwM2mSingleResource.newIntegerResource(9, 95));
+        nodes.put(new LwM2mPath(1, 0, 1), LwM2mSingleResource.newIntegerResource(1, 86400));
+
+        SenMLPack pack = new SenMLCborStreamingEncoderDecoder()
+                .fromSenML(streamingEncoder.encodeNodes(nodes, model, converter));
+
+        assertEquals("/3/0/", pack.getRecords().get(0).getBaseName());
+        assertEquals("0", pack.getRecords().get(0).getName());
+        assertNull(pack.getRecords().get(1).getBaseName());
+        assertEquals("9", pack.getRecords().get(1).getName());
+        assertEquals("/1/0/", pack.getRecords().get(2).getBaseName());
+        assertEquals("1", pack.getRecords().get(2).getName());
+    }
+
+    private <T extends LwM2mNode> void assertInteroperable(LwM2mPath path, T node, Class<T> nodeClass) {
+        assertEquals(node,
+                referenceDecoder.decode(streamingEncoder.encode(node, path, model, converter), path, model, nodeClass));
+        assertEquals(node,
+                streamingDecoder.decode(referenceEncoder.encode(node, path, model, converter), path, model, nodeClass));
+        assertEquals(node,
+                streamingDecoder.decode(streamingEncoder.encode(node, path, model, converter), path, model, nodeClass));
+    }
+
+    private LwM2mObjectInstance givenInstanceWithAllTypes(int id) {
+        Map<Integer, Double> floats = new HashMap<>();
+        floats.put(0, 1.5d);
+        floats.put(1, 1.1d);
+        floats.put(2, -Double.MAX_VALUE);
+        Map<Integer, ULong> unsigned = new HashMap<>();
+        unsigned.put(0, ULong.valueOf(0));
+        unsigned.put(1, ULong.MAX);
+        return new LwM2mObjectInstance(id, //
+                LwM2mSingleResource.newStringResource(110, "string €"), //
+                LwM2mSingleResource.newIntegerResource(120, Long.MAX_VALUE), //
+                LwM2mSingleResource.newUnsignedIntegerResource(125, ULong.valueOf("9223372036854775808")), //
+                LwM2mSingleResource.newFloatResource(130, 3.14d), //
+                LwM2mSingleResource.newBooleanResource(140, false), //
+                LwM2mSingleResource.newBinaryResource(150, new byte[] { 1, 2, 3 }), //
+                LwM2mSingleResource.newDateResource(160, new Date(1_600_000_000_000L)), //
+                LwM2mSingleResource.newObjectLinkResource(170, new ObjectLink(3, 0)), //
+                LwM2mMultipleResource.newFloatResource(1130, floats), //
+                LwM2mMultipleResource.newUnsignedIntegerResource(1125, unsigned));
+    }
+}
@@ -25,6 +25,7 @@ import org.eclipse.leshan.senml.SenMLEncoder;
 import org.eclipse.leshan.senml.SenMLException;
 import org.eclipse.leshan.senml.SenMLPack;
 import org.eclipse.leshan.senml.SenMLRecord;
+import org.eclipse.leshan.senml.cbor.streaming.SenMLCborStreamingEncoderDecoder;
 import org.eclipse.leshan.senml.cbor.upokecenter.SenMLCborUpokecenterEncoderDecoder;
 import org.junit.Assert;
 import org.junit.Test;
@@ -37,8 +38,12 @@ public class SenMLCborSerializerTest extends AbstractSenMLTest {
     @Parameterized.Parameters(name = "{2}")
     public static Collection<?> senMLJsonencoderDecoder() {
         SenMLCborUpokecenterEncoderDecoder cborJava = new SenMLCborUpokecenterEncoderDecoder(true, false);
+        SenMLCborStreamingEncoderDecoder streaming = new SenMLCborStreamingEncoderDecoder();
         return Arrays.asList(new Object[][] { //
                 { cborJava, cborJava, "cbor-java" }, //
+                { streaming, streaming, "streaming" }, //
+                { cborJava, streaming, "cbor-java to streaming" }, //
+                { streaming, cborJava, "streaming to cbor-java" }, //
         });
     }
 
@@ -16,15 +16,20 @@ package org.eclipse.leshan.core.senml.cbor;
 
 import static org.junit.Assert.assertEquals;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collection;
 
 import org.eclipse.leshan.core.util.Hex;
+import org.eclipse.leshan.core.util.datatype.ULong;
 import org.eclipse.leshan.senml.SenMLDecoder;
 import org.eclipse.leshan.senml.SenMLEncoder;
 import org.eclipse.leshan.senml.SenMLException;
 import org.eclipse.leshan.senml.SenMLPack;
+import org.eclipse.leshan.senml.SenMLRecord;
 import org.eclipse.leshan.senml.json.jackson.SenMLJsonJacksonEncoderDecoder;
+import org.eclipse.leshan.senml.json.jackson.SenMLJsonStreamingEncoderDecoder;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
@@ -35,8 +40,12 @@ public class SenMLJsonSerDesTest extends AbstractSenMLTest {
     @Parameterized.Parameters(name = "{2}")
     public static Collection<?> senMLJsonencoderDecoder() {
         SenMLJsonJacksonEncoderDecoder jackson = new SenMLJsonJacksonEncoderDecoder();
+        SenMLJsonStreamingEncoderDecoder streaming = new SenMLJsonStreamingEncoderDecoder();
         return Arrays.asList(new Object[][] { //
-                { jackson, jackson, "jackson" } });
+                { jackson, jackson, "jackson" }, //
+                { streaming, streaming, "streaming" }, //
+                { jackson, streaming, "jackson->streaming" }, //
+                { streaming, jackson, "streaming->jackson" } });
     }
 
     private SenMLEncoder encoder;
@@ -87,4 +96,39 @@ public class SenMLJsonSerDesTest extends AbstractSenMLTest {
         assertEquals(expected, new String(json));
     }
 
+    @Test
+    public void serialize_then_deserialize_numbers() throws SenMLException {
+        SenMLPack pack = new SenMLPack();
+        Number[] values = new Number[] { (byte) 1, (short) -2, 3, Long.MIN_VALUE,
+                new BigInteger("18446744073709551616"), ULong.MAX, 1.5f, 0.1d, -Double.MAX_VALUE,
+                new BigDecimal("1.10") };
+        for (int i = 0; i < values.length; i++) {
+            SenMLRecord record = new SenMLRecord();
+            record.setName(Integer.toString(i));
+            record.setTime(new BigDecimal("1600000000.123456789"));
+            record.setNumberValue(values[i]);
+            pack.addRecord(record);
+        }
+        pack.getRecords().get(0).setBaseTime(BigDecimal.valueOf(25));
+
+        byte[] json = encoder.toSenML(pack);
+        assertEquals("[{\"bt\":25,\"n\":\"0\",\"t\":1600000000.123456789,\"v\":1}," //
+                + "{\"n\":\"1\",\"t\":1600000000.123456789,\"v\":-2}," //
+                + "{\"n\":\"2\",\"t\":1600000000.123456789,\"v\":3}," //
+                + "{\"n\":\"3\",\"t\":1600000000.123456789,\"v\":-9223372036854775808}," //
+                + "{\"n\":\"4\",\"t\":1600000000.123456789,\"v\":18446744073709551616}," //
+                + "{\"n\":\"5\",\"t\":1600000000.123456789,\"v\":18446744073709551615}," //
+                + "{\"n\":\"6\",\"t\":1600000000.123456789,\"v\":1.5}," //
+                + "{\"n\":\"7\",\"t\":1600000000.123456789,\"v\":0.1}," //
+                + "{\"n\":\"8\",\"t\":1600000000.123456789,\"v\":-1.7976931348623157E308}," //
+                + "{\"n\":\"9\",\"t\":1600000000.123456789,\"v\":1.10}]", new String(json));
+
+        SenMLPack decoded = decoder.fromSenML(json);
+        assertEquals(BigDecimal.valueOf(25), decoded.getRecords().get(0).getBaseTime());
+        // decimal numbers are read as double
+        assertEquals(new BigDecimal(Double.toString(1600000000.123456789d)), decoded.getRecords().get(3).getTime());
+        assertEquals(Long.MIN_VALUE, decoded.getRecords().get(3).getNumberValue());
+        assertEquals(new BigInteger("18446744073709551615"), decoded.getRecords().get(5).getNumberValue());
+        assertEquals(0.1d, decoded.getRecords().get(7).getNumberValue());
+    }
 }
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.tlv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.tlv.Tlv.TlvType;
+import org.eclipse.leshan.core.util.Hex;
+import org.junit.Test;
+
+public class TlvReaderTest {
+
+    @Test
+    public void read_values_like_tlv_decoder() throws TlvException {
+        long now = System.currentTimeMillis();
+        ByteBuffer encoded = TlvEncoder.encode(new Tlv[] { //
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeInteger(-1245823), 0),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeFloat(2.5d), 1),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeFloat(1.5f), 2),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeBoolean(true), 3),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeDate(new Date(now)), 4),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeObjlnk(new ObjectLink(42800, 2)), 5),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeString("Leshan"), 300) });
+
+        TlvReader reader = new TlvReader(encoded);
+        assertEquals(7, reader.count());
+
+        assertTrue(reader.next());
+        assertEquals(-1245823L, reader.decodeInteger());
+        assertTrue(reader.next());
+        assertEquals(2.5d, reader.decodeFloat(), 0);
+        assertTrue(reader.next());
+        assertEquals(1.5d, reader.decodeFloat(), 0);
+        assertTrue(reader.next());
+        assertTrue(reader.decodeBoolean());
+        assertTrue(reader.next());
+        assertEquals(TlvDecoder.decodeDate(TlvEncoder.encodeDate(new Date(now))), reader.decodeDate());
+        assertTrue(reader.next());
+        assertEquals(new ObjectLink(42800, 2), reader.decodeObjlnk());
+        assertTrue(reader.next());
+        assertEquals(TlvType.RESOURCE_VALUE, reader.getType());
+        assertEquals(300, reader.getIdentifier());
+        assertEquals("Leshan", reader.decodeString());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void read_nested_tlvs_without_copy() throws TlvException {
+        byte[] content = Hex.decodeHex("08000B8606410001410105C10964".toCharArray());
+
+        TlvReader reader = new TlvReader(content);
+        assertTrue(reader.next());
+        assertEquals(TlvType.OBJECT_INSTANCE, reader.getType());
+        assertEquals(0, reader.getIdentifier());
+
+        TlvReader resources = reader.getChildren();
+        assertTrue(resources.next());
+        assertEquals(TlvType.MULTIPLE_RESOURCE, resources.getType());
+        assertEquals(6, resources.getIdentifier());
+        assertEquals(2, resources.getChildren().count());
+
+        assertTrue(resources.next());
+        assertEquals(9, resources.getIdentifier());
+        assertEquals(100L, resources.decodeInteger());
+        assertArrayEquals(new byte[] { 100 }, resources.getValue());
+        assertTrue(content == resources.getContent());
+        assertFalse(resources.next());
+        assertFalse(reader.next());
+    }
+
+    @Test(expected = TlvException.class)
+    public void read_truncated_value() throws TlvException {
+        // resource 0 with a value of 3 bytes but only 2 available
+        TlvReader reader = new TlvReader(new byte[] { (byte) 0b11_000011, 0, 1, 2 });
+        reader.next();
+    }
+
+    @Test(expected = TlvException.class)
+    public void read_integer_with_invalid_length() throws TlvException {
+        TlvReader reader = new TlvReader(new byte[] { (byte) 0b11_000000, 0 });
+        reader.next();
+        reader.decodeInteger();
+    }
+}
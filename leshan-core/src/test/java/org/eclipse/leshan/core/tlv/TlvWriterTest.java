@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.tlv;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.tlv.Tlv.TlvType;
+import org.junit.Test;
+
+public class TlvWriterTest {
+
+    @Test
+    public void write_values_like_tlv_encoder() {
+        long now = System.currentTimeMillis();
+        Tlv[] expected = new Tlv[] { //
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeInteger(-12), 0),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeInteger(1234), 1),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeInteger(1245823), 2),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeInteger(now), 300),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeFloat(1.5f), 4),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeFloat(2.5d), 5),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeBoolean(true), 6),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeDate(new Date(now)), 7),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeObjlnk(new ObjectLink(42800, 2)), 8),
+                new Tlv(TlvType.RESOURCE_VALUE, null, new byte[] { 1, 2, 3 }, 9) };
+
+        TlvWriter writer = new TlvWriter(1);
+        writer.writeInteger(TlvType.RESOURCE_VALUE, 0, -12);
+        writer.writeInteger(TlvType.RESOURCE_VALUE, 1, 1234);
+        writer.writeInteger(TlvType.RESOURCE_VALUE, 2, 1245823);
+        writer.writeInteger(TlvType.RESOURCE_VALUE, 300, now);
+        writer.writeFloat(TlvType.RESOURCE_VALUE, 4, 1.5f);
+        writer.writeFloat(TlvType.RESOURCE_VALUE, 5, 2.5d);
+        writer.writeBoolean(TlvType.RESOURCE_VALUE, 6, true);
+        writer.writeDate(TlvType.RESOURCE_VALUE, 7, new Date(now));
+        writer.writeObjlnk(TlvType.RESOURCE_VALUE, 8, new ObjectLink(42800, 2));
+        writer.writeOpaque(TlvType.RESOURCE_VALUE, 9, new byte[] { 1, 2, 3 });
+
+        assertArrayEquals(toArray(TlvEncoder.encode(expected)), writer.toByteArray());
+    }
+
+    @Test
+    public void write_strings_of_all_length_sizes_like_tlv_encoder() {
+        for (int length : new int[] { 0, 7, 8, 255, 256, 65535, 65536 }) {
+            String value = repeat('a', length);
+            Tlv[] expected = new Tlv[] { new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeString(value), 1) };
+
+            TlvWriter writer = new TlvWriter();
+            writer.writeString(TlvType.RESOURCE_VALUE, 1, value);
+
+            assertArrayEquals("length " + length, toArray(TlvEncoder.encode(expected)), writer.toByteArray());
+        }
+    }
+
+    @Test
+    public void write_non_ascii_string_like_string_getbytes() {
+        String value = "h\u00e9llo \u20ac \ud83d\ude00 \ud83d";
+
+        TlvWriter writer = new TlvWriter();
+        writer.writeString(TlvType.RESOURCE_VALUE, 1, value);
+
+        byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = writer.toByteArray();
+        assertArrayEquals(expected, Arrays.copyOfRange(encoded, 3, encoded.length));
+    }
+
+    @Test
+    public void write_nested_tlvs_like_tlv_encoder() {
+        String longValue = repeat('b', 300);
+        Tlv[] instances = new Tlv[] { new Tlv(TlvType.RESOURCE_INSTANCE, null, TlvEncoder.encodeInteger(1), 0),
+                new Tlv(TlvType.RESOURCE_INSTANCE, null, TlvEncoder.encodeString(longValue), 1) };
+        Tlv[] resources = new Tlv[] { new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeString("Leshan"), 0),
+                new Tlv(TlvType.MULTIPLE_RESOURCE, instances, null, 7) };
+        Tlv[] expected = new Tlv[] { new Tlv(TlvType.OBJECT_INSTANCE, resources, null, 0),
+                new Tlv(TlvType.OBJECT_INSTANCE, new Tlv[0], null, 1000) };
+
+        TlvWriter writer = new TlvWriter(4);
+        int instance = writer.start(TlvType.OBJECT_INSTANCE, 0);
+        writer.writeString(TlvType.RESOURCE_VALUE, 0, "Leshan");
+        int multiple = writer.start(TlvType.MULTIPLE_RESOURCE, 7);
+        writer.writeInteger(TlvType.RESOURCE_INSTANCE, 0, 1);
+        writer.writeString(TlvType.RESOURCE_INSTANCE, 1, longValue);
+        writer.end(multiple);
+        writer.end(instance);
+        writer.end(writer.start(TlvType.OBJECT_INSTANCE, 1000));
+
+        assertArrayEquals(toArray(TlvEncoder.encode(expected)), writer.toByteArray());
+    }
+
+    private static String repeat(char c, int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util.cbor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.eclipse.leshan.core.util.Hex;
+import org.eclipse.leshan.core.util.datatype.ULong;
+import org.junit.Test;
+
+public class CborReaderTest {
+
+    @Test
+    public void read_numbers() throws CborException {
+        assertEquals(0L, read("00"));
+        assertEquals(-1L, read("20"));
+        assertEquals(Long.MAX_VALUE, read("1b7fffffffffffffff"));
+        assertEquals(Long.MIN_VALUE, read("3b7fffffffffffffff"));
+        assertEquals(ULong.MAX, read("1bffffffffffffffff"));
+        assertEquals(new BigInteger("-18446744073709551616"), read("3bffffffffffffffff"));
+        assertEquals(new BigInteger("18446744073709551616"), read("c249010000000000000000"));
+        assertEquals(ULong.MAX, read("c248ffffffffffffffff"));
+        assertEquals(1.5d, read("f93e00"));
+        assertEquals(1.5d, read("fa3fc00000"));
+        assertEquals(1.1d, read("fb3ff199999999999a"));
+        assertEquals(Double.POSITIVE_INFINITY, read("f97c00"));
+        // 273.15 as decimal fraction [-2, 27315]
+        assertEquals(new BigDecimal("273.15"), read("c48221196ab3"));
+        // 1.5 as bigfloat [-1, 3]
+        assertEquals(0, new BigDecimal("1.5").compareTo((BigDecimal) read("c5822003")));
+    }
+
+    @Test
+    public void read_indefinite_length_items() throws CborException {
+        // [_ "ab" (_ "c" "d"), h'01', {_ 1: true}]
+        CborReader reader = new CborReader(
+                Hex.decodeHex("9f626162 7f61636164ff 4101 bf01f5ff ff".replace(" ", "").toCharArray()));
+        assertEquals(CborReader.INDEFINITE, reader.readArrayHeader());
+        assertEquals("ab", reader.readTextString());
+        assertEquals("cd", reader.readTextString());
+        assertArrayEquals(new byte[] { 1 }, reader.readByteString());
+        assertEquals(CborReader.INDEFINITE, reader.readMapHeader());
+        assertEquals(1L, reader.readLong());
+        assertTrue(reader.readBoolean());
+        reader.readBreak();
+        assertTrue(reader.isBreak());
+        reader.readBreak();
+        assertFalse(reader.hasRemaining());
+    }
+
+    @Test
+    public void skip_nested_items() throws CborException {
+        // [{1: [1, 2, {_ "a": h'00'}], 2: 4(-1, 15)}, 7]
+        CborReader reader = new CborReader(
+                Hex.decodeHex("82a20183010 2bf61614100ff02c482200f07".replace(" ", "").toCharArray()));
+        assertEquals(2, reader.readArrayHeader());
+        reader.skip();
+        assertEquals(7L, reader.readLong());
+        assertFalse(reader.hasRemaining());
+    }
+
+    @Test(expected = CborException.class)
+    public void read_truncated_content() throws CborException {
+        new CborReader(Hex.decodeHex("6a4c657368".toCharArray())).readTextString();
+    }
+
+    @Test(expected = CborException.class)
+    public void read_unexpected_type() throws CborException {
+        new CborReader(Hex.decodeHex("f5".toCharArray())).readNumber();
+    }
+
+    private static Number read(String hex) throws CborException {
+        CborReader reader = new CborReader(Hex.decodeHex(hex.toCharArray()));
+        assertTrue(reader.isNumber());
+        Number number = reader.readNumber();
+        assertFalse(reader.hasRemaining());
+        return number;
+    }
+}
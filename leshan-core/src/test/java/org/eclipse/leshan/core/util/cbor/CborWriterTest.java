@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util.cbor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.eclipse.leshan.core.util.Hex;
+import org.junit.Test;
+
+import com.upokecenter.cbor.CBORObject;
+import com.upokecenter.numbers.EDecimal;
+
+public class CborWriterTest {
+
+    @Test
+    public void write_integers_like_cbor_java() {
+        long[] values = new long[] { 0, 23, 24, 255, 256, 65535, 65536, 4294967295L, 4294967296L, Long.MAX_VALUE, -1,
+                -24, -25, -256, -257, Long.MIN_VALUE };
+        for (long value : values) {
+            CborWriter writer = new CborWriter(1);
+            writer.writeInteger(value);
+            assertArrayEquals("value " + value, CBORObject.FromObject(value).EncodeToBytes(), writer.toByteArray());
+        }
+    }
+
+    @Test
+    public void write_big_integers() {
+        BigInteger[] values = new BigInteger[] { BigInteger.ONE, new BigInteger("18446744073709551615"),
+                new BigInteger("18446744073709551616"), new BigInteger("-18446744073709551616"),
+                new BigInteger("-18446744073709551617") };
+        for (BigInteger value : values) {
+            CborWriter writer = new CborWriter();
+            writer.writeInteger(value);
+            assertEquals("value " + value, value,
+                    CBORObject.DecodeFromBytes(writer.toByteArray()).ToObject(BigInteger.class));
+        }
+    }
+
+    @Test
+    public void write_double_on_4_bytes_only_without_loss() {
+        CborWriter writer = new CborWriter();
+        writer.writeDouble(1.5d);
+        assertEquals("fa3fc00000", Hex.encodeHexString(writer.toByteArray()));
+
+        writer.reset();
+        writer.writeDouble(1.1d);
+        assertEquals("fb3ff199999999999a", Hex.encodeHexString(writer.toByteArray()));
+    }
+
+    @Test
+    public void write_decimal_fraction() {
+        CborWriter writer = new CborWriter();
+        writer.writeDecimal(new BigDecimal("1600000000.123456789"));
+
+        EDecimal decoded = CBORObject.DecodeFromBytes(writer.toByteArray()).AsEDecimal();
+        assertEquals(0, new BigDecimal("1600000000.123456789").compareTo(new BigDecimal(decoded.toString())));
+    }
+
+    @Test
+    public void write_text_string_like_cbor_java() {
+        for (String value : new String[] { "", "Leshan", "héllo € 😀", new String(new char[300]).replace('\0', 'a') }) {
+            CborWriter writer = new CborWriter(1);
+            writer.writeTextString(value);
+            assertArrayEquals(CBORObject.FromObject(value).EncodeToBytes(), writer.toByteArray());
+        }
+    }
+
+    @Test
+    public void write_array_which_size_is_unknown() {
+        CborWriter writer = new CborWriter(1);
+        writer.writeBoolean(true);
+        int mark = writer.startArray();
+        for (int i = 0; i < 30; i++) {
+            writer.writeInteger(i);
+        }
+        writer.endArray(mark, 30);
+
+        CBORObject expected = CBORObject.NewArray();
+        for (int i = 0; i < 30; i++) {
+            expected.Add(i);
+        }
+        byte[] encoded = writer.toByteArray();
+        assertEquals("f5", Hex.encodeHexString(encoded).substring(0, 2));
+        assertEquals(Hex.encodeHexString(expected.EncodeToBytes()), Hex.encodeHexString(encoded).substring(2));
+    }
+}
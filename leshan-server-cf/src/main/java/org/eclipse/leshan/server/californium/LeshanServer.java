@@ -18,11 +18,8 @@
 package org.eclipse.leshan.server.californium;
 
 import java.net.InetSocketAddress;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.eclipse.californium.core.CoapResource;
 import org.eclipse.californium.core.CoapServer;
@@ -38,16 +35,11 @@ import org.eclipse.leshan.core.Startable;
 import org.eclipse.leshan.core.Stoppable;
 import org.eclipse.leshan.core.californium.CoapResponseCallback;
 import org.eclipse.leshan.core.link.lwm2m.LwM2mLinkParser;
-import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
 import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
-import org.eclipse.leshan.core.observation.CompositeObservation;
 import org.eclipse.leshan.core.observation.Observation;
-import org.eclipse.leshan.core.observation.SingleObservation;
 import org.eclipse.leshan.core.request.DownlinkRequest;
-import org.eclipse.leshan.core.request.ObserveCompositeRequest;
-import org.eclipse.leshan.core.request.ObserveRequest;
 import org.eclipse.leshan.core.request.SendRequest;
 import org.eclipse.leshan.core.request.exception.ClientSleepingException;
 import org.eclipse.leshan.core.request.exception.InvalidResponseException;
@@ -66,7 +58,11 @@ import org.eclipse.leshan.server.californium.request.CaliforniumLwM2mRequestSend
 import org.eclipse.leshan.server.californium.request.CaliforniumQueueModeRequestSender;
 import org.eclipse.leshan.server.californium.request.CoapRequestSender;
 import org.eclipse.leshan.server.californium.send.SendResource;
+import org.eclipse.leshan.server.fleet.FleetOperationManager;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
+import org.eclipse.leshan.server.observation.InMemoryObservationRestoreStore;
+import org.eclipse.leshan.server.observation.ObservationRestoreStore;
+import org.eclipse.leshan.server.observation.ObservationRestorer;
 import org.eclipse.leshan.server.observation.ObservationService;
 import org.eclipse.leshan.server.queue.ClientAwakeTimeProvider;
 import org.eclipse.leshan.server.queue.PresenceListener;
@@ -135,7 +131,8 @@ public class LeshanServer {
 
     protected final LwM2mLinkParser linkParser;
 
-    private Map<String, List<LwM2mPath>> observationMemory = new HashMap<>();
+    private final ObservationRestorer observationRestorer;
+    private final FleetOperationManager fleetOperationManager;
 
     /**
      * Initialize a server which will bind to the specified address and port.
@@ -193,6 +190,39 @@ public class LeshanServer {
             boolean noQueueMode, ClientAwakeTimeProvider awakeTimeProvider,
             RegistrationIdProvider registrationIdProvider, boolean updateRegistrationOnNotification,
             LwM2mLinkParser linkParser) {
+        this(unsecuredEndpoint, securedEndpoint, registrationStore, securityStore, authorizer, modelProvider, encoder,
+                decoder, coapConfig, noQueueMode, awakeTimeProvider, registrationIdProvider,
+                updateRegistrationOnNotification, linkParser, new InMemoryObservationRestoreStore());
+    }
+
+    /**
+     * Initialize a server which will bind to the specified address and port.
+     * <p>
+     * {@link LeshanServerBuilder} is the priviledged way to create a {@link LeshanServer}.
+     *
+     * @param unsecuredEndpoint CoAP endpoint used for <code>coap://</code> communication.
+     * @param securedEndpoint CoAP endpoint used for <code>coaps://</code> communication.
+     * @param registrationStore the {@link Registration} store.
+     * @param securityStore the {@link SecurityInfo} store.
+     * @param authorizer define which devices is allow to register on this server.
+     * @param modelProvider provides the objects description for each client.
+     * @param encoder encode used to encode request payload.
+     * @param decoder decoder used to decode response payload.
+     * @param coapConfig the CoAP {@link Configuration}.
+     * @param noQueueMode true to disable presenceService.
+     * @param awakeTimeProvider to set the client awake time if queue mode is used.
+     * @param registrationIdProvider to provide registrationId using for location-path option values on response of
+     *        Register operation.
+     * @param updateRegistrationOnNotification will activate registration update on observe notification.
+     * @param linkParser a parser {@link LwM2mLinkParser} used to parse a CoRE Link.
+     * @param observationRestoreStore the store of observations to restore when a client registers again.
+     */
+    public LeshanServer(CoapEndpoint unsecuredEndpoint, CoapEndpoint securedEndpoint,
+            CaliforniumRegistrationStore registrationStore, SecurityStore securityStore, Authorizer authorizer,
+            LwM2mModelProvider modelProvider, LwM2mEncoder encoder, LwM2mDecoder decoder, Configuration coapConfig,
+            boolean noQueueMode, ClientAwakeTimeProvider awakeTimeProvider,
+            RegistrationIdProvider registrationIdProvider, boolean updateRegistrationOnNotification,
+            LwM2mLinkParser linkParser, ObservationRestoreStore observationRestoreStore) {
         this.linkParser = linkParser;
 
         Validate.notNull(registrationStore, "registration store cannot be null");
@@ -202,6 +232,7 @@ public class LeshanServer {
         Validate.notNull(decoder, "decoder cannot be null");
         Validate.notNull(coapConfig, "coapConfig cannot be null");
         Validate.notNull(registrationIdProvider, "registrationIdProvider cannot be null");
+        Validate.notNull(observationRestoreStore, "observationRestoreStore cannot be null");
 
         // Create CoAP server
         coapServer = createCoapServer(coapConfig);
@@ -243,6 +274,12 @@ public class LeshanServer {
         requestSender = createRequestSender(securedEndpoint, unsecuredEndpoint, registrationService, observationService,
                 this.modelProvider, encoder, decoder, presenceService);
 
+        // restore observations of clients which register again
+        observationRestorer = createObservationRestorer(requestSender, registrationService, observationRestoreStore);
+
+        // send requests to a fleet of clients
+        fleetOperationManager = createFleetOperationManager(requestSender, registrationService);
+
         // connection cleaner
         createConnectionCleaner(securityStore, securedEndpoint);
 
@@ -337,53 +374,30 @@ public class LeshanServer {
             public void unregistered(Registration registration, Collection<Observation> observations, boolean expired,
                     Registration newReg) {
                 requestSender.cancelOngoingRequests(registration);
-                if (observations != null) {
-                    if (!observations.isEmpty()) {
-                        List<LwM2mPath> paths = new ArrayList<>();
-                        for (Observation obs : observations) {
-                            if (obs instanceof SingleObservation) {
-                                paths.add(((SingleObservation) obs).getPath());
-                            } else if (obs instanceof CompositeObservation) {
-                                paths.addAll(((CompositeObservation) obs).getPaths());
-                            }
-                        }
-                        LOG.info(paths.toString());
-                        observationMemory.put(registration.getEndpoint(), paths);
-                    }
-                    else
-                    {
-                    	observationMemory.remove(registration.getEndpoint());
-                    }
-                }
             }
 
             @Override
             public void registered(Registration registration, Registration previousReg,
                     Collection<Observation> previousObservations) {
-                if (observationMemory.containsKey(registration.getEndpoint())) {
-                    List<LwM2mPath> paths = observationMemory.get(registration.getEndpoint());
-                    if (paths.size() == 1) {
-                        ObserveRequest req = new ObserveRequest(paths.get(0).toString());
-                        try {
-                            send(registration, req);
-                        } catch (InterruptedException e) {
-                            LOG.error(e.getMessage());
-                        }
-                    } else if (paths.size() > 1) {
-                        ObserveCompositeRequest req = new ObserveCompositeRequest(null, null, paths);
-                        try {
-                            send(registration, req);
-                        } catch (InterruptedException e) {
-                            LOG.error(e.getMessage());
-                        }
-                    }
-                }
             }
         });
 
         return requestSender;
     }
 
+    protected ObservationRestorer createObservationRestorer(LwM2mRequestSender requestSender,
+            RegistrationServiceImpl registrationService, ObservationRestoreStore observationRestoreStore) {
+        ObservationRestorer observationRestorer = new ObservationRestorer(requestSender, registrationService,
+                observationRestoreStore);
+        registrationService.addListener(observationRestorer);
+        return observationRestorer;
+    }
+
+    protected FleetOperationManager createFleetOperationManager(LwM2mRequestSender requestSender,
+            RegistrationService registrationService) {
+        return new FleetOperationManager(requestSender, registrationService);
+    }
+
     protected void createConnectionCleaner(SecurityStore securityStore, CoapEndpoint securedEndpoint) {
         if (securedEndpoint != null && securedEndpoint.getConnector() instanceof DTLSConnector
                 && securityStore instanceof EditableSecurityStore) {
@@ -477,6 +491,8 @@ public class LeshanServer {
             ((Stoppable) requestSender).stop();
         }
 
+        observationRestorer.destroy();
+        fleetOperationManager.destroy();
         presenceService.destroy();
 
         LOG.info("LWM2M server destroyed.");
@@ -518,6 +534,14 @@ public class LeshanServer {
         return this.presenceService;
     }
 
+    /**
+     * Get the {@link FleetOperationManager} to send a request to a fleet of clients without flooding the server or the
+     * network.
+     */
+    public FleetOperationManager getFleetOperationManager() {
+        return this.fleetOperationManager;
+    }
+
     /**
      * Get the SecurityStore containing of security information.
      */
@@ -715,6 +739,67 @@ public class LeshanServer {
         requestSender.send(destination, request, lowerLayerConfig, timeoutInMs, responseCallback, errorCallback);
     }
 
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client and return a
+     * {@link CompletableFuture} of the response.
+     * <p>
+     * The default timeout is 2 minutes.
+     *
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @return a future of the response, see {@link #sendAsync(Registration, DownlinkRequest, LowerLayerConfig, long)}.
+     */
+    public <T extends LwM2mResponse> CompletableFuture<T> sendAsync(Registration destination,
+            DownlinkRequest<T> request) {
+        return sendAsync(destination, request, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client and return a
+     * {@link CompletableFuture} of the response.
+     *
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @param timeoutInMs The global timeout to wait in milliseconds (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @return a future of the response, see {@link #sendAsync(Registration, DownlinkRequest, LowerLayerConfig, long)}.
+     */
+    public <T extends LwM2mResponse> CompletableFuture<T> sendAsync(Registration destination,
+            DownlinkRequest<T> request, long timeoutInMs) {
+        return sendAsync(destination, request, null, timeoutInMs);
+    }
+
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client and return a
+     * {@link CompletableFuture} of the response.
+     * <p>
+     * No thread is blocked while waiting for the response, so a lot of requests can be sent concurrently from a few
+     * threads. Cancelling the returned future cancels the underlying CoAP request.
+     *
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @param lowerLayerConfig to tweak lower layer request (e.g. coap request)
+     * @param timeoutInMs The global timeout to wait in milliseconds (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @return a future completed with the response (successful or error response) or completed exceptionally with :
+     *         <ul>
+     *         <li>{@link CodecException} if request payload can not be encoded.</li>
+     *         <li>{@link RequestRejectedException} if the request is rejected by foreign peer.</li>
+     *         <li>{@link RequestCanceledException} if the request is cancelled.</li>
+     *         <li>{@link SendFailedException} if the request can not be sent. E.g. error at CoAP or DTLS/UDP
+     *         layer.</li>
+     *         <li>{@link InvalidResponseException} if the response received is malformed.</li>
+     *         <li>{@link ClientSleepingException} if client is currently sleeping.</li>
+     *         <li>{@link TimeoutException} if the timeout expires (see
+     *         https://github.com/eclipse/leshan/wiki/Request-Timeout).</li>
+     *         <li>or any other RuntimeException for unexpected issue.
+     *         </ul>
+     */
+    public <T extends LwM2mResponse> CompletableFuture<T> sendAsync(Registration destination,
+            DownlinkRequest<T> request, LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+        return requestSender.sendAsync(destination, request, lowerLayerConfig, timeoutInMs);
+    }
+
     /**
      * @return the {@link InetSocketAddress} used for <code>coap://</code>
      */
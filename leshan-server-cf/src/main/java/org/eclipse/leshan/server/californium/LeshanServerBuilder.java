@@ -62,6 +62,8 @@ import org.eclipse.leshan.server.californium.registration.CaliforniumRegistratio
 import org.eclipse.leshan.server.californium.registration.InMemoryRegistrationStore;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.model.StandardModelProvider;
+import org.eclipse.leshan.server.observation.InMemoryObservationRestoreStore;
+import org.eclipse.leshan.server.observation.ObservationRestoreStore;
 import org.eclipse.leshan.server.queue.ClientAwakeTimeProvider;
 import org.eclipse.leshan.server.queue.StaticClientAwakeTimeProvider;
 import org.eclipse.leshan.server.registration.RandomStringRegistrationIdProvider;
@@ -115,6 +117,7 @@ public class LeshanServerBuilder {
     /** @since 1.1 */
     protected boolean updateRegistrationOnNotification;
     private LwM2mLinkParser linkParser;
+    private ObservationRestoreStore observationRestoreStore;
 
     private boolean enableOscore = false;
 
@@ -413,6 +416,20 @@ public class LeshanServerBuilder {
         return this;
     }
 
+    /**
+     * Set the {@link ObservationRestoreStore} used to save observations of unregistered clients, so they can be
+     * restored when clients register again.
+     * <p>
+     * By default an {@link InMemoryObservationRestoreStore} is used. A persistent store allows to restore observations
+     * after a server restart.
+     *
+     * @param observationRestoreStore the {@link ObservationRestoreStore} to set.
+     */
+    public LeshanServerBuilder setObservationRestoreStore(ObservationRestoreStore observationRestoreStore) {
+        this.observationRestoreStore = observationRestoreStore;
+        return this;
+    }
+
     /**
      * Enable EXPERIMENTAL OSCORE feature.
      * <p>
@@ -461,6 +478,8 @@ public class LeshanServerBuilder {
             decoder = new DefaultLwM2mDecoder();
         if (linkParser == null)
             linkParser = new DefaultLwM2mLinkParser();
+        if (observationRestoreStore == null)
+            observationRestoreStore = new InMemoryObservationRestoreStore();
         if (coapConfig == null)
             coapConfig = createDefaultCoapConfiguration();
         if (awakeTimeProvider == null) {
@@ -646,6 +665,6 @@ public class LeshanServerBuilder {
             RegistrationIdProvider registrationIdProvider, LwM2mLinkParser linkParser) {
         return new LeshanServer(unsecuredEndpoint, securedEndpoint, registrationStore, securityStore, authorizer,
                 modelProvider, encoder, decoder, coapConfig, noQueueMode, awakeTimeProvider, registrationIdProvider,
-                updateRegistrationOnNotification, linkParser);
+                updateRegistrationOnNotification, linkParser, observationRestoreStore);
     }
 }
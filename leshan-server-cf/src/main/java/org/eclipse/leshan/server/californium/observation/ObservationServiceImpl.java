@@ -18,7 +18,7 @@ package org.eclipse.leshan.server.californium.observation;
 
 import static org.eclipse.leshan.core.californium.ResponseCodeUtil.toLwM2mResponseCode;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -55,6 +55,7 @@ import org.eclipse.leshan.core.response.ObserveResponse;
 import org.eclipse.leshan.core.util.Hex;
 import org.eclipse.leshan.server.californium.registration.CaliforniumRegistrationStore;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
+import org.eclipse.leshan.server.observation.NotificationMetrics;
 import org.eclipse.leshan.server.observation.ObservationListener;
 import org.eclipse.leshan.server.observation.ObservationService;
 import org.eclipse.leshan.server.registration.Registration;
@@ -68,6 +69,8 @@ import org.slf4j.LoggerFactory;
  * {@link CaliforniumRegistrationStore}.
  *
  * When a new observation is added or changed or canceled, the registered listeners are notified.
+ * <p>
+ * Notifications are not logged at INFO level, {@link #getNotificationMetrics()} can be used to monitor them.
  */
 public class ObservationServiceImpl implements ObservationService, NotificationListener {
 
@@ -82,6 +85,8 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
 
     private final List<ObservationListener> listeners = new CopyOnWriteArrayList<>();;
 
+    private final NotificationMetrics metrics = new NotificationMetrics();
+
     /**
      * Creates an instance of {@link ObservationServiceImpl}
      *
@@ -117,8 +122,8 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
             cancel(existing);
         }
 
+        LOG.debug("New observation {} for registration {}", observation, registration.getEndpoint());
         for (ObservationListener listener : listeners) {
-            LOG.info(observation.toString());
             listener.newObservation(observation, registration);
         }
     }
@@ -151,10 +156,16 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
 
     @Override
     public int cancelObservations(Registration registration, String nodePath) {
+        return cancelObservations(registration, nodePath, false);
+    }
+
+    @Override
+    public int cancelObservations(Registration registration, String nodePath, boolean includeDescendants) {
         if (registration == null || registration.getId() == null || nodePath == null || nodePath.isEmpty())
             return 0;
 
-        Set<Observation> observations = getObservations(registration.getId(), nodePath);
+        Collection<SingleObservation> observations = registrationStore.getObservations(registration.getId(),
+                new LwM2mPath(nodePath), includeDescendants);
         for (Observation observation : observations) {
             cancelObservation(observation);
         }
@@ -166,7 +177,8 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
         if (registration == null || registration.getId() == null || nodePaths == null || nodePaths.length == 0)
             return 0;
 
-        Set<Observation> observations = getCompositeObservations(registration.getId(), nodePaths);
+        Collection<CompositeObservation> observations = registrationStore.getCompositeObservations(registration.getId(),
+                LwM2mPath.getLwM2mPathList(Arrays.asList(nodePaths)));
         for (Observation observation : observations) {
             cancelObservation(observation);
         }
@@ -206,44 +218,6 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
         return new HashSet<>(registrationStore.getObservations(registrationId));
     }
 
-    private Set<Observation> getCompositeObservations(String registrationId, String[] nodePaths) {
-        if (registrationId == null || nodePaths == null)
-            return Collections.emptySet();
-
-        // array of String to array of LWM2M path
-        List<LwM2mPath> lwPaths = new ArrayList<>(nodePaths.length);
-        for (int i = 0; i < nodePaths.length; i++) {
-            lwPaths.add(new LwM2mPath(nodePaths[i]));
-        }
-
-        // search composite-observation
-        Set<Observation> result = new HashSet<>();
-        for (Observation obs : getObservations(registrationId)) {
-            if (obs instanceof CompositeObservation) {
-                if (lwPaths.equals(((CompositeObservation) obs).getPaths())) {
-                    result.add(obs);
-                }
-            }
-        }
-        return result;
-    }
-
-    private Set<Observation> getObservations(String registrationId, String nodePath) {
-        if (registrationId == null || nodePath == null)
-            return Collections.emptySet();
-
-        Set<Observation> result = new HashSet<>();
-        LwM2mPath lwPath = new LwM2mPath(nodePath);
-        for (Observation obs : getObservations(registrationId)) {
-            if (obs instanceof SingleObservation) {
-                if (lwPath.equals(((SingleObservation) obs).getPath())) {
-                    result.add(obs);
-                }
-            }
-        }
-        return result;
-    }
-
     /**
      * @return the Californium {@link ObservationStore}
      */
@@ -261,11 +235,20 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
         listeners.remove(listener);
     }
 
+    /**
+     * @return metrics about notifications handled by this service.
+     * @since 2.0
+     */
+    public NotificationMetrics getNotificationMetrics() {
+        return metrics;
+    }
+
     // ********** NotificationListener interface **********//
 
     @Override
     public void onNotification(Request coapRequest, Response coapResponse) {
-        LOG.info("notification received for request {}: {}", coapRequest, coapResponse);
+        metrics.notificationReceived();
+        LOG.trace("notification received for request {}: {}", coapRequest, coapResponse);
 
         if (listeners.isEmpty())
             return;
@@ -276,8 +259,8 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
         // get observation for this request
         Observation observation = registrationStore.getObservation(regid, coapResponse.getToken().getBytes());
         if (observation == null) {
-            LOG.error("Unexpected error: Unable to find observation with token {} for registration {}",
-                    coapResponse.getToken(), regid);
+            metrics.unknownObservation();
+            LOG.debug("Unable to find observation with token {} for registration {}", coapResponse.getToken(), regid);
             return;
         }
 
@@ -289,6 +272,7 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
                     null, null, null, null, null);
             UpdatedRegistration updatedRegistration = registrationStore.updateRegistration(regUpdate);
             if (updatedRegistration == null || updatedRegistration.getUpdatedRegistration() == null) {
+                metrics.unknownRegistration();
                 LOG.error("Unexpected error: There is no registration with id {} for this observation {}",
                         observation.getRegistrationId(), observation);
                 return;
@@ -297,6 +281,7 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
         } else {
             registration = registrationStore.getRegistration(observation.getRegistrationId());
             if (registration == null) {
+                metrics.unknownRegistration();
                 LOG.error("Unexpected error: There is no registration with id {} for this observation {}",
                         observation.getRegistrationId(), observation);
                 return;
@@ -308,10 +293,17 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
             LwM2mModel model = modelProvider.getObjectModel(registration);
 
             // create response
-            AbstractLwM2mResponse response = createObserveResponse(observation, model, coapResponse);
+            AbstractLwM2mResponse response;
+            long start = System.nanoTime();
+            try {
+                response = createObserveResponse(observation, model, coapResponse);
+            } finally {
+                metrics.getDecodeTime().record(System.nanoTime() - start);
+            }
 
             if (response != null) {
                 // notify all listeners
+                start = System.nanoTime();
                 for (ObservationListener listener : listeners) {
                     if (observation instanceof SingleObservation && response instanceof ObserveResponse) {
                         listener.onResponse((SingleObservation) observation, registration, (ObserveResponse) response);
@@ -321,8 +313,10 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
                                 (ObserveCompositeResponse) response);
                     }
                 }
+                metrics.getDispatchTime().record(System.nanoTime() - start);
             }
         } catch (InvalidResponseException e) {
+            metrics.invalidNotification();
             if (LOG.isDebugEnabled()) {
                 LOG.debug(String.format("Invalid notification for observation [%s]", observation), e);
             }
@@ -331,6 +325,7 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
                 listener.onError(observation, registration, e);
             }
         } catch (RuntimeException e) {
+            metrics.failedNotification();
             if (LOG.isErrorEnabled()) {
                 LOG.error(String.format("Unable to handle notification for observation [%s]", observation), e);
             }
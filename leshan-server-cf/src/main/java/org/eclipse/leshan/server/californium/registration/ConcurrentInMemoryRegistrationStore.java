@@ -0,0 +1,655 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.registration;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.californium.core.observe.ObservationStoreException;
+import org.eclipse.californium.core.observe.ObservationUtil;
+import org.eclipse.californium.elements.EndpointContext;
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.Startable;
+import org.eclipse.leshan.core.Stoppable;
+import org.eclipse.leshan.core.californium.ObserveUtil;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.observation.ObservationPathIndex;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.ExpirationListener;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationExpirationEngine;
+import org.eclipse.leshan.server.registration.RegistrationExpirationEngine.DeadlineListener;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.UpdatedRegistration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in memory store for registration and observation designed for high concurrency.
+ * <p>
+ * Contrary to {@link InMemoryRegistrationStore} which protects all its indexes with one global lock, this store keeps
+ * each index in a {@link ConcurrentHashMap} and serializes modifications per endpoint using a fixed set of lock
+ * stripes. All modifications about a given endpoint (registration, update, de-registration, observation) are done under
+ * the lock of its stripe, so indexes stay consistent for this endpoint, while modifications on endpoints which belong
+ * to different stripes never contend. Lookups never take any lock.
+ * <p>
+ * By default, expired registrations are removed by a task which regularly scans all registrations. A
+ * {@link RegistrationExpirationEngine} can be used instead to remove each registration when its expiration deadline is
+ * reached.
+ */
+public class ConcurrentInMemoryRegistrationStore
+        implements CaliforniumRegistrationStore, Startable, Stoppable, Destroyable {
+    private final Logger LOG = LoggerFactory.getLogger(ConcurrentInMemoryRegistrationStore.class);
+
+    // Default number of lock stripes
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+
+    // Data structure
+    private final ConcurrentMap<String /* end-point */, Registration> regsByEp = new ConcurrentHashMap<>();
+    private final ConcurrentMap<InetSocketAddress, Registration> regsByAddr = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String /* reg-id */, Registration> regsByRegId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Identity, Registration> regsByIdentity = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Token, org.eclipse.californium.core.observe.Observation> obsByToken = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String /* reg-id */, ObservationPathIndex> observationsByRegId = new ConcurrentHashMap<>();
+
+    // Lock stripes, an endpoint is always associated to the same lock.
+    private final Lock[] locks;
+    private final int mask;
+
+    // Listener use to notify when a registration expires
+    private ExpirationListener expirationListener;
+
+    private final ScheduledExecutorService schedExecutor;
+    private ScheduledFuture<?> cleanerTask;
+    private boolean started = false;
+    private final long cleanPeriod; // in seconds
+
+    // Engine used to track registration expiration, if null regular cleanup is used.
+    private final RegistrationExpirationEngine expirationEngine;
+
+    public ConcurrentInMemoryRegistrationStore() {
+        this(2); // default clean period : 2s
+    }
+
+    public ConcurrentInMemoryRegistrationStore(long cleanPeriodInSec) {
+        this(Executors.newScheduledThreadPool(1,
+                new NamedThreadFactory(
+                        String.format("ConcurrentInMemoryRegistrationStore Cleaner (%ds)", cleanPeriodInSec))),
+                cleanPeriodInSec, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * @param schedExecutor executor used to clean expired registrations.
+     * @param cleanPeriodInSec period between 2 expired registrations cleaning.
+     * @param concurrencyLevel number of lock stripes, rounded up to the next power of two.
+     */
+    public ConcurrentInMemoryRegistrationStore(ScheduledExecutorService schedExecutor, long cleanPeriodInSec,
+            int concurrencyLevel) {
+        this(schedExecutor, cleanPeriodInSec, null, concurrencyLevel);
+    }
+
+    /**
+     * Create a store which uses the given {@link RegistrationExpirationEngine} to remove expired registrations instead
+     * of regularly scanning all registrations.
+     *
+     * @param expirationEngine the engine used to track expiration deadlines.
+     * @param concurrencyLevel number of lock stripes, rounded up to the next power of two.
+     */
+    public ConcurrentInMemoryRegistrationStore(RegistrationExpirationEngine expirationEngine, int concurrencyLevel) {
+        this(null, 0, expirationEngine, concurrencyLevel);
+        Validate.notNull(expirationEngine);
+        expirationEngine.setDeadlineListener(new DeadlineListener() {
+            @Override
+            public void deadlineReached(String registrationId) {
+                Deregistration removedRegistration = removeExpiredRegistration(registrationId);
+                if (removedRegistration != null) {
+                    expirationListener.registrationExpired(removedRegistration.getRegistration(),
+                            removedRegistration.getObservations());
+                }
+            }
+        });
+    }
+
+    private ConcurrentInMemoryRegistrationStore(ScheduledExecutorService schedExecutor, long cleanPeriodInSec,
+            RegistrationExpirationEngine expirationEngine, int concurrencyLevel) {
+        Validate.isTrue(concurrencyLevel > 0, "concurrencyLevel must be positive");
+        this.schedExecutor = schedExecutor;
+        this.cleanPeriod = cleanPeriodInSec;
+        this.expirationEngine = expirationEngine;
+
+        int size = 1;
+        while (size < concurrencyLevel) {
+            size <<= 1;
+        }
+        this.locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /* *************** Lock striping **************** */
+
+    private Lock lockFor(String endpoint) {
+        int h = endpoint.hashCode();
+        // spread higher bits as done by HashMap
+        h ^= (h >>> 16);
+        return locks[h & mask];
+    }
+
+    /* *************** Leshan Registration API **************** */
+
+    @Override
+    public Deregistration addRegistration(Registration registration) {
+        Lock lock = lockFor(registration.getEndpoint());
+        try {
+            lock.lock();
+
+            Registration registrationRemoved = regsByEp.put(registration.getEndpoint(), registration);
+            regsByRegId.put(registration.getId(), registration);
+            regsByIdentity.put(registration.getIdentity(), registration);
+            // If a registration is already associated to this address we don't care as we only want to keep the most
+            // recent binding.
+            regsByAddr.put(registration.getSocketAddress(), registration);
+            trackExpiration(registration);
+            if (registrationRemoved != null) {
+                Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registrationRemoved.getId());
+                if (!registrationRemoved.getSocketAddress().equals(registration.getSocketAddress())) {
+                    regsByAddr.remove(registrationRemoved.getSocketAddress(), registrationRemoved);
+                }
+                if (!registrationRemoved.getId().equals(registration.getId())) {
+                    regsByRegId.remove(registrationRemoved.getId(), registrationRemoved);
+                    untrackExpiration(registrationRemoved);
+                }
+                if (!registrationRemoved.getIdentity().equals(registration.getIdentity())) {
+                    regsByIdentity.remove(registrationRemoved.getIdentity(), registrationRemoved);
+                }
+                return new Deregistration(registrationRemoved, observationsRemoved);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return null;
+    }
+
+    @Override
+    public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
+        Registration registration = getRegistration(update.getRegistrationId());
+        if (registration == null) {
+            return null;
+        }
+
+        // endpoint of a registration never changes, so we can use it to get the lock.
+        Lock lock = lockFor(registration.getEndpoint());
+        try {
+            lock.lock();
+
+            // registration may have been modified before we get the lock
+            registration = getRegistration(update.getRegistrationId());
+            if (registration == null) {
+                return null;
+            } else {
+                Registration updatedRegistration = update.update(registration);
+                regsByEp.put(updatedRegistration.getEndpoint(), updatedRegistration);
+                // If registration is already associated to this address we don't care as we only want to keep the most
+                // recent binding.
+                regsByAddr.put(updatedRegistration.getSocketAddress(), updatedRegistration);
+                if (!registration.getSocketAddress().equals(updatedRegistration.getSocketAddress())) {
+                    regsByAddr.remove(registration.getSocketAddress(), registration);
+                }
+                regsByIdentity.put(updatedRegistration.getIdentity(), updatedRegistration);
+                if (!registration.getIdentity().equals(updatedRegistration.getIdentity())) {
+                    regsByIdentity.remove(registration.getIdentity(), registration);
+                }
+
+                regsByRegId.put(updatedRegistration.getId(), updatedRegistration);
+                trackExpiration(updatedRegistration);
+
+                return new UpdatedRegistration(registration, updatedRegistration);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Registration getRegistration(String registrationId) {
+        return regsByRegId.get(registrationId);
+    }
+
+    @Override
+    public Registration getRegistrationByEndpoint(String endpoint) {
+        return regsByEp.get(endpoint);
+    }
+
+    @Override
+    public Registration getRegistrationByAdress(InetSocketAddress address) {
+        return regsByAddr.get(address);
+    }
+
+    @Override
+    public Registration getRegistrationByIdentity(Identity identity) {
+        return regsByIdentity.get(identity);
+    }
+
+    @Override
+    public Iterator<Registration> getAllRegistrations() {
+        return Collections.unmodifiableCollection(regsByEp.values()).iterator();
+    }
+
+    @Override
+    public Stream<Registration> streamAllRegistrations() {
+        return regsByEp.values().stream();
+    }
+
+    @Override
+    public Deregistration removeRegistration(String registrationId) {
+        return removeRegistration(registrationId, false);
+    }
+
+    private Deregistration removeExpiredRegistration(String registrationId) {
+        return removeRegistration(registrationId, true);
+    }
+
+    private Deregistration removeRegistration(String registrationId, boolean removeOnlyIfNotAlive) {
+        Registration registration = getRegistration(registrationId);
+        if (registration == null) {
+            return null;
+        }
+
+        Lock lock = lockFor(registration.getEndpoint());
+        try {
+            lock.lock();
+
+            // registration may have been modified before we get the lock
+            registration = getRegistration(registrationId);
+            if (registration != null && (!removeOnlyIfNotAlive || !registration.isAlive())) {
+                Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registration.getId());
+                regsByEp.remove(registration.getEndpoint(), registration);
+                regsByAddr.remove(registration.getSocketAddress(), registration);
+                regsByRegId.remove(registration.getId(), registration);
+                regsByIdentity.remove(registration.getIdentity(), registration);
+                untrackExpiration(registration);
+                return new Deregistration(registration, observationsRemoved);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* *************** Leshan Observation API **************** */
+
+    /*
+     * The observation is not persisted here, it is done by the Californium layer (in the implementation of the
+     * org.eclipse.californium.core.observe.ObservationStore#add method)
+     */
+    @Override
+    public Collection<Observation> addObservation(String registrationId, Observation observation) {
+        Registration registration = getRegistration(registrationId);
+        if (registration == null) {
+            return Collections.emptyList();
+        }
+
+        List<Observation> removed = new ArrayList<>();
+        Lock lock = lockFor(registration.getEndpoint());
+        try {
+            lock.lock();
+            // cancel existing observations for the same path and registration id.
+            ObservationPathIndex observations = observationsByRegId.get(registrationId);
+            if (observations != null) {
+                for (Observation obs : observations.getObservationsWithSamePaths(observation)) {
+                    if (!Arrays.equals(observation.getId(), obs.getId())) {
+                        unsafeRemoveObservation(new Token(obs.getId()));
+                        removed.add(obs);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return removed;
+    }
+
+    @Override
+    public Observation removeObservation(String registrationId, byte[] observationId) {
+        Token token = new Token(observationId);
+        org.eclipse.californium.core.observe.Observation cfObs = obsByToken.get(token);
+        if (cfObs == null) {
+            return null;
+        }
+
+        Lock lock = lockFor(ObserveUtil.extractEndpoint(cfObs));
+        try {
+            lock.lock();
+            Observation observation = getObservation(registrationId, observationId);
+            if (observation != null) {
+                unsafeRemoveObservation(token);
+            }
+            return observation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Observation getObservation(String registrationId, byte[] observationId) {
+        ObservationPathIndex observations = observationsByRegId.get(registrationId);
+        if (observations == null) {
+            return null;
+        }
+        return observations.get(observationId);
+    }
+
+    @Override
+    public Collection<Observation> getObservations(String registrationId) {
+        ObservationPathIndex observations = observationsByRegId.get(registrationId);
+        if (observations == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(observations.getAll());
+    }
+
+    @Override
+    public Collection<SingleObservation> getObservations(String registrationId, LwM2mPath path,
+            boolean includeDescendants) {
+        ObservationPathIndex observations = observationsByRegId.get(registrationId);
+        if (observations == null) {
+            return Collections.emptyList();
+        }
+        return observations.getObservations(path, includeDescendants);
+    }
+
+    @Override
+    public Collection<CompositeObservation> getCompositeObservations(String registrationId, List<LwM2mPath> paths) {
+        ObservationPathIndex observations = observationsByRegId.get(registrationId);
+        if (observations == null) {
+            return Collections.emptyList();
+        }
+        return observations.getCompositeObservations(paths);
+    }
+
+    @Override
+    public Collection<Observation> removeObservations(String registrationId) {
+        Registration registration = getRegistration(registrationId);
+        if (registration == null) {
+            // no registration means no observation, as observations are removed with their registration.
+            return Collections.emptyList();
+        }
+
+        Lock lock = lockFor(registration.getEndpoint());
+        try {
+            lock.lock();
+            return unsafeRemoveAllObservations(registrationId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /* *************** Californium ObservationStore API **************** */
+
+    @Override
+    public org.eclipse.californium.core.observe.Observation putIfAbsent(Token token,
+            org.eclipse.californium.core.observe.Observation obs) throws ObservationStoreException {
+        return add(token, obs, true);
+    }
+
+    @Override
+    public org.eclipse.californium.core.observe.Observation put(Token token,
+            org.eclipse.californium.core.observe.Observation obs) throws ObservationStoreException {
+        return add(token, obs, false);
+    }
+
+    private org.eclipse.californium.core.observe.Observation add(Token token,
+            org.eclipse.californium.core.observe.Observation obs, boolean ifAbsent) throws ObservationStoreException {
+        org.eclipse.californium.core.observe.Observation previousObservation = null;
+        if (obs != null) {
+            String endpoint = ObserveUtil.validateCoapObservation(obs);
+            Lock lock = lockFor(endpoint);
+            try {
+                lock.lock();
+
+                // check registration under lock to be sure it will not be removed concurrently
+                String registrationId = ObserveUtil.extractRegistrationId(obs);
+                if (getRegistration(registrationId) == null) {
+                    throw new ObservationStoreException("no registration for this Id");
+                }
+
+                if (ifAbsent) {
+                    previousObservation = obsByToken.putIfAbsent(token, obs);
+                    if (previousObservation != null)
+                        return previousObservation;
+                } else {
+                    previousObservation = obsByToken.put(token, obs);
+                }
+                ObservationPathIndex observations = observationsByRegId.get(registrationId);
+                if (observations == null) {
+                    observations = new ObservationPathIndex();
+                    observationsByRegId.put(registrationId, observations);
+                }
+                observations.add(build(obs));
+
+                // log any collisions
+                if (previousObservation != null) {
+                    LOG.warn(
+                            "Token collision ? observation from request [{}] will be replaced by observation from request [{}] ",
+                            previousObservation.getRequest(), obs.getRequest());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return previousObservation;
+    }
+
+    @Override
+    public org.eclipse.californium.core.observe.Observation get(Token token) {
+        return unsafeGetObservation(token);
+    }
+
+    @Override
+    public void setContext(Token token, EndpointContext ctx) {
+        org.eclipse.californium.core.observe.Observation obs = obsByToken.get(token);
+        if (obs != null) {
+            // replace only if observation was not removed or replaced concurrently
+            obsByToken.replace(token, obs, new org.eclipse.californium.core.observe.Observation(obs.getRequest(), ctx));
+        }
+    }
+
+    @Override
+    public void remove(Token token) {
+        org.eclipse.californium.core.observe.Observation obs = obsByToken.get(token);
+        if (obs != null) {
+            Lock lock = lockFor(ObserveUtil.extractEndpoint(obs));
+            try {
+                lock.lock();
+                unsafeRemoveObservation(token);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /* *************** Observation utility functions **************** */
+
+    private org.eclipse.californium.core.observe.Observation unsafeGetObservation(Token token) {
+        org.eclipse.californium.core.observe.Observation obs = obsByToken.get(token);
+        return ObservationUtil.shallowClone(obs);
+    }
+
+    // must be called under the lock of the endpoint of this observation
+    private void unsafeRemoveObservation(Token observationId) {
+        org.eclipse.californium.core.observe.Observation removed = obsByToken.remove(observationId);
+
+        if (removed != null) {
+            String registrationId = ObserveUtil.extractRegistrationId(removed);
+            ObservationPathIndex observations = observationsByRegId.get(registrationId);
+            if (observations != null) {
+                observations.remove(observationId.getBytes());
+                if (observations.isEmpty()) {
+                    observationsByRegId.remove(registrationId);
+                }
+            }
+        }
+    }
+
+    // must be called under the lock of the endpoint of this registration
+    private Collection<Observation> unsafeRemoveAllObservations(String registrationId) {
+        ObservationPathIndex observations = observationsByRegId.remove(registrationId);
+        if (observations == null) {
+            return new ArrayList<>();
+        }
+        Collection<Observation> removed = new ArrayList<>(observations.getAll());
+        for (Observation observation : removed) {
+            obsByToken.remove(new Token(observation.getId()));
+        }
+        return removed;
+    }
+
+    private Observation build(org.eclipse.californium.core.observe.Observation cfObs) {
+        if (cfObs == null)
+            return null;
+
+        if (cfObs.getRequest().getCode() == CoAP.Code.GET) {
+            return ObserveUtil.createLwM2mObservation(cfObs.getRequest());
+        } else if (cfObs.getRequest().getCode() == CoAP.Code.FETCH) {
+            return ObserveUtil.createLwM2mCompositeObservation(cfObs.getRequest());
+        } else {
+            throw new IllegalStateException("Observation request can be GET or FETCH only");
+        }
+    }
+
+    /* *************** Expiration handling **************** */
+
+    @Override
+    public void setExpirationListener(ExpirationListener listener) {
+        this.expirationListener = listener;
+    }
+
+    private void trackExpiration(Registration registration) {
+        if (expirationEngine != null) {
+            expirationEngine.track(registration.getId(), registration.getExpirationTimeStamp());
+        }
+    }
+
+    private void untrackExpiration(Registration registration) {
+        if (expirationEngine != null) {
+            expirationEngine.untrack(registration.getId());
+        }
+    }
+
+    /**
+     * start the registration store, will start regular cleanup of dead registrations.
+     */
+    @Override
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            if (expirationEngine != null) {
+                expirationEngine.start();
+            } else {
+                cleanerTask = schedExecutor.scheduleAtFixedRate(new Cleaner(), cleanPeriod, cleanPeriod,
+                        TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Stop the underlying cleanup of the registrations.
+     */
+    @Override
+    public synchronized void stop() {
+        if (started) {
+            started = false;
+            if (expirationEngine != null) {
+                expirationEngine.stop();
+            }
+            if (cleanerTask != null) {
+                cleanerTask.cancel(false);
+                cleanerTask = null;
+            }
+        }
+    }
+
+    /**
+     * Destroy "cleanup" scheduler.
+     */
+    @Override
+    public synchronized void destroy() {
+        started = false;
+        if (expirationEngine != null) {
+            expirationEngine.destroy();
+        }
+        if (schedExecutor != null) {
+            schedExecutor.shutdownNow();
+            try {
+                schedExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                LOG.warn("Destroying ConcurrentInMemoryRegistrationStore was interrupted.", e);
+            }
+        }
+    }
+
+    private class Cleaner implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                for (Registration reg : regsByEp.values()) {
+                    if (!reg.isAlive()) {
+                        // force de-registration
+                        Deregistration removedRegistration = removeExpiredRegistration(reg.getId());
+                        // registration could have been removed or updated concurrently
+                        if (removedRegistration != null) {
+                            expirationListener.registrationExpired(removedRegistration.getRegistration(),
+                                    removedRegistration.getObservations());
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                LOG.warn("Unexpected Exception while registration cleaning", e);
+            }
+        }
+    }
+
+    @Override
+    public void setExecutor(ScheduledExecutorService executor) {
+        // not used, expiration is handled by our own executor or by the expiration engine.
+    }
+}
@@ -29,13 +29,12 @@ import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -52,14 +51,19 @@ import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.Startable;
 import org.eclipse.leshan.core.Stoppable;
 import org.eclipse.leshan.core.californium.ObserveUtil;
+import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.observation.CompositeObservation;
 import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.observation.SingleObservation;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.observation.ObservationPathIndex;
 import org.eclipse.leshan.server.registration.Deregistration;
 import org.eclipse.leshan.server.registration.ExpirationListener;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationExpirationEngine;
+import org.eclipse.leshan.server.registration.RegistrationExpirationEngine.DeadlineListener;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
 import org.eclipse.leshan.server.registration.UpdatedRegistration;
 import org.slf4j.Logger;
@@ -67,6 +71,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * An in memory store for registration and observation.
+ * <p>
+ * By default, expired registrations are removed by a task which regularly scans all registrations. A
+ * {@link RegistrationExpirationEngine} can be used instead to remove each registration when its expiration deadline is
+ * reached.
  */
 public class InMemoryRegistrationStore implements CaliforniumRegistrationStore, Startable, Stoppable, Destroyable {
     private final Logger LOG = LoggerFactory.getLogger(InMemoryRegistrationStore.class);
@@ -77,7 +85,7 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
     private final Map<String /* reg-id */, Registration> regsByRegId = new HashMap<>();
     private final Map<Identity, Registration> regsByIdentity = new HashMap<>();
     private Map<Token, org.eclipse.californium.core.observe.Observation> obsByToken = new HashMap<>();
-    private Map<String, Set<Token>> tokensByRegId = new HashMap<>();
+    private Map<String /* reg-id */, ObservationPathIndex> observationsByRegId = new HashMap<>();
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -89,6 +97,9 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
     private boolean started = false;
     private final long cleanPeriod; // in seconds
 
+    // Engine used to track registration expiration, if null regular cleanup is used.
+    private final RegistrationExpirationEngine expirationEngine;
+
     public InMemoryRegistrationStore() {
         this(2); // default clean period : 2s
     }
@@ -102,6 +113,31 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
     public InMemoryRegistrationStore(ScheduledExecutorService schedExecutor, long cleanPeriodInSec) {
         this.schedExecutor = schedExecutor;
         this.cleanPeriod = cleanPeriodInSec;
+        this.expirationEngine = null;
+    }
+
+    /**
+     * Create a store which uses the given {@link RegistrationExpirationEngine} to remove expired registrations instead
+     * of regularly scanning all registrations.
+     *
+     * @param expirationEngine the engine used to track expiration deadlines.
+     * @since 2.0
+     */
+    public InMemoryRegistrationStore(RegistrationExpirationEngine expirationEngine) {
+        Validate.notNull(expirationEngine);
+        this.schedExecutor = null;
+        this.cleanPeriod = 0;
+        this.expirationEngine = expirationEngine;
+        this.expirationEngine.setDeadlineListener(new DeadlineListener() {
+            @Override
+            public void deadlineReached(String registrationId) {
+                Deregistration removedRegistration = removeExpiredRegistration(registrationId);
+                if (removedRegistration != null) {
+                    expirationListener.registrationExpired(removedRegistration.getRegistration(),
+                            removedRegistration.getObservations());
+                }
+            }
+        });
     }
 
     /* *************** Leshan Registration API **************** */
@@ -117,6 +153,7 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
             // If a registration is already associated to this address we don't care as we only want to keep the most
             // recent binding.
             regsByAddr.put(registration.getSocketAddress(), registration);
+            trackExpiration(registration);
             if (registrationRemoved != null) {
                 Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registrationRemoved.getId());
                 if (!registrationRemoved.getSocketAddress().equals(registration.getSocketAddress())) {
@@ -124,6 +161,7 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
                 }
                 if (!registrationRemoved.getId().equals(registration.getId())) {
                     removeFromMap(regsByRegId, registrationRemoved.getId(), registrationRemoved);
+                    untrackExpiration(registrationRemoved);
                 }
                 if (!registrationRemoved.getIdentity().equals(registration.getIdentity())) {
                     removeFromMap(regsByIdentity, registrationRemoved.getIdentity(), registrationRemoved);
@@ -159,6 +197,7 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
                 }
 
                 regsByRegId.put(updatedRegistration.getId(), updatedRegistration);
+                trackExpiration(updatedRegistration);
 
                 return new UpdatedRegistration(registration, updatedRegistration);
             }
@@ -224,12 +263,22 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
 
             Registration registration = getRegistration(registrationId);
             if (registration != null) {
-                Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registration.getId());
-                regsByEp.remove(registration.getEndpoint());
-                removeFromMap(regsByAddr, registration.getSocketAddress(), registration);
-                removeFromMap(regsByRegId, registration.getId(), registration);
-                removeFromMap(regsByIdentity, registration.getIdentity(), registration);
-                return new Deregistration(registration, observationsRemoved);
+                return unsafeRemoveRegistration(registration);
+            }
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Deregistration removeExpiredRegistration(String registrationId) {
+        try {
+            lock.writeLock().lock();
+
+            Registration registration = getRegistration(registrationId);
+            // registration could have been updated since deadline was reached
+            if (registration != null && !registration.isAlive()) {
+                return unsafeRemoveRegistration(registration);
             }
             return null;
         } finally {
@@ -237,6 +286,16 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
         }
     }
 
+    private Deregistration unsafeRemoveRegistration(Registration registration) {
+        Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registration.getId());
+        regsByEp.remove(registration.getEndpoint());
+        removeFromMap(regsByAddr, registration.getSocketAddress(), registration);
+        removeFromMap(regsByRegId, registration.getId(), registration);
+        removeFromMap(regsByIdentity, registration.getIdentity(), registration);
+        untrackExpiration(registration);
+        return new Deregistration(registration, observationsRemoved);
+    }
+
     /* *************** Leshan Observation API **************** */
 
     /*
@@ -251,10 +310,13 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
         try {
             lock.writeLock().lock();
             // cancel existing observations for the same path and registration id.
-            for (Observation obs : unsafeGetObservations(registrationId)) {
-                if (areTheSamePaths(observation, obs) && !Arrays.equals(observation.getId(), obs.getId())) {
-                    unsafeRemoveObservation(new Token(obs.getId()));
-                    removed.add(obs);
+            ObservationPathIndex observations = observationsByRegId.get(registrationId);
+            if (observations != null) {
+                for (Observation obs : observations.getObservationsWithSamePaths(observation)) {
+                    if (!Arrays.equals(observation.getId(), obs.getId())) {
+                        unsafeRemoveObservation(new Token(obs.getId()));
+                        removed.add(obs);
+                    }
                 }
             }
         } finally {
@@ -264,27 +326,15 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
         return removed;
     }
 
-    private boolean areTheSamePaths(Observation observation, Observation obs) {
-        if (observation instanceof SingleObservation && obs instanceof SingleObservation) {
-            return ((SingleObservation) observation).getPath().equals(((SingleObservation) obs).getPath());
-        }
-        if (observation instanceof CompositeObservation && obs instanceof CompositeObservation) {
-            return ((CompositeObservation) observation).getPaths().equals(((CompositeObservation) obs).getPaths());
-        }
-        return false;
-    }
-
     @Override
     public Observation removeObservation(String registrationId, byte[] observationId) {
         try {
             lock.writeLock().lock();
-            Token token = new Token(observationId);
-            Observation observation = build(unsafeGetObservation(token));
-            if (observation != null && registrationId.equals(observation.getRegistrationId())) {
-                unsafeRemoveObservation(token);
-                return observation;
+            Observation observation = unsafeGetObservation(registrationId, observationId);
+            if (observation != null) {
+                unsafeRemoveObservation(new Token(observationId));
             }
-            return null;
+            return observation;
         } finally {
             lock.writeLock().unlock();
         }
@@ -294,11 +344,7 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
     public Observation getObservation(String registrationId, byte[] observationId) {
         try {
             lock.readLock().lock();
-            Observation observation = build(unsafeGetObservation(new Token(observationId)));
-            if (observation != null && registrationId.equals(observation.getRegistrationId())) {
-                return observation;
-            }
-            return null;
+            return unsafeGetObservation(registrationId, observationId);
         } finally {
             lock.readLock().unlock();
         }
@@ -314,6 +360,33 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
         }
     }
 
+    @Override
+    public Collection<SingleObservation> getObservations(String registrationId, LwM2mPath path,
+            boolean includeDescendants) {
+        try {
+            lock.readLock().lock();
+            ObservationPathIndex observations = observationsByRegId.get(registrationId);
+            if (observations == null)
+                return Collections.emptyList();
+            return observations.getObservations(path, includeDescendants);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<CompositeObservation> getCompositeObservations(String registrationId, List<LwM2mPath> paths) {
+        try {
+            lock.readLock().lock();
+            ObservationPathIndex observations = observationsByRegId.get(registrationId);
+            if (observations == null)
+                return Collections.emptyList();
+            return observations.getCompositeObservations(paths);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     @Override
     public Collection<Observation> removeObservations(String registrationId) {
         try {
@@ -356,10 +429,15 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
                 } else {
                     previousObservation = obsByToken.put(token, obs);
                 }
-                if (!tokensByRegId.containsKey(registrationId)) {
-                    tokensByRegId.put(registrationId, new HashSet<Token>());
+                if (previousObservation != null) {
+                    unsafeUnindexObservation(previousObservation, token);
+                }
+                ObservationPathIndex observations = observationsByRegId.get(registrationId);
+                if (observations == null) {
+                    observations = new ObservationPathIndex();
+                    observationsByRegId.put(registrationId, observations);
                 }
-                tokensByRegId.get(registrationId).add(token);
+                observations.add(build(obs));
 
                 // log any collisions
                 if (previousObservation != null) {
@@ -418,42 +496,47 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
         org.eclipse.californium.core.observe.Observation removed = obsByToken.remove(observationId);
 
         if (removed != null) {
-            String registrationId = ObserveUtil.extractRegistrationId(removed);
-            Set<Token> tokens = tokensByRegId.get(registrationId);
-            tokens.remove(observationId);
-            if (tokens.isEmpty()) {
-                tokensByRegId.remove(registrationId);
+            unsafeUnindexObservation(removed, observationId);
+        }
+    }
+
+    private void unsafeUnindexObservation(org.eclipse.californium.core.observe.Observation cfObs, Token token) {
+        String registrationId = ObserveUtil.extractRegistrationId(cfObs);
+        ObservationPathIndex observations = observationsByRegId.get(registrationId);
+        if (observations != null) {
+            observations.remove(token.getBytes());
+            if (observations.isEmpty()) {
+                observationsByRegId.remove(registrationId);
             }
         }
     }
 
     private Collection<Observation> unsafeRemoveAllObservations(String registrationId) {
-        Collection<Observation> removed = new ArrayList<>();
-        Set<Token> tokens = tokensByRegId.get(registrationId);
-        if (tokens != null) {
-            for (Token token : tokens) {
-                Observation observationRemoved = build(obsByToken.remove(token));
-                if (observationRemoved != null) {
-                    removed.add(observationRemoved);
-                }
-            }
+        ObservationPathIndex observations = observationsByRegId.remove(registrationId);
+        if (observations == null) {
+            return new ArrayList<>();
+        }
+        Collection<Observation> removed = new ArrayList<>(observations.getAll());
+        for (Observation observation : removed) {
+            obsByToken.remove(new Token(observation.getId()));
         }
-        tokensByRegId.remove(registrationId);
         return removed;
     }
 
     private Collection<Observation> unsafeGetObservations(String registrationId) {
-        Collection<Observation> result = new ArrayList<>();
-        Set<Token> tokens = tokensByRegId.get(registrationId);
-        if (tokens != null) {
-            for (Token token : tokens) {
-                Observation obs = build(unsafeGetObservation(token));
-                if (obs != null) {
-                    result.add(obs);
-                }
-            }
+        ObservationPathIndex observations = observationsByRegId.get(registrationId);
+        if (observations == null) {
+            return new ArrayList<>();
         }
-        return result;
+        return new ArrayList<>(observations.getAll());
+    }
+
+    private Observation unsafeGetObservation(String registrationId, byte[] observationId) {
+        ObservationPathIndex observations = observationsByRegId.get(registrationId);
+        if (observations == null) {
+            return null;
+        }
+        return observations.get(observationId);
     }
 
     private Observation build(org.eclipse.californium.core.observe.Observation cfObs) {
@@ -486,6 +569,18 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
         this.expirationListener = listener;
     }
 
+    private void trackExpiration(Registration registration) {
+        if (expirationEngine != null) {
+            expirationEngine.track(registration.getId(), registration.getExpirationTimeStamp());
+        }
+    }
+
+    private void untrackExpiration(Registration registration) {
+        if (expirationEngine != null) {
+            expirationEngine.untrack(registration.getId());
+        }
+    }
+
     /**
      * start the registration store, will start regular cleanup of dead registrations.
      */
@@ -493,7 +588,12 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
     public synchronized void start() {
         if (!started) {
             started = true;
-            cleanerTask = schedExecutor.scheduleAtFixedRate(new Cleaner(), cleanPeriod, cleanPeriod, TimeUnit.SECONDS);
+            if (expirationEngine != null) {
+                expirationEngine.start();
+            } else {
+                cleanerTask = schedExecutor.scheduleAtFixedRate(new Cleaner(), cleanPeriod, cleanPeriod,
+                        TimeUnit.SECONDS);
+            }
         }
     }
 
@@ -504,6 +604,9 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
     public synchronized void stop() {
         if (started) {
             started = false;
+            if (expirationEngine != null) {
+                expirationEngine.stop();
+            }
             if (cleanerTask != null) {
                 cleanerTask.cancel(false);
                 cleanerTask = null;
@@ -517,11 +620,16 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
     @Override
     public synchronized void destroy() {
         started = false;
-        schedExecutor.shutdownNow();
-        try {
-            schedExecutor.awaitTermination(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            LOG.warn("Destroying InMemoryRegistrationStore was interrupted.", e);
+        if (expirationEngine != null) {
+            expirationEngine.destroy();
+        }
+        if (schedExecutor != null) {
+            schedExecutor.shutdownNow();
+            try {
+                schedExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                LOG.warn("Destroying InMemoryRegistrationStore was interrupted.", e);
+            }
         }
     }
 
@@ -17,6 +17,9 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.californium.request;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.network.Endpoint;
@@ -47,16 +50,12 @@ import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.request.LowerLayerConfig;
 import org.eclipse.leshan.server.request.LwM2mRequestSender;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * An implementation of {@link LwM2mRequestSender} and {@link CoapRequestSender} based on Californium.
  */
 public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRequestSender, Destroyable {
 
-    private static final Logger LOG = LoggerFactory.getLogger(CaliforniumLwM2mRequestSender.class);
-
     private final ObservationServiceImpl observationService;
     private final LwM2mModelProvider modelProvider;
     private final RequestSender sender;
@@ -116,20 +115,8 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
                 destination.canInitiateConnection());
 
         // Handle special observe case
-        if (response != null && response.isSuccess()) {
-            Observation observation = null;
-            if (response instanceof ObserveResponse) {
-                observation = ((ObserveResponse) response).getObservation();
-            } else if (response instanceof ObserveCompositeResponse) {
-                observation = ((ObserveCompositeResponse) response).getObservation();
-            }
-            if (observation != null) {
-                LOG.info("here?");
-                observationService.addObservation(destination, observation);
-            }
-        }
+        addObservation(destination, response);
         return response;
-        // THIS FUCKER
     }
 
     /**
@@ -172,15 +159,81 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
                 destination.getRootPath(), request, lowerLayerConfig, timeoutInMs, new ResponseCallback<T>() {
                     @Override
                     public void onResponse(T response) {
-                        if (response != null && response.getClass() == ObserveResponse.class && response.isSuccess()) {
-                            observationService.addObservation(destination,
-                                    ((ObserveResponse) response).getObservation());
-                        }
+                        addObservation(destination, response);
                         responseCallback.onResponse(response);
                     }
                 }, errorCallback, destination.canInitiateConnection());
     }
 
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client and return a
+     * {@link CompletableFuture} of the response.
+     * <p>
+     * No thread is blocked while waiting for the response and cancelling the future cancels the underlying CoAP
+     * request.
+     *
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @param lowerLayerConfig to tweak lower layer request (e.g. coap request)
+     * @param timeoutInMs The global timeout to wait in milliseconds (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @return a future completed with the response (successful or error response) or completed exceptionally with :
+     *         <ul>
+     *         <li>{@link CodecException} if request payload can not be encoded.</li>
+     *         <li>{@link RequestRejectedException} if the request is rejected by foreign peer.</li>
+     *         <li>{@link RequestCanceledException} if the request is cancelled.</li>
+     *         <li>{@link SendFailedException} if the request can not be sent. E.g. error at CoAP or DTLS/UDP
+     *         layer.</li>
+     *         <li>{@link InvalidResponseException} if the response received is malformed.</li>
+     *         <li>{@link UnconnectedPeerException} if client is not connected (no dtls connection available).</li>
+     *         <li>{@link TimeoutException} if the timeout expires (see
+     *         https://github.com/eclipse/leshan/wiki/Request-Timeout).</li>
+     *         <li>or any other RuntimeException for unexpected issue.
+     *         </ul>
+     */
+    @Override
+    public <T extends LwM2mResponse> CompletableFuture<T> sendAsync(final Registration destination,
+            DownlinkRequest<T> request, LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+        // Retrieve the objects definition
+        final LwM2mModel model = modelProvider.getObjectModel(destination);
+
+        // Send requests asynchronously
+        final CompletableFuture<T> coapFuture = sender.sendLwm2mRequestAsync(destination.getEndpoint(),
+                destination.getIdentity(), destination.getId(), model, destination.getRootPath(), request,
+                lowerLayerConfig, timeoutInMs, destination.canInitiateConnection());
+
+        // Handle special observe case before the user get the response
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        coapFuture.whenComplete((response, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                addObservation(destination, response);
+                future.complete(response);
+            }
+        });
+        future.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) {
+                coapFuture.cancel(false);
+            }
+        });
+        return future;
+    }
+
+    private void addObservation(Registration destination, LwM2mResponse response) {
+        if (response != null && response.isSuccess()) {
+            Observation observation = null;
+            if (response instanceof ObserveResponse) {
+                observation = ((ObserveResponse) response).getObservation();
+            } else if (response instanceof ObserveCompositeResponse) {
+                observation = ((ObserveCompositeResponse) response).getObservation();
+            }
+            if (observation != null) {
+                observationService.addObservation(destination, observation);
+            }
+        }
+    }
+
     /**
      * Send a CoAP {@link Request} synchronously to a LWM2M client. Will block until a response is received from the
      * remote client.
@@ -252,6 +305,13 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
         sender.cancelRequests(registration.getId());
     }
 
+    /**
+     * @return the number of ongoing requests, for monitoring purpose.
+     */
+    public long getOngoingRequestCount() {
+        return sender.getOngoingRequestCount();
+    }
+
     @Override
     public void destroy() {
         sender.destroy();
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.californium.core.coap.Request;
+
+/**
+ * An index of ongoing CoAP requests by session.
+ * <p>
+ * Adding or removing a request is O(1) and removing all requests of a session is O(number of requests of this session).
+ * <p>
+ * Sets of requests are only modified while holding the lock of their session entry in the map (using
+ * {@link ConcurrentMap#compute(Object, java.util.function.BiFunction)}), so a set removed from the map can not be
+ * modified anymore and an empty set is never left in the map.
+ */
+class OngoingRequests {
+
+    private final ConcurrentMap<String /* sessionId */, Set<Request>> requestsBySession = new ConcurrentHashMap<>();
+    private final LongAdder size = new LongAdder();
+
+    public void add(String sessionId, Request request) {
+        requestsBySession.compute(sessionId, (id, requests) -> {
+            if (requests == null) {
+                requests = ConcurrentHashMap.newKeySet();
+            }
+            if (requests.add(request)) {
+                size.increment();
+            }
+            return requests;
+        });
+    }
+
+    public void remove(String sessionId, Request request) {
+        requestsBySession.computeIfPresent(sessionId, (id, requests) -> {
+            if (requests.remove(request)) {
+                size.decrement();
+            }
+            return requests.isEmpty() ? null : requests;
+        });
+    }
+
+    /**
+     * Remove all requests of the given session.
+     *
+     * @return the removed requests.
+     */
+    public Set<Request> removeAll(String sessionId) {
+        Set<Request> requests = requestsBySession.remove(sessionId);
+        if (requests == null) {
+            return Collections.emptySet();
+        }
+        size.add(-requests.size());
+        return requests;
+    }
+
+    /**
+     * @return the number of ongoing requests.
+     */
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * @return the number of sessions with at least one ongoing request.
+     */
+    public int sessionCount() {
+        return requestsBySession.size();
+    }
+}
@@ -17,13 +17,11 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.californium.request;
 
-import java.util.SortedMap;
-import java.util.concurrent.ConcurrentNavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.californium.core.coap.MessageObserver;
 import org.eclipse.californium.core.coap.MessageObserverAdapter;
@@ -81,7 +79,7 @@ public class RequestSender implements Destroyable {
 
     // A map which contains all ongoing CoAP requests
     // This is used to be able to cancel request
-    private final ConcurrentNavigableMap<String/* sessionId#requestId */, Request /* ongoing coap Request */> ongoingRequests = new ConcurrentSkipListMap<>();
+    private final OngoingRequests ongoingRequests = new OngoingRequests();
 
     /**
      * @param secureEndpoint The endpoint used to send coaps request.
@@ -240,6 +238,80 @@ public class RequestSender implements Destroyable {
             nonSecureEndpoint.sendRequest(coapRequest);
     }
 
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client and return a
+     * {@link CompletableFuture} of the response.
+     * <p>
+     * No thread is blocked while waiting for the response : the future is completed by the CoAP stack, or by the
+     * timeout task. Cancelling the future cancels the underlying CoAP request.
+     *
+     * @param endpointName the LWM2M client endpoint name.
+     * @param destination the LWM2M client {@link Identity}.
+     * @param sessionId A session Identifier which could be reused to cancel all ongoing request related to this
+     *        sessionId. See {@link #cancelRequests(String)}.
+     * @param model The {@link LwM2mModel} used to encode payload in request and decode payload in response.
+     * @param rootPath a rootpath to prefix to the LWM2M path to create the CoAP path. (see 8.2.2 Alternate Path in
+     *        LWM2M specification)
+     * @param request The request to send to the client.
+     * @param lowerLayerConfig to tweak lower layer request (e.g. coap request)
+     * @param timeoutInMs The response timeout to wait in milliseconds (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @param allowConnectionInitiation This request can initiate a Handshake if there is no DTLS connection.
+     * @return a future completed with the response (successful or error response) or completed exceptionally with the
+     *         same exceptions than errorCallback of
+     *         {@link #sendLwm2mRequest(String, Identity, String, LwM2mModel, String, DownlinkRequest, LowerLayerConfig, long, ResponseCallback, ErrorCallback, boolean)}
+     *         or a {@link CodecException} if request payload can not be encoded.
+     */
+    public <T extends LwM2mResponse> CompletableFuture<T> sendLwm2mRequestAsync(String endpointName,
+            Identity destination, String sessionId, LwM2mModel model, String rootPath, DownlinkRequest<T> request,
+            LowerLayerConfig lowerLayerConfig, long timeoutInMs, boolean allowConnectionInitiation) {
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Request coapRequest;
+        try {
+            // Create the CoAP request from LwM2m request
+            CoapRequestBuilder coapClientRequestBuilder = new CoapRequestBuilder(destination, rootPath, sessionId,
+                    endpointName, model, encoder, allowConnectionInitiation, lowerLayerConfig);
+            request.accept(coapClientRequestBuilder);
+            coapRequest = coapClientRequestBuilder.getRequest();
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        // Add CoAP request callback
+        MessageObserver obs = new AsyncRequestObserver<T>(coapRequest, future::complete, future::completeExceptionally,
+                timeoutInMs, executor) {
+            @Override
+            public T buildResponse(Response coapResponse) {
+                // Build LwM2m response
+                LwM2mResponseBuilder<T> lwm2mResponseBuilder = new LwM2mResponseBuilder<>(coapRequest, coapResponse,
+                        endpointName, model, decoder, linkParser);
+                request.accept(lwm2mResponseBuilder);
+                return lwm2mResponseBuilder.getResponse();
+            }
+        };
+        coapRequest.addMessageObserver(obs);
+
+        // Cancel CoAP request if future is cancelled
+        future.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) {
+                coapRequest.cancel();
+            }
+        });
+
+        // Store pending request to be able to cancel it later
+        addOngoingRequest(sessionId, coapRequest);
+
+        // Send CoAP request asynchronously
+        if (destination.isSecure())
+            secureEndpoint.sendRequest(coapRequest);
+        else
+            nonSecureEndpoint.sendRequest(coapRequest);
+
+        return future;
+    }
+
     /**
      * Send a CoAP {@link Request} synchronously to a LWM2M client. Will block until a response is received from the
      * remote client.
@@ -365,64 +437,50 @@ public class RequestSender implements Destroyable {
      */
     public void cancelRequests(String sessionID) {
         Validate.notNull(sessionID);
-        SortedMap<String, Request> requests = ongoingRequests.subMap(getFloorKey(sessionID), getCeilingKey(sessionID));
-        for (Request coapRequest : requests.values()) {
+        for (Request coapRequest : ongoingRequests.removeAll(sessionID)) {
             coapRequest.cancel();
         }
-        requests.clear();
     }
 
-    private static String getFloorKey(String sessionID) {
-        // The key format is sessionid#long, So we need a key which is always before this pattern (in natural order).
-        return sessionID + '#';
-    }
-
-    private static String getCeilingKey(String sessionID) {
-        // The key format is sessionid#long, So we need a key which is always after this pattern (in natural order).
-        return sessionID + "#A";
+    /**
+     * @return the number of ongoing requests associated to a session. This can be used to monitor the sender.
+     */
+    public long getOngoingRequestCount() {
+        return ongoingRequests.size();
     }
 
-    private static String getKey(String sessionID, long requestId) {
-        return sessionID + '#' + requestId;
+    /**
+     * @return the number of sessions which have at least one ongoing request.
+     */
+    public int getOngoingSessionCount() {
+        return ongoingRequests.sessionCount();
     }
 
     private void addOngoingRequest(String sessionID, Request coapRequest) {
         if (sessionID != null) {
-            CleanerMessageObserver observer = new CleanerMessageObserver(sessionID, coapRequest);
-            coapRequest.addMessageObserver(observer);
-            ongoingRequests.put(observer.getRequestKey(), coapRequest);
+            coapRequest.addMessageObserver(new CleanerMessageObserver(sessionID, coapRequest));
+            ongoingRequests.add(sessionID, coapRequest);
         }
     }
 
-    private void removeOngoingRequest(String key, Request coapRequest) {
-        Validate.notNull(key);
-        ongoingRequests.remove(key, coapRequest);
-    }
-
-    private AtomicLong idGenerator = new AtomicLong(0l);
-
     private class CleanerMessageObserver extends MessageObserverAdapter {
 
-        private final String requestKey;
+        private final String sessionID;
         private final Request coapRequest;
 
         public CleanerMessageObserver(String sessionID, Request coapRequest) {
             super();
-            requestKey = getKey(sessionID, idGenerator.incrementAndGet());
+            this.sessionID = sessionID;
             this.coapRequest = coapRequest;
         }
 
-        public String getRequestKey() {
-            return requestKey;
-        }
-
         @Override
         public void onRetransmission() {
         }
 
         @Override
         public void onResponse(Response response) {
-            removeOngoingRequest(requestKey, coapRequest);
+            ongoingRequests.remove(sessionID, coapRequest);
         }
 
         @Override
@@ -431,12 +489,12 @@ public class RequestSender implements Destroyable {
 
         @Override
         protected void failed() {
-            removeOngoingRequest(requestKey, coapRequest);
+            ongoingRequests.remove(sessionID, coapRequest);
         }
 
         @Override
         public void onCancel() {
-            removeOngoingRequest(requestKey, coapRequest);
+            ongoingRequests.remove(sessionID, coapRequest);
         }
     }
 
@@ -16,6 +16,7 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.californium.observation;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -45,6 +46,7 @@ import org.eclipse.leshan.server.californium.DummyDecoder;
 import org.eclipse.leshan.server.californium.registration.CaliforniumRegistrationStore;
 import org.eclipse.leshan.server.californium.registration.InMemoryRegistrationStore;
 import org.eclipse.leshan.server.model.StandardModelProvider;
+import org.eclipse.leshan.server.observation.NotificationMetrics;
 import org.eclipse.leshan.server.observation.ObservationListener;
 import org.eclipse.leshan.server.registration.Registration;
 import org.junit.Assert;
@@ -195,6 +197,30 @@ public class ObservationServiceTest {
         assertTrue(listener.observation instanceof CompositeObservation);
     }
 
+    @Test
+    public void on_notification_updates_metrics() {
+        // given
+        createDummyDecoderObservationService();
+        givenAnObservation(support.registration.getId(), new LwM2mPath("/1/2/3"));
+        observationService.addListener(new CatchResponseObservationListener());
+
+        Response coapResponse = new Response(CoAP.ResponseCode.CONTENT);
+        coapResponse.setToken(coapRequest.getToken());
+        Response unknownTokenResponse = new Response(CoAP.ResponseCode.CONTENT);
+        unknownTokenResponse.setToken(new byte[] { 42 });
+
+        // when
+        observationService.onNotification(coapRequest, coapResponse);
+        observationService.onNotification(coapRequest, unknownTokenResponse);
+
+        // then
+        NotificationMetrics metrics = observationService.getNotificationMetrics();
+        assertEquals(2, metrics.getReceived());
+        assertEquals(1, metrics.getUnknownObservations());
+        assertEquals(1, metrics.getDecodeTime().getCount());
+        assertEquals(1, metrics.getDispatchTime().getCount());
+    }
+
     private void createDummyDecoderObservationService() {
         observationService = new ObservationServiceImpl(store, new StandardModelProvider(), new DummyDecoder());
     }
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.registration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Token;
+import org.eclipse.leshan.core.californium.ObserveUtil;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.UpdatedRegistration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConcurrentInMemoryRegistrationStoreTest {
+
+    private final Long lifetime = 10000L;
+    private final EnumSet<BindingMode> binding = EnumSet.of(BindingMode.U);
+    private final Link[] objectLinks = new Link[] { new Link("/3") };
+
+    CaliforniumRegistrationStore store;
+    InetAddress address;
+
+    @Before
+    public void setUp() throws UnknownHostException {
+        address = InetAddress.getLocalHost();
+        store = new ConcurrentInMemoryRegistrationStore();
+    }
+
+    @Test
+    public void update_registration_updates_all_indexes() {
+        Registration registration = givenASimpleRegistration("regid", "urn:endpoint", 5683);
+        store.addRegistration(registration);
+
+        RegistrationUpdate update = new RegistrationUpdate("regid", Identity.unsecure(address, 5684), lifetime, null,
+                null, null, null, null);
+        UpdatedRegistration updatedRegistration = store.updateRegistration(update);
+        Registration updated = updatedRegistration.getUpdatedRegistration();
+
+        assertEquals(registration, updatedRegistration.getPreviousRegistration());
+        assertEquals(updated, store.getRegistration("regid"));
+        assertEquals(updated, store.getRegistrationByEndpoint("urn:endpoint"));
+        assertEquals(updated, store.getRegistrationByIdentity(Identity.unsecure(address, 5684)));
+        assertEquals(updated, store.getRegistrationByAdress(new InetSocketAddress(address, 5684)));
+        assertNull(store.getRegistrationByIdentity(Identity.unsecure(address, 5683)));
+        assertNull(store.getRegistrationByAdress(new InetSocketAddress(address, 5683)));
+    }
+
+    @Test
+    public void add_registration_replaces_previous_one_and_its_observations() {
+        Registration registration = givenASimpleRegistration("regid1", "urn:endpoint", 5683);
+        store.addRegistration(registration);
+        store.put(Token.fromProvider(new byte[] { 1 }),
+                prepareCoapObservation("urn:endpoint", "regid1", new byte[] { 1 }));
+
+        Registration newRegistration = givenASimpleRegistration("regid2", "urn:endpoint", 5684);
+        Deregistration deregistration = store.addRegistration(newRegistration);
+
+        assertEquals(registration, deregistration.getRegistration());
+        assertEquals(1, deregistration.getObservations().size());
+        assertNull(store.getRegistration("regid1"));
+        assertNull(store.getRegistrationByAdress(new InetSocketAddress(address, 5683)));
+        assertNull(store.get(Token.fromProvider(new byte[] { 1 })));
+        assertEquals(newRegistration, store.getRegistrationByEndpoint("urn:endpoint"));
+    }
+
+    @Test
+    public void remove_registration_removes_its_observations() {
+        Registration registration = givenASimpleRegistration("regid", "urn:endpoint", 5683);
+        store.addRegistration(registration);
+        Token token = Token.fromProvider(new byte[] { 1 });
+        store.put(token, prepareCoapObservation("urn:endpoint", "regid", token.getBytes()));
+
+        Observation observation = store.getObservation("regid", token.getBytes());
+        assertNotNull(observation);
+
+        Deregistration deregistration = store.removeRegistration("regid");
+        assertEquals(registration, deregistration.getRegistration());
+        assertEquals(1, deregistration.getObservations().size());
+        assertNull(store.getObservation("regid", token.getBytes()));
+        assertTrue(store.getObservations("regid").isEmpty());
+        assertNull(store.getRegistrationByEndpoint("urn:endpoint"));
+    }
+
+    @Test
+    public void all_registrations_can_be_streamed_in_parallel() {
+        for (int i = 0; i < 100; i++) {
+            store.addRegistration(givenASimpleRegistration("regid" + i, "urn:endpoint" + i, 5683 + i));
+        }
+
+        Set<String> endpoints = store.streamAllRegistrations().parallel().map(Registration::getEndpoint)
+                .collect(Collectors.toSet());
+
+        assertEquals(100, endpoints.size());
+        assertTrue(endpoints.contains("urn:endpoint42"));
+    }
+
+    @Test
+    public void concurrent_operations_on_different_endpoints_keep_indexes_consistent() throws Exception {
+        final int nbThreads = 8;
+        final int nbClientsPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < nbThreads; t++) {
+                final int threadIndex = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < nbClientsPerThread; i++) {
+                            int port = threadIndex * nbClientsPerThread + i + 1;
+                            String regId = "reg" + port;
+                            String endpoint = "urn:endpoint" + port;
+                            store.addRegistration(givenASimpleRegistration(regId, endpoint, port));
+                            byte[] tokenBytes = new byte[] { (byte) (port >> 8), (byte) port };
+                            store.put(Token.fromProvider(tokenBytes),
+                                    prepareCoapObservation(endpoint, regId, tokenBytes));
+                            store.updateRegistration(new RegistrationUpdate(regId, Identity.unsecure(address, port),
+                                    lifetime, null, null, null, null, null));
+                            // remove one registration on two
+                            if (i % 2 == 0) {
+                                store.removeRegistration(regId);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int port = 1; port <= nbThreads * nbClientsPerThread; port++) {
+            String regId = "reg" + port;
+            Registration registration = store.getRegistration(regId);
+            Collection<Observation> observations = store.getObservations(regId);
+            if ((port - 1) % nbClientsPerThread % 2 == 0) {
+                assertNull(registration);
+                assertTrue(observations.isEmpty());
+                assertNull(store.getRegistrationByEndpoint("urn:endpoint" + port));
+            } else {
+                assertNotNull(registration);
+                assertEquals(registration, store.getRegistrationByEndpoint("urn:endpoint" + port));
+                assertEquals(registration, store.getRegistrationByIdentity(Identity.unsecure(address, port)));
+                assertEquals(1, observations.size());
+            }
+        }
+    }
+
+    private org.eclipse.californium.core.observe.Observation prepareCoapObservation(String endpoint,
+            String registrationId, byte[] token) {
+        ObserveRequest observeRequest = new ObserveRequest(null, "/3/0/1");
+
+        Map<String, String> userContext = ObserveUtil.createCoapObserveRequestContext(endpoint, registrationId,
+                observeRequest);
+
+        Request coapRequest = new Request(CoAP.Code.GET);
+        coapRequest.setUserContext(userContext);
+        coapRequest.setToken(token);
+        coapRequest.setObserve();
+        coapRequest.getOptions().setAccept(ContentFormat.DEFAULT.getCode());
+
+        return new org.eclipse.californium.core.observe.Observation(coapRequest, null);
+    }
+
+    private Registration givenASimpleRegistration(String registrationId, String endpoint, int port) {
+        Registration.Builder builder = new Registration.Builder(registrationId, endpoint,
+                Identity.unsecure(address, port));
+        return builder.lifeTimeInSec(lifetime).bindingMode(binding).objectLinks(objectLinks).build();
+    }
+}
@@ -24,9 +24,12 @@ import static org.junit.Assert.assertTrue;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.Request;
@@ -42,8 +45,10 @@ import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.request.ObserveCompositeRequest;
 import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.server.registration.ExpirationListener;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.TimingWheelExpirationEngine;
 import org.eclipse.leshan.server.registration.UpdatedRegistration;
 import org.junit.Assert;
 import org.junit.Before;
@@ -114,6 +119,28 @@ public class InMemoryRegistrationStoreTest {
         Assert.assertTrue(reg.isAlive());
     }
 
+    @Test
+    public void expiration_engine_removes_expired_registration() throws InterruptedException {
+        InMemoryRegistrationStore storeWithEngine = new InMemoryRegistrationStore(new TimingWheelExpirationEngine(100));
+        final CountDownLatch expired = new CountDownLatch(1);
+        storeWithEngine.setExpirationListener(new ExpirationListener() {
+            @Override
+            public void registrationExpired(Registration registration, Collection<Observation> observations) {
+                expired.countDown();
+            }
+        });
+        storeWithEngine.start();
+        try {
+            givenASimpleRegistration(1L);
+            storeWithEngine.addRegistration(registration);
+
+            assertTrue(expired.await(3, TimeUnit.SECONDS));
+            Assert.assertNull(storeWithEngine.getRegistrationByEndpoint(ep));
+        } finally {
+            storeWithEngine.destroy();
+        }
+    }
+
     @Test
     public void put_coap_observation_with_valid_request() {
         // given
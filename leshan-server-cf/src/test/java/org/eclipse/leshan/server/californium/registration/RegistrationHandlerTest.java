@@ -16,6 +16,8 @@
 package org.eclipse.leshan.server.californium.registration;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
@@ -23,18 +25,23 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.eclipse.leshan.core.ResponseCode;
 import org.eclipse.leshan.core.link.DefaultLinkParser;
 import org.eclipse.leshan.core.link.LinkParseException;
 import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.DeregisterRequest;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.request.RegisterRequest;
 import org.eclipse.leshan.core.request.UpdateRequest;
 import org.eclipse.leshan.core.request.UplinkRequest;
+import org.eclipse.leshan.core.response.DeregisterResponse;
+import org.eclipse.leshan.core.response.UpdateResponse;
 import org.eclipse.leshan.server.registration.RandomStringRegistrationIdProvider;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationHandler;
 import org.eclipse.leshan.server.registration.RegistrationServiceImpl;
 import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
 import org.eclipse.leshan.server.security.Authorization;
 import org.eclipse.leshan.server.security.Authorizer;
 import org.junit.Before;
@@ -112,6 +119,92 @@ public class RegistrationHandlerTest {
         assertEquals(appData, registration.getApplicationData());
     }
 
+    @Test
+    public void test_update_declined_by_authorizer() {
+        authorizer.willReturn(Authorization.approved());
+        registrationHandler.register(givenIdenity(), givenRegisterRequestWithEndpoint("myEndpoint"));
+        Registration registration = registrationStore.getRegistrationByEndpoint("myEndpoint");
+
+        // handle UPDATE request
+        authorizer.willReturn(Authorization.declined());
+        UpdateResponse response = registrationHandler
+                .update(givenIdenity(), new UpdateRequest(registration.getId(), 60l, null, null, null, null))
+                .getResponse();
+
+        // check result
+        assertEquals(ResponseCode.BAD_REQUEST, response.getCode());
+        assertEquals(registration, registrationStore.getRegistrationByEndpoint("myEndpoint"));
+
+        // handle UPDATE request for unknown registration
+        authorizer.willReturn(Authorization.approved());
+        response = registrationHandler.update(givenIdenity(), givenUpdateRequestWithID("unknown")).getResponse();
+        assertEquals(ResponseCode.NOT_FOUND, response.getCode());
+    }
+
+    @Test
+    public void test_deregister() {
+        authorizer.willReturn(Authorization.approved());
+        registrationHandler.register(givenIdenity(), givenRegisterRequestWithEndpoint("myEndpoint"));
+        Registration registration = registrationStore.getRegistrationByEndpoint("myEndpoint");
+
+        // handle declined DEREGISTER request
+        authorizer.willReturn(Authorization.declined());
+        DeregisterResponse response = registrationHandler
+                .deregister(givenIdenity(), new DeregisterRequest(registration.getId())).getResponse();
+        assertEquals(ResponseCode.BAD_REQUEST, response.getCode());
+        assertNotNull(registrationStore.getRegistrationByEndpoint("myEndpoint"));
+
+        // handle approved DEREGISTER request
+        authorizer.willReturn(Authorization.approved());
+        response = registrationHandler.deregister(givenIdenity(), new DeregisterRequest(registration.getId()))
+                .getResponse();
+        assertEquals(ResponseCode.DELETED, response.getCode());
+        assertNull(registrationStore.getRegistrationByEndpoint("myEndpoint"));
+
+        // handle DEREGISTER request for removed registration
+        response = registrationHandler.deregister(givenIdenity(), new DeregisterRequest(registration.getId()))
+                .getResponse();
+        assertEquals(ResponseCode.NOT_FOUND, response.getCode());
+    }
+
+    @Test
+    public void test_update_registration_modified_during_authorization() {
+        authorizer.willReturn(Authorization.approved());
+        registrationHandler.register(givenIdenity(), givenRegisterRequestWithEndpoint("myEndpoint"));
+        final Registration registration = registrationStore.getRegistrationByEndpoint("myEndpoint");
+
+        // registration is updated by another request while the update is authorized
+        int calls = authorizer.getCalls();
+        authorizer.onNextCall(() -> registrationStore.updateRegistration(new RegistrationUpdate(registration.getId(),
+                Identity.unsecure(new InetSocketAddress(1)), null, null, null, null, null, null)));
+        UpdateResponse response = registrationHandler
+                .update(givenIdenity(), new UpdateRequest(registration.getId(), 60l, null, null, null, null))
+                .getResponse();
+
+        // check update is authorized again then applied
+        assertEquals(ResponseCode.CHANGED, response.getCode());
+        assertEquals(calls + 2, authorizer.getCalls());
+        Registration updatedRegistration = registrationStore.getRegistrationByEndpoint("myEndpoint");
+        assertEquals(givenIdenity(), updatedRegistration.getIdentity());
+        assertEquals(60l, updatedRegistration.getLifeTimeInSec().longValue());
+    }
+
+    @Test
+    public void test_deregister_registration_removed_during_authorization() {
+        authorizer.willReturn(Authorization.approved());
+        registrationHandler.register(givenIdenity(), givenRegisterRequestWithEndpoint("myEndpoint"));
+        final Registration registration = registrationStore.getRegistrationByEndpoint("myEndpoint");
+
+        // registration is removed by another request while the de-registration is authorized
+        int calls = authorizer.getCalls();
+        authorizer.onNextCall(() -> registrationStore.removeRegistration(registration.getId()));
+        DeregisterResponse response = registrationHandler
+                .deregister(givenIdenity(), new DeregisterRequest(registration.getId())).getResponse();
+
+        assertEquals(ResponseCode.NOT_FOUND, response.getCode());
+        assertEquals(calls + 1, authorizer.getCalls());
+    }
+
     private Identity givenIdenity() {
         return Identity.unsecure(new InetSocketAddress(0));
     }
@@ -132,14 +225,30 @@ public class RegistrationHandlerTest {
     private static class TestAuthorizer implements Authorizer {
 
         private Authorization autorization;
+        private Runnable onNextCall;
+        private int calls;
 
         public void willReturn(Authorization authorization) {
             this.autorization = authorization;
         }
 
+        public void onNextCall(Runnable action) {
+            this.onNextCall = action;
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+
         @Override
         public Authorization isAuthorized(UplinkRequest<?> request, Registration registration,
                 Identity senderIdentity) {
+            calls++;
+            if (onNextCall != null) {
+                Runnable action = onNextCall;
+                onNextCall = null;
+                action.run();
+            }
             return autorization;
         }
     }
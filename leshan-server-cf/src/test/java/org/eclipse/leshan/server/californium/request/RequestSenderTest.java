@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.leshan.core.link.lwm2m.DefaultLwM2mLinkParser;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mEncoder;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.server.californium.LeshanServerBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestSenderTest {
+
+    private CoapEndpoint endpoint;
+    private DatagramSocket silentPeer;
+    private RequestSender sender;
+    private Identity destination;
+    private StaticModel model;
+
+    @Before
+    public void setUp() throws IOException {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        endpoint = new CoapEndpoint.Builder().setInetSocketAddress(new InetSocketAddress(loopback, 0))
+                .setConfiguration(LeshanServerBuilder.createDefaultCoapConfiguration()).build();
+        endpoint.start();
+
+        // a peer which never answers
+        silentPeer = new DatagramSocket(0, loopback);
+        destination = Identity.unsecure(loopback, silentPeer.getLocalPort());
+
+        sender = new RequestSender(null, endpoint, new DefaultLwM2mEncoder(), new DefaultLwM2mDecoder(),
+                new DefaultLwM2mLinkParser());
+        model = new StaticModel(ObjectLoader.loadDefault());
+    }
+
+    @After
+    public void tearDown() {
+        sender.destroy();
+        endpoint.destroy();
+        silentPeer.close();
+    }
+
+    @Test
+    public void future_completes_exceptionally_on_timeout() throws InterruptedException {
+        CompletableFuture<ReadResponse> future = sender.sendLwm2mRequestAsync("urn:client", destination, "ID", model,
+                "/", new ReadRequest(3, 0, 1), null, 200, false);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("future should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+            assertEquals(TimeoutException.Type.RESPONSE_TIMEOUT, ((TimeoutException) e.getCause()).getType());
+        } catch (java.util.concurrent.TimeoutException e) {
+            fail("future should be completed by request timeout");
+        }
+    }
+
+    @Test
+    public void cancelling_future_cancels_coap_request() {
+        final AtomicReference<Request> coapRequest = new AtomicReference<>();
+        CompletableFuture<ReadResponse> future = sender.sendLwm2mRequestAsync("urn:client", destination, "ID", model,
+                "/", new ReadRequest(3, 0, 1), lowerRequest -> coapRequest.set((Request) lowerRequest), 60000, false);
+
+        assertTrue(future.cancel(false));
+        assertTrue(coapRequest.get().isCanceled());
+    }
+
+    @Test
+    public void cancelling_session_completes_future_exceptionally() throws InterruptedException {
+        CompletableFuture<ReadResponse> future = sender.sendLwm2mRequestAsync("urn:client", destination, "ID", model,
+                "/", new ReadRequest(3, 0, 1), null, 60000, false);
+
+        sender.cancelRequests("ID");
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("future should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RequestCanceledException);
+        } catch (java.util.concurrent.TimeoutException e) {
+            fail("future should be completed by request cancellation");
+        }
+    }
+
+    @Test
+    public void ongoing_requests_are_indexed_by_session() {
+        sender.sendLwm2mRequestAsync("urn:client", destination, "ID", model, "/", new ReadRequest(3, 0, 1), null, 60000,
+                false);
+        sender.sendLwm2mRequestAsync("urn:client", destination, "ID", model, "/", new ReadRequest(3, 0, 2), null, 60000,
+                false);
+        CompletableFuture<ReadResponse> other = sender.sendLwm2mRequestAsync("urn:other", destination, "OTHER", model,
+                "/", new ReadRequest(3, 0, 1), null, 60000, false);
+        assertEquals(3, sender.getOngoingRequestCount());
+        assertEquals(2, sender.getOngoingSessionCount());
+
+        sender.cancelRequests("ID");
+        assertEquals(1, sender.getOngoingRequestCount());
+        assertEquals(1, sender.getOngoingSessionCount());
+        assertFalse(other.isDone());
+
+        // terminated request is removed from index
+        other.cancel(false);
+        assertEquals(0, sender.getOngoingRequestCount());
+        assertEquals(0, sender.getOngoingSessionCount());
+    }
+}
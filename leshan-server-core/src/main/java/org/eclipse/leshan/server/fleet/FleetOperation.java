@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.fleet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.registration.Registration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An ongoing {@link FleetRequest} executed by a {@link FleetOperationManager}.
+ * <p>
+ * It allows to follow the progress of the operation and to cancel it.
+ *
+ * @param <T> the type of the response.
+ */
+public class FleetOperation<T extends LwM2mResponse> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FleetOperation.class);
+
+    private final FleetOperationManager manager;
+    private final FleetRequest<T> request;
+    private final FleetOperationListener<T> listener;
+    private final long startTime = System.currentTimeMillis();
+    private final CompletableFuture<FleetOperationResult> completion = new CompletableFuture<>();
+
+    // Counters, updated from the threads completing requests
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder errorResponses = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder aborted = new LongAdder();
+    private final ConcurrentMap<ResponseCode, LongAdder> responseCodes = new ConcurrentHashMap<>();
+    private volatile boolean cancelled;
+    private volatile long endTime;
+
+    // Only accessed from manager thread
+    Iterator<Registration> targets;
+    boolean exhausted;
+    final Set<CompletableFuture<T>> ongoing = new HashSet<>();
+
+    FleetOperation(FleetOperationManager manager, FleetRequest<T> request, FleetOperationListener<T> listener) {
+        this.manager = manager;
+        this.request = request;
+        this.listener = listener;
+    }
+
+    public FleetRequest<T> getRequest() {
+        return request;
+    }
+
+    /**
+     * Stop sending the request to new clients and cancel ongoing requests.
+     */
+    public void cancel() {
+        manager.cancel(this);
+    }
+
+    /**
+     * @return <code>true</code> if the operation is terminated.
+     */
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    /**
+     * @return a snapshot of the current result of the operation.
+     */
+    public FleetOperationResult getResult() {
+        Map<ResponseCode, Long> codes = new HashMap<>();
+        for (Entry<ResponseCode, LongAdder> entry : responseCodes.entrySet()) {
+            codes.put(entry.getKey(), entry.getValue().sum());
+        }
+        long end = endTime;
+        return new FleetOperationResult(sent.sum(), successes.sum(), errorResponses.sum(), timeouts.sum(),
+                failures.sum(), aborted.sum(), codes, end != 0, cancelled,
+                (end != 0 ? end : System.currentTimeMillis()) - startTime);
+    }
+
+    /**
+     * @return a future completed with the final result when the operation is terminated.
+     */
+    public CompletableFuture<FleetOperationResult> getCompletionFuture() {
+        // return a dependent future, so user can not complete the internal one.
+        return completion.thenApply(result -> result);
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    void setCancelled() {
+        cancelled = true;
+    }
+
+    void onSent() {
+        sent.increment();
+    }
+
+    void onTerminated(Registration registration, T response, Throwable error) {
+        try {
+            if (error == null) {
+                if (response.isSuccess()) {
+                    successes.increment();
+                } else {
+                    errorResponses.increment();
+                }
+                responseCodes.computeIfAbsent(response.getCode(), code -> new LongAdder()).increment();
+                listener.onResponse(registration, response);
+            } else if (error instanceof CancellationException) {
+                aborted.increment();
+            } else {
+                if (error instanceof TimeoutException) {
+                    timeouts.increment();
+                } else {
+                    failures.increment();
+                }
+                listener.onError(registration,
+                        error instanceof Exception ? (Exception) error : new IllegalStateException(error));
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Unexpected error in fleet operation listener", e);
+        }
+    }
+
+    void complete() {
+        endTime = System.currentTimeMillis();
+        FleetOperationResult result = getResult();
+        try {
+            listener.onCompleted(result);
+        } catch (RuntimeException e) {
+            LOG.warn("Unexpected error in fleet operation listener", e);
+        }
+        completion.complete(result);
+    }
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.fleet;
+
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * A listener aware of the progress of a {@link FleetOperation}.
+ * <p>
+ * {@link #onResponse(Registration, LwM2mResponse)} and {@link #onError(Registration, Exception)} are called as soon as
+ * a client answers, possibly concurrently from several threads. {@link #onCompleted(FleetOperationResult)} is called
+ * once after all other events.
+ *
+ * @param <T> the type of the response.
+ */
+public interface FleetOperationListener<T extends LwM2mResponse> {
+
+    /**
+     * Invoked when a response is received from a client (successful or error response).
+     */
+    default void onResponse(Registration registration, T response) {
+    }
+
+    /**
+     * Invoked when the request to a client failed (timeout, client sleeping, ...).
+     */
+    default void onError(Registration registration, Exception error) {
+    }
+
+    /**
+     * Invoked when the request was sent to all targeted clients and all responses are received, or when the operation
+     * is cancelled and all ongoing requests are terminated.
+     */
+    default void onCompleted(FleetOperationResult result) {
+    }
+}
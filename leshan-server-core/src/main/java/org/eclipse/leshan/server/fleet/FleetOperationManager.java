@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.fleet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationService;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Send requests to a fleet of LWM2M clients without flooding the server or the network.
+ * <p>
+ * All the {@link FleetOperation}s executed by a manager share :
+ * <ul>
+ * <li>a maximum number of requests in flight,</li>
+ * <li>a maximum number of requests sent by second,</li>
+ * <li>an adaptive limit of requests in flight : it is divided by 2 when a request times out and slowly increased when
+ * responses are received, up to the maximum. Timeouts of requests sent before the last slowdown are ignored, so a burst
+ * of timeouts divides the limit only once.</li>
+ * </ul>
+ * Concurrent operations are served in a round robin way. Targeted registrations are iterated lazily and responses are
+ * not kept in memory.
+ * <p>
+ * All the scheduling state is handled by a single thread.
+ */
+public class FleetOperationManager implements Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FleetOperationManager.class);
+
+    /** Default maximum number of requests in flight */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+    /** Default maximum number of requests sent by second */
+    public static final int DEFAULT_MAX_REQUESTS_PER_SECOND = 500;
+
+    private final LwM2mRequestSender sender;
+    private final RegistrationService registrationService;
+    private final int maxInFlight;
+    private final int maxRequestsPerSecond;
+    // maximum number of tokens in the bucket, this allows small bursts.
+    private final double maxTokens;
+
+    private final ScheduledExecutorService executor;
+
+    // Only accessed from executor thread
+    private final Deque<FleetOperation<?>> active = new ArrayDeque<>();
+    private int inFlight;
+    private double limit;
+    private long lastSlowdownTime;
+    private double tokens;
+    private long lastRefillTime = System.nanoTime();
+    private ScheduledFuture<?> wakeUp;
+
+    // Copy of the current limit for monitoring
+    private volatile int currentLimit;
+
+    public FleetOperationManager(LwM2mRequestSender sender, RegistrationService registrationService) {
+        this(sender, registrationService, DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_REQUESTS_PER_SECOND);
+    }
+
+    /**
+     * @param sender the sender used to send requests.
+     * @param registrationService the service used to select targeted registrations.
+     * @param maxInFlight the maximum number of requests in flight, for all operations.
+     * @param maxRequestsPerSecond the maximum number of requests sent by second, for all operations.
+     */
+    public FleetOperationManager(LwM2mRequestSender sender, RegistrationService registrationService, int maxInFlight,
+            int maxRequestsPerSecond) {
+        this(sender, registrationService, maxInFlight, maxRequestsPerSecond,
+                Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("Fleet Operation Manager")));
+    }
+
+    /**
+     * @param sender the sender used to send requests.
+     * @param registrationService the service used to select targeted registrations.
+     * @param maxInFlight the maximum number of requests in flight, for all operations.
+     * @param maxRequestsPerSecond the maximum number of requests sent by second, for all operations.
+     * @param executor the executor handling all the scheduling state, it must run one task at a time and it is shutdown
+     *        on {@link #destroy()}.
+     */
+    public FleetOperationManager(LwM2mRequestSender sender, RegistrationService registrationService, int maxInFlight,
+            int maxRequestsPerSecond, ScheduledExecutorService executor) {
+        Validate.notNull(sender);
+        Validate.notNull(registrationService);
+        Validate.isTrue(maxInFlight > 0, "max in flight must be positive");
+        Validate.isTrue(maxRequestsPerSecond > 0, "max requests per second must be positive");
+        Validate.notNull(executor);
+        this.sender = sender;
+        this.registrationService = registrationService;
+        this.maxInFlight = maxInFlight;
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.maxTokens = Math.max(1, maxRequestsPerSecond / 10d);
+        this.tokens = maxTokens;
+        this.limit = maxInFlight;
+        this.currentLimit = maxInFlight;
+        this.executor = executor;
+    }
+
+    /**
+     * Send a request to a fleet of clients.
+     *
+     * @param request the request to send and the targeted clients.
+     * @param listener a listener notified of each response and of the completion, can be <code>null</code>.
+     * @return the operation, which allows to follow the progress and to cancel it.
+     */
+    public <T extends LwM2mResponse> FleetOperation<T> execute(FleetRequest<T> request,
+            FleetOperationListener<T> listener) {
+        Validate.notNull(request);
+        final FleetOperation<T> operation = new FleetOperation<>(this, request,
+                listener != null ? listener : new FleetOperationListener<T>() {
+                });
+        execute(() -> {
+            active.add(operation);
+            dispatch();
+        });
+        return operation;
+    }
+
+    /**
+     * @return the current limit of requests in flight, lower than max in flight if timeouts occurred.
+     */
+    public int getCurrentLimit() {
+        return currentLimit;
+    }
+
+    void cancel(final FleetOperation<?> operation) {
+        execute(() -> {
+            if (operation.isCancelled() || operation.isDone())
+                return;
+            operation.setCancelled();
+            active.remove(operation);
+            for (CompletableFuture<?> future : new ArrayList<>(operation.ongoing)) {
+                future.cancel(false);
+            }
+            completeIfDone(operation);
+        });
+    }
+
+    private void dispatch() {
+        refillTokens();
+        while (inFlight < (int) limit && !active.isEmpty()) {
+            if (tokens < 1) {
+                scheduleWakeUp((long) Math.ceil((1 - tokens) * 1000 / maxRequestsPerSecond));
+                return;
+            }
+            FleetOperation<?> operation = active.poll();
+            if (sendNext(operation)) {
+                tokens--;
+                active.add(operation);
+            } else {
+                completeIfDone(operation);
+            }
+        }
+    }
+
+    private void refillTokens() {
+        long now = System.nanoTime();
+        tokens = Math.min(maxTokens, tokens + (now - lastRefillTime) * maxRequestsPerSecond / 1e9);
+        lastRefillTime = now;
+    }
+
+    private void scheduleWakeUp(long delayInMs) {
+        if (wakeUp == null || wakeUp.isDone()) {
+            wakeUp = executor.schedule(this::dispatch, Math.max(1, delayInMs), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if a request was sent (even unsuccessfully), <code>false</code> if there is no more
+     *         client to target.
+     */
+    private <T extends LwM2mResponse> boolean sendNext(FleetOperation<T> operation) {
+        if (operation.isCancelled())
+            return false;
+
+        Registration registration = null;
+        try {
+            if (operation.targets == null) {
+                operation.targets = operation.getRequest().getTarget().select(registrationService);
+            }
+            while (operation.targets.hasNext()) {
+                registration = operation.targets.next();
+                if (send(operation, registration)) {
+                    return true;
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to select next target of fleet operation, after {}", registration, e);
+        }
+        operation.exhausted = true;
+        return false;
+    }
+
+    /**
+     * @return <code>true</code> if a request was sent (even unsuccessfully), <code>false</code> if the template does
+     *         not target this client.
+     */
+    private <T extends LwM2mResponse> boolean send(final FleetOperation<T> operation, final Registration registration) {
+        final long sendTime = System.currentTimeMillis();
+        FleetRequest<T> request = operation.getRequest();
+
+        DownlinkRequest<T> downlinkRequest;
+        try {
+            downlinkRequest = request.getTemplate().apply(registration);
+        } catch (RuntimeException e) {
+            // failure is specific to this client, so continue with next ones
+            LOG.debug("Unable to create fleet request for {}", registration.getEndpoint(), e);
+            operation.onSent();
+            operation.onTerminated(registration, null, e);
+            return true;
+        }
+        if (downlinkRequest == null)
+            return false;
+
+        inFlight++;
+        operation.onSent();
+        final CompletableFuture<T> future;
+        try {
+            future = sender.sendAsync(registration, downlinkRequest, request.getLowerLayerConfig(),
+                    request.getTimeoutInMs());
+        } catch (RuntimeException e) {
+            LOG.debug("Unable to send fleet request to {}", registration.getEndpoint(), e);
+            inFlight--;
+            operation.onTerminated(registration, null, e);
+            return true;
+        }
+        operation.ongoing.add(future);
+        future.whenComplete((response, error) -> {
+            operation.onTerminated(registration, response, error);
+            execute(() -> onTerminated(operation, future, sendTime, error));
+        });
+        return true;
+    }
+
+    private void onTerminated(FleetOperation<?> operation, CompletableFuture<?> future, long sendTime,
+            Throwable error) {
+        inFlight--;
+        operation.ongoing.remove(future);
+
+        if (error instanceof TimeoutException) {
+            if (sendTime > lastSlowdownTime) {
+                // client or network seems overloaded, slow down
+                limit = Math.max(1, limit / 2);
+                lastSlowdownTime = System.currentTimeMillis();
+                LOG.debug("Request timeout, limit of requests in flight decreased to {}", (int) limit);
+            }
+        } else if (error == null) {
+            // additive increase : about +1 each time the number of requests in flight is received
+            limit = Math.min(maxInFlight, limit + 1 / limit);
+        }
+        currentLimit = (int) limit;
+
+        completeIfDone(operation);
+        dispatch();
+    }
+
+    private void completeIfDone(FleetOperation<?> operation) {
+        if ((operation.exhausted || operation.isCancelled()) && operation.ongoing.isEmpty() && !operation.isDone()) {
+            operation.complete();
+        }
+    }
+
+    private void execute(Runnable runnable) {
+        try {
+            executor.execute(() -> {
+                try {
+                    runnable.run();
+                } catch (RuntimeException e) {
+                    LOG.warn("Unexpected error in fleet operation manager", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Fleet operation manager is destroyed", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Destroying fleet operation manager was interrupted.", e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.fleet;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.eclipse.leshan.core.ResponseCode;
+
+/**
+ * Aggregated result of a {@link FleetOperation}.
+ * <p>
+ * Only counters are kept, not the responses, so memory used does not depend on the size of the fleet. Use a
+ * {@link FleetOperationListener} to handle each response.
+ */
+public class FleetOperationResult {
+
+    private final long sent;
+    private final long successes;
+    private final long errorResponses;
+    private final long timeouts;
+    private final long failures;
+    private final long aborted;
+    private final Map<ResponseCode, Long> responseCodes;
+    private final boolean completed;
+    private final boolean cancelled;
+    private final long durationInMs;
+
+    public FleetOperationResult(long sent, long successes, long errorResponses, long timeouts, long failures,
+            long aborted, Map<ResponseCode, Long> responseCodes, boolean completed, boolean cancelled,
+            long durationInMs) {
+        this.sent = sent;
+        this.successes = successes;
+        this.errorResponses = errorResponses;
+        this.timeouts = timeouts;
+        this.failures = failures;
+        this.aborted = aborted;
+        this.responseCodes = Collections.unmodifiableMap(responseCodes);
+        this.completed = completed;
+        this.cancelled = cancelled;
+        this.durationInMs = durationInMs;
+    }
+
+    /**
+     * @return the number of requests sent.
+     */
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * @return the number of successful responses.
+     */
+    public long getSuccesses() {
+        return successes;
+    }
+
+    /**
+     * @return the number of error responses (e.g. NOT_FOUND).
+     */
+    public long getErrorResponses() {
+        return errorResponses;
+    }
+
+    /**
+     * @return the number of requests which failed because of a timeout.
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return the number of requests which failed for any other reason than a timeout (e.g. client sleeping, request
+     *         which could not be created or sent).
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the number of requests aborted because operation was cancelled.
+     */
+    public long getAborted() {
+        return aborted;
+    }
+
+    /**
+     * @return the number of terminated requests.
+     */
+    public long getTerminated() {
+        return successes + errorResponses + timeouts + failures + aborted;
+    }
+
+    /**
+     * @return the number of responses by response code.
+     */
+    public Map<ResponseCode, Long> getResponseCodes() {
+        return responseCodes;
+    }
+
+    /**
+     * @return <code>true</code> if the operation is terminated.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return <code>true</code> if the operation was cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the time elapsed since the operation started, or the duration of the operation if it is completed.
+     */
+    public long getDurationInMs() {
+        return durationInMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "FleetOperationResult [sent=%s, successes=%s, errorResponses=%s, timeouts=%s, failures=%s, aborted=%s, responseCodes=%s, completed=%s, cancelled=%s, durationInMs=%s]",
+                sent, successes, errorResponses, timeouts, failures, aborted, responseCodes, completed, cancelled,
+                durationInMs);
+    }
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.fleet;
+
+import java.util.function.Function;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.request.LowerLayerConfig;
+
+/**
+ * A request to send to a fleet of LWM2M clients.
+ * <p>
+ * The request sent to each client is created by a template, so it can depend on the {@link Registration} (e.g. to use
+ * the object version supported by the client).
+ *
+ * @param <T> the type of the response.
+ */
+public class FleetRequest<T extends LwM2mResponse> {
+
+    /** Default timeout used to send request to a client: 2 min in ms */
+    public static final long DEFAULT_TIMEOUT = 2 * 60 * 1000l;
+
+    private final FleetTarget target;
+    private final Function<Registration, DownlinkRequest<T>> template;
+    private final LowerLayerConfig lowerLayerConfig;
+    private final long timeoutInMs;
+
+    /**
+     * Send the same request to all targeted clients with the {@link #DEFAULT_TIMEOUT}.
+     *
+     * @param target the clients to send the request to.
+     * @param request the request to send to each client.
+     */
+    public FleetRequest(FleetTarget target, final DownlinkRequest<T> request) {
+        this(target, registration -> request, null, DEFAULT_TIMEOUT);
+        Validate.notNull(request);
+    }
+
+    /**
+     * @param target the clients to send the request to.
+     * @param template create the request to send to a client from its registration. If it returns <code>null</code>,
+     *        the client is skipped.
+     * @param lowerLayerConfig to tweak lower layer request (e.g. coap request), can be <code>null</code>.
+     * @param timeoutInMs the timeout used to send the request to each client.
+     */
+    public FleetRequest(FleetTarget target, Function<Registration, DownlinkRequest<T>> template,
+            LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+        Validate.notNull(target);
+        Validate.notNull(template);
+        Validate.isTrue(timeoutInMs > 0, "timeout must be positive");
+        this.target = target;
+        this.template = template;
+        this.lowerLayerConfig = lowerLayerConfig;
+        this.timeoutInMs = timeoutInMs;
+    }
+
+    public FleetTarget getTarget() {
+        return target;
+    }
+
+    public Function<Registration, DownlinkRequest<T>> getTemplate() {
+        return template;
+    }
+
+    public LowerLayerConfig getLowerLayerConfig() {
+        return lowerLayerConfig;
+    }
+
+    public long getTimeoutInMs() {
+        return timeoutInMs;
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.fleet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationService;
+
+/**
+ * Select the {@link Registration}s targeted by a {@link FleetRequest}.
+ * <p>
+ * Registrations are selected lazily, while requests are sent, so a large fleet does not need to be loaded in memory.
+ */
+public interface FleetTarget {
+
+    /**
+     * @param registrationService the service used to find registrations.
+     * @return an iterator on the targeted registrations.
+     */
+    Iterator<Registration> select(RegistrationService registrationService);
+
+    /**
+     * @return a target selecting all registrations.
+     */
+    static FleetTarget all() {
+        return registrationService -> registrationService.getAllRegistrations();
+    }
+
+    /**
+     * @return a target selecting the registrations of the given endpoints. Endpoints which are not registered are
+     *         ignored.
+     */
+    static FleetTarget endpoints(Collection<String> endpoints) {
+        Validate.notNull(endpoints);
+        final Collection<String> copy = new ArrayList<>(endpoints);
+        return registrationService -> new RegistrationIterator<>(copy.iterator(), registrationService::getByEndpoint);
+    }
+
+    /**
+     * @return a target selecting all registrations accepted by the given predicate.
+     */
+    static FleetTarget matching(final Predicate<Registration> predicate) {
+        Validate.notNull(predicate);
+        return registrationService -> new RegistrationIterator<>(registrationService.getAllRegistrations(),
+                registration -> predicate.test(registration) ? registration : null);
+    }
+
+    /**
+     * @return a target selecting all registrations of clients supporting the given object.
+     */
+    static FleetTarget supportingObject(final int objectId) {
+        return matching(registration -> registration.getSupportedVersion(objectId) != null);
+    }
+}
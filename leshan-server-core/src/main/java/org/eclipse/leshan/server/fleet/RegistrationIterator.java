@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.fleet;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * An {@link Iterator} which lazily maps elements of a source iterator to {@link Registration}s. Elements mapped to
+ * <code>null</code> are skipped.
+ */
+class RegistrationIterator<S> implements Iterator<Registration> {
+
+    private final Iterator<S> source;
+    private final Function<S, Registration> mapper;
+    private Registration next;
+
+    RegistrationIterator(Iterator<S> source, Function<S, Registration> mapper) {
+        this.source = source;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && source.hasNext()) {
+            next = mapper.apply(source.next());
+        }
+        return next != null;
+    }
+
+    @Override
+    public Registration next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Registration registration = next;
+        next = null;
+        return registration;
+    }
+}
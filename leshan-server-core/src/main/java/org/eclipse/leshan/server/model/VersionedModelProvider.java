@@ -17,74 +17,95 @@ package org.eclipse.leshan.server.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.eclipse.leshan.core.LwM2m.Version;
+import org.eclipse.leshan.core.model.CompiledModel;
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.model.LwM2mModelRepository;
 import org.eclipse.leshan.core.model.ObjectModel;
-import org.eclipse.leshan.core.model.ResourceModel;
+import org.eclipse.leshan.core.util.Validate;
 import org.eclipse.leshan.server.registration.Registration;
 
 /**
  * A LwM2mModelProvider which supports object versioning. It returns a LwM2mModel taking into account object version
  * given in registration.
+ * <p>
+ * Most clients support the same set of objects in the same versions, so one immutable {@link CompiledModel} is built
+ * and shared for each distinct set of supported objects. At most {@code maxCachedModels} models are cached, models for
+ * other sets of supported objects are built on each call.
  */
 public class VersionedModelProvider implements LwM2mModelProvider {
 
-    private LwM2mModelRepository repository;
+    /** Default maximum number of distinct models kept in cache */
+    public static final int DEFAULT_MAX_CACHED_MODELS = 1024;
+
+    private final LwM2mModelRepository repository;
+    private final int maxCachedModels;
+    private final ConcurrentMap<Map<Integer, Version> /* supported objects */, LwM2mModel> models = new ConcurrentHashMap<>();
 
     public VersionedModelProvider(Collection<ObjectModel> objectModels) {
-        this.repository = new LwM2mModelRepository(objectModels);
+        this(new LwM2mModelRepository(objectModels));
     }
 
     public VersionedModelProvider(LwM2mModelRepository repository) {
+        this(repository, DEFAULT_MAX_CACHED_MODELS);
+    }
+
+    /**
+     * @param repository the repository containing all versions of object models.
+     * @param maxCachedModels the maximum number of distinct models kept in cache.
+     */
+    public VersionedModelProvider(LwM2mModelRepository repository, int maxCachedModels) {
+        Validate.notNull(repository);
+        Validate.isTrue(maxCachedModels >= 0, "max cached models must be positive or zero");
         this.repository = repository;
+        this.maxCachedModels = maxCachedModels;
     }
 
     @Override
     public LwM2mModel getObjectModel(Registration registration) {
-        return new DynamicModel(registration);
-    }
-
-    private class DynamicModel implements LwM2mModel {
-
-        private final Registration registration;
-
-        public DynamicModel(Registration registration) {
-            this.registration = registration;
+        Map<Integer, Version> supportedObjects = registration.getSupportedObject();
+        if (supportedObjects == null) {
+            supportedObjects = Collections.emptyMap();
         }
 
-        @Override
-        public ResourceModel getResourceModel(int objectId, int resourceId) {
-            ObjectModel objectModel = getObjectModel(objectId);
-            if (objectModel != null)
-                return objectModel.resources.get(resourceId);
-            else
-                return null;
+        LwM2mModel model = models.get(supportedObjects);
+        if (model != null) {
+            return model;
         }
 
-        @Override
-        public ObjectModel getObjectModel(int objectId) {
-            Version version = registration.getSupportedVersion(objectId);
-            if (version != null) {
-                return repository.getObjectModel(objectId, version);
+        model = compile(supportedObjects);
+        if (models.size() < maxCachedModels) {
+            // use a copy as key, the map of the registration is not necessarily immutable
+            LwM2mModel previous = models.putIfAbsent(new HashMap<>(supportedObjects), model);
+            if (previous != null) {
+                return previous;
             }
-            return null;
         }
+        return model;
+    }
 
-        @Override
-        public Collection<ObjectModel> getObjectModels() {
-            Map<Integer, Version> supportedObjects = registration.getSupportedObject();
-            Collection<ObjectModel> result = new ArrayList<>(supportedObjects.size());
-            for (Entry<Integer, Version> supportedObject : supportedObjects.entrySet()) {
-                ObjectModel objectModel = repository.getObjectModel(supportedObject.getKey(),
-                        supportedObject.getValue());
-                if (objectModel != null)
-                    result.add(objectModel);
-            }
-            return result;
+    private LwM2mModel compile(Map<Integer, Version> supportedObjects) {
+        List<ObjectModel> objectModels = new ArrayList<>(supportedObjects.size());
+        for (Entry<Integer, Version> supportedObject : supportedObjects.entrySet()) {
+            ObjectModel objectModel = repository.getObjectModel(supportedObject.getKey(), supportedObject.getValue());
+            if (objectModel != null)
+                objectModels.add(objectModel);
         }
+        return new CompiledModel(objectModels);
+    }
+
+    /**
+     * @return the number of distinct models currently cached.
+     */
+    public int getCachedModelCount() {
+        return models.size();
     }
 }
@@ -0,0 +1,383 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.response.ObserveCompositeResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.core.util.LatencyHistogram;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ObservationListener} which forwards events to another listener asynchronously.
+ * <p>
+ * {@link ObservationService} calls its listeners on the thread which handles the notification. Wrapping a slow listener
+ * with this class prevents it from blocking this thread :
+ *
+ * <pre>
+ * server.getObservationService().addListener(new AsyncObservationListener(myListener));
+ * </pre>
+ *
+ * Events are stored in bounded queues, called lanes, which are drained by an executor. All events of a registration are
+ * stored in the same lane, so they are delivered to the listener in order. Events of different registrations can be
+ * delivered concurrently. When a lane is full, the {@link OverflowPolicy} decides which event is lost.
+ */
+public class AsyncObservationListener implements ObservationListener, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncObservationListener.class);
+
+    /** Default number of lanes */
+    public static final int DEFAULT_NB_LANES = 8;
+    /** Default maximum number of pending events for all lanes */
+    public static final int DEFAULT_CAPACITY = 8192;
+    /** Maximum number of events delivered by a lane before giving back its thread to the executor */
+    private static final int MAX_BATCH_SIZE = 64;
+
+    /**
+     * What to do when an event is added to a full lane.
+     */
+    public enum OverflowPolicy {
+        /** Wait until the lane has room for the new event. The thread which handles the notification is blocked. */
+        BLOCK,
+        /** Remove the oldest pending event of the lane to add the new one. */
+        DROP_OLDEST,
+        /** Ignore the new event. */
+        DROP_NEWEST
+    }
+
+    private final ObservationListener delegate;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final OverflowPolicy overflowPolicy;
+    private final Lane[] lanes;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final LatencyHistogram lag = new LatencyHistogram();
+    private volatile boolean destroyed = false;
+
+    /**
+     * Create an {@link AsyncObservationListener} using {@link #DEFAULT_NB_LANES} threads, {@link #DEFAULT_CAPACITY} and
+     * {@link OverflowPolicy#DROP_OLDEST}.
+     *
+     * @param delegate the listener to call asynchronously.
+     */
+    public AsyncObservationListener(ObservationListener delegate) {
+        this(delegate, DEFAULT_NB_LANES, DEFAULT_CAPACITY, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Create an {@link AsyncObservationListener} using its own executor with one thread by lane.
+     *
+     * @param delegate the listener to call asynchronously.
+     * @param nbLanes the number of lanes, which is the maximum number of events delivered concurrently.
+     * @param capacity the maximum number of pending events, shared equally between lanes.
+     * @param overflowPolicy what to do when a lane is full.
+     */
+    public AsyncObservationListener(ObservationListener delegate, int nbLanes, int capacity,
+            OverflowPolicy overflowPolicy) {
+        this(delegate, Executors.newFixedThreadPool(nbLanes, new NamedThreadFactory("AsyncObservationListener")), true,
+                nbLanes, capacity, overflowPolicy);
+    }
+
+    /**
+     * Create an {@link AsyncObservationListener} using the given executor. This executor is not shutdown on
+     * {@link #destroy()}.
+     *
+     * @param delegate the listener to call asynchronously.
+     * @param executor the executor used to deliver events.
+     * @param nbLanes the number of lanes, which is the maximum number of events delivered concurrently.
+     * @param capacity the maximum number of pending events, shared equally between lanes.
+     * @param overflowPolicy what to do when a lane is full.
+     */
+    public AsyncObservationListener(ObservationListener delegate, ExecutorService executor, int nbLanes, int capacity,
+            OverflowPolicy overflowPolicy) {
+        this(delegate, executor, false, nbLanes, capacity, overflowPolicy);
+    }
+
+    private AsyncObservationListener(ObservationListener delegate, ExecutorService executor, boolean ownExecutor,
+            int nbLanes, int capacity, OverflowPolicy overflowPolicy) {
+        Validate.notNull(delegate);
+        Validate.notNull(executor);
+        Validate.notNull(overflowPolicy);
+        Validate.isTrue(nbLanes > 0, "number of lanes must be positive");
+        Validate.isTrue(capacity >= nbLanes, "capacity must be greater or equal to the number of lanes");
+        this.delegate = delegate;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.overflowPolicy = overflowPolicy;
+        this.lanes = new Lane[nbLanes];
+        for (int i = 0; i < nbLanes; i++) {
+            lanes[i] = new Lane(capacity / nbLanes);
+        }
+    }
+
+    @Override
+    public void newObservation(final Observation observation, final Registration registration) {
+        enqueue(new Event(observation) {
+            @Override
+            void deliver(ObservationListener listener) {
+                listener.newObservation(observation, registration);
+            }
+        });
+    }
+
+    @Override
+    public void cancelled(final Observation observation) {
+        enqueue(new Event(observation) {
+            @Override
+            void deliver(ObservationListener listener) {
+                listener.cancelled(observation);
+            }
+        });
+    }
+
+    @Override
+    public void onResponse(final SingleObservation observation, final Registration registration,
+            final ObserveResponse response) {
+        enqueue(new Event(observation) {
+            @Override
+            void deliver(ObservationListener listener) {
+                listener.onResponse(observation, registration, response);
+            }
+        });
+    }
+
+    @Override
+    public void onResponse(final CompositeObservation observation, final Registration registration,
+            final ObserveCompositeResponse response) {
+        enqueue(new Event(observation) {
+            @Override
+            void deliver(ObservationListener listener) {
+                listener.onResponse(observation, registration, response);
+            }
+        });
+    }
+
+    @Override
+    public void onError(final Observation observation, final Registration registration, final Exception error) {
+        enqueue(new Event(observation) {
+            @Override
+            void deliver(ObservationListener listener) {
+                listener.onError(observation, registration, error);
+            }
+        });
+    }
+
+    private void enqueue(Event event) {
+        if (destroyed) {
+            dropped.increment();
+            return;
+        }
+        String key = event.registrationId;
+        int hash = key == null ? 0 : key.hashCode();
+        // spread hash bits as HashMap does
+        hash ^= hash >>> 16;
+        lanes[(hash & 0x7fffffff) % lanes.length].offer(event);
+    }
+
+    /**
+     * @return the number of events waiting to be delivered.
+     */
+    public int getQueueSize() {
+        return pending.get();
+    }
+
+    /**
+     * @return the number of events lost because of the {@link OverflowPolicy} or because this listener is destroyed.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the time between the reception of an event and its delivery to the listener.
+     */
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    /**
+     * Stop to deliver events. Pending events are dropped and the executor is shutdown if it was created by this class.
+     */
+    @Override
+    public void destroy() {
+        destroyed = true;
+        for (Lane lane : lanes) {
+            lane.clear();
+        }
+        if (ownExecutor) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    LOG.warn("Async observation listener executor failed to terminate");
+                }
+            } catch (InterruptedException e) {
+                LOG.warn("Interrupted while waiting for async observation listener executor termination", e);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private abstract static class Event {
+        final String registrationId;
+        final long enqueuedAt = System.nanoTime();
+
+        Event(Observation observation) {
+            this.registrationId = observation.getRegistrationId();
+        }
+
+        abstract void deliver(ObservationListener listener);
+    }
+
+    /**
+     * A bounded FIFO of events drained by at most one executor thread at a time.
+     */
+    private class Lane implements Runnable {
+
+        private final ArrayDeque<Event> events;
+        private final int capacity;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private boolean scheduled = false; // true if a task draining this lane is submitted to the executor
+
+        Lane(int capacity) {
+            this.capacity = capacity;
+            this.events = new ArrayDeque<>(Math.min(capacity, 1024));
+        }
+
+        void offer(Event event) {
+            boolean schedule;
+            lock.lock();
+            try {
+                if (events.size() >= capacity) {
+                    switch (overflowPolicy) {
+                    case BLOCK:
+                        while (events.size() >= capacity) {
+                            try {
+                                notFull.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                drop(event);
+                                return;
+                            }
+                        }
+                        break;
+                    case DROP_OLDEST:
+                        pending.decrementAndGet();
+                        drop(events.poll());
+                        break;
+                    case DROP_NEWEST:
+                    default:
+                        drop(event);
+                        return;
+                    }
+                }
+                events.add(event);
+                pending.incrementAndGet();
+                schedule = !scheduled;
+                scheduled = true;
+            } finally {
+                lock.unlock();
+            }
+            if (schedule) {
+                submit();
+            }
+        }
+
+        private void drop(Event event) {
+            dropped.increment();
+            LOG.trace("Observation event for registration {} dropped", event.registrationId);
+        }
+
+        private void submit() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                LOG.debug("Unable to deliver observation events: executor rejected the task", e);
+                clear();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                for (int i = events.size(); i > 0; i--) {
+                    pending.decrementAndGet();
+                    drop(events.poll());
+                }
+                scheduled = false;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_BATCH_SIZE; i++) {
+                Event event;
+                lock.lock();
+                try {
+                    event = events.poll();
+                    if (event == null) {
+                        scheduled = false;
+                        return;
+                    }
+                    pending.decrementAndGet();
+                    notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+                lag.record(System.nanoTime() - event.enqueuedAt);
+                try {
+                    event.deliver(delegate);
+                } catch (RuntimeException e) {
+                    LOG.warn("Unexpected error while delivering event for registration {} to observation listener",
+                            event.registrationId, e);
+                }
+            }
+            // give other lanes a chance to use this thread
+            lock.lock();
+            try {
+                if (events.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            submit();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * An {@link ObservationRestoreStore} which keeps paths in memory.
+ * <p>
+ * The store is bounded : when it is full, the entry of the endpoint which was the least recently stored or read is
+ * dropped.
+ */
+public class InMemoryObservationRestoreStore implements ObservationRestoreStore {
+
+    /** Default maximum number of endpoints in the store */
+    public static final int DEFAULT_MAX_SIZE = 100000;
+
+    private final Map<String /* endpoint */, List<LwM2mPath>> paths;
+
+    public InMemoryObservationRestoreStore() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize the maximum number of endpoints in the store.
+     */
+    public InMemoryObservationRestoreStore(final int maxSize) {
+        Validate.isTrue(maxSize > 0, "max size must be positive");
+        this.paths = new LinkedHashMap<String, List<LwM2mPath>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<LwM2mPath>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public void put(String endpoint, List<LwM2mPath> paths) {
+        List<LwM2mPath> copy = Collections.unmodifiableList(new ArrayList<>(paths));
+        synchronized (this.paths) {
+            this.paths.put(endpoint, copy);
+        }
+    }
+
+    @Override
+    public List<LwM2mPath> get(String endpoint) {
+        synchronized (paths) {
+            return paths.get(endpoint);
+        }
+    }
+
+    @Override
+    public void remove(String endpoint) {
+        synchronized (paths) {
+            paths.remove(endpoint);
+        }
+    }
+
+    /**
+     * @return the number of endpoints in the store.
+     */
+    public int size() {
+        synchronized (paths) {
+            return paths.size();
+        }
+    }
+}
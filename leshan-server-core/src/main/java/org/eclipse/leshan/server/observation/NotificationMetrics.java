@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.leshan.core.util.LatencyHistogram;
+
+/**
+ * Counters about notifications handled by an {@link ObservationService}.
+ * <p>
+ * Notifications are not logged one by one, those metrics can be read periodically to monitor the notification pipeline.
+ */
+public class NotificationMetrics {
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder unknownObservations = new LongAdder();
+    private final LongAdder unknownRegistrations = new LongAdder();
+    private final LongAdder invalidNotifications = new LongAdder();
+    private final LongAdder failedNotifications = new LongAdder();
+    private final LatencyHistogram decodeTime = new LatencyHistogram();
+    private final LatencyHistogram dispatchTime = new LatencyHistogram();
+
+    public void notificationReceived() {
+        received.increment();
+    }
+
+    public void unknownObservation() {
+        unknownObservations.increment();
+    }
+
+    public void unknownRegistration() {
+        unknownRegistrations.increment();
+    }
+
+    public void invalidNotification() {
+        invalidNotifications.increment();
+    }
+
+    public void failedNotification() {
+        failedNotifications.increment();
+    }
+
+    /**
+     * @return the number of notifications received.
+     */
+    public long getReceived() {
+        return received.sum();
+    }
+
+    /**
+     * @return the number of notifications dropped because no observation was found for their token.
+     */
+    public long getUnknownObservations() {
+        return unknownObservations.sum();
+    }
+
+    /**
+     * @return the number of notifications dropped because registration of their observation does not exist anymore.
+     */
+    public long getUnknownRegistrations() {
+        return unknownRegistrations.sum();
+    }
+
+    /**
+     * @return the number of notifications which can not be decoded or with an unexpected response code.
+     */
+    public long getInvalidNotifications() {
+        return invalidNotifications.sum();
+    }
+
+    /**
+     * @return the number of notifications which failed because of unexpected error.
+     */
+    public long getFailedNotifications() {
+        return failedNotifications.sum();
+    }
+
+    /**
+     * @return the time spent to decode notification payloads.
+     */
+    public LatencyHistogram getDecodeTime() {
+        return decodeTime;
+    }
+
+    /**
+     * @return the time spent to dispatch notifications to {@link ObservationListener}s.
+     */
+    public LatencyHistogram getDispatchTime() {
+        return dispatchTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "NotificationMetrics [received=%d, unknownObservations=%d, unknownRegistrations=%d, invalidNotifications=%d, failedNotifications=%d, decodeTime=%s, dispatchTime=%s]",
+                getReceived(), getUnknownObservations(), getUnknownRegistrations(), getInvalidNotifications(),
+                getFailedNotifications(), decodeTime, dispatchTime);
+    }
+}
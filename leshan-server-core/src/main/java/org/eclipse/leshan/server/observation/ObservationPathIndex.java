@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+
+/**
+ * The observations of one registration indexed by id and by path.
+ * <p>
+ * {@link SingleObservation}s are stored in a tree which follows the LWM2M path hierarchy (object, object instance,
+ * resource, resource instance), so observations of a path or under a path are found in O(depth) without looking at
+ * other observations. {@link CompositeObservation}s are indexed by their list of paths.
+ * <p>
+ * Modifications must be serialized by the caller, but lookups can be done concurrently with a modification: they see
+ * the index before or after the modification.
+ */
+public class ObservationPathIndex {
+
+    private final ConcurrentMap<ByteBuffer /* observation id */, Observation> observationsById = new ConcurrentHashMap<>();
+    private final Node root = new Node(null, null);
+    private final ConcurrentMap<List<LwM2mPath>, ConcurrentMap<ByteBuffer, CompositeObservation>> compositeObservations = new ConcurrentHashMap<>();
+
+    /**
+     * Add an observation, replacing the observation with the same id if any.
+     *
+     * @return the replaced observation or <code>null</code>.
+     */
+    public Observation add(Observation observation) {
+        ByteBuffer id = ByteBuffer.wrap(observation.getId());
+        Observation previous = observationsById.put(id, observation);
+        if (previous != null) {
+            unindex(id, previous);
+        }
+        if (observation instanceof SingleObservation) {
+            Node node = root;
+            LwM2mPath path = ((SingleObservation) observation).getPath();
+            for (int i = 0; i < depth(path); i++) {
+                Integer segment = segment(path, i);
+                Node child = node.children.get(segment);
+                if (child == null) {
+                    child = new Node(node, segment);
+                    node.children.put(segment, child);
+                }
+                node = child;
+            }
+            node.observations.put(id, (SingleObservation) observation);
+        } else if (observation instanceof CompositeObservation) {
+            CompositeObservation composite = (CompositeObservation) observation;
+            ConcurrentMap<ByteBuffer, CompositeObservation> observations = compositeObservations
+                    .get(composite.getPaths());
+            if (observations == null) {
+                observations = new ConcurrentHashMap<>();
+                compositeObservations.put(composite.getPaths(), observations);
+            }
+            observations.put(id, composite);
+        }
+        return previous;
+    }
+
+    /**
+     * Remove the observation with the given id.
+     *
+     * @return the removed observation or <code>null</code>.
+     */
+    public Observation remove(byte[] observationId) {
+        ByteBuffer id = ByteBuffer.wrap(observationId);
+        Observation removed = observationsById.remove(id);
+        if (removed != null) {
+            unindex(id, removed);
+        }
+        return removed;
+    }
+
+    private void unindex(ByteBuffer id, Observation observation) {
+        if (observation instanceof SingleObservation) {
+            Node node = find(((SingleObservation) observation).getPath());
+            if (node != null) {
+                node.observations.remove(id);
+                // prune empty branch
+                while (node.parent != null && node.observations.isEmpty() && node.children.isEmpty()) {
+                    node.parent.children.remove(node.segment, node);
+                    node = node.parent;
+                }
+            }
+        } else if (observation instanceof CompositeObservation) {
+            List<LwM2mPath> paths = ((CompositeObservation) observation).getPaths();
+            Map<ByteBuffer, CompositeObservation> observations = compositeObservations.get(paths);
+            if (observations != null) {
+                observations.remove(id);
+                if (observations.isEmpty()) {
+                    compositeObservations.remove(paths);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the observation with the given id or <code>null</code>.
+     */
+    public Observation get(byte[] observationId) {
+        return observationsById.get(ByteBuffer.wrap(observationId));
+    }
+
+    /**
+     * @return an unmodifiable view of all the observations.
+     */
+    public Collection<Observation> getAll() {
+        return Collections.unmodifiableCollection(observationsById.values());
+    }
+
+    /**
+     * Get the {@link SingleObservation}s which target the given path.
+     *
+     * @param path the observed path.
+     * @param includeDescendants if <code>true</code> observations which target a descendant of this path are returned
+     *        too.
+     */
+    public List<SingleObservation> getObservations(LwM2mPath path, boolean includeDescendants) {
+        Node node = find(path);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        if (!includeDescendants) {
+            return new ArrayList<>(node.observations.values());
+        }
+        List<SingleObservation> result = new ArrayList<>();
+        Deque<Node> toVisit = new ArrayDeque<>();
+        toVisit.push(node);
+        while (!toVisit.isEmpty()) {
+            Node current = toVisit.pop();
+            result.addAll(current.observations.values());
+            for (Node child : current.children.values()) {
+                toVisit.push(child);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the {@link CompositeObservation}s which target exactly the given list of paths.
+     */
+    public List<CompositeObservation> getCompositeObservations(List<LwM2mPath> paths) {
+        Map<ByteBuffer, CompositeObservation> observations = compositeObservations.get(paths);
+        if (observations == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(observations.values());
+    }
+
+    /**
+     * Get the observations of the same kind which target the same path(s) than the given observation. The given
+     * observation is part of the result if it is in this index.
+     */
+    public List<? extends Observation> getObservationsWithSamePaths(Observation observation) {
+        if (observation instanceof SingleObservation) {
+            return getObservations(((SingleObservation) observation).getPath(), false);
+        } else if (observation instanceof CompositeObservation) {
+            return getCompositeObservations(((CompositeObservation) observation).getPaths());
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return the number of observations.
+     */
+    public int size() {
+        return observationsById.size();
+    }
+
+    public boolean isEmpty() {
+        return observationsById.isEmpty();
+    }
+
+    private Node find(LwM2mPath path) {
+        Node node = root;
+        for (int i = 0; i < depth(path) && node != null; i++) {
+            node = node.children.get(segment(path, i));
+        }
+        return node;
+    }
+
+    // number of segments of the path, 0 for root path.
+    private static int depth(LwM2mPath path) {
+        if (path.isResourceInstance())
+            return 4;
+        if (path.isResource())
+            return 3;
+        if (path.isObjectInstance())
+            return 2;
+        if (path.isObject())
+            return 1;
+        return 0;
+    }
+
+    private static Integer segment(LwM2mPath path, int index) {
+        switch (index) {
+        case 0:
+            return path.getObjectId();
+        case 1:
+            return path.getObjectInstanceId();
+        case 2:
+            return path.getResourceId();
+        default:
+            return path.getResourceInstanceId();
+        }
+    }
+
+    private static class Node {
+        final Node parent;
+        final Integer segment; // object, instance, resource or resource instance id
+        final ConcurrentMap<Integer, Node> children = new ConcurrentHashMap<>();
+        final ConcurrentMap<ByteBuffer, SingleObservation> observations = new ConcurrentHashMap<>();
+
+        Node(Node parent, Integer segment) {
+            this.parent = parent;
+            this.segment = segment;
+        }
+    }
+}
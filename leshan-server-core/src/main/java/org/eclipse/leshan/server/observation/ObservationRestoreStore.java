@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.util.List;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+
+/**
+ * A store for the paths observed by clients which are not registered anymore, so the observations can be restored when
+ * they register again.
+ *
+ * @see ObservationRestorer
+ */
+public interface ObservationRestoreStore {
+
+    /**
+     * Set the paths to observe again when the client with the given endpoint registers.
+     * <p>
+     * Implementations could drop the oldest entries to keep the store bounded.
+     */
+    void put(String endpoint, List<LwM2mPath> paths);
+
+    /**
+     * @return the paths to observe for the given endpoint or <code>null</code> if there is nothing to restore.
+     */
+    List<LwM2mPath> get(String endpoint);
+
+    /**
+     * Remove the paths stored for the given endpoint.
+     */
+    void remove(String endpoint);
+}
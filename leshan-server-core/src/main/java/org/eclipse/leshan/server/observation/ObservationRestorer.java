@@ -0,0 +1,403 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ObserveCompositeRequest;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationService;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Restore observations of clients which register again.
+ * <p>
+ * When a client is unregistered (de-registration, expiration or new registration), the paths it was observing are saved
+ * in an {@link ObservationRestoreStore}. When it registers again, observe requests are sent to restore them.
+ * <p>
+ * Restores are asynchronous and never block the thread which handles the registration :
+ * <ul>
+ * <li>at most <code>maxConcurrentRestores</code> requests are sent at the same time, others wait for a free slot,</li>
+ * <li>only one request at a time is sent to an endpoint and 2 restores of the same endpoint are separated by at least
+ * <code>minIntervalInMs</code>. If a client registers again while its restore is ongoing, the restore is done again for
+ * the new registration,</li>
+ * <li>failed requests are retried with an exponential backoff, up to <code>maxAttempts</code> times. A request rejected
+ * by the client (error response) is not retried,</li>
+ * <li>paths are restored with a single {@link ObserveCompositeRequest} if the client supports it (LWM2M 1.1 and SenML
+ * content format), else with one {@link ObserveRequest} by path,</li>
+ * <li>paths of an endpoint are removed from the store once they were all restored or rejected by the client.</li>
+ * </ul>
+ * All the restore state is handled by a single thread, store and {@link RegistrationService} are accessed from this
+ * thread too.
+ */
+public class ObservationRestorer implements RegistrationListener, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObservationRestorer.class);
+
+    /** Default maximum number of restore requests sent at the same time */
+    public static final int DEFAULT_MAX_CONCURRENT_RESTORES = 256;
+    /** Default minimum time between 2 restores of the same endpoint: 1s in ms */
+    public static final long DEFAULT_MIN_INTERVAL = 1000l;
+    /** Default maximum number of attempts to send a restore request */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    /** Default delay before first retry, doubled at each retry: 5s in ms */
+    public static final long DEFAULT_RETRY_DELAY = 5000l;
+    /** Default timeout used to send a restore request: 2 min in ms */
+    public static final long DEFAULT_TIMEOUT = 2 * 60 * 1000l;
+
+    private final LwM2mRequestSender sender;
+    private final RegistrationService registrationService;
+    private final ObservationRestoreStore store;
+    private final int maxConcurrentRestores;
+    private final long minIntervalInMs;
+    private final int maxAttempts;
+    private final long retryDelayInMs;
+    private final long timeoutInMs;
+
+    private final ScheduledExecutorService executor;
+
+    // Only accessed from executor thread
+    private final Map<String /* endpoint */, RestoreTask> tasks = new HashMap<>();
+    private final Queue<RestoreTask> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    public ObservationRestorer(LwM2mRequestSender sender, RegistrationService registrationService,
+            ObservationRestoreStore store) {
+        this(sender, registrationService, store, DEFAULT_MAX_CONCURRENT_RESTORES, DEFAULT_MIN_INTERVAL,
+                DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_DELAY, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param sender the sender used to send observe requests.
+     * @param registrationService the service used to check that a registration is still valid before to send a request.
+     * @param store the store containing paths to restore.
+     * @param maxConcurrentRestores the maximum number of requests sent at the same time.
+     * @param minIntervalInMs the minimum time between 2 restores of the same endpoint.
+     * @param maxAttempts the maximum number of attempts to send a request.
+     * @param retryDelayInMs the delay before the first retry, doubled at each retry.
+     * @param timeoutInMs the timeout used to send a request.
+     */
+    public ObservationRestorer(LwM2mRequestSender sender, RegistrationService registrationService,
+            ObservationRestoreStore store, int maxConcurrentRestores, long minIntervalInMs, int maxAttempts,
+            long retryDelayInMs, long timeoutInMs) {
+        this(sender, registrationService, store, maxConcurrentRestores, minIntervalInMs, maxAttempts, retryDelayInMs,
+                timeoutInMs,
+                Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("Observation Restorer")));
+    }
+
+    /**
+     * @param sender the sender used to send observe requests.
+     * @param registrationService the service used to check that a registration is still valid before to send a request.
+     * @param store the store containing paths to restore.
+     * @param maxConcurrentRestores the maximum number of requests sent at the same time.
+     * @param minIntervalInMs the minimum time between 2 restores of the same endpoint.
+     * @param maxAttempts the maximum number of attempts to send a request.
+     * @param retryDelayInMs the delay before the first retry, doubled at each retry.
+     * @param timeoutInMs the timeout used to send a request.
+     * @param executor the executor handling all the restore state, it must run one task at a time and it is shutdown on
+     *        {@link #destroy()}.
+     */
+    public ObservationRestorer(LwM2mRequestSender sender, RegistrationService registrationService,
+            ObservationRestoreStore store, int maxConcurrentRestores, long minIntervalInMs, int maxAttempts,
+            long retryDelayInMs, long timeoutInMs, ScheduledExecutorService executor) {
+        Validate.notNull(sender);
+        Validate.notNull(registrationService);
+        Validate.notNull(store);
+        Validate.isTrue(maxConcurrentRestores > 0, "max concurrent restores must be positive");
+        Validate.isTrue(minIntervalInMs >= 0, "min interval must not be negative");
+        Validate.isTrue(maxAttempts > 0, "max attempts must be positive");
+        Validate.isTrue(retryDelayInMs >= 0, "retry delay must not be negative");
+        Validate.notNull(executor);
+        this.sender = sender;
+        this.registrationService = registrationService;
+        this.store = store;
+        this.maxConcurrentRestores = maxConcurrentRestores;
+        this.minIntervalInMs = minIntervalInMs;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayInMs = retryDelayInMs;
+        this.timeoutInMs = timeoutInMs;
+        this.executor = executor;
+    }
+
+    @Override
+    public void registered(final Registration registration, Registration previousReg,
+            Collection<Observation> previousObservations) {
+        execute(() -> {
+            List<LwM2mPath> paths = store.get(registration.getEndpoint());
+            if (paths != null && !paths.isEmpty()) {
+                restore(registration, paths);
+            }
+        });
+    }
+
+    @Override
+    public void updated(RegistrationUpdate update, Registration updatedRegistration,
+            Registration previousRegistration) {
+        // nothing to restore
+    }
+
+    @Override
+    public void unregistered(final Registration registration, Collection<Observation> observations, boolean expired,
+            Registration newReg) {
+        if (observations == null)
+            return;
+
+        final List<LwM2mPath> paths = new ArrayList<>();
+        for (Observation obs : observations) {
+            if (obs instanceof SingleObservation) {
+                paths.add(((SingleObservation) obs).getPath());
+            } else if (obs instanceof CompositeObservation) {
+                paths.addAll(((CompositeObservation) obs).getPaths());
+            }
+        }
+        execute(() -> {
+            if (paths.isEmpty()) {
+                store.remove(registration.getEndpoint());
+            } else {
+                LOG.debug("Save observed paths {} of {} to restore them", paths, registration.getEndpoint());
+                store.put(registration.getEndpoint(), paths);
+            }
+        });
+    }
+
+    private void restore(Registration registration, List<LwM2mPath> paths) {
+        RestoreTask task = tasks.get(registration.getEndpoint());
+        if (task == null) {
+            task = new RestoreTask(registration.getEndpoint());
+            tasks.put(task.endpoint, task);
+            task.reset(registration, paths);
+            schedule(task, 0);
+            return;
+        }
+
+        // client registered again while a restore was pending
+        task.reset(registration, paths);
+        if (task.sending) {
+            // restart when response is received
+            task.restartRequested = true;
+        } else if (task.scheduled != null) {
+            task.scheduled.cancel(false);
+            schedule(task, nextRestoreDelay(task));
+        } // else task is waiting for a free slot and will use new registration
+    }
+
+    private long nextRestoreDelay(RestoreTask task) {
+        return Math.max(0, task.lastAttemptTime + minIntervalInMs - System.currentTimeMillis());
+    }
+
+    private void schedule(final RestoreTask task, long delayInMs) {
+        task.scheduled = executor.schedule(() -> {
+            task.scheduled = null;
+            waiting.add(task);
+            sendWaitingRequests();
+        }, delayInMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void sendWaitingRequests() {
+        while (inFlight < maxConcurrentRestores && !waiting.isEmpty()) {
+            RestoreTask task = waiting.poll();
+            if (tasks.get(task.endpoint) == task) {
+                send(task);
+            }
+        }
+    }
+
+    private void send(final RestoreTask task) {
+        // check that registration is still valid, if client registers again restore will be triggered again.
+        Registration registration = task.registration;
+        if (registrationService.getById(registration.getId()) == null) {
+            LOG.debug("Cancel observations restore of {} : registration {} is not valid anymore", task.endpoint,
+                    registration.getId());
+            tasks.remove(task.endpoint);
+            return;
+        }
+
+        final List<LwM2mPath> paths;
+        final DownlinkRequest<? extends LwM2mResponse> request;
+        if (task.composite) {
+            paths = new ArrayList<>(task.remaining);
+            ContentFormat format = registration.getSupportedContentFormats().contains(ContentFormat.SENML_CBOR)
+                    ? ContentFormat.SENML_CBOR
+                    : ContentFormat.SENML_JSON;
+            request = new ObserveCompositeRequest(format, format, paths);
+        } else {
+            paths = Collections.singletonList(task.remaining.get(0));
+            request = new ObserveRequest(null, paths.get(0), null);
+        }
+
+        task.sending = true;
+        task.lastAttemptTime = System.currentTimeMillis();
+        inFlight++;
+        try {
+            send(task, registration, request, paths);
+        } catch (RuntimeException e) {
+            onError(task, e);
+        }
+    }
+
+    private <T extends LwM2mResponse> void send(final RestoreTask task, Registration registration,
+            DownlinkRequest<T> request, final List<LwM2mPath> paths) {
+        sender.send(registration, request, null, timeoutInMs,
+                response -> execute(() -> onResponse(task, paths, response)),
+                error -> execute(() -> onError(task, error)));
+    }
+
+    private void onResponse(RestoreTask task, List<LwM2mPath> paths, LwM2mResponse response) {
+        inFlight--;
+        task.sending = false;
+        if (!restartIfRequested(task)) {
+            if (response.isSuccess()) {
+                LOG.debug("Observations {} of {} restored", paths, task.endpoint);
+            } else {
+                LOG.warn("Unable to restore observations {} of {} : {}", paths, task.endpoint, response);
+            }
+            task.remaining.removeAll(paths);
+            task.attempts = 0;
+            if (task.remaining.isEmpty()) {
+                tasks.remove(task.endpoint);
+                // all paths are handled, so stored paths are not needed anymore. If registration is not valid
+                // anymore, the entry is updated by its unregistration and must be kept.
+                if (registrationService.getById(task.registration.getId()) != null) {
+                    store.remove(task.endpoint);
+                }
+            } else {
+                waiting.add(task);
+            }
+        }
+        sendWaitingRequests();
+    }
+
+    private void onError(RestoreTask task, Exception error) {
+        inFlight--;
+        task.sending = false;
+        if (!restartIfRequested(task)) {
+            task.attempts++;
+            if (error instanceof RequestCanceledException) {
+                LOG.debug("Observations restore of {} cancelled", task.endpoint, error);
+                tasks.remove(task.endpoint);
+            } else if (task.attempts >= maxAttempts) {
+                LOG.warn("Unable to restore observations {} of {} after {} attempts", task.remaining, task.endpoint,
+                        task.attempts, error);
+                tasks.remove(task.endpoint);
+            } else {
+                LOG.debug("Unable to restore observations of {}, retry later", task.endpoint, error);
+                schedule(task, Math.max(minIntervalInMs, retryDelayInMs << (task.attempts - 1)));
+            }
+        }
+        sendWaitingRequests();
+    }
+
+    private boolean restartIfRequested(RestoreTask task) {
+        if (task.restartRequested) {
+            task.restartRequested = false;
+            schedule(task, nextRestoreDelay(task));
+            return true;
+        }
+        return false;
+    }
+
+    private void execute(Runnable runnable) {
+        try {
+            executor.execute(() -> {
+                try {
+                    runnable.run();
+                } catch (RuntimeException e) {
+                    LOG.warn("Unexpected error while restoring observations", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Observation restorer is destroyed", e);
+        }
+    }
+
+    private static boolean supportsComposite(Registration registration) {
+        LwM2mVersion version = registration.getLwM2mVersion();
+        Collection<ContentFormat> formats = registration.getSupportedContentFormats();
+        return version != null && !version.olderThan(LwM2mVersion.V1_1) && formats != null
+                && (formats.contains(ContentFormat.SENML_CBOR) || formats.contains(ContentFormat.SENML_JSON));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Destroying observation restorer was interrupted.", e);
+        }
+    }
+
+    private static class RestoreTask {
+        private final String endpoint;
+        private Registration registration;
+        private List<LwM2mPath> remaining;
+        private boolean composite;
+        private int attempts;
+        private long lastAttemptTime;
+
+        private boolean sending;
+        private boolean restartRequested;
+        private ScheduledFuture<?> scheduled;
+
+        public RestoreTask(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public void reset(Registration registration, List<LwM2mPath> paths) {
+            this.registration = registration;
+            this.remaining = new ArrayList<>(paths);
+            this.attempts = 0;
+            this.composite = false;
+            if (paths.size() > 1 && supportsComposite(registration)) {
+                try {
+                    LwM2mPath.validateNotOverlapping(remaining);
+                    this.composite = true;
+                } catch (IllegalArgumentException e) {
+                    // overlapping paths, use one request by path
+                }
+            }
+        }
+    }
+}
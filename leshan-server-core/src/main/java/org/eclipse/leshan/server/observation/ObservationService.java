@@ -48,6 +48,20 @@ public interface ObservationService {
      */
     int cancelObservations(Registration registration, String nodePath);
 
+    /**
+     * Cancels all active observations for the given node of a given registration and for all the nodes under it.
+     *
+     * As a consequence the LWM2M Client will stop sending notifications about updated values of resources in scope of
+     * the canceled observation.
+     *
+     * @param registration the LWM2M Client to cancel observation for
+     * @param nodePath LWM2M node path to cancel observation for
+     * @param includeDescendants if <code>true</code> observations of nodes under the given path are canceled too.
+     * @return the number of canceled observations
+     * @since 2.0
+     */
+    int cancelObservations(Registration registration, String nodePath, boolean includeDescendants);
+
     /**
      * Cancels all active Composite-Observations for the given resources of a given registration.
      *
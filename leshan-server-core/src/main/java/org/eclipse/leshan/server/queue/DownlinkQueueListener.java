@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import org.eclipse.leshan.core.response.LwM2mResponse;
+
+/**
+ * A listener aware of the result of requests sent by a {@link DownlinkRequestQueue}.
+ * <p>
+ * With a shared {@link DownlinkQueueStore}, a request can be sent by another server than the one which queued it. In
+ * this case the future returned when the request was queued is never completed, this listener is the only way to get
+ * the result.
+ */
+public interface DownlinkQueueListener {
+
+    /**
+     * Invoked when a response is received for a queued request.
+     */
+    void onResponse(QueuedRequest request, LwM2mResponse response);
+
+    /**
+     * Invoked when a queued request failed, expired or can not be sent.
+     */
+    void onError(QueuedRequest request, Exception error);
+}
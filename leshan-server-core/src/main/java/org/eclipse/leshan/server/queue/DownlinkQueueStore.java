@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.List;
+
+/**
+ * A store for {@link QueuedRequest}s, with one queue by endpoint.
+ * <p>
+ * Requests of a queue are ordered by priority (highest first) then by creation time (oldest first).
+ */
+public interface DownlinkQueueStore {
+
+    /**
+     * Add a request to the queue of its endpoint.
+     *
+     * @param request the request to add.
+     * @param maxSize the maximum number of requests in the queue.
+     * @return <code>false</code> if the request was not added because the queue already contains <code>maxSize</code>
+     *         requests.
+     */
+    boolean add(QueuedRequest request, int maxSize);
+
+    /**
+     * Remove and return the first requests of the queue of the given endpoint.
+     *
+     * @param endpoint the endpoint name.
+     * @param maxCount the maximum number of requests to return.
+     * @return the removed requests, expired requests are returned too.
+     */
+    List<QueuedRequest> poll(String endpoint, int maxCount);
+
+    /**
+     * Remove a request.
+     *
+     * @return <code>true</code> if the request was still in the queue.
+     */
+    boolean remove(String endpoint, String requestId);
+
+    /**
+     * Remove all the requests of the given endpoint.
+     *
+     * @return the removed requests.
+     */
+    List<QueuedRequest> removeAll(String endpoint);
+
+    /**
+     * @return the number of requests queued for the given endpoint.
+     */
+    int size(String endpoint);
+}
@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.request.exception.RequestRejectedException;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Store and forward requests to LWM2M clients using Queue Mode.
+ * <p>
+ * Instead of failing with a {@link ClientSleepingException}, requests to a sleeping client are stored in a bounded
+ * queue by endpoint. When the {@link PresenceService} detects that the client is awake (registration update,
+ * notification, ...), queued requests are sent by bursts: all the requests of a burst are sent without waiting for the
+ * previous response, then the next burst is sent. Requests are sent by priority, then in the order they were queued.
+ * <p>
+ * A request which is not sent before its time to live expires fails with a {@link RequestCanceledException}. If the
+ * queue of a client is full, new requests fail with a {@link RequestRejectedException}.
+ * <p>
+ * The {@link LwM2mRequestSender} used to send requests should be a {@link QueueModeLwM2mRequestSender}, so the presence
+ * of the client is updated by the responses.
+ */
+public class DownlinkRequestQueue implements PresenceListener, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DownlinkRequestQueue.class);
+
+    /** Default maximum number of requests queued for an endpoint */
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 64;
+    /** Default number of requests sent at once */
+    public static final int DEFAULT_BURST_SIZE = 8;
+    /** Default time to live of a queued request: 1 day in ms */
+    public static final long DEFAULT_TTL = 24 * 60 * 60 * 1000l;
+    /** Default timeout used to send a queued request: 2 min in ms */
+    public static final long DEFAULT_TIMEOUT = 2 * 60 * 1000l;
+
+    private final PresenceService presenceService;
+    private final LwM2mRequestSender sender;
+    private final DownlinkQueueStore store;
+    private final int maxQueueSize;
+    private final int burstSize;
+
+    // futures of the requests queued by this instance
+    private final ConcurrentMap<String /* request id */, CompletableFuture<? extends LwM2mResponse>> futures = new ConcurrentHashMap<>();
+    // requests currently sent by this instance, they are completed by their response or their timeout.
+    private final Set<String /* request id */> sending = ConcurrentHashMap.newKeySet();
+    // endpoints for which a burst is ongoing, value is true if a new flush was requested during the burst.
+    private final Map<String /* endpoint */, Boolean> flushing = new HashMap<>();
+    private final List<DownlinkQueueListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService expirationExecutor;
+
+    public DownlinkRequestQueue(PresenceService presenceService, LwM2mRequestSender sender, DownlinkQueueStore store) {
+        this(presenceService, sender, store, DEFAULT_MAX_QUEUE_SIZE, DEFAULT_BURST_SIZE);
+    }
+
+    /**
+     * @param presenceService the service used to know when clients wake up.
+     * @param sender the sender used to send requests.
+     * @param store the store containing queued requests.
+     * @param maxQueueSize the maximum number of requests queued for an endpoint.
+     * @param burstSize the maximum number of requests sent without waiting for responses.
+     */
+    public DownlinkRequestQueue(PresenceService presenceService, LwM2mRequestSender sender, DownlinkQueueStore store,
+            int maxQueueSize, int burstSize) {
+        this(presenceService, sender, store, maxQueueSize, burstSize,
+                Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("Downlink Request Queue")));
+    }
+
+    /**
+     * @param presenceService the service used to know when clients wake up.
+     * @param sender the sender used to send requests.
+     * @param store the store containing queued requests.
+     * @param maxQueueSize the maximum number of requests queued for an endpoint.
+     * @param burstSize the maximum number of requests sent without waiting for responses.
+     * @param expirationExecutor the executor used to expire queued requests, it is shutdown on {@link #destroy()}.
+     */
+    public DownlinkRequestQueue(PresenceService presenceService, LwM2mRequestSender sender, DownlinkQueueStore store,
+            int maxQueueSize, int burstSize, ScheduledExecutorService expirationExecutor) {
+        Validate.notNull(presenceService);
+        Validate.notNull(sender);
+        Validate.notNull(store);
+        Validate.isTrue(maxQueueSize > 0, "max queue size must be positive");
+        Validate.isTrue(burstSize > 0, "burst size must be positive");
+        Validate.notNull(expirationExecutor);
+        this.presenceService = presenceService;
+        this.sender = sender;
+        this.store = store;
+        this.maxQueueSize = maxQueueSize;
+        this.burstSize = burstSize;
+        this.expirationExecutor = expirationExecutor;
+        presenceService.addListener(this);
+    }
+
+    /**
+     * Send a request with the lowest priority, {@link #DEFAULT_TTL} and {@link #DEFAULT_TIMEOUT}.
+     *
+     * @see #send(Registration, DownlinkRequest, int, long, long)
+     */
+    public <T extends LwM2mResponse> CompletableFuture<T> send(Registration destination, DownlinkRequest<T> request) {
+        return send(destination, request, QueuedRequest.MIN_PRIORITY, DEFAULT_TTL, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Send a request to a client. If the client uses Queue Mode, the request is queued until the client is awake, else
+     * it is sent immediately.
+     * <p>
+     * Cancelling the returned future removes the request from the queue if it was not sent yet.
+     *
+     * @param destination the registration of the client.
+     * @param request the request to send.
+     * @param priority the priority between {@link QueuedRequest#MIN_PRIORITY} and {@link QueuedRequest#MAX_PRIORITY}.
+     * @param ttlInMs the maximum time in ms the request can stay in the queue.
+     * @param timeoutInMs the timeout in ms used to send the request.
+     * @return a future completed with the response.
+     */
+    public <T extends LwM2mResponse> CompletableFuture<T> send(Registration destination, DownlinkRequest<T> request,
+            int priority, long ttlInMs, long timeoutInMs) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        // If the client does not use Q-Mode, just send
+        if (!destination.usesQueueMode()) {
+            try {
+                sender.send(destination, request, null, timeoutInMs, future::complete, future::completeExceptionally);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+
+        long now = System.currentTimeMillis();
+        final QueuedRequest queued = new QueuedRequest(UUID.randomUUID().toString(), destination.getEndpoint(), request,
+                priority, now, now + ttlInMs, timeoutInMs);
+        futures.put(queued.getId(), future);
+        if (!store.add(queued, maxQueueSize)) {
+            futures.remove(queued.getId());
+            future.completeExceptionally(
+                    new RequestRejectedException("Request queue of client %s is full", destination.getEndpoint()));
+            return future;
+        }
+
+        final ScheduledFuture<?> expiration = expirationExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                RequestCanceledException error = new RequestCanceledException(
+                        "Request expired before client %s woke up", queued.getEndpoint());
+                if (store.remove(queued.getEndpoint(), queued.getId())) {
+                    failed(queued, error);
+                } else if (!sending.contains(queued.getId())) {
+                    // request was removed from the store by someone else (e.g. another server which sent it), there
+                    // is no response to wait for.
+                    CompletableFuture<? extends LwM2mResponse> expired = futures.remove(queued.getId());
+                    if (expired != null) {
+                        expired.completeExceptionally(error);
+                    }
+                }
+            }
+        }, ttlInMs, TimeUnit.MILLISECONDS);
+        future.whenComplete((response, error) -> {
+            expiration.cancel(false);
+            futures.remove(queued.getId());
+            if (future.isCancelled()) {
+                store.remove(queued.getEndpoint(), queued.getId());
+            }
+        });
+
+        if (presenceService.isClientAwake(destination)) {
+            flush(destination);
+        }
+        return future;
+    }
+
+    /**
+     * Remove all the requests queued for the given client, their futures fail with a {@link RequestCanceledException}.
+     *
+     * @return the number of removed requests.
+     */
+    public int cancelQueuedRequests(Registration registration) {
+        List<QueuedRequest> removed = store.removeAll(registration.getEndpoint());
+        for (QueuedRequest queued : removed) {
+            failed(queued, new RequestCanceledException("Queued request cancelled"));
+        }
+        return removed.size();
+    }
+
+    @Override
+    public void onAwake(Registration registration) {
+        flush(registration);
+    }
+
+    @Override
+    public void onSleeping(Registration registration) {
+        // requests are kept until next awake period
+    }
+
+    private void flush(Registration registration) {
+        synchronized (flushing) {
+            if (flushing.containsKey(registration.getEndpoint())) {
+                // the ongoing burst will flush again
+                flushing.put(registration.getEndpoint(), true);
+                return;
+            }
+            flushing.put(registration.getEndpoint(), false);
+        }
+        sendBurst(registration);
+    }
+
+    private void sendBurst(final Registration registration) {
+        String endpoint = registration.getEndpoint();
+        List<QueuedRequest> burst = Collections.emptyList();
+        while (burst.isEmpty()) {
+            if (presenceService.isClientAwake(registration)) {
+                burst = store.poll(endpoint, burstSize);
+            }
+            if (burst.isEmpty()) {
+                synchronized (flushing) {
+                    if (!Boolean.TRUE.equals(flushing.get(endpoint))) {
+                        flushing.remove(endpoint);
+                        return;
+                    }
+                    flushing.put(endpoint, false);
+                }
+            }
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(burst.size());
+        Runnable onDone = new Runnable() {
+            @Override
+            public void run() {
+                if (remaining.decrementAndGet() == 0) {
+                    sendBurst(registration);
+                }
+            }
+        };
+        long now = System.currentTimeMillis();
+        for (QueuedRequest queued : burst) {
+            if (queued.isExpired(now)) {
+                failed(queued, new RequestCanceledException("Request expired before client %s woke up", endpoint));
+                onDone.run();
+            } else {
+                send(registration, queued, queued.getRequest(), onDone);
+            }
+        }
+    }
+
+    private <T extends LwM2mResponse> void send(Registration registration, final QueuedRequest queued,
+            DownlinkRequest<T> request, final Runnable onDone) {
+        sending.add(queued.getId());
+        try {
+            sender.send(registration, request, null, queued.getTimeout(), response -> {
+                succeeded(queued, response);
+                onDone.run();
+            }, error -> {
+                failed(queued, error);
+                onDone.run();
+            });
+        } catch (ClientSleepingException e) {
+            // client went back to sleep during the burst, keep the request for the next awake period.
+            sending.remove(queued.getId());
+            store.add(queued, Integer.MAX_VALUE);
+            onDone.run();
+        } catch (RuntimeException e) {
+            failed(queued, e);
+            onDone.run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void succeeded(QueuedRequest queued, LwM2mResponse response) {
+        sending.remove(queued.getId());
+        CompletableFuture<LwM2mResponse> future = (CompletableFuture<LwM2mResponse>) futures.remove(queued.getId());
+        if (future != null) {
+            future.complete(response);
+        } else {
+            LOG.debug("Response received for request {} queued by another server", queued.getId());
+        }
+        for (DownlinkQueueListener listener : listeners) {
+            listener.onResponse(queued, response);
+        }
+    }
+
+    private void failed(QueuedRequest queued, Exception error) {
+        sending.remove(queued.getId());
+        CompletableFuture<? extends LwM2mResponse> future = futures.remove(queued.getId());
+        if (future != null) {
+            future.completeExceptionally(error);
+        }
+        for (DownlinkQueueListener listener : listeners) {
+            listener.onError(queued, error);
+        }
+    }
+
+    public void addListener(DownlinkQueueListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(DownlinkQueueListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void destroy() {
+        presenceService.removeListener(this);
+        expirationExecutor.shutdownNow();
+        try {
+            expirationExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Destroying downlink request queue was interrupted.", e);
+        }
+    }
+}
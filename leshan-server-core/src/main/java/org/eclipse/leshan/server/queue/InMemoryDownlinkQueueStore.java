@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link DownlinkQueueStore} which keeps queued requests in memory.
+ */
+public class InMemoryDownlinkQueueStore implements DownlinkQueueStore {
+
+    // highest priority first, then first added first.
+    private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            int c = Integer.compare(e2.request.getPriority(), e1.request.getPriority());
+            return c != 0 ? c : Long.compare(e1.sequence, e2.sequence);
+        }
+    };
+
+    // A queue is removed from the map when it becomes empty, all modifications are done in compute() to be atomic.
+    private final ConcurrentMap<String /* endpoint */, PriorityQueue<Entry>> queues = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public boolean add(final QueuedRequest request, final int maxSize) {
+        final Entry entry = new Entry(request, sequence.getAndIncrement());
+        final boolean[] added = new boolean[1];
+        queues.compute(request.getEndpoint(), (endpoint, queue) -> {
+            if (queue == null) {
+                queue = new PriorityQueue<>(ORDER);
+            }
+            if (queue.size() < maxSize) {
+                queue.add(entry);
+                added[0] = true;
+            }
+            return queue.isEmpty() ? null : queue;
+        });
+        return added[0];
+    }
+
+    @Override
+    public List<QueuedRequest> poll(String endpoint, final int maxCount) {
+        final List<QueuedRequest> result = new ArrayList<>();
+        queues.computeIfPresent(endpoint, (ep, queue) -> {
+            while (result.size() < maxCount && !queue.isEmpty()) {
+                result.add(queue.poll().request);
+            }
+            return queue.isEmpty() ? null : queue;
+        });
+        return result;
+    }
+
+    @Override
+    public boolean remove(String endpoint, final String requestId) {
+        final boolean[] removed = new boolean[1];
+        queues.computeIfPresent(endpoint, (ep, queue) -> {
+            for (Iterator<Entry> it = queue.iterator(); it.hasNext();) {
+                if (it.next().request.getId().equals(requestId)) {
+                    it.remove();
+                    removed[0] = true;
+                    break;
+                }
+            }
+            return queue.isEmpty() ? null : queue;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public List<QueuedRequest> removeAll(String endpoint) {
+        PriorityQueue<Entry> queue = queues.remove(endpoint);
+        List<QueuedRequest> result = new ArrayList<>();
+        if (queue != null) {
+            while (!queue.isEmpty()) {
+                result.add(queue.poll().request);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int size(String endpoint) {
+        final int[] size = new int[1];
+        queues.computeIfPresent(endpoint, (ep, queue) -> {
+            size[0] = queue.size();
+            return queue;
+        });
+        return size[0];
+    }
+
+    private static class Entry {
+        final QueuedRequest request;
+        final long sequence;
+
+        Entry(QueuedRequest request, long sequence) {
+            this.request = request;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -15,6 +15,9 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.queue;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
 import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.request.exception.ClientSleepingException;
 import org.eclipse.leshan.core.request.exception.TimeoutException;
@@ -136,6 +139,54 @@ public class QueueModeLwM2mRequestSender implements LwM2mRequestSender {
         });
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends LwM2mResponse> CompletableFuture<T> sendAsync(final Registration destination,
+            DownlinkRequest<T> request, LowerLayerConfig lowerLayerConfig, long timeout) {
+
+        // If the client does not use Q-Mode, just send
+        if (!destination.usesQueueMode()) {
+            return delegatedSender.sendAsync(destination, request, lowerLayerConfig, timeout);
+        }
+
+        // If the client uses Q-Mode...
+
+        // If the client is sleeping, warn the user and return
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        if (!presenceService.isClientAwake(destination)) {
+            future.completeExceptionally(
+                    new ClientSleepingException("The destination client is sleeping, request cannot be sent."));
+            return future;
+        }
+
+        // Use delegation to send the request, and update presence before the user get the response
+        final CompletableFuture<T> delegatedFuture = delegatedSender.sendAsync(destination, request, lowerLayerConfig,
+                timeout);
+        delegatedFuture.whenComplete((response, error) -> {
+            if (error == null) {
+                // Set the client awake. This will restart the timer.
+                presenceService.setAwake(destination);
+                future.complete(response);
+            } else {
+                if (error instanceof TimeoutException || error instanceof UnconnectedPeerException) {
+                    // If the timeout expires or peer is not connected, this means the client does not respond.
+                    presenceService.setSleeping(destination);
+                }
+                future.completeExceptionally(error);
+            }
+        });
+
+        // Cancel delegated request if future is cancelled
+        future.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) {
+                delegatedFuture.cancel(false);
+            }
+        });
+        return future;
+    }
+
     @Override
     public void cancelOngoingRequests(Registration registration) {
         delegatedSender.cancelOngoingRequests(registration);
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A {@link DownlinkRequest} waiting in a {@link DownlinkQueueStore} for its LWM2M client to wake up.
+ */
+public class QueuedRequest {
+
+    /** Lowest priority */
+    public static final int MIN_PRIORITY = 0;
+    /** Highest priority */
+    public static final int MAX_PRIORITY = 255;
+
+    private final String id;
+    private final String endpoint;
+    private final DownlinkRequest<?> request;
+    private final int priority;
+    private final long creationTime;
+    private final long expirationTime;
+    private final long timeout;
+
+    /**
+     * @param id a unique identifier for this queued request.
+     * @param endpoint the endpoint name of the LWM2M client which should receive the request.
+     * @param request the request to send.
+     * @param priority the priority of the request between {@link #MIN_PRIORITY} and {@link #MAX_PRIORITY}, requests
+     *        with higher priority are sent first.
+     * @param creationTime the time in ms when the request was queued.
+     * @param expirationTime the time in ms after which the request must not be sent anymore.
+     * @param timeout the timeout in ms used to send the request.
+     */
+    public QueuedRequest(String id, String endpoint, DownlinkRequest<?> request, int priority, long creationTime,
+            long expirationTime, long timeout) {
+        Validate.notNull(id);
+        Validate.notNull(endpoint);
+        Validate.notNull(request);
+        Validate.isTrue(priority >= MIN_PRIORITY && priority <= MAX_PRIORITY, "priority must be between 0 and 255");
+        this.id = id;
+        this.endpoint = endpoint;
+        this.request = request;
+        this.priority = priority;
+        this.creationTime = creationTime;
+        this.expirationTime = expirationTime;
+        this.timeout = timeout;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public DownlinkRequest<?> getRequest() {
+        return request;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param now the current time in ms.
+     * @return <code>true</code> if the request must not be sent anymore.
+     */
+    public boolean isExpired(long now) {
+        return now >= expirationTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "QueuedRequest [id=%s, endpoint=%s, request=%s, priority=%d, creationTime=%d, expirationTime=%d, timeout=%d]",
+                id, endpoint, request, priority, creationTime, expirationTime, timeout);
+    }
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.Startable;
+import org.eclipse.leshan.core.Stoppable;
+
+/**
+ * Keeps track of registration expiration deadlines and notifies a {@link DeadlineListener} when they are reached.
+ * <p>
+ * A {@link RegistrationStore} can use it instead of periodically scanning all its registrations: each time a
+ * registration is added or updated its new deadline is tracked and each time a registration is removed its deadline is
+ * untracked. The store stays in charge of checking if the registration is really expired when the deadline is reached
+ * and of notifying its {@link ExpirationListener}.
+ */
+public interface RegistrationExpirationEngine extends Startable, Stoppable, Destroyable {
+
+    /**
+     * Listener notified when a tracked deadline is reached.
+     */
+    interface DeadlineListener {
+
+        /**
+         * Called when expiration deadline of the given registration is reached. The registration is no more tracked
+         * after this call.
+         *
+         * @param registrationId the id of the registration
+         */
+        void deadlineReached(String registrationId);
+    }
+
+    /**
+     * Set the listener to notify when a deadline is reached.
+     */
+    void setDeadlineListener(DeadlineListener listener);
+
+    /**
+     * Track a new expiration deadline for the given registration. If this registration was already tracked, previous
+     * deadline is replaced.
+     *
+     * @param registrationId the id of the registration
+     * @param expirationTimestamp the expiration date in milliseconds since epoch.
+     */
+    void track(String registrationId, long expirationTimestamp);
+
+    /**
+     * Stop tracking the expiration deadline of the given registration.
+     *
+     * @param registrationId the id of the registration
+     */
+    void untrack(String registrationId);
+}
@@ -106,78 +106,96 @@ public class RegistrationHandler {
 
     public SendableResponse<UpdateResponse> update(Identity sender, UpdateRequest updateRequest) {
 
-        // We check if there is a registration to update
-        Registration currentRegistration = registrationService.getById(updateRequest.getRegistrationId());
-        if (currentRegistration == null) {
-            return new SendableResponse<>(UpdateResponse.notFound());
-        }
-
-        // We check if the client get authorization.
-        Authorization authorization = authorizer.isAuthorized(updateRequest, currentRegistration, sender);
-        if (authorization.isDeclined()) {
-            return new SendableResponse<>(UpdateResponse.badRequest("forbidden"));
-        }
-
-        // validate request
-        updateRequest.validate(currentRegistration.getLwM2mVersion());
+        while (true) {
+            // We check if there is a registration to update
+            final Registration currentRegistration = registrationService.getById(updateRequest.getRegistrationId());
+            if (currentRegistration == null) {
+                return new SendableResponse<>(UpdateResponse.notFound());
+            }
 
-        // Create update
-        final RegistrationUpdate update = new RegistrationUpdate(updateRequest.getRegistrationId(), sender,
-                updateRequest.getLifeTimeInSec(), updateRequest.getSmsNumber(), updateRequest.getBindingMode(),
-                updateRequest.getObjectLinks(), updateRequest.getAdditionalAttributes(),
-                authorization.getApplicationData());
+            // We check if the client get authorization.
+            Authorization authorization = authorizer.isAuthorized(updateRequest, currentRegistration, sender);
+            if (authorization.isDeclined()) {
+                return new SendableResponse<>(UpdateResponse.badRequest("forbidden"));
+            }
 
-        // update registration
-        final UpdatedRegistration updatedRegistration = registrationService.getStore().updateRegistration(update);
-        if (updatedRegistration == null) {
-            LOG.debug("Invalid update:  registration {} not found", currentRegistration.getId());
-            return new SendableResponse<>(UpdateResponse.notFound());
-        } else {
-            LOG.debug("Updated registration {} by {}", updatedRegistration, update);
-            // Create callback to notify registration update
-            Runnable whenSent = new Runnable() {
-                @Override
-                public void run() {
-                    registrationService.fireUpdated(update, updatedRegistration.getUpdatedRegistration(),
-                            updatedRegistration.getPreviousRegistration());
+            // validate request
+            updateRequest.validate(currentRegistration.getLwM2mVersion());
+
+            // Create update
+            final RegistrationUpdate update = new RegistrationUpdate(updateRequest.getRegistrationId(), sender,
+                    updateRequest.getLifeTimeInSec(), updateRequest.getSmsNumber(), updateRequest.getBindingMode(),
+                    updateRequest.getObjectLinks(), updateRequest.getAdditionalAttributes(),
+                    authorization.getApplicationData());
+
+            // update registration only if it was not modified since authorization. Authorizer is not called by the
+            // store as it may access the store too (e.g. to get security info).
+            final UpdatedRegistration updatedRegistration = registrationService.getStore().updateRegistration(
+                    update.getRegistrationId(),
+                    registration -> isUnmodified(registration, currentRegistration) ? update : null);
+            if (updatedRegistration == null) {
+                LOG.debug("Registration {} was removed or modified during update, check it again",
+                        currentRegistration.getId());
+            } else {
+                LOG.debug("Updated registration {} by {}", updatedRegistration, update);
+                // Create callback to notify registration update
+                Runnable whenSent = new Runnable() {
+                    @Override
+                    public void run() {
+                        registrationService.fireUpdated(update, updatedRegistration.getUpdatedRegistration(),
+                                updatedRegistration.getPreviousRegistration());
+                    };
                 };
-            };
-            return new SendableResponse<>(UpdateResponse.success(), whenSent);
+                return new SendableResponse<>(UpdateResponse.success(), whenSent);
+            }
         }
     }
 
     public SendableResponse<DeregisterResponse> deregister(Identity sender, DeregisterRequest deregisterRequest) {
 
-        // We check if there is a registration to remove
-        Registration currentRegistration = registrationService.getById(deregisterRequest.getRegistrationId());
-        if (currentRegistration == null) {
-            return new SendableResponse<>(DeregisterResponse.notFound());
-        }
-
-        // We check if the client get authorization.
-        Authorization authorization = authorizer.isAuthorized(deregisterRequest, currentRegistration, sender);
-        if (authorization.isDeclined()) {
-            return new SendableResponse<>(DeregisterResponse.badRequest("forbidden"));
-        }
+        while (true) {
+            // We check if there is a registration to remove
+            final Registration currentRegistration = registrationService.getById(deregisterRequest.getRegistrationId());
+            if (currentRegistration == null) {
+                return new SendableResponse<>(DeregisterResponse.notFound());
+            }
 
-        final Deregistration deregistration = registrationService.getStore()
-                .removeRegistration(deregisterRequest.getRegistrationId());
+            // We check if the client get authorization.
+            Authorization authorization = authorizer.isAuthorized(deregisterRequest, currentRegistration, sender);
+            if (authorization.isDeclined()) {
+                return new SendableResponse<>(DeregisterResponse.badRequest("forbidden"));
+            }
 
-        if (deregistration != null) {
-            LOG.debug("Deregistered client: {}", deregistration.getRegistration());
-            // Create callback to notify new de-registration
-            Runnable whenSent = new Runnable() {
-                @Override
-                public void run() {
-                    registrationService.fireUnregistered(deregistration.getRegistration(),
-                            deregistration.getObservations(), null);
+            // remove registration only if it was not modified since authorization.
+            final Deregistration deregistration = registrationService.getStore().removeRegistration(
+                    deregisterRequest.getRegistrationId(),
+                    registration -> isUnmodified(registration, currentRegistration));
+
+            if (deregistration == null) {
+                LOG.debug("Registration {} was removed or modified during deregistration, check it again",
+                        currentRegistration.getId());
+            } else {
+                LOG.debug("Deregistered client: {}", deregistration.getRegistration());
+                // Create callback to notify new de-registration
+                Runnable whenSent = new Runnable() {
+                    @Override
+                    public void run() {
+                        registrationService.fireUnregistered(deregistration.getRegistration(),
+                                deregistration.getObservations(), null);
+                    };
                 };
-            };
-            return new SendableResponse<>(DeregisterResponse.success(), whenSent);
-        } else {
-            LOG.debug("Invalid deregistration :  registration {} not found", currentRegistration.getId());
-            return new SendableResponse<>(DeregisterResponse.notFound());
+                return new SendableResponse<>(DeregisterResponse.success(), whenSent);
+            }
         }
     }
 
+    /**
+     * Check that a registration was not modified since it was read : each update changes its last update date, and the
+     * identity is compared too as 2 updates could be done in the same millisecond.
+     */
+    private static boolean isUnmodified(Registration registration, Registration readRegistration) {
+        return registration.getLastUpdate().equals(readRegistration.getLastUpdate())
+                && registration.getIdentity().equals(readRegistration.getIdentity());
+    }
+
 }
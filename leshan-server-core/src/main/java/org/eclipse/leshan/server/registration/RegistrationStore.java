@@ -16,10 +16,21 @@
 package org.eclipse.leshan.server.registration;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
 import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
 import org.eclipse.leshan.core.request.Identity;
 
 /**
@@ -46,6 +57,38 @@ public interface RegistrationStore {
      */
     UpdatedRegistration updateRegistration(RegistrationUpdate update);
 
+    /**
+     * Update an existing registration, if the given function accepts it.
+     * <p>
+     * The function is called with the current registration and returns the update to apply, or <code>null</code> to
+     * leave the registration unchanged. This allows to check that the current registration is still the expected one
+     * (e.g. not modified since it was authorized) and apply the update atomically.
+     * <p>
+     * Stores should call the function while the registration can not be modified concurrently (e.g. holding a lock or a
+     * connection), so it must be a cheap check which does not block nor access a store. It may be called several times
+     * if the store uses optimistic concurrency.
+     * <p>
+     * Default implementation reads the registration, then calls {@link #updateRegistration(RegistrationUpdate)}.
+     *
+     * @param registrationId the id of the registration to update.
+     * @param updateFunction a function which returns the update to apply to the current registration.
+     * @return the previous and updated registration or <code>null</code> if there is no registration for this id or if
+     *         the function returns <code>null</code>.
+     * @since 2.0
+     */
+    default UpdatedRegistration updateRegistration(String registrationId,
+            Function<Registration, RegistrationUpdate> updateFunction) {
+        Registration registration = getRegistration(registrationId);
+        if (registration == null) {
+            return null;
+        }
+        RegistrationUpdate update = updateFunction.apply(registration);
+        if (update == null) {
+            return null;
+        }
+        return updateRegistration(update);
+    }
+
     /**
      * Get the registration by registration Id.
      *
@@ -87,6 +130,20 @@ public interface RegistrationStore {
      */
     Iterator<Registration> getAllRegistrations();
 
+    /**
+     * Returns a sequential {@link Stream} over the registrations of this store. Registrations are fetched while the
+     * stream is consumed, so they are not all materialized in memory. Use {@link Stream#parallel()} to process them in
+     * parallel. There are no guarantees concerning the order in which the elements are returned (unless the
+     * implementation provides a guarantee).
+     *
+     * @return a <tt>Stream</tt> over the registration in this store
+     * @since 2.0
+     */
+    default Stream<Registration> streamAllRegistrations() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(getAllRegistrations(), Spliterator.NONNULL),
+                false);
+    }
+
     /**
      * Remove the registration with the given registration Id
      *
@@ -95,6 +152,29 @@ public interface RegistrationStore {
      */
     Deregistration removeRegistration(String registrationId);
 
+    /**
+     * Remove the registration with the given registration Id, if it matches the given condition.
+     * <p>
+     * Like {@link #updateRegistration(String, Function)}, this allows to check the current registration and remove it
+     * atomically. The condition must be a cheap check which does not block nor access a store, and may be called
+     * several times.
+     * <p>
+     * Default implementation reads the registration, then calls {@link #removeRegistration(String)}.
+     *
+     * @param registrationId the id of the registration to removed
+     * @param condition the condition that the current registration must match to be removed.
+     * @return the registration and observations removed or <code>null</code> if there is no registration for this Id or
+     *         if it does not match the condition.
+     * @since 2.0
+     */
+    default Deregistration removeRegistration(String registrationId, Predicate<Registration> condition) {
+        Registration registration = getRegistration(registrationId);
+        if (registration == null || !condition.test(registration)) {
+            return null;
+        }
+        return removeRegistration(registrationId);
+    }
+
     /**
      * Add a new {@link Observation} for a given registration.
      *
@@ -122,6 +202,52 @@ public interface RegistrationStore {
      */
     Collection<Observation> getObservations(String registrationId);
 
+    /**
+     * Get the {@link SingleObservation}s of the given registrationId which target the given path.
+     * <p>
+     * Default implementation looks at all the observations of the registration, stores which index observations by path
+     * should override it.
+     *
+     * @param registrationId the id of the registration
+     * @param path the observed path
+     * @param includeDescendants if <code>true</code> observations which target a descendant of this path are returned
+     *        too.
+     * @since 2.0
+     */
+    default Collection<SingleObservation> getObservations(String registrationId, LwM2mPath path,
+            boolean includeDescendants) {
+        List<SingleObservation> result = new ArrayList<>();
+        for (Observation obs : getObservations(registrationId)) {
+            if (obs instanceof SingleObservation) {
+                LwM2mPath observedPath = ((SingleObservation) obs).getPath();
+                if (includeDescendants ? observedPath.startWith(path) : observedPath.equals(path)) {
+                    result.add((SingleObservation) obs);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the {@link CompositeObservation}s of the given registrationId which target exactly the given list of paths.
+     * <p>
+     * Default implementation looks at all the observations of the registration, stores which index observations by path
+     * should override it.
+     *
+     * @param registrationId the id of the registration
+     * @param paths the observed paths
+     * @since 2.0
+     */
+    default Collection<CompositeObservation> getCompositeObservations(String registrationId, List<LwM2mPath> paths) {
+        List<CompositeObservation> result = new ArrayList<>();
+        for (Observation obs : getObservations(registrationId)) {
+            if (obs instanceof CompositeObservation && paths.equals(((CompositeObservation) obs).getPaths())) {
+                result.add((CompositeObservation) obs);
+            }
+        }
+        return result;
+    }
+
     /**
      * Remove all observations for the given registrationId
      */
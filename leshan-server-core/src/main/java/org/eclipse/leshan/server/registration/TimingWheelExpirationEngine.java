@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link RegistrationExpirationEngine} based on a hierarchical timing wheel.
+ * <p>
+ * Time is divided in ticks of fixed duration. The first wheel has 256 slots of 1 tick, then each upper wheel has 64
+ * slots which cover a full revolution of the wheel below. A deadline is stored in the lowest wheel which can hold it
+ * and is moved down to a lower wheel when the slot of its upper wheel is reached. Tracking, untracking and expiring a
+ * deadline are O(1), so the cost of this engine is proportional to the number of expirations and not to the number of
+ * tracked registrations. Deadlines are reached with a precision of one tick.
+ */
+public class TimingWheelExpirationEngine implements RegistrationExpirationEngine {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TimingWheelExpirationEngine.class);
+
+    /** Default duration of a tick in milliseconds */
+    public static final long DEFAULT_TICK_DURATION = 1000;
+
+    // Wheels geometry : first wheel has 2^ROOT_BITS slots, upper wheels have 2^LEVEL_BITS slots.
+    private static final int ROOT_BITS = 8;
+    private static final int LEVEL_BITS = 6;
+    private static final int NB_WHEELS = 4;
+    private static final int ROOT_MASK = (1 << ROOT_BITS) - 1;
+    private static final int LEVEL_MASK = (1 << LEVEL_BITS) - 1;
+    // maximum number of ticks which can be hold by the wheels, farther deadlines are re-scheduled when reached.
+    private static final long MAX_DELTA = (1L << (ROOT_BITS + (NB_WHEELS - 1) * LEVEL_BITS)) - 1;
+
+    private final Entry[][] wheels;
+    private final Map<String /* reg-id */, Entry> entries = new HashMap<>();
+    private final long tickDuration; // in ms
+    private final long origin; // timestamp in ms of tick 0
+    private long currentTick; // next tick to process
+
+    private volatile DeadlineListener listener;
+
+    private final ScheduledExecutorService schedExecutor;
+    private ScheduledFuture<?> tickerTask;
+    private boolean started = false;
+
+    public TimingWheelExpirationEngine() {
+        this(DEFAULT_TICK_DURATION);
+    }
+
+    /**
+     * @param tickDurationInMs the precision of this engine in milliseconds.
+     */
+    public TimingWheelExpirationEngine(long tickDurationInMs) {
+        this(Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory(String.format("TimingWheelExpirationEngine (%dms)", tickDurationInMs))),
+                tickDurationInMs);
+    }
+
+    /**
+     * @param schedExecutor the executor used to advance the wheels and to notify the {@link DeadlineListener}.
+     * @param tickDurationInMs the precision of this engine in milliseconds.
+     */
+    public TimingWheelExpirationEngine(ScheduledExecutorService schedExecutor, long tickDurationInMs) {
+        this(schedExecutor, tickDurationInMs, System.currentTimeMillis());
+    }
+
+    TimingWheelExpirationEngine(ScheduledExecutorService schedExecutor, long tickDurationInMs, long origin) {
+        Validate.isTrue(tickDurationInMs > 0, "tick duration must be positive");
+        this.schedExecutor = schedExecutor;
+        this.tickDuration = tickDurationInMs;
+        this.origin = origin;
+
+        wheels = new Entry[NB_WHEELS][];
+        wheels[0] = newWheel(1 << ROOT_BITS);
+        for (int i = 1; i < NB_WHEELS; i++) {
+            wheels[i] = newWheel(1 << LEVEL_BITS);
+        }
+    }
+
+    private static Entry[] newWheel(int size) {
+        Entry[] wheel = new Entry[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Entry(null);
+        }
+        return wheel;
+    }
+
+    @Override
+    public void setDeadlineListener(DeadlineListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public synchronized void track(String registrationId, long expirationTimestamp) {
+        Entry entry = entries.get(registrationId);
+        if (entry == null) {
+            entry = new Entry(registrationId);
+            entries.put(registrationId, entry);
+        } else {
+            entry.unlink();
+        }
+        // round up to be sure deadline is never reached too early
+        long delay = expirationTimestamp - origin;
+        entry.deadlineTick = delay <= 0 ? 0 : (delay + tickDuration - 1) / tickDuration;
+        schedule(entry);
+    }
+
+    @Override
+    public synchronized void untrack(String registrationId) {
+        Entry entry = entries.remove(registrationId);
+        if (entry != null) {
+            entry.unlink();
+        }
+    }
+
+    /**
+     * @return the number of tracked deadlines.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void schedule(Entry entry) {
+        long delta = entry.deadlineTick - currentTick;
+        long tick;
+        if (delta < 0) {
+            // already expired : expire it at next tick
+            delta = 0;
+            tick = currentTick;
+        } else if (delta > MAX_DELTA) {
+            // too far : it will be re-scheduled when reached
+            delta = MAX_DELTA;
+            tick = currentTick + MAX_DELTA;
+        } else {
+            tick = entry.deadlineTick;
+        }
+
+        if (delta <= ROOT_MASK) {
+            wheels[0][(int) (tick & ROOT_MASK)].append(entry);
+            return;
+        }
+        for (int level = 1; level < NB_WHEELS; level++) {
+            int shift = ROOT_BITS + (level - 1) * LEVEL_BITS;
+            if (delta < 1L << (shift + LEVEL_BITS)) {
+                wheels[level][(int) ((tick >> shift) & LEVEL_MASK)].append(entry);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Process all ticks elapsed until the given time and notify the listener of deadlines reached.
+     *
+     * @param now the current time in milliseconds.
+     */
+    void advanceTo(long now) {
+        List<String> expired = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = (now - origin) / tickDuration;
+            while (currentTick <= targetTick) {
+                processTick(expired);
+            }
+        }
+
+        DeadlineListener l = listener;
+        if (l != null) {
+            for (String registrationId : expired) {
+                try {
+                    l.deadlineReached(registrationId);
+                } catch (RuntimeException e) {
+                    LOG.warn("Unexpected Exception while handling expiration of registration {}", registrationId, e);
+                }
+            }
+        }
+    }
+
+    private void processTick(List<String> expired) {
+        int index = (int) (currentTick & ROOT_MASK);
+
+        // when first wheel does a full revolution, move down the entries of upper wheels.
+        if (index == 0) {
+            for (int level = 1; level < NB_WHEELS; level++) {
+                int levelIndex = (int) ((currentTick >> (ROOT_BITS + (level - 1) * LEVEL_BITS)) & LEVEL_MASK);
+                cascade(wheels[level][levelIndex]);
+                if (levelIndex != 0) {
+                    break;
+                }
+            }
+        }
+
+        // expire all entries of the current slot
+        Entry slot = wheels[0][index];
+        Entry entry = slot.next;
+        while (entry != slot) {
+            Entry next = entry.next;
+            entry.prev = entry.next = null;
+            if (entry.deadlineTick <= currentTick) {
+                entries.remove(entry.registrationId);
+                expired.add(entry.registrationId);
+            } else {
+                // deadline was too far when scheduled
+                schedule(entry);
+            }
+            entry = next;
+        }
+        slot.next = slot.prev = slot;
+
+        currentTick++;
+    }
+
+    private void cascade(Entry slot) {
+        Entry entry = slot.next;
+        slot.next = slot.prev = slot;
+        while (entry != slot) {
+            Entry next = entry.next;
+            schedule(entry);
+            entry = next;
+        }
+    }
+
+    /**
+     * Start to advance the wheels.
+     */
+    @Override
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            tickerTask = schedExecutor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        advanceTo(System.currentTimeMillis());
+                    } catch (RuntimeException e) {
+                        LOG.warn("Unexpected Exception while processing registration expiration", e);
+                    }
+                }
+            }, tickDuration, tickDuration, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop to advance the wheels, tracked deadlines are kept.
+     */
+    @Override
+    public synchronized void stop() {
+        if (started) {
+            started = false;
+            if (tickerTask != null) {
+                tickerTask.cancel(false);
+                tickerTask = null;
+            }
+        }
+    }
+
+    /**
+     * Destroy the underlying scheduler.
+     */
+    @Override
+    public synchronized void destroy() {
+        started = false;
+        schedExecutor.shutdownNow();
+        try {
+            schedExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Destroying TimingWheelExpirationEngine was interrupted.", e);
+        }
+    }
+
+    /**
+     * An element of a doubly linked list. A slot of a wheel is an {@link Entry} without registration id used as list
+     * head.
+     */
+    private static class Entry {
+        private final String registrationId;
+        private long deadlineTick;
+        private Entry prev;
+        private Entry next;
+
+        Entry(String registrationId) {
+            this.registrationId = registrationId;
+            if (registrationId == null) {
+                prev = next = this;
+            }
+        }
+
+        void append(Entry entry) {
+            entry.prev = prev;
+            entry.next = this;
+            prev.next = entry;
+            prev = entry;
+        }
+
+        void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = next = null;
+            }
+        }
+    }
+}
@@ -16,6 +16,8 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.request;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.request.exception.ClientSleepingException;
@@ -94,6 +96,49 @@ public interface LwM2mRequestSender {
             LowerLayerConfig lowerLayerConfig, long timeoutInMs, ResponseCallback<T> responseCallback,
             ErrorCallback errorCallback);
 
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client and return a
+     * {@link CompletableFuture} of the response.
+     * <p>
+     * Unlike callbacks, futures can easily be composed, e.g. to send the same request to a lot of clients from a few
+     * threads. Errors are never thrown by this method, they are always reported through the future.
+     * <p>
+     * Default implementation uses
+     * {@link #send(Registration, DownlinkRequest, LowerLayerConfig, long, ResponseCallback, ErrorCallback)}, so
+     * cancelling the future does not cancel the request. Implementations should override it to support it.
+     *
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @param lowerLayerConfig to tweak lower layer request (e.g. coap request)
+     * @param timeoutInMs The global timeout to wait in milliseconds (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @param <T> The expected type of the response received.
+     * @return a future completed with the response (successful or error response) or completed exceptionally with :
+     *         <ul>
+     *         <li>{@link CodecException} if request payload can not be encoded.</li>
+     *         <li>{@link RequestRejectedException} if the request is rejected by foreign peer.</li>
+     *         <li>{@link RequestCanceledException} if the request is cancelled.</li>
+     *         <li>{@link SendFailedException} if the request can not be sent. E.g. error at CoAP or DTLS/UDP
+     *         layer.</li>
+     *         <li>{@link InvalidResponseException} if the response received is malformed.</li>
+     *         <li>{@link UnconnectedPeerException} if client is not connected (no dtls connection available).</li>
+     *         <li>{@link ClientSleepingException} if client is currently sleeping.</li>
+     *         <li>{@link TimeoutException} if the timeout expires (see
+     *         https://github.com/eclipse/leshan/wiki/Request-Timeout).</li>
+     *         <li>or any other RuntimeException for unexpected issue.
+     *         </ul>
+     */
+    default <T extends LwM2mResponse> CompletableFuture<T> sendAsync(Registration destination,
+            DownlinkRequest<T> request, LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            send(destination, request, lowerLayerConfig, timeoutInMs, future::complete, future::completeExceptionally);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * cancel all ongoing messages for a LWM2M client identified by the registration identifier. In case a client
      * de-registers, the consumer can use this method to cancel all ongoing messages for the given client.
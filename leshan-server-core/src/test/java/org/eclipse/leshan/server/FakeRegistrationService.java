@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationService;
+
+/**
+ * A {@link RegistrationService} backed by a map, registrations are iterated in the order they were added.
+ */
+public class FakeRegistrationService implements RegistrationService {
+
+    private final Map<String /* registration id */, Registration> registrations = new LinkedHashMap<>();
+
+    public synchronized void add(Registration registration) {
+        registrations.put(registration.getId(), registration);
+    }
+
+    public synchronized void remove(String registrationId) {
+        registrations.remove(registrationId);
+    }
+
+    @Override
+    public synchronized Registration getById(String id) {
+        return registrations.get(id);
+    }
+
+    @Override
+    public synchronized Registration getByEndpoint(String endpoint) {
+        for (Registration registration : registrations.values()) {
+            if (registration.getEndpoint().equals(endpoint)) {
+                return registration;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized Iterator<Registration> getAllRegistrations() {
+        return new ArrayList<>(registrations.values()).iterator();
+    }
+
+    @Override
+    public void addListener(RegistrationListener listener) {
+    }
+
+    @Override
+    public void removeListener(RegistrationListener listener) {
+    }
+}
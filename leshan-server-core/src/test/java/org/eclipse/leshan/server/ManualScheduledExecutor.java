@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ScheduledExecutorService} which never runs tasks by itself : tests run them in their own thread with
+ * {@link #runDueTasks()} and make time elapse with {@link #advance(long, TimeUnit)}.
+ * <p>
+ * This allows to check deterministically that nothing else happens once due tasks are executed.
+ */
+public class ManualScheduledExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private final PriorityQueue<Task<?>> tasks = new PriorityQueue<>();
+    private long now; // in ns
+    private long sequence;
+    private boolean shutdown;
+
+    /**
+     * Run the tasks which are due, including the ones scheduled by the executed tasks, in the calling thread.
+     */
+    public void runDueTasks() {
+        Task<?> task;
+        while ((task = pollDueTask()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Make time elapse then run the tasks which are due.
+     */
+    public void advance(long delay, TimeUnit unit) {
+        synchronized (this) {
+            now += unit.toNanos(delay);
+        }
+        runDueTasks();
+    }
+
+    private synchronized Task<?> pollDueTask() {
+        Task<?> task = tasks.peek();
+        if (task == null || task.time > now) {
+            return null;
+        }
+        return tasks.poll();
+    }
+
+    private synchronized <V> Task<V> add(Callable<V> callable, long delay, TimeUnit unit) {
+        if (shutdown) {
+            throw new RejectedExecutionException("executor is shutdown");
+        }
+        Task<V> task = new Task<>(callable, now + Math.max(0, unit.toNanos(delay)), sequence++);
+        tasks.add(task);
+        return task;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return add(Executors.callable(command), delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return add(callable, delay, unit);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> pending = new ArrayList<Runnable>(tasks);
+        tasks.clear();
+        return pending;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return true;
+    }
+
+    private class Task<V> extends FutureTask<V> implements ScheduledFuture<V> {
+        private final long time;
+        private final long seq;
+
+        Task(Callable<V> callable, long time, long seq) {
+            super(callable);
+            this.time = time;
+            this.seq = seq;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            synchronized (ManualScheduledExecutor.this) {
+                return unit.convert(time - now, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            Task<?> task = (Task<?>) other;
+            int result = Long.compare(time, task.time);
+            return result != 0 ? result : Long.compare(seq, task.seq);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.request.LowerLayerConfig;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+
+/**
+ * A {@link LwM2mRequestSender} which records asynchronous requests, tests respond to them using {@link Sent}.
+ * <p>
+ * Checks do not wait : the tested component must be done with sending before calling {@link #next()} or
+ * {@link #assertNothingSent()}.
+ */
+public class RecordingRequestSender implements LwM2mRequestSender {
+
+    public static class Sent {
+        public final Registration destination;
+        public final DownlinkRequest<?> request;
+        private final CompletableFuture<LwM2mResponse> future;
+
+        Sent(Registration destination, DownlinkRequest<?> request, CompletableFuture<LwM2mResponse> future) {
+            this.destination = destination;
+            this.request = request;
+            this.future = future;
+        }
+
+        public void respond(LwM2mResponse response) {
+            future.complete(response);
+        }
+
+        public void fail(Exception e) {
+            future.completeExceptionally(e);
+        }
+
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+    }
+
+    private final Queue<Sent> sent = new ConcurrentLinkedQueue<>();
+    private volatile LwM2mResponse autoResponse;
+    private volatile RuntimeException failure;
+
+    /**
+     * Respond immediately to all requests with the given response instead of recording them.
+     */
+    public void setAutoResponse(LwM2mResponse response) {
+        this.autoResponse = response;
+    }
+
+    /**
+     * Throw the given exception when a request is sent.
+     */
+    public void setFailure(RuntimeException failure) {
+        this.failure = failure;
+    }
+
+    @Override
+    public <T extends LwM2mResponse> T send(Registration destination, DownlinkRequest<T> request,
+            LowerLayerConfig lowerLayerConfig, long timeoutInMs) throws InterruptedException {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+            LowerLayerConfig lowerLayerConfig, long timeoutInMs, ResponseCallback<T> responseCallback,
+            ErrorCallback errorCallback) {
+        sendAsync(destination, request, lowerLayerConfig, timeoutInMs).whenComplete((response, error) -> {
+            if (error == null) {
+                responseCallback.onResponse(response);
+            } else {
+                errorCallback.onError((Exception) error);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends LwM2mResponse> CompletableFuture<T> sendAsync(Registration destination,
+            DownlinkRequest<T> request, LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+        if (failure != null) {
+            throw failure;
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (autoResponse != null) {
+            future.complete((T) autoResponse);
+        } else {
+            sent.add(new Sent(destination, request, (CompletableFuture<LwM2mResponse>) future));
+        }
+        return future;
+    }
+
+    @Override
+    public void cancelOngoingRequests(Registration registration) {
+    }
+
+    /**
+     * @return the oldest request which was sent and not yet returned by this method.
+     */
+    public Sent next() {
+        Sent next = sent.poll();
+        if (next == null) {
+            throw new AssertionError("request should be sent");
+        }
+        return next;
+    }
+
+    public void assertNothingSent() {
+        Sent next = sent.poll();
+        if (next != null) {
+            throw new AssertionError(
+                    String.format("unexpected request sent to %s : %s", next.destination.getEndpoint(), next.request));
+        }
+    }
+}
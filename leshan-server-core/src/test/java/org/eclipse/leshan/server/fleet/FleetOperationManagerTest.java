@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.fleet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Inet4Address;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.core.LwM2m.Version;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.server.FakeRegistrationService;
+import org.eclipse.leshan.server.ManualScheduledExecutor;
+import org.eclipse.leshan.server.RecordingRequestSender;
+import org.eclipse.leshan.server.RecordingRequestSender.Sent;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FleetOperationManagerTest {
+
+    private RecordingRequestSender sender;
+    private FakeRegistrationService registrationService;
+    private ManualScheduledExecutor executor;
+    private FleetOperationManager manager;
+
+    @Before
+    public void setUp() {
+        sender = new RecordingRequestSender();
+        registrationService = new FakeRegistrationService();
+        executor = new ManualScheduledExecutor();
+        for (int i = 1; i <= 5; i++) {
+            register("ep" + i, i % 2 == 0);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (manager != null) {
+            manager.destroy();
+        }
+    }
+
+    @Test
+    public void send_to_all_targets_and_aggregate_results() {
+        manager = new FleetOperationManager(sender, registrationService, 10, 1000, executor);
+        final AtomicInteger responses = new AtomicInteger();
+        FleetOperation<ReadResponse> operation = manager.execute(
+                new FleetRequest<>(FleetTarget.all(), new ReadRequest(3, 0, 1)),
+                new FleetOperationListener<ReadResponse>() {
+                    @Override
+                    public void onResponse(Registration registration, ReadResponse response) {
+                        responses.incrementAndGet();
+                    }
+                });
+
+        for (int i = 0; i < 5; i++) {
+            Sent sent = next();
+            sent.respond(i < 3 ? ReadResponse.success(1, "model") : ReadResponse.notFound());
+        }
+
+        FleetOperationResult result = completedResult(operation);
+        assertTrue(result.isCompleted());
+        assertEquals(5, result.getSent());
+        assertEquals(3, result.getSuccesses());
+        assertEquals(2, result.getErrorResponses());
+        assertEquals(Long.valueOf(3), result.getResponseCodes().get(ResponseCode.CONTENT));
+        assertEquals(Long.valueOf(2), result.getResponseCodes().get(ResponseCode.NOT_FOUND));
+        assertEquals(5, responses.get());
+    }
+
+    @Test
+    public void limit_requests_in_flight() {
+        manager = new FleetOperationManager(sender, registrationService, 2, 1000, executor);
+        manager.execute(new FleetRequest<>(FleetTarget.all(), new ReadRequest(3, 0, 1)), null);
+
+        Sent first = next();
+        next();
+        assertNothingSent();
+
+        first.respond(ReadResponse.success(1, "model"));
+        next();
+        assertNothingSent();
+    }
+
+    @Test
+    public void select_targets_by_endpoint_and_by_object() {
+        manager = new FleetOperationManager(sender, registrationService, 10, 1000, executor);
+        FleetOperation<ReadResponse> operation = manager.execute(new FleetRequest<>(
+                FleetTarget.endpoints(Arrays.asList("ep1", "unknown", "ep3")), new ReadRequest(3, 0, 1)), null);
+        assertEquals("ep1", next().destination.getEndpoint());
+        assertEquals("ep3", next().destination.getEndpoint());
+        assertNothingSent();
+        operation.cancel();
+        completedResult(operation);
+
+        manager.execute(new FleetRequest<>(FleetTarget.supportingObject(3303), new ReadRequest(3303, 0, 5700)), null);
+        assertEquals("ep2", next().destination.getEndpoint());
+        assertEquals("ep4", next().destination.getEndpoint());
+        assertNothingSent();
+    }
+
+    @Test
+    public void slow_down_on_timeout() {
+        manager = new FleetOperationManager(sender, registrationService, 4, 1000, executor);
+        manager.execute(new FleetRequest<>(FleetTarget.all(), new ReadRequest(3, 0, 1)), null);
+
+        Sent[] sent = new Sent[] { next(), next(), next(), next() };
+        assertNothingSent();
+
+        // 2 timeouts of requests sent at the same time divide the limit only once
+        sent[0].fail(new TimeoutException(TimeoutException.Type.RESPONSE_TIMEOUT, "timeout"));
+        sent[1].fail(new TimeoutException(TimeoutException.Type.RESPONSE_TIMEOUT, "timeout"));
+        assertNothingSent();
+        assertEquals(2, manager.getCurrentLimit());
+
+        // 2 requests are still in flight, so next one is sent only when one of them terminates
+        sent[2].respond(ReadResponse.success(1, "model"));
+        next();
+        assertNothingSent();
+    }
+
+    @Test
+    public void cancel_ongoing_requests() {
+        manager = new FleetOperationManager(sender, registrationService, 3, 1000, executor);
+        FleetOperation<ReadResponse> operation = manager
+                .execute(new FleetRequest<>(FleetTarget.all(), new ReadRequest(3, 0, 1)), null);
+
+        Sent first = next();
+        Sent second = next();
+        Sent third = next();
+        first.respond(ReadResponse.success(1, "model"));
+        second.respond(ReadResponse.success(1, "model"));
+        next();
+        next();
+        operation.cancel();
+
+        FleetOperationResult result = completedResult(operation);
+        assertTrue(third.isCancelled());
+        assertTrue(result.isCancelled());
+        assertEquals(5, result.getSent());
+        assertEquals(2, result.getSuccesses());
+        assertEquals(3, result.getAborted());
+        assertNothingSent();
+    }
+
+    @Test
+    public void continue_with_next_targets_when_send_fails() {
+        manager = new FleetOperationManager(sender, registrationService, 2, 1000, executor);
+        final List<String> errors = new ArrayList<>();
+        FleetOperation<ReadResponse> operation = manager.execute(new FleetRequest<>(FleetTarget.all(), registration -> {
+            if (registration.getEndpoint().equals("ep2")) {
+                throw new IllegalArgumentException("invalid template");
+            }
+            return new ReadRequest(3, 0, 1);
+        }, null, 1000), new FleetOperationListener<ReadResponse>() {
+            @Override
+            public void onError(Registration registration, Exception error) {
+                errors.add(registration.getEndpoint() + ":" + error.getMessage());
+            }
+        });
+
+        // ep2 fails and does not use an in flight slot
+        Sent first = next();
+        Sent second = next();
+        assertEquals("ep1", first.destination.getEndpoint());
+        assertEquals("ep3", second.destination.getEndpoint());
+        assertNothingSent();
+
+        // ep4 and ep5 fail, so they do not wait for a free in flight slot
+        sender.setFailure(new IllegalStateException("unable to send"));
+        first.respond(ReadResponse.success(1, "model"));
+        assertNothingSent();
+        sender.setFailure(null);
+        second.respond(ReadResponse.success(1, "model"));
+
+        FleetOperationResult result = completedResult(operation);
+        assertEquals(5, result.getSent());
+        assertEquals(2, result.getSuccesses());
+        assertEquals(3, result.getFailures());
+        assertEquals(Arrays.asList("ep2:invalid template", "ep4:unable to send", "ep5:unable to send"), errors);
+    }
+
+    @Test
+    public void limit_request_rate()
+            throws InterruptedException, ExecutionException, java.util.concurrent.TimeoutException {
+        manager = new FleetOperationManager(sender, registrationService, 10, 10);
+        sender.setAutoResponse(ReadResponse.success(1, "model"));
+        FleetOperation<ReadResponse> operation = manager
+                .execute(new FleetRequest<>(FleetTarget.all(), new ReadRequest(3, 0, 1)), null);
+
+        FleetOperationResult result = operation.getCompletionFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(5, result.getSuccesses());
+        // first request is sent immediately, then 1 request every 100ms
+        assertTrue("operation was too fast : " + result.getDurationInMs(), result.getDurationInMs() >= 350);
+    }
+
+    private void register(String endpoint, boolean supportsTemperature) {
+        Registration registration = new Registration.Builder("id-" + endpoint, endpoint,
+                Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354)).bindingMode(EnumSet.of(BindingMode.U))
+                        .supportedObjects(supportsTemperature ? Collections.singletonMap(3303, Version.V1_0)
+                                : Collections.<Integer, Version> emptyMap())
+                        .build();
+        registrationService.add(registration);
+    }
+
+    private Sent next() {
+        executor.runDueTasks();
+        return sender.next();
+    }
+
+    private void assertNothingSent() {
+        executor.runDueTasks();
+        sender.assertNothingSent();
+    }
+
+    private FleetOperationResult completedResult(FleetOperation<?> operation) {
+        executor.runDueTasks();
+        assertTrue("operation should be done", operation.isDone());
+        return operation.getResult();
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.Inet4Address;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.LwM2m.Version;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.LwM2mModelRepository;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Test;
+
+public class VersionedModelProviderTest {
+
+    private final LwM2mModelRepository repository = new LwM2mModelRepository(ObjectLoader.loadAllDefault());
+
+    @Test
+    public void model_is_shared_by_registrations_with_same_supported_objects() {
+        VersionedModelProvider provider = new VersionedModelProvider(repository);
+
+        LwM2mModel model1 = provider.getObjectModel(createRegistration("id1", "1.1"));
+        LwM2mModel model2 = provider.getObjectModel(createRegistration("id2", "1.1"));
+        LwM2mModel model3 = provider.getObjectModel(createRegistration("id3", "1.0"));
+
+        assertSame(model1, model2);
+        assertNotSame(model1, model3);
+        assertEquals(2, provider.getCachedModelCount());
+    }
+
+    @Test
+    public void model_contains_supported_versions_only() {
+        VersionedModelProvider provider = new VersionedModelProvider(repository);
+
+        LwM2mModel model = provider.getObjectModel(createRegistration("id", "1.0"));
+
+        assertEquals("1.0", model.getObjectModel(1).version);
+        assertEquals("Short Server ID", model.getResourceModel(1, 0).name);
+        assertNull(model.getObjectModel(2));
+        assertNull(model.getResourceModel(2, 0));
+    }
+
+    @Test
+    public void model_is_not_cached_when_cache_is_full() {
+        VersionedModelProvider provider = new VersionedModelProvider(repository, 1);
+
+        provider.getObjectModel(createRegistration("id1", "1.1"));
+        LwM2mModel model1 = provider.getObjectModel(createRegistration("id2", "1.0"));
+        LwM2mModel model2 = provider.getObjectModel(createRegistration("id3", "1.0"));
+
+        assertNotSame(model1, model2);
+        assertEquals(1, provider.getCachedModelCount());
+    }
+
+    private Registration createRegistration(String id, String serverVersion) {
+        Map<Integer, Version> supportedObjects = new HashMap<>();
+        supportedObjects.put(0, new Version("1.1"));
+        supportedObjects.put(1, new Version(serverVersion));
+        supportedObjects.put(3, new Version("1.1"));
+        return new Registration.Builder(id, "urn:" + id, Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354))
+                .supportedObjects(supportedObjects).build();
+    }
+}
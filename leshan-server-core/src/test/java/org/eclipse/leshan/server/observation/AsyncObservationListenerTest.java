@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.response.ObserveCompositeResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.observation.AsyncObservationListener.OverflowPolicy;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.After;
+import org.junit.Test;
+
+public class AsyncObservationListenerTest {
+
+    private AsyncObservationListener asyncListener;
+
+    @After
+    public void tearDown() {
+        if (asyncListener != null) {
+            asyncListener.destroy();
+        }
+    }
+
+    @Test
+    public void events_of_a_registration_are_delivered_in_order() throws InterruptedException {
+        int nbRegistrations = 20;
+        int nbEvents = 500;
+        CountDownLatch allDelivered = new CountDownLatch(nbRegistrations * nbEvents);
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        asyncListener = new AsyncObservationListener(new RecordingListener() {
+            @Override
+            public void cancelled(Observation observation) {
+                received.computeIfAbsent(observation.getRegistrationId(),
+                        k -> Collections.synchronizedList(new ArrayList<Integer>())).add(idOf(observation));
+                allDelivered.countDown();
+            }
+        }, 4, nbRegistrations * nbEvents, OverflowPolicy.BLOCK);
+
+        for (int i = 0; i < nbEvents; i++) {
+            for (int r = 0; r < nbRegistrations; r++) {
+                asyncListener.cancelled(newObservation("reg" + r, i));
+            }
+        }
+
+        assertTrue(allDelivered.await(10, TimeUnit.SECONDS));
+        assertEquals(nbRegistrations, received.size());
+        for (List<Integer> events : received.values()) {
+            for (int i = 0; i < nbEvents; i++) {
+                assertEquals(Integer.valueOf(i), events.get(i));
+            }
+        }
+        assertEquals(0, asyncListener.getQueueSize());
+        assertEquals(0, asyncListener.getDropped());
+        assertEquals(nbRegistrations * nbEvents, asyncListener.getLag().getCount());
+    }
+
+    @Test
+    public void newest_event_is_dropped_when_lane_is_full() throws InterruptedException {
+        assertEquals(Arrays.asList(0, 1, 2), deliverWithFullLane(OverflowPolicy.DROP_NEWEST));
+        assertEquals(1, asyncListener.getDropped());
+    }
+
+    @Test
+    public void oldest_event_is_dropped_when_lane_is_full() throws InterruptedException {
+        assertEquals(Arrays.asList(0, 2, 3), deliverWithFullLane(OverflowPolicy.DROP_OLDEST));
+        assertEquals(1, asyncListener.getDropped());
+    }
+
+    /**
+     * Send 4 events to a lane of capacity 2 while the first event is blocked in the listener.
+     */
+    private List<Integer> deliverWithFullLane(OverflowPolicy policy) throws InterruptedException {
+        CountDownLatch firstEventStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch allDelivered = new CountDownLatch(3);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+        asyncListener = new AsyncObservationListener(new RecordingListener() {
+            @Override
+            public void cancelled(Observation observation) {
+                firstEventStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.add(idOf(observation));
+                allDelivered.countDown();
+            }
+        }, 1, 2, policy);
+
+        asyncListener.cancelled(newObservation("reg", 0));
+        assertTrue(firstEventStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 4; i++) {
+            asyncListener.cancelled(newObservation("reg", i));
+        }
+        assertEquals(2, asyncListener.getQueueSize());
+        release.countDown();
+
+        assertTrue(allDelivered.await(5, TimeUnit.SECONDS));
+        return new ArrayList<>(received);
+    }
+
+    private static Observation newObservation(String registrationId, int id) {
+        return new SingleObservation(new byte[] { (byte) (id >> 8), (byte) id }, registrationId, new LwM2mPath(3, 0),
+                ContentFormat.TLV, null);
+    }
+
+    private static int idOf(Observation observation) {
+        byte[] id = observation.getId();
+        return (id[0] & 0xFF) << 8 | (id[1] & 0xFF);
+    }
+
+    private static class RecordingListener implements ObservationListener {
+        @Override
+        public void newObservation(Observation observation, Registration registration) {
+        }
+
+        @Override
+        public void cancelled(Observation observation) {
+        }
+
+        @Override
+        public void onResponse(SingleObservation observation, Registration registration, ObserveResponse response) {
+        }
+
+        @Override
+        public void onResponse(CompositeObservation observation, Registration registration,
+                ObserveCompositeResponse response) {
+        }
+
+        @Override
+        public void onError(Observation observation, Registration registration, Exception error) {
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.junit.Test;
+
+public class ObservationPathIndexTest {
+
+    private final ObservationPathIndex index = new ObservationPathIndex();
+
+    @Test
+    public void observations_are_found_by_exact_path() {
+        SingleObservation resource = newObservation(1, "/3/0/1");
+        index.add(resource);
+        index.add(newObservation(2, "/3/0"));
+        index.add(newObservation(3, "/3/0/1/0"));
+
+        assertEquals(Arrays.asList(resource), index.getObservations(new LwM2mPath("/3/0/1"), false));
+        assertTrue(index.getObservations(new LwM2mPath("/3/1"), false).isEmpty());
+        assertTrue(index.getObservations(new LwM2mPath("/4"), false).isEmpty());
+    }
+
+    @Test
+    public void observations_are_found_by_prefix() {
+        SingleObservation instance = newObservation(1, "/3/0");
+        SingleObservation resource = newObservation(2, "/3/0/1");
+        SingleObservation resourceInstance = newObservation(3, "/3/0/1/0");
+        SingleObservation object = newObservation(4, "/3");
+        index.add(instance);
+        index.add(resource);
+        index.add(resourceInstance);
+        index.add(object);
+        index.add(newObservation(5, "/3/1/1"));
+        index.add(newObservation(6, "/4/0"));
+
+        assertEquals(new HashSet<>(Arrays.asList(instance, resource, resourceInstance)),
+                new HashSet<>(index.getObservations(new LwM2mPath("/3/0"), true)));
+        assertEquals(6, index.getObservations(LwM2mPath.ROOTPATH, true).size());
+    }
+
+    @Test
+    public void removed_observation_is_not_found_anymore() {
+        SingleObservation observation = newObservation(1, "/3/0/1");
+        index.add(observation);
+
+        assertEquals(observation, index.remove(observation.getId()));
+
+        assertNull(index.get(observation.getId()));
+        assertTrue(index.isEmpty());
+        assertTrue(index.getObservations(LwM2mPath.ROOTPATH, true).isEmpty());
+    }
+
+    @Test
+    public void observation_with_same_id_is_replaced() {
+        index.add(newObservation(1, "/3/0/1"));
+        SingleObservation replacing = newObservation(1, "/3/0/2");
+        index.add(replacing);
+
+        assertEquals(1, index.size());
+        assertTrue(index.getObservations(new LwM2mPath("/3/0/1"), false).isEmpty());
+        assertEquals(Arrays.asList(replacing), index.getObservationsWithSamePaths(replacing));
+    }
+
+    @Test
+    public void composite_observations_are_found_by_paths() {
+        List<LwM2mPath> paths = Arrays.asList(new LwM2mPath("/3/0/1"), new LwM2mPath("/3/0/2"));
+        CompositeObservation composite = new CompositeObservation(new byte[] { 1 }, "regId", paths,
+                ContentFormat.SENML_CBOR, ContentFormat.SENML_CBOR, null);
+        index.add(composite);
+
+        assertEquals(Arrays.asList(composite),
+                index.getCompositeObservations(Arrays.asList(new LwM2mPath("/3/0/1"), new LwM2mPath("/3/0/2"))));
+        assertTrue(index.getCompositeObservations(Arrays.asList(new LwM2mPath("/3/0/1"))).isEmpty());
+        // composite observations are not indexed by path
+        assertTrue(index.getObservations(LwM2mPath.ROOTPATH, true).isEmpty());
+
+        index.remove(composite.getId());
+        assertTrue(index.getCompositeObservations(paths).isEmpty());
+    }
+
+    private static SingleObservation newObservation(int id, String path) {
+        return new SingleObservation(new byte[] { (byte) id }, "regId", new LwM2mPath(path), ContentFormat.TLV, null);
+    }
+}
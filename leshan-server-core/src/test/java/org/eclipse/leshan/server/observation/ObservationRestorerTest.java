@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Inet4Address;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ObserveCompositeRequest;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.ObserveCompositeResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.FakeRegistrationService;
+import org.eclipse.leshan.server.ManualScheduledExecutor;
+import org.eclipse.leshan.server.RecordingRequestSender;
+import org.eclipse.leshan.server.RecordingRequestSender.Sent;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ObservationRestorerTest {
+
+    private static final LwM2mPath PATH1 = new LwM2mPath(3, 0, 1);
+    private static final LwM2mPath PATH2 = new LwM2mPath(3303, 0, 5700);
+
+    private RecordingRequestSender sender;
+    private FakeRegistrationService registrationService;
+    private InMemoryObservationRestoreStore store;
+    private ManualScheduledExecutor executor;
+    private ObservationRestorer restorer;
+
+    @Before
+    public void setUp() {
+        sender = new RecordingRequestSender();
+        registrationService = new FakeRegistrationService();
+        store = new InMemoryObservationRestoreStore();
+        executor = new ManualScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        if (restorer != null) {
+            restorer.destroy();
+        }
+    }
+
+    @Test
+    public void restore_with_composite_observe_if_client_supports_it() {
+        restorer = newRestorer();
+        Registration registration = register("reg1", "urn:client1", LwM2mVersion.V1_1, ContentFormat.SENML_CBOR);
+
+        unregisterThenRegister(registration, PATH1, PATH2);
+
+        Sent sent = next();
+        assertTrue(sent.request instanceof ObserveCompositeRequest);
+        ObserveCompositeRequest request = (ObserveCompositeRequest) sent.request;
+        assertEquals(Arrays.asList(PATH1, PATH2), request.getPaths());
+        assertEquals(ContentFormat.SENML_CBOR, request.getRequestContentFormat());
+        assertEquals(ContentFormat.SENML_CBOR, request.getResponseContentFormat());
+
+        sent.respond(ObserveCompositeResponse.success(Collections.emptyMap()));
+        assertNothingSent();
+    }
+
+    @Test
+    public void restore_path_by_path_for_lwm2m_1_0_client() {
+        restorer = newRestorer();
+        Registration registration = register("reg1", "urn:client1", LwM2mVersion.V1_0, ContentFormat.SENML_CBOR);
+
+        unregisterThenRegister(registration, PATH1, PATH2);
+
+        Sent sent = next();
+        assertEquals(PATH1, ((ObserveRequest) sent.request).getPath());
+        assertNothingSent();
+        sent.respond(ObserveResponse.success(LwM2mSingleResource.newStringResource(1, "model")));
+
+        sent = next();
+        assertEquals(PATH2, ((ObserveRequest) sent.request).getPath());
+        sent.respond(ObserveResponse.success(LwM2mSingleResource.newFloatResource(5700, 20d)));
+        assertNothingSent();
+    }
+
+    @Test
+    public void remove_stored_paths_once_restored() {
+        restorer = newRestorer(10);
+        Registration registration = register("reg1", "urn:client1", LwM2mVersion.V1_0);
+
+        unregisterThenRegister(registration, PATH1, PATH2);
+
+        Sent sent = next();
+        sent.respond(ObserveResponse.success(LwM2mSingleResource.newStringResource(1, "model")));
+        sent = next();
+        assertEquals(Arrays.asList(PATH1, PATH2), store.get("urn:client1"));
+
+        sent.respond(ObserveResponse.notFound());
+        assertNothingSent();
+        assertNull(store.get("urn:client1"));
+    }
+
+    @Test
+    public void retry_on_error_up_to_max_attempts() {
+        restorer = newRestorer(10);
+        Registration registration = register("reg1", "urn:client1", LwM2mVersion.V1_0);
+
+        unregisterThenRegister(registration, PATH1);
+
+        for (int i = 0; i < 3; i++) {
+            Sent sent = next();
+            assertEquals(PATH1, ((ObserveRequest) sent.request).getPath());
+            sent.fail(new TimeoutException(TimeoutException.Type.RESPONSE_TIMEOUT, "timeout"));
+        }
+        assertNothingSent();
+        // paths are kept to be restored at next registration
+        assertEquals(Arrays.asList(PATH1), store.get("urn:client1"));
+    }
+
+    @Test
+    public void do_not_retry_on_error_response() {
+        restorer = newRestorer(10);
+        Registration registration = register("reg1", "urn:client1", LwM2mVersion.V1_0);
+
+        unregisterThenRegister(registration, PATH1, PATH2);
+
+        Sent sent = next();
+        assertEquals(PATH1, ((ObserveRequest) sent.request).getPath());
+        sent.respond(ObserveResponse.notFound());
+
+        sent = next();
+        assertEquals(PATH2, ((ObserveRequest) sent.request).getPath());
+        sent.respond(ObserveResponse.notFound());
+        assertNothingSent();
+    }
+
+    @Test
+    public void limit_concurrent_restores() {
+        restorer = newRestorer(1);
+        Registration registration1 = register("reg1", "urn:client1", LwM2mVersion.V1_0);
+        Registration registration2 = register("reg2", "urn:client2", LwM2mVersion.V1_0);
+
+        unregisterThenRegister(registration1, PATH1);
+        unregisterThenRegister(registration2, PATH2);
+
+        Sent sent = next();
+        assertEquals("reg1", sent.destination.getId());
+        assertNothingSent();
+        sent.respond(ObserveResponse.notFound());
+
+        sent = next();
+        assertEquals("reg2", sent.destination.getId());
+        sent.respond(ObserveResponse.notFound());
+        assertNothingSent();
+    }
+
+    @Test
+    public void restore_again_if_client_registers_during_restore() {
+        restorer = newRestorer(10);
+        Registration registration = register("reg1", "urn:client1", LwM2mVersion.V1_0);
+
+        unregisterThenRegister(registration, PATH1);
+        Sent sent = next();
+        assertEquals("reg1", sent.destination.getId());
+
+        // client registers again before response
+        registrationService.remove("reg1");
+        Registration newRegistration = register("reg2", "urn:client1", LwM2mVersion.V1_0);
+        restorer.registered(newRegistration, registration, null);
+        assertNothingSent();
+
+        sent.fail(new TimeoutException(TimeoutException.Type.RESPONSE_TIMEOUT, "timeout"));
+        sent = next();
+        assertEquals("reg2", sent.destination.getId());
+        assertEquals(PATH1, ((ObserveRequest) sent.request).getPath());
+        sent.respond(ObserveResponse.notFound());
+        assertNothingSent();
+    }
+
+    @Test
+    public void do_not_restore_invalid_registration() {
+        restorer = newRestorer();
+        Registration registration = register("reg1", "urn:client1", LwM2mVersion.V1_0);
+        registrationService.remove("reg1");
+
+        unregisterThenRegister(registration, PATH1);
+
+        assertNothingSent();
+    }
+
+    @Test
+    public void in_memory_store_is_bounded() {
+        InMemoryObservationRestoreStore store = new InMemoryObservationRestoreStore(2);
+        store.put("ep1", Arrays.asList(PATH1));
+        store.put("ep2", Arrays.asList(PATH2));
+        store.get("ep1");
+        store.put("ep3", Arrays.asList(PATH1, PATH2));
+
+        assertEquals(2, store.size());
+        assertEquals(Arrays.asList(PATH1), store.get("ep1"));
+        assertNull(store.get("ep2"));
+        assertEquals(Arrays.asList(PATH1, PATH2), store.get("ep3"));
+    }
+
+    private ObservationRestorer newRestorer() {
+        return new ObservationRestorer(sender, registrationService, store,
+                ObservationRestorer.DEFAULT_MAX_CONCURRENT_RESTORES, ObservationRestorer.DEFAULT_MIN_INTERVAL,
+                ObservationRestorer.DEFAULT_MAX_ATTEMPTS, ObservationRestorer.DEFAULT_RETRY_DELAY,
+                ObservationRestorer.DEFAULT_TIMEOUT, executor);
+    }
+
+    private ObservationRestorer newRestorer(int maxConcurrentRestores) {
+        return new ObservationRestorer(sender, registrationService, store, maxConcurrentRestores, 0, 3, 0, 1000,
+                executor);
+    }
+
+    private Registration register(String id, String endpoint, LwM2mVersion version, ContentFormat... formats) {
+        Registration registration = new Registration.Builder(id, endpoint,
+                Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354)).bindingMode(EnumSet.of(BindingMode.U))
+                        .lwM2mVersion(version).supportedContentFormats(formats).build();
+        registrationService.add(registration);
+        return registration;
+    }
+
+    private void unregisterThenRegister(Registration registration, LwM2mPath... paths) {
+        List<Observation> observations = new ArrayList<>();
+        for (LwM2mPath path : paths) {
+            observations.add(new SingleObservation(new byte[] { 1 }, registration.getId(), path, null, null));
+        }
+        restorer.unregistered(registration, observations, false, null);
+        restorer.registered(registration, null, null);
+    }
+
+    private Sent next() {
+        executor.runDueTasks();
+        return sender.next();
+    }
+
+    private void assertNothingSent() {
+        executor.runDueTasks();
+        sender.assertNothingSent();
+    }
+}
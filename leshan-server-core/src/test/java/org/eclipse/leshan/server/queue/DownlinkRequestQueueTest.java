@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.Inet4Address;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.request.exception.RequestRejectedException;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.server.ManualScheduledExecutor;
+import org.eclipse.leshan.server.RecordingRequestSender;
+import org.eclipse.leshan.server.RecordingRequestSender.Sent;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DownlinkRequestQueueTest {
+
+    private PresenceServiceImpl presenceService;
+    private RecordingRequestSender sender;
+    private ManualScheduledExecutor executor;
+    private InMemoryDownlinkQueueStore store;
+    private DownlinkRequestQueue queue;
+    private Registration registration;
+
+    @Before
+    public void setUp() {
+        presenceService = new PresenceServiceImpl(new StaticClientAwakeTimeProvider());
+        sender = new RecordingRequestSender();
+        store = new InMemoryDownlinkQueueStore();
+        executor = new ManualScheduledExecutor();
+        queue = new DownlinkRequestQueue(presenceService, sender, store, 2, DownlinkRequestQueue.DEFAULT_BURST_SIZE,
+                executor);
+        registration = new Registration.Builder("ID", "urn:client",
+                Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354))
+                        .bindingMode(EnumSet.of(BindingMode.U, BindingMode.Q)).build();
+    }
+
+    @After
+    public void tearDown() {
+        queue.destroy();
+        presenceService.destroy();
+    }
+
+    @Test
+    public void request_to_sleeping_client_is_sent_when_it_wakes_up() throws Exception {
+        CompletableFuture<ReadResponse> future = queue.send(registration, new ReadRequest(3, 0, 1));
+        sender.assertNothingSent();
+        assertEquals(1, store.size(registration.getEndpoint()));
+
+        presenceService.setAwake(registration);
+        sender.next().respond(ReadResponse.success(1, "value"));
+
+        assertTrue(future.get(1, TimeUnit.SECONDS).isSuccess());
+        assertEquals(0, store.size(registration.getEndpoint()));
+    }
+
+    @Test
+    public void requests_are_sent_by_priority() {
+        queue.send(registration, new ReadRequest(3, 0, 1), 1, DownlinkRequestQueue.DEFAULT_TTL,
+                DownlinkRequestQueue.DEFAULT_TIMEOUT);
+        queue.send(registration, new ReadRequest(3, 0, 2), 10, DownlinkRequestQueue.DEFAULT_TTL,
+                DownlinkRequestQueue.DEFAULT_TIMEOUT);
+
+        presenceService.setAwake(registration);
+
+        // both requests are sent in the same burst, without waiting for response
+        assertEquals("/3/0/2", ((ReadRequest) sender.next().request).getPath().toString());
+        assertEquals("/3/0/1", ((ReadRequest) sender.next().request).getPath().toString());
+        sender.assertNothingSent();
+    }
+
+    @Test
+    public void request_is_rejected_when_queue_is_full() {
+        queue.send(registration, new ReadRequest(3, 0, 1));
+        queue.send(registration, new ReadRequest(3, 0, 2));
+        CompletableFuture<ReadResponse> future = queue.send(registration, new ReadRequest(3, 0, 3));
+
+        assertFailedWith(future, RequestRejectedException.class);
+    }
+
+    @Test
+    public void expired_request_is_not_sent() {
+        CompletableFuture<ReadResponse> future = queue.send(registration, new ReadRequest(3, 0, 1),
+                QueuedRequest.MIN_PRIORITY, 0, DownlinkRequestQueue.DEFAULT_TIMEOUT);
+
+        executor.runDueTasks();
+        assertFailedWith(future, RequestCanceledException.class);
+        presenceService.setAwake(registration);
+        sender.assertNothingSent();
+    }
+
+    @Test
+    public void expired_request_fails_even_if_removed_from_store_by_another_server() {
+        CompletableFuture<ReadResponse> future = queue.send(registration, new ReadRequest(3, 0, 1),
+                QueuedRequest.MIN_PRIORITY, 1000, DownlinkRequestQueue.DEFAULT_TIMEOUT);
+
+        // another server sharing the store sent the request
+        store.removeAll(registration.getEndpoint());
+        executor.advance(1000, TimeUnit.MILLISECONDS);
+
+        assertFailedWith(future, RequestCanceledException.class);
+    }
+
+    @Test
+    public void request_sent_before_expiration_is_completed_by_its_response() throws Exception {
+        CompletableFuture<ReadResponse> future = queue.send(registration, new ReadRequest(3, 0, 1),
+                QueuedRequest.MIN_PRIORITY, 1000, DownlinkRequestQueue.DEFAULT_TIMEOUT);
+        presenceService.setAwake(registration);
+        Sent sent = sender.next();
+
+        executor.advance(1000, TimeUnit.MILLISECONDS);
+        assertFalse(future.isDone());
+
+        sent.respond(ReadResponse.success(1, "value"));
+        assertTrue(future.get(1, TimeUnit.SECONDS).isSuccess());
+    }
+
+    @Test
+    public void cancelled_request_is_removed_from_queue() {
+        CompletableFuture<ReadResponse> future = queue.send(registration, new ReadRequest(3, 0, 1));
+
+        future.cancel(false);
+
+        assertEquals(0, store.size(registration.getEndpoint()));
+        presenceService.setAwake(registration);
+        sender.assertNothingSent();
+    }
+
+    @Test
+    public void send_error_to_client_without_queue_mode_fails_the_future() {
+        Registration noQueueMode = new Registration.Builder("ID2", "urn:client2",
+                Identity.unsecure(Inet4Address.getLoopbackAddress(), 12355)).bindingMode(EnumSet.of(BindingMode.U))
+                        .build();
+        sender.setFailure(new IllegalArgumentException("invalid request"));
+
+        CompletableFuture<ReadResponse> future = queue.send(noQueueMode, new ReadRequest(3, 0, 1));
+
+        assertFailedWith(future, IllegalArgumentException.class);
+    }
+
+    private void assertFailedWith(CompletableFuture<?> future, Class<? extends Exception> expected) {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertEquals(expected, e.getCause().getClass());
+            return;
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        fail("future should fail");
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.leshan.server.registration.RegistrationExpirationEngine.DeadlineListener;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimingWheelExpirationEngineTest {
+
+    private static final long ORIGIN = 1_000_000L;
+    private static final long TICK = 100L;
+
+    private TimingWheelExpirationEngine engine;
+    private final List<String> expired = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        engine = new TimingWheelExpirationEngine(null, TICK, ORIGIN);
+        engine.setDeadlineListener(new DeadlineListener() {
+            @Override
+            public void deadlineReached(String registrationId) {
+                expired.add(registrationId);
+            }
+        });
+    }
+
+    @Test
+    public void deadline_is_reached_in_tick_precision() {
+        engine.track("reg1", ORIGIN + 250);
+
+        engine.advanceTo(ORIGIN + 200);
+        assertTrue(expired.isEmpty());
+
+        engine.advanceTo(ORIGIN + 300);
+        assertEquals(Arrays.asList("reg1"), expired);
+        assertEquals(0, engine.size());
+    }
+
+    @Test
+    public void past_deadline_is_reached_at_next_tick() {
+        engine.advanceTo(ORIGIN + 1000);
+        engine.track("reg1", ORIGIN);
+
+        engine.advanceTo(ORIGIN + 1100);
+        assertEquals(Arrays.asList("reg1"), expired);
+    }
+
+    @Test
+    public void untracked_deadline_is_never_reached() {
+        engine.track("reg1", ORIGIN + 500);
+        engine.untrack("reg1");
+
+        engine.advanceTo(ORIGIN + 1000);
+        assertTrue(expired.isEmpty());
+    }
+
+    @Test
+    public void tracked_deadline_can_be_extended() {
+        engine.track("reg1", ORIGIN + 500);
+        engine.track("reg1", ORIGIN + 100_000);
+
+        engine.advanceTo(ORIGIN + 99_900);
+        assertTrue(expired.isEmpty());
+        assertEquals(1, engine.size());
+
+        engine.advanceTo(ORIGIN + 100_000);
+        assertEquals(Arrays.asList("reg1"), expired);
+    }
+
+    @Test
+    public void deadlines_stored_in_upper_wheels_are_reached_in_order() {
+        Random random = new Random(42);
+        long[] deadlines = new long[2000];
+        for (int i = 0; i < deadlines.length; i++) {
+            // up to ~ 115 days which needs the 4 wheels.
+            deadlines[i] = ORIGIN + TICK * (long) random.nextInt(100_000_000);
+            engine.track("reg" + i, deadlines[i]);
+        }
+
+        // advance by large steps and check that each deadline is reached at the right step
+        long now = ORIGIN;
+        long step = TICK * 997;
+        while (engine.size() > 0) {
+            long previous = now;
+            now += step;
+            expired.clear();
+            engine.advanceTo(now);
+            for (String registrationId : expired) {
+                long deadline = deadlines[Integer.parseInt(registrationId.substring(3))];
+                assertTrue(deadline > previous);
+                assertTrue(deadline <= now);
+            }
+        }
+    }
+
+    @Test
+    public void deadlines_farther_than_wheels_capacity_are_reached() {
+        // ~ 155 days with 100ms tick is more than the wheels can hold.
+        long deadline = ORIGIN + TICK * (1L << 27);
+        engine.track("reg1", deadline);
+
+        engine.advanceTo(deadline - TICK);
+        assertTrue(expired.isEmpty());
+
+        engine.advanceTo(deadline);
+        assertEquals(Arrays.asList("reg1"), expired);
+    }
+}
@@ -51,6 +51,7 @@ import org.eclipse.leshan.server.demo.servlet.ObjectSpecServlet;
 import org.eclipse.leshan.server.demo.servlet.ServerServlet;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.model.VersionedModelProvider;
+import org.eclipse.leshan.server.redis.RedisObservationRestoreStore;
 import org.eclipse.leshan.server.redis.RedisRegistrationStore;
 import org.eclipse.leshan.server.redis.RedisSecurityStore;
 import org.eclipse.leshan.server.security.EditableSecurityStore;
@@ -213,6 +214,7 @@ public class LeshanServerDemo {
             // use Redis Store
             securityStore = new RedisSecurityStore(cli.main.redis);
             builder.setRegistrationStore(new RedisRegistrationStore(cli.main.redis));
+            builder.setObservationRestoreStore(new RedisObservationRestoreStore(cli.main.redis));
         }
         builder.setSecurityStore(securityStore);
 
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.leshan.server.queue.DownlinkQueueStore;
+import org.eclipse.leshan.server.queue.QueuedRequest;
+import org.eclipse.leshan.server.redis.serialization.QueuedRequestSerDes;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.util.Pool;
+
+/**
+ * A {@link DownlinkQueueStore} implementation based on Redis, so queued requests survive a server restart and can be
+ * sent by any server of a cluster.
+ * <p>
+ * The queue of an endpoint is a sorted set of request ids, scored by priority then creation time, and a hash containing
+ * the serialized requests. All modifications are done by Lua scripts, so a request is polled by only one server.
+ * Requests of same priority queued during the same millisecond have no guaranteed order.
+ * <p>
+ * Only requests supported by {@link QueuedRequestSerDes} can be queued.
+ */
+public class RedisDownlinkQueueStore implements DownlinkQueueStore {
+
+    // Redis key prefixes
+    private static final String QUEUE_EP = "DLQ:EP:"; // (Sorted set: request ids by priority)
+    private static final String REQUESTS_EP = "DLQ:REQ:"; // (Hash: request id => serialized request)
+
+    // Delay after the expiration of the last request before Redis removes a queue. This lets the server which queued
+    // the request fail it on expiration before Redis removes it.
+    private static final long EXPIRATION_GRACE_PERIOD = 60_000;
+
+    // creation time in ms needs 42 bits, this keeps score lower than 2^53 so it is an exact double.
+    private static final long PRIORITY_FACTOR = 1L << 42;
+
+    /**
+     * KEYS: queue, requests. ARGV: request id, score, serialized request, max size, time to live in ms.
+     * <p>
+     * Keys expire with the last request, so a queue is not kept forever if the server which queued it stops or if the
+     * client never wakes up again.
+     * <p>
+     * Returns 1 if the request was added else 0.
+     */
+    private static final RedisScript ADD = new RedisScript("" //
+            + "if redis.call('ZCARD', KEYS[1]) >= tonumber(ARGV[4]) then return 0 end\n" //
+            + "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])\n" //
+            + "redis.call('HSET', KEYS[2], ARGV[1], ARGV[3])\n" //
+            + "local ttl = tonumber(ARGV[5])\n" //
+            + "if redis.call('PTTL', KEYS[1]) < ttl then\n" //
+            + "  redis.call('PEXPIRE', KEYS[1], ttl)\n" //
+            + "  redis.call('PEXPIRE', KEYS[2], ttl)\n" //
+            + "end\n" //
+            + "return 1\n");
+
+    /**
+     * KEYS: queue, requests. ARGV: max count.
+     * <p>
+     * Returns the removed serialized requests.
+     */
+    private static final RedisScript POLL = new RedisScript("" //
+            + "local ids = redis.call('ZRANGE', KEYS[1], 0, tonumber(ARGV[1]) - 1)\n" //
+            + "if #ids == 0 then return {} end\n" //
+            + "local requests = redis.call('HMGET', KEYS[2], unpack(ids))\n" //
+            + "redis.call('ZREM', KEYS[1], unpack(ids))\n" //
+            + "redis.call('HDEL', KEYS[2], unpack(ids))\n" //
+            + "local result = {}\n" //
+            + "for _, r in ipairs(requests) do\n" //
+            + "  if r then table.insert(result, r) end\n" //
+            + "end\n" //
+            + "return result\n");
+
+    /**
+     * KEYS: queue, requests. ARGV: request id.
+     * <p>
+     * Returns 1 if the request was removed else 0.
+     */
+    private static final RedisScript REMOVE = new RedisScript("" //
+            + "redis.call('HDEL', KEYS[2], ARGV[1])\n" //
+            + "return redis.call('ZREM', KEYS[1], ARGV[1])\n");
+
+    /**
+     * KEYS: queue, requests.
+     * <p>
+     * Returns the removed serialized requests.
+     */
+    private static final RedisScript REMOVE_ALL = new RedisScript("" //
+            + "local requests = redis.call('HVALS', KEYS[2])\n" //
+            + "redis.call('DEL', KEYS[1], KEYS[2])\n" //
+            + "return requests\n");
+
+    private final Pool<Jedis> pool;
+
+    public RedisDownlinkQueueStore(Pool<Jedis> pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public boolean add(QueuedRequest request, int maxSize) {
+        byte[] data = QueuedRequestSerDes.serialize(request);
+        long score = (QueuedRequest.MAX_PRIORITY - request.getPriority()) * PRIORITY_FACTOR + request.getCreationTime();
+        long ttl = Math.max(0, request.getExpirationTime() - System.currentTimeMillis()) + EXPIRATION_GRACE_PERIOD;
+        try (Jedis j = pool.getResource()) {
+            Object result = ADD.eval(j, keys(request.getEndpoint()),
+                    Arrays.asList(request.getId().getBytes(UTF_8), Long.toString(score).getBytes(UTF_8), data,
+                            Integer.toString(maxSize).getBytes(UTF_8), Long.toString(ttl).getBytes(UTF_8)));
+            return Long.valueOf(1).equals(result);
+        }
+    }
+
+    @Override
+    public List<QueuedRequest> poll(String endpoint, int maxCount) {
+        try (Jedis j = pool.getResource()) {
+            return deserialize(POLL.eval(j, keys(endpoint), Arrays.asList(Integer.toString(maxCount).getBytes(UTF_8))));
+        }
+    }
+
+    @Override
+    public boolean remove(String endpoint, String requestId) {
+        try (Jedis j = pool.getResource()) {
+            Object result = REMOVE.eval(j, keys(endpoint), Arrays.asList(requestId.getBytes(UTF_8)));
+            return Long.valueOf(1).equals(result);
+        }
+    }
+
+    @Override
+    public List<QueuedRequest> removeAll(String endpoint) {
+        try (Jedis j = pool.getResource()) {
+            return deserialize(REMOVE_ALL.eval(j, keys(endpoint), new ArrayList<byte[]>()));
+        }
+    }
+
+    @Override
+    public int size(String endpoint) {
+        try (Jedis j = pool.getResource()) {
+            return (int) j.zcard(toKey(QUEUE_EP, endpoint));
+        }
+    }
+
+    private static List<QueuedRequest> deserialize(Object result) {
+        List<QueuedRequest> requests = new ArrayList<>();
+        for (Object data : (List<?>) result) {
+            requests.add(QueuedRequestSerDes.deserialize((byte[]) data));
+        }
+        return requests;
+    }
+
+    private static List<byte[]> keys(String endpoint) {
+        return Arrays.asList(toKey(QUEUE_EP, endpoint), toKey(REQUESTS_EP, endpoint));
+    }
+
+    private static byte[] toKey(String prefix, String endpoint) {
+        return (prefix + endpoint).getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.observation.ObservationRestoreStore;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.Pool;
+
+/**
+ * An {@link ObservationRestoreStore} implementation based on Redis, so observations to restore survive a server restart
+ * and are shared by all servers of a cluster.
+ * <p>
+ * Paths of an endpoint are stored as a single comma separated string. An optional time to live can be used to forget
+ * endpoints which do not register again.
+ */
+public class RedisObservationRestoreStore implements ObservationRestoreStore {
+
+    // Redis key prefixes
+    private static final String OBS_RESTORE_EP = "OBSRESTORE:EP:"; // (String: comma separated paths)
+
+    private final Pool<Jedis> pool;
+    private final long ttlInMs;
+
+    public RedisObservationRestoreStore(Pool<Jedis> pool) {
+        this(pool, 0);
+    }
+
+    /**
+     * @param pool the Redis connection pool.
+     * @param ttlInMs time to live of stored paths in ms, 0 means no expiration.
+     */
+    public RedisObservationRestoreStore(Pool<Jedis> pool, long ttlInMs) {
+        Validate.notNull(pool);
+        Validate.isTrue(ttlInMs >= 0, "ttl must not be negative");
+        this.pool = pool;
+        this.ttlInMs = ttlInMs;
+    }
+
+    @Override
+    public void put(String endpoint, List<LwM2mPath> paths) {
+        StringBuilder value = new StringBuilder();
+        for (LwM2mPath path : paths) {
+            if (value.length() > 0) {
+                value.append(',');
+            }
+            value.append(path.toString());
+        }
+
+        try (Jedis j = pool.getResource()) {
+            if (ttlInMs > 0) {
+                j.set(toKey(endpoint), value.toString().getBytes(UTF_8), SetParams.setParams().px(ttlInMs));
+            } else {
+                j.set(toKey(endpoint), value.toString().getBytes(UTF_8));
+            }
+        }
+    }
+
+    @Override
+    public List<LwM2mPath> get(String endpoint) {
+        byte[] data;
+        try (Jedis j = pool.getResource()) {
+            data = j.get(toKey(endpoint));
+        }
+        if (data == null) {
+            return null;
+        }
+
+        List<LwM2mPath> paths = new ArrayList<>();
+        for (String path : new String(data, UTF_8).split(",")) {
+            if (!path.isEmpty()) {
+                paths.add(new LwM2mPath(path));
+            }
+        }
+        return paths;
+    }
+
+    @Override
+    public void remove(String endpoint) {
+        try (Jedis j = pool.getResource()) {
+            j.del(toKey(endpoint));
+        }
+    }
+
+    private static byte[] toKey(String endpoint) {
+        return (OBS_RESTORE_EP + endpoint).getBytes(UTF_8);
+    }
+}
@@ -30,10 +30,16 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.Token;
@@ -56,6 +62,8 @@ import org.eclipse.leshan.server.redis.serialization.RegistrationSerDes;
 import org.eclipse.leshan.server.registration.Deregistration;
 import org.eclipse.leshan.server.registration.ExpirationListener;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationExpirationEngine;
+import org.eclipse.leshan.server.registration.RegistrationExpirationEngine.DeadlineListener;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
 import org.eclipse.leshan.server.registration.UpdatedRegistration;
 import org.slf4j.Logger;
@@ -69,12 +77,27 @@ import redis.clients.jedis.util.Pool;
 
 /**
  * A RegistrationStore which stores registrations and observations in Redis.
+ * <p>
+ * Expired registrations are removed by a task which regularly looks for expired registrations in a Redis sorted set. A
+ * {@link RegistrationExpirationEngine} can be used in addition to remove registrations added or updated by this store
+ * as soon as their expiration deadline is reached. As registrations handled by other instances of a cluster are not
+ * tracked by the local engine, the regular cleanup is kept as fallback and its period can be increased.
+ * <p>
+ * A {@link RegistrationNearCache} can be used to serve registration lookups from local memory. Each modification of a
+ * registration is published to evict it from the caches of all the instances of the cluster.
+ * <p>
+ * By default, registration modifications are protected by a {@link JedisLock}. When Lua scripts are used instead, a
+ * registration is read then it is written with all its indexes by a single script, which fails and is retried if the
+ * registration was modified in between. Scripts access keys which are not declared, so Redis Cluster is not supported
+ * in this mode.
  */
 public class RedisRegistrationStore implements CaliforniumRegistrationStore, Startable, Stoppable, Destroyable {
 
     /** Default time in seconds between 2 cleaning tasks (used to remove expired registration). */
     public static final long DEFAULT_CLEAN_PERIOD = 60;
     public static final int DEFAULT_CLEAN_LIMIT = 500;
+    /** Default number of keys requested by SCAN when iterating over all registrations */
+    public static final int DEFAULT_SCAN_COUNT = 100;
     /** Defaut Extra time for registration lifetime in seconds */
     public static final long DEFAULT_GRACE_PERIOD = 0;
 
@@ -91,6 +114,9 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     private static final byte[] EXP_EP = "EXP:EP".getBytes(UTF_8); // a sorted set used for registration expiration
                                                                    // (expiration date, Endpoint)
 
+    // maximum number of attempts for a script based modification, in case of concurrent modifications.
+    private static final int MAX_SCRIPT_ATTEMPTS = 10;
+
     private final Pool<Jedis> pool;
 
     // Listener use to notify when a registration expires
@@ -107,6 +133,15 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     private final JedisLock lock;
     private final RegistrationSerDes registrationSerDes;
 
+    // Engine used to track registration expiration, if null only regular cleanup is used.
+    private final RegistrationExpirationEngine expirationEngine;
+
+    // Local cache used for registration lookups, if null Redis is always requested.
+    private final RegistrationNearCache nearCache;
+
+    // true if registrations are modified by Lua scripts instead of using the lock
+    private final boolean useScripts;
+
     public RedisRegistrationStore(Pool<Jedis> p) {
         this(p, DEFAULT_CLEAN_PERIOD, DEFAULT_GRACE_PERIOD, DEFAULT_CLEAN_LIMIT); // default clean period 60s
     }
@@ -130,6 +165,46 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
     public RedisRegistrationStore(Pool<Jedis> p, ScheduledExecutorService schedExecutor, long cleanPeriodInSec,
             long lifetimeGracePeriodInSec, int cleanLimit, JedisLock redisLock, RegistrationSerDes registrationSerDes) {
+        this(p, schedExecutor, cleanPeriodInSec, lifetimeGracePeriodInSec, cleanLimit, redisLock, registrationSerDes,
+                null);
+    }
+
+    /**
+     * @param expirationEngine an optional engine used to remove registrations as soon as their expiration deadline is
+     *        reached, could be <code>null</code>.
+     * @since 2.0
+     */
+    public RedisRegistrationStore(Pool<Jedis> p, ScheduledExecutorService schedExecutor, long cleanPeriodInSec,
+            long lifetimeGracePeriodInSec, int cleanLimit, JedisLock redisLock, RegistrationSerDes registrationSerDes,
+            RegistrationExpirationEngine expirationEngine) {
+        this(p, schedExecutor, cleanPeriodInSec, lifetimeGracePeriodInSec, cleanLimit, redisLock, registrationSerDes,
+                expirationEngine, null);
+    }
+
+    /**
+     * @param expirationEngine an optional engine used to remove registrations as soon as their expiration deadline is
+     *        reached, could be <code>null</code>.
+     * @param nearCache an optional local cache used for registration lookups, could be <code>null</code>.
+     * @since 2.0
+     */
+    public RedisRegistrationStore(Pool<Jedis> p, ScheduledExecutorService schedExecutor, long cleanPeriodInSec,
+            long lifetimeGracePeriodInSec, int cleanLimit, JedisLock redisLock, RegistrationSerDes registrationSerDes,
+            RegistrationExpirationEngine expirationEngine, RegistrationNearCache nearCache) {
+        this(p, schedExecutor, cleanPeriodInSec, lifetimeGracePeriodInSec, cleanLimit, redisLock, registrationSerDes,
+                expirationEngine, nearCache, false);
+    }
+
+    /**
+     * @param expirationEngine an optional engine used to remove registrations as soon as their expiration deadline is
+     *        reached, could be <code>null</code>.
+     * @param nearCache an optional local cache used for registration lookups, could be <code>null</code>.
+     * @param useScripts <code>true</code> to add, update and remove registrations with Lua scripts instead of using the
+     *        lock. All the instances of a cluster must use the same mode.
+     * @since 2.0
+     */
+    public RedisRegistrationStore(Pool<Jedis> p, ScheduledExecutorService schedExecutor, long cleanPeriodInSec,
+            long lifetimeGracePeriodInSec, int cleanLimit, JedisLock redisLock, RegistrationSerDes registrationSerDes,
+            RegistrationExpirationEngine expirationEngine, RegistrationNearCache nearCache, boolean useScripts) {
         this.pool = p;
         this.schedExecutor = schedExecutor;
         this.cleanPeriod = cleanPeriodInSec;
@@ -137,6 +212,21 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         this.gracePeriod = lifetimeGracePeriodInSec;
         this.lock = redisLock;
         this.registrationSerDes = registrationSerDes;
+        this.expirationEngine = expirationEngine;
+        this.nearCache = nearCache;
+        this.useScripts = useScripts;
+        if (expirationEngine != null) {
+            expirationEngine.setDeadlineListener(new DeadlineListener() {
+                @Override
+                public void deadlineReached(String registrationId) {
+                    try (Jedis j = pool.getResource()) {
+                        Deregistration dereg = removeRegistration(j, registrationId, notAlive());
+                        if (dereg != null)
+                            expirationListener.registrationExpired(dereg.getRegistration(), dereg.getObservations());
+                    }
+                }
+            });
+        }
     }
 
     /* *************** Redis Key utility function **************** */
@@ -165,6 +255,10 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     @Override
     public Deregistration addRegistration(Registration registration) {
         try (Jedis j = pool.getResource()) {
+            if (useScripts) {
+                return addRegistrationWithScript(j, registration);
+            }
+
             byte[] lockValue = null;
             byte[] lockKey = toLockKey(registration.getEndpoint());
 
@@ -179,18 +273,23 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
                 byte[] regid_idx = toRegIdKey(registration.getId());
                 j.set(regid_idx, registration.getEndpoint().getBytes(UTF_8));
                 byte[] addr_idx = toRegAddrKey(registration.getSocketAddress());
-                j.set(addr_idx, registration.getEndpoint().getBytes(UTF_8));
+                setSecondaryIndex(j, addr_idx, registration.getEndpoint());
                 byte[] identity_idx = toRegIdentityKey(registration.getIdentity());
-                j.set(identity_idx, registration.getEndpoint().getBytes(UTF_8));
+                setSecondaryIndex(j, identity_idx, registration.getEndpoint());
 
                 // Add or update expiration
                 addOrUpdateExpiration(j, registration);
+                invalidateNearCache(j, registration.getEndpoint());
 
                 if (old != null) {
                     Registration oldRegistration = deserializeReg(old);
                     // remove old secondary index
-                    if (!registration.getId().equals(oldRegistration.getId()))
+                    if (!registration.getId().equals(oldRegistration.getId())) {
                         j.del(toRegIdKey(oldRegistration.getId()));
+                        if (expirationEngine != null) {
+                            expirationEngine.untrack(oldRegistration.getId());
+                        }
+                    }
                     if (!oldRegistration.getSocketAddress().equals(registration.getSocketAddress())) {
                         removeAddrIndex(j, oldRegistration);
                     }
@@ -211,11 +310,20 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     }
 
     @Override
-    public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
+    public UpdatedRegistration updateRegistration(final RegistrationUpdate update) {
+        return updateRegistration(update.getRegistrationId(), registration -> update);
+    }
+
+    @Override
+    public UpdatedRegistration updateRegistration(String registrationId,
+            Function<Registration, RegistrationUpdate> updateFunction) {
         try (Jedis j = pool.getResource()) {
+            if (useScripts) {
+                return updateRegistrationWithScript(j, registrationId, updateFunction);
+            }
 
             // Fetch the registration ep by registration ID index
-            byte[] ep = j.get(toRegIdKey(update.getRegistrationId()));
+            byte[] ep = j.get(toRegIdKey(registrationId));
             if (ep == null) {
                 return null;
             }
@@ -233,6 +341,11 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
                 Registration r = deserializeReg(data);
 
+                // Check update with the registration we just read, under lock
+                RegistrationUpdate update = updateFunction.apply(r);
+                if (update == null) {
+                    return null;
+                }
                 Registration updatedRegistration = update.update(r);
 
                 // Store the new registration
@@ -245,16 +358,17 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
                 // If registration is already associated to this address we don't care as we only want to keep the most
                 // recent binding.
                 byte[] addr_idx = toRegAddrKey(updatedRegistration.getSocketAddress());
-                j.set(addr_idx, updatedRegistration.getEndpoint().getBytes(UTF_8));
+                setSecondaryIndex(j, addr_idx, updatedRegistration.getEndpoint());
                 if (!r.getSocketAddress().equals(updatedRegistration.getSocketAddress())) {
                     removeAddrIndex(j, r);
                 }
                 // update secondary index :
                 byte[] identity_idx = toRegIdentityKey(updatedRegistration.getIdentity());
-                j.set(identity_idx, updatedRegistration.getEndpoint().getBytes(UTF_8));
+                setSecondaryIndex(j, identity_idx, updatedRegistration.getEndpoint());
                 if (!r.getIdentity().equals(updatedRegistration.getIdentity())) {
                     removeIdentityIndex(j, r);
                 }
+                invalidateNearCache(j, updatedRegistration.getEndpoint());
 
                 return new UpdatedRegistration(r, updatedRegistration);
 
@@ -266,27 +380,48 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
     @Override
     public Registration getRegistration(String registrationId) {
+        if (nearCache != null) {
+            Registration registration = nearCache.getByRegistrationId(registrationId);
+            if (registration != null) {
+                return registration;
+            }
+        }
         try (Jedis j = pool.getResource()) {
-            return getRegistration(j, registrationId);
+            long cacheVersion = nearCache != null ? nearCache.getVersion() : 0;
+            return cache(getRegistration(j, registrationId), cacheVersion);
         }
     }
 
     @Override
     public Registration getRegistrationByEndpoint(String endpoint) {
         Validate.notNull(endpoint);
+        if (nearCache != null) {
+            Registration registration = nearCache.getByEndpoint(endpoint);
+            if (registration != null) {
+                return registration;
+            }
+        }
         try (Jedis j = pool.getResource()) {
+            long cacheVersion = nearCache != null ? nearCache.getVersion() : 0;
             byte[] data = j.get(toEndpointKey(endpoint));
             if (data == null) {
                 return null;
             }
-            return deserializeReg(data);
+            return cache(deserializeReg(data), cacheVersion);
         }
     }
 
     @Override
     public Registration getRegistrationByAdress(InetSocketAddress address) {
         Validate.notNull(address);
+        if (nearCache != null) {
+            Registration registration = nearCache.getByAddress(address);
+            if (registration != null) {
+                return registration;
+            }
+        }
         try (Jedis j = pool.getResource()) {
+            long cacheVersion = nearCache != null ? nearCache.getVersion() : 0;
             byte[] ep = j.get(toRegAddrKey(address));
             if (ep == null) {
                 return null;
@@ -295,14 +430,21 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
             if (data == null) {
                 return null;
             }
-            return deserializeReg(data);
+            return cache(deserializeReg(data), cacheVersion);
         }
     }
 
     @Override
     public Registration getRegistrationByIdentity(Identity identity) {
         Validate.notNull(identity);
+        if (nearCache != null) {
+            Registration registration = nearCache.getByIdentity(identity);
+            if (registration != null) {
+                return registration;
+            }
+        }
         try (Jedis j = pool.getResource()) {
+            long cacheVersion = nearCache != null ? nearCache.getVersion() : 0;
             byte[] ep = j.get(toRegIdentityKey(identity));
             if (ep == null) {
                 return null;
@@ -311,13 +453,40 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
             if (data == null) {
                 return null;
             }
-            return deserializeReg(data);
+            return cache(deserializeReg(data), cacheVersion);
         }
     }
 
     @Override
     public Iterator<Registration> getAllRegistrations() {
-        return new RedisIterator(pool, new ScanParams().match(REG_EP + "*").count(100));
+        return new RedisIterator(pool, new ScanParams().match(REG_EP + "*").count(DEFAULT_SCAN_COUNT));
+    }
+
+    /**
+     * Returns a stream over the registrations of this store. Registrations are fetched by pages of SCAN + MGET. On a
+     * parallel stream, pages are fetched by the consuming thread then each page is deserialized by another thread.
+     */
+    @Override
+    public Stream<Registration> streamAllRegistrations() {
+        return StreamSupport.stream(
+                new RedisSpliterator(pool, new ScanParams().match(REG_EP + "*").count(DEFAULT_SCAN_COUNT)), false);
+    }
+
+    /**
+     * Fetch the next page of serialized registrations.
+     *
+     * @return the values of the scanned keys, keys removed since the scan are ignored.
+     */
+    private List<byte[]> scanPage(Jedis j, ScanResult<byte[]> sr) {
+        List<byte[]> values = new ArrayList<>();
+        if (sr.getResult() != null && !sr.getResult().isEmpty()) {
+            for (byte[] value : j.mget(sr.getResult().toArray(new byte[][] {}))) {
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+        }
+        return values;
     }
 
     protected class RedisIterator implements Iterator<Registration> {
@@ -326,7 +495,8 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         private ScanParams scanParams;
 
         private String cursor;
-        private List<Registration> scanResult;
+        private List<byte[]> scanResult;
+        private int index;
 
         public RedisIterator(Pool<Jedis> p, ScanParams scanParams) {
             pool = p;
@@ -339,14 +509,8 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
             try (Jedis j = pool.getResource()) {
                 do {
                     ScanResult<byte[]> sr = j.scan(cursor.getBytes(), scanParams);
-
-                    this.scanResult = new ArrayList<>();
-                    if (sr.getResult() != null && !sr.getResult().isEmpty()) {
-                        for (byte[] value : j.mget(sr.getResult().toArray(new byte[][] {}))) {
-                            this.scanResult.add(deserializeReg(value));
-                        }
-                    }
-
+                    this.scanResult = scanPage(j, sr);
+                    this.index = 0;
                     cursor = sr.getCursor();
                 } while (!"0".equals(cursor) && scanResult.isEmpty());
 
@@ -356,7 +520,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
         @Override
         public boolean hasNext() {
-            if (!scanResult.isEmpty()) {
+            if (index < scanResult.size()) {
                 return true;
             }
             if ("0".equals(cursor)) {
@@ -366,7 +530,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
             // read more elements
             scanNext(cursor);
-            return !scanResult.isEmpty();
+            return index < scanResult.size();
         }
 
         @Override
@@ -374,7 +538,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            return scanResult.remove(0);
+            return deserializeReg(scanResult.get(index++));
         }
 
         @Override
@@ -383,14 +547,123 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         }
     }
 
+    /**
+     * A {@link Spliterator} which scans registrations page by page. A split returns the remaining registrations of the
+     * current page, so deserialization of a page can be done in parallel of the scan of the next one.
+     */
+    private class RedisSpliterator implements Spliterator<Registration> {
+
+        private final Pool<Jedis> pool;
+        private final ScanParams scanParams;
+
+        private String cursor = "0";
+        private boolean scanStarted = false;
+        private PageSpliterator page = new PageSpliterator(Collections.<byte[]> emptyList());
+
+        RedisSpliterator(Pool<Jedis> p, ScanParams scanParams) {
+            this.pool = p;
+            this.scanParams = scanParams;
+        }
+
+        /**
+         * @return false if there is no more page to fetch.
+         */
+        private boolean fetchPageIfNeeded() {
+            while (page.estimateSize() == 0) {
+                if (scanStarted && "0".equals(cursor)) {
+                    return false;
+                }
+                try (Jedis j = pool.getResource()) {
+                    ScanResult<byte[]> sr = j.scan(cursor.getBytes(), scanParams);
+                    scanStarted = true;
+                    page = new PageSpliterator(scanPage(j, sr));
+                    cursor = sr.getCursor();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Registration> action) {
+            return fetchPageIfNeeded() && page.tryAdvance(action);
+        }
+
+        @Override
+        public Spliterator<Registration> trySplit() {
+            if (!fetchPageIfNeeded()) {
+                return null;
+            }
+            // hand off current page
+            Spliterator<Registration> split = page;
+            page = new PageSpliterator(Collections.<byte[]> emptyList());
+            return split;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL;
+        }
+    }
+
+    /**
+     * A {@link Spliterator} over a page of serialized registrations, deserialized on demand.
+     */
+    private class PageSpliterator implements Spliterator<Registration> {
+
+        private final List<byte[]> values;
+        private int index;
+
+        PageSpliterator(List<byte[]> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Registration> action) {
+            if (index >= values.size()) {
+                return false;
+            }
+            action.accept(deserializeReg(values.get(index++)));
+            return true;
+        }
+
+        @Override
+        public Spliterator<Registration> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return values.size() - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | SIZED | SUBSIZED;
+        }
+    }
+
     @Override
     public Deregistration removeRegistration(String registrationId) {
+        return removeRegistration(registrationId, registration -> true);
+    }
+
+    @Override
+    public Deregistration removeRegistration(String registrationId, Predicate<Registration> condition) {
         try (Jedis j = pool.getResource()) {
-            return removeRegistration(j, registrationId, false);
+            return removeRegistration(j, registrationId, condition);
         }
     }
 
-    private Deregistration removeRegistration(Jedis j, String registrationId, boolean removeOnlyIfNotAlive) {
+    private Deregistration removeRegistration(Jedis j, String registrationId, Predicate<Registration> condition) {
+        if (useScripts) {
+            return removeRegistrationWithScript(j, registrationId, condition);
+        }
+
         // fetch the client ep by registration ID index
         byte[] ep = j.get(toRegIdKey(registrationId));
         if (ep == null) {
@@ -409,7 +682,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
             }
             Registration r = deserializeReg(data);
 
-            if (!removeOnlyIfNotAlive || !r.isAlive(gracePeriod)) {
+            if (condition.test(r)) {
                 long nbRemoved = j.del(toRegIdKey(r.getId()));
                 if (nbRemoved > 0) {
                     j.del(toEndpointKey(r.getEndpoint()));
@@ -417,6 +690,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
                     removeAddrIndex(j, r);
                     removeIdentityIndex(j, r);
                     removeExpiration(j, r);
+                    invalidateNearCache(j, r.getEndpoint());
                     return new Deregistration(r, obsRemoved);
                 }
             }
@@ -426,6 +700,35 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         }
     }
 
+    private Predicate<Registration> notAlive() {
+        return registration -> !registration.isAlive(gracePeriod);
+    }
+
+    private void setSecondaryIndex(Jedis j, byte[] indexKey, String endpointName) {
+        if (nearCache == null) {
+            j.set(indexKey, endpointName.getBytes(UTF_8));
+        } else {
+            // if index was used by another registration, this one must be evicted from near caches.
+            byte[] previousEndpoint = j.getSet(indexKey, endpointName.getBytes(UTF_8));
+            if (previousEndpoint != null && !Arrays.equals(previousEndpoint, endpointName.getBytes(UTF_8))) {
+                invalidateNearCache(j, new String(previousEndpoint, UTF_8));
+            }
+        }
+    }
+
+    private void invalidateNearCache(Jedis j, String endpoint) {
+        if (nearCache != null) {
+            nearCache.invalidate(j, endpoint);
+        }
+    }
+
+    private Registration cache(Registration registration, long cacheVersion) {
+        if (nearCache != null && registration != null) {
+            nearCache.put(registration, cacheVersion);
+        }
+        return registration;
+    }
+
     private void removeAddrIndex(Jedis j, Registration r) {
         removeSecondaryIndex(j, toRegAddrKey(r.getSocketAddress()), r.getEndpoint());
     }
@@ -455,10 +758,175 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
     private void addOrUpdateExpiration(Jedis j, Registration registration) {
         j.zadd(EXP_EP, registration.getExpirationTimeStamp(gracePeriod), registration.getEndpoint().getBytes(UTF_8));
+        trackExpiration(registration);
     }
 
     private void removeExpiration(Jedis j, Registration registration) {
         j.zrem(EXP_EP, registration.getEndpoint().getBytes(UTF_8));
+        untrackExpiration(registration.getId());
+    }
+
+    private void trackExpiration(Registration registration) {
+        if (expirationEngine != null) {
+            expirationEngine.track(registration.getId(), registration.getExpirationTimeStamp(gracePeriod));
+        }
+    }
+
+    private void untrackExpiration(String registrationId) {
+        if (expirationEngine != null) {
+            expirationEngine.untrack(registrationId);
+        }
+    }
+
+    /* *************** Script based modifications **************** */
+
+    private Deregistration addRegistrationWithScript(Jedis j, Registration registration) {
+        byte[] k = toEndpointKey(registration.getEndpoint());
+        byte[] data = serializeReg(registration);
+        byte[] ep = registration.getEndpoint().getBytes(UTF_8);
+
+        for (int attempt = 0; attempt < MAX_SCRIPT_ATTEMPTS; attempt++) {
+            byte[] old = j.get(k);
+            Registration oldRegistration = old == null ? null : deserializeReg(old);
+            // if there is no previous registration, previous keys are the new ones and will be ignored
+            Registration previous = oldRegistration == null ? registration : oldRegistration;
+
+            Object result = RegistrationScripts.ADD.eval(j, //
+                    Arrays.asList(k, //
+                            toRegIdKey(registration.getId()), //
+                            toRegAddrKey(registration.getSocketAddress()), //
+                            toRegIdentityKey(registration.getIdentity()), //
+                            EXP_EP, //
+                            toRegIdKey(previous.getId()), //
+                            toRegAddrKey(previous.getSocketAddress()), //
+                            toRegIdentityKey(previous.getIdentity()), //
+                            toKey(OBS_TKNS_REGID_IDX, previous.getId())), //
+                    Arrays.asList(old == null ? new byte[0] : old, //
+                            data, //
+                            ep, //
+                            toScriptArg(registration.getExpirationTimeStamp(gracePeriod)), //
+                            OBS_TKN, //
+                            toInvalidationChannel()));
+
+            if (result instanceof List) {
+                if (oldRegistration != null && !oldRegistration.getId().equals(registration.getId())) {
+                    untrackExpiration(oldRegistration.getId());
+                }
+                trackExpiration(registration);
+                invalidateLocalNearCache(registration.getEndpoint());
+                if (oldRegistration == null) {
+                    return null;
+                }
+                return new Deregistration(oldRegistration, toObservations(result));
+            }
+        }
+        throw new IllegalStateException(String.format("Unable to add registration %s after %d attempts",
+                registration.getEndpoint(), MAX_SCRIPT_ATTEMPTS));
+    }
+
+    private UpdatedRegistration updateRegistrationWithScript(Jedis j, String registrationId,
+            Function<Registration, RegistrationUpdate> updateFunction) {
+        for (int attempt = 0; attempt < MAX_SCRIPT_ATTEMPTS; attempt++) {
+            // Fetch the registration by registration ID index
+            List<?> current = (List<?>) RegistrationScripts.GET_BY_REGID.eval(j,
+                    Arrays.asList(toRegIdKey(registrationId)), Arrays.asList(REG_EP.getBytes(UTF_8)));
+            if (current == null) {
+                return null;
+            }
+            byte[] ep = (byte[]) current.get(0);
+            byte[] data = (byte[]) current.get(1);
+
+            Registration r = deserializeReg(data);
+            RegistrationUpdate update = updateFunction.apply(r);
+            if (update == null) {
+                return null;
+            }
+            Registration updatedRegistration = update.update(r);
+
+            Object result = RegistrationScripts.UPDATE.eval(j, //
+                    Arrays.asList(toEndpointKey(ep), //
+                            toRegAddrKey(updatedRegistration.getSocketAddress()), //
+                            toRegIdentityKey(updatedRegistration.getIdentity()), //
+                            EXP_EP, //
+                            toRegAddrKey(r.getSocketAddress()), //
+                            toRegIdentityKey(r.getIdentity())), //
+                    Arrays.asList(data, //
+                            serializeReg(updatedRegistration), //
+                            ep, //
+                            toScriptArg(updatedRegistration.getExpirationTimeStamp(gracePeriod)), //
+                            toInvalidationChannel()));
+
+            if (!Long.valueOf(RegistrationScripts.CONFLICT).equals(result)) {
+                trackExpiration(updatedRegistration);
+                invalidateLocalNearCache(updatedRegistration.getEndpoint());
+                return new UpdatedRegistration(r, updatedRegistration);
+            }
+        }
+        throw new IllegalStateException(String.format("Unable to update registration %s after %d attempts",
+                registrationId, MAX_SCRIPT_ATTEMPTS));
+    }
+
+    private Deregistration removeRegistrationWithScript(Jedis j, String registrationId,
+            Predicate<Registration> condition) {
+        for (int attempt = 0; attempt < MAX_SCRIPT_ATTEMPTS; attempt++) {
+            // Fetch the registration by registration ID index
+            List<?> current = (List<?>) RegistrationScripts.GET_BY_REGID.eval(j,
+                    Arrays.asList(toRegIdKey(registrationId)), Arrays.asList(REG_EP.getBytes(UTF_8)));
+            if (current == null) {
+                return null;
+            }
+            byte[] ep = (byte[]) current.get(0);
+            byte[] data = (byte[]) current.get(1);
+
+            Registration r = deserializeReg(data);
+            if (!condition.test(r)) {
+                return null;
+            }
+
+            Object result = RegistrationScripts.REMOVE.eval(j, //
+                    Arrays.asList(toEndpointKey(ep), //
+                            toRegIdKey(r.getId()), //
+                            toRegAddrKey(r.getSocketAddress()), //
+                            toRegIdentityKey(r.getIdentity()), //
+                            EXP_EP, //
+                            toKey(OBS_TKNS_REGID_IDX, r.getId())), //
+                    Arrays.asList(data, //
+                            ep, //
+                            OBS_TKN, //
+                            toInvalidationChannel()));
+
+            if (result instanceof List) {
+                untrackExpiration(r.getId());
+                invalidateLocalNearCache(r.getEndpoint());
+                return new Deregistration(r, toObservations(result));
+            } else if (Long.valueOf(RegistrationScripts.NOT_FOUND).equals(result)) {
+                return null;
+            }
+        }
+        throw new IllegalStateException(String.format("Unable to remove registration %s after %d attempts",
+                registrationId, MAX_SCRIPT_ATTEMPTS));
+    }
+
+    private Collection<Observation> toObservations(Object scriptResult) {
+        Collection<Observation> observations = new ArrayList<>();
+        for (Object obs : (List<?>) scriptResult) {
+            observations.add(build(deserializeObs((byte[]) obs)));
+        }
+        return observations;
+    }
+
+    private byte[] toScriptArg(long value) {
+        return Long.toString(value).getBytes(UTF_8);
+    }
+
+    private byte[] toInvalidationChannel() {
+        return nearCache != null ? nearCache.getInvalidationChannel() : new byte[0];
+    }
+
+    private void invalidateLocalNearCache(String endpoint) {
+        if (nearCache != null) {
+            nearCache.invalidate(endpoint);
+        }
     }
 
     private byte[] toRegIdKey(String registrationId) {
@@ -632,6 +1100,10 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         org.eclipse.californium.core.observe.Observation previousObservation = null;
 
         try (Jedis j = pool.getResource()) {
+            if (useScripts) {
+                return addWithScript(j, obs, ifAbsent);
+            }
+
             byte[] lockValue = null;
             byte[] lockKey = toKey(LOCK_EP, endpoint);
             try {
@@ -671,6 +1143,37 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         return previousObservation;
     }
 
+    private org.eclipse.californium.core.observe.Observation addWithScript(Jedis j,
+            org.eclipse.californium.core.observe.Observation obs, boolean ifAbsent) throws ObservationStoreException {
+        String registrationId = ObserveUtil.extractRegistrationId(obs);
+        byte[] token = obs.getRequest().getToken().getBytes();
+
+        Object result = RegistrationScripts.ADD_OBSERVATION.eval(j, //
+                Arrays.asList(toRegIdKey(registrationId), //
+                        toKey(OBS_TKN, token), //
+                        toKey(OBS_TKNS_REGID_IDX, registrationId)), //
+                Arrays.asList(serializeObs(obs), //
+                        token, //
+                        (ifAbsent ? "1" : "0").getBytes(UTF_8)));
+
+        if (!(result instanceof List))
+            throw new ObservationStoreException("no registration for this Id");
+        List<?> values = (List<?>) result;
+        boolean added = Long.valueOf(1).equals(values.get(0));
+        byte[] previousValue = (byte[]) values.get(1);
+        if (previousValue.length == 0) {
+            return null;
+        }
+        org.eclipse.californium.core.observe.Observation previousObservation = deserializeObs(previousValue);
+        if (added) {
+            // log any collisions
+            LOG.warn(
+                    "Token collision ? observation from request [{}] will be replaced by observation from request [{}] ",
+                    previousObservation.getRequest(), obs.getRequest());
+        }
+        return previousObservation;
+    }
+
     @Override
     public void remove(Token token) {
         try (Jedis j = pool.getResource()) {
@@ -790,6 +1293,12 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         if (!started) {
             started = true;
             cleanerTask = schedExecutor.scheduleAtFixedRate(new Cleaner(), cleanPeriod, cleanPeriod, TimeUnit.SECONDS);
+            if (expirationEngine != null) {
+                expirationEngine.start();
+            }
+            if (nearCache != null) {
+                nearCache.start();
+            }
         }
     }
 
@@ -800,6 +1309,12 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     public synchronized void stop() {
         if (started) {
             started = false;
+            if (expirationEngine != null) {
+                expirationEngine.stop();
+            }
+            if (nearCache != null) {
+                nearCache.stop();
+            }
             if (cleanerTask != null) {
                 cleanerTask.cancel(false);
                 cleanerTask = null;
@@ -813,6 +1328,12 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     @Override
     public synchronized void destroy() {
         started = false;
+        if (expirationEngine != null) {
+            expirationEngine.destroy();
+        }
+        if (nearCache != null) {
+            nearCache.destroy();
+        }
         schedExecutor.shutdownNow();
         try {
             schedExecutor.awaitTermination(5, TimeUnit.SECONDS);
@@ -835,7 +1356,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
                     if (regBytes != null) {
                         Registration r = deserializeReg(regBytes);
                         if (!r.isAlive(gracePeriod)) {
-                            Deregistration dereg = removeRegistration(j, r.getId(), true);
+                            Deregistration dereg = removeRegistration(j, r.getId(), notAlive());
                             if (dereg != null)
                                 expirationListener.registrationExpired(dereg.getRegistration(),
                                         dereg.getObservations());
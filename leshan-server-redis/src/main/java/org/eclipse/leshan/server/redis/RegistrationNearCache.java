@@ -0,0 +1,422 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.Startable;
+import org.eclipse.leshan.core.Stoppable;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.util.Pool;
+
+/**
+ * A local cache of deserialized {@link Registration} used by {@link RedisRegistrationStore} to avoid a Redis round trip
+ * and a deserialization for each lookup.
+ * <p>
+ * Registrations are kept in a bounded cache with a time to live, least recently used ones are evicted first. They can
+ * be found by registration id, endpoint, socket address or identity. Each time a registration is modified, the store
+ * publishes its endpoint on a Redis pub/sub channel and all the caches of the cluster subscribed to this channel evict
+ * it.
+ * <p>
+ * Registrations are cached only while the subscription is active and the cache is cleared each time the subscription is
+ * (re)established, so invalidations can not be missed. Time to live bounds staleness in case of unexpected failure.
+ */
+public class RegistrationNearCache implements Startable, Stoppable, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RegistrationNearCache.class);
+
+    /** Default maximum number of cached registrations */
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+    /** Default time to live of a cached registration in milliseconds */
+    public static final long DEFAULT_TIME_TO_LIVE = 60_000;
+    /** Default Redis channel used to publish invalidations */
+    public static final String DEFAULT_INVALIDATION_CHANNEL = "REG:INVALIDATION";
+    /** Default time in milliseconds to wait before subscribing again after a connection failure */
+    public static final long DEFAULT_RETRY_DELAY = 1000;
+
+    private final Pool<Jedis> pool;
+    private final int maxSize;
+    private final long timeToLive; // in ms
+    private final byte[] channel;
+
+    private final ConcurrentMap<String /* endpoint */, CachedRegistration> registrations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String /* reg-id */, String /* endpoint */> endpointsByRegId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<InetSocketAddress, String /* endpoint */> endpointsByAddr = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Identity, String /* endpoint */> endpointsByIdentity = new ConcurrentHashMap<>();
+
+    // Each invalidation gets a sequence number, which is kept for its endpoint. A registration read from Redis is
+    // cached only if its endpoint was not invalidated since the read started and if the read started after "floor".
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentMap<String /* endpoint */, Long /* sequence */> invalidations = new ConcurrentHashMap<>();
+    private volatile long floor;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private volatile boolean subscribed;
+
+    private final ExecutorService subscriberExecutor;
+    private volatile Subscriber subscriber;
+    private boolean started = false;
+
+    public RegistrationNearCache(Pool<Jedis> pool) {
+        this(pool, DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * @param pool the pool used to subscribe to invalidation channel.
+     * @param maxSize the maximum number of cached registrations.
+     * @param timeToLiveInMs the maximum time a registration is kept in cache in milliseconds.
+     */
+    public RegistrationNearCache(Pool<Jedis> pool, int maxSize, long timeToLiveInMs) {
+        this(pool, maxSize, timeToLiveInMs, DEFAULT_INVALIDATION_CHANNEL);
+    }
+
+    /**
+     * @param pool the pool used to subscribe to invalidation channel.
+     * @param maxSize the maximum number of cached registrations.
+     * @param timeToLiveInMs the maximum time a registration is kept in cache in milliseconds.
+     * @param invalidationChannel the Redis channel used to publish and receive invalidations.
+     */
+    public RegistrationNearCache(Pool<Jedis> pool, int maxSize, long timeToLiveInMs, String invalidationChannel) {
+        Validate.isTrue(maxSize > 0, "max size must be positive");
+        Validate.notNull(invalidationChannel);
+        this.pool = pool;
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLiveInMs;
+        this.channel = invalidationChannel.getBytes(UTF_8);
+        this.subscriberExecutor = Executors
+                .newSingleThreadExecutor(new NamedThreadFactory("RegistrationNearCache Subscriber"));
+    }
+
+    /* *************** Lookup **************** */
+
+    /**
+     * @return a version to give to {@link #put(Registration, long)}. It must be got before reading the registration
+     *         from Redis.
+     */
+    public long getVersion() {
+        return sequence.get();
+    }
+
+    public Registration getByEndpoint(String endpoint) {
+        CachedRegistration cached = registrations.get(endpoint);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.isExpired()) {
+            remove(endpoint, cached);
+            return null;
+        }
+        cached.lastAccess = System.nanoTime();
+        return cached.registration;
+    }
+
+    public Registration getByRegistrationId(String registrationId) {
+        String endpoint = endpointsByRegId.get(registrationId);
+        if (endpoint == null) {
+            return null;
+        }
+        Registration registration = getByEndpoint(endpoint);
+        return registration != null && registration.getId().equals(registrationId) ? registration : null;
+    }
+
+    public Registration getByAddress(InetSocketAddress address) {
+        String endpoint = endpointsByAddr.get(address);
+        if (endpoint == null) {
+            return null;
+        }
+        Registration registration = getByEndpoint(endpoint);
+        return registration != null && registration.getSocketAddress().equals(address) ? registration : null;
+    }
+
+    public Registration getByIdentity(Identity identity) {
+        String endpoint = endpointsByIdentity.get(identity);
+        if (endpoint == null) {
+            return null;
+        }
+        Registration registration = getByEndpoint(endpoint);
+        return registration != null && registration.getIdentity().equals(identity) ? registration : null;
+    }
+
+    /**
+     * Add a registration read from Redis to the cache.
+     * <p>
+     * The registration is not cached if its endpoint was invalidated since the given version was got, as the
+     * registration could have been read before this modification, or if invalidations can not be received.
+     * Invalidations of other endpoints have no impact.
+     *
+     * @param registration the registration read from Redis.
+     * @param version the value of {@link #getVersion()} before the registration was read.
+     */
+    public void put(final Registration registration, final long version) {
+        if (!subscribed || version < floor) {
+            return;
+        }
+        registrations.compute(registration.getEndpoint(), (endpoint, current) -> {
+            // read invalidation before floor, as floor is raised before invalidations are pruned.
+            Long invalidation = invalidations.get(endpoint);
+            if ((invalidation != null && invalidation > version) || version < floor) {
+                return current;
+            }
+            if (current != null) {
+                removeIndexes(current.registration);
+            }
+            endpointsByRegId.put(registration.getId(), endpoint);
+            endpointsByAddr.put(registration.getSocketAddress(), endpoint);
+            endpointsByIdentity.put(registration.getIdentity(), endpoint);
+            return new CachedRegistration(registration, System.currentTimeMillis() + timeToLive);
+        });
+        evictIfNeeded();
+    }
+
+    /**
+     * @return the number of cached registrations.
+     */
+    public int size() {
+        return registrations.size();
+    }
+
+    /* *************** Invalidation **************** */
+
+    /**
+     * Evict the registration of the given endpoint from this cache and publish an invalidation for the other caches of
+     * the cluster.
+     *
+     * @param j the Redis connection used to publish the invalidation.
+     * @param endpoint the endpoint of the modified registration.
+     */
+    public void invalidate(Jedis j, String endpoint) {
+        invalidate(endpoint);
+        j.publish(channel, endpoint.getBytes(UTF_8));
+    }
+
+    /**
+     * @return the Redis channel used to publish invalidations.
+     */
+    byte[] getInvalidationChannel() {
+        return channel;
+    }
+
+    /**
+     * Evict the registration of the given endpoint from this cache only.
+     */
+    public void invalidate(String endpoint) {
+        registrations.compute(endpoint, (ep, current) -> {
+            invalidations.put(ep, sequence.incrementAndGet());
+            if (current != null) {
+                removeIndexes(current.registration);
+            }
+            return null;
+        });
+        if (invalidations.size() > maxSize) {
+            pruneInvalidations(sequence.get());
+        }
+    }
+
+    /**
+     * Evict all the registrations from this cache.
+     */
+    public void clear() {
+        pruneInvalidations(sequence.incrementAndGet());
+        registrations.clear();
+        endpointsByRegId.clear();
+        endpointsByAddr.clear();
+        endpointsByIdentity.clear();
+    }
+
+    private synchronized void pruneInvalidations(long newFloor) {
+        // registrations read before the new floor are not cached anymore, so older invalidations are useless.
+        if (newFloor > floor) {
+            floor = newFloor;
+        }
+        invalidations.values().removeIf(invalidation -> invalidation <= newFloor);
+    }
+
+    private void evictIfNeeded() {
+        int excess = registrations.size() - maxSize;
+        if (excess <= 0 || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // evict least recently used registrations, with some margin to not sort on each put.
+            List<CachedRegistration> entries = new ArrayList<>(registrations.values());
+            // sort on a snapshot, as last access can change during sort.
+            for (CachedRegistration entry : entries) {
+                entry.lastAccessSnapshot = entry.lastAccess;
+            }
+            entries.sort((e1, e2) -> Long.compare(e1.lastAccessSnapshot, e2.lastAccessSnapshot));
+            int toEvict = Math.min(entries.size(), excess + maxSize / 10);
+            for (int i = 0; i < toEvict; i++) {
+                remove(entries.get(i).registration.getEndpoint(), entries.get(i));
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private void remove(String endpoint, final CachedRegistration expected) {
+        registrations.computeIfPresent(endpoint, (ep, current) -> {
+            if (current != expected) {
+                return current;
+            }
+            removeIndexes(current.registration);
+            return null;
+        });
+    }
+
+    private void removeIndexes(Registration registration) {
+        String endpoint = registration.getEndpoint();
+        endpointsByRegId.remove(registration.getId(), endpoint);
+        endpointsByAddr.remove(registration.getSocketAddress(), endpoint);
+        endpointsByIdentity.remove(registration.getIdentity(), endpoint);
+    }
+
+    synchronized void subscribed() {
+        // invalidations could have been missed, we restart from an empty cache
+        clear();
+        subscribed = true;
+    }
+
+    synchronized void unsubscribed() {
+        subscribed = false;
+        clear();
+    }
+
+    /* *************** Subscription **************** */
+
+    /**
+     * Start to listen for invalidations. Registrations are cached only once subscription is done.
+     */
+    @Override
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            subscriberExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    subscribeUntilStopped();
+                }
+            });
+        }
+    }
+
+    private void subscribeUntilStopped() {
+        while (isStarted()) {
+            Subscriber s = new Subscriber();
+            subscriber = s;
+            try (Jedis j = pool.getResource()) {
+                // blocks until unsubscribe or connection failure
+                j.subscribe(s, channel);
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to listen for registration invalidations, retrying in {}ms", DEFAULT_RETRY_DELAY, e);
+            } finally {
+                unsubscribed();
+            }
+            if (isStarted()) {
+                try {
+                    Thread.sleep(DEFAULT_RETRY_DELAY);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private synchronized boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Stop to listen for invalidations and clear the cache.
+     */
+    @Override
+    public synchronized void stop() {
+        if (started) {
+            started = false;
+            Subscriber s = subscriber;
+            if (s != null && s.isSubscribed()) {
+                s.unsubscribe();
+            }
+            unsubscribed();
+        }
+    }
+
+    /**
+     * Destroy the subscriber thread.
+     */
+    @Override
+    public synchronized void destroy() {
+        stop();
+        subscriberExecutor.shutdownNow();
+        try {
+            subscriberExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Destroying RegistrationNearCache was interrupted.", e);
+        }
+    }
+
+    private class Subscriber extends BinaryJedisPubSub {
+
+        @Override
+        public void onSubscribe(byte[] channel, int subscribedChannels) {
+            if (isStarted()) {
+                subscribed();
+            } else {
+                // stopped before subscription was done
+                unsubscribe();
+            }
+        }
+
+        @Override
+        public void onMessage(byte[] channel, byte[] message) {
+            invalidate(new String(message, UTF_8));
+        }
+    }
+
+    private static class CachedRegistration {
+        private final Registration registration;
+        private final long expirationTime; // in ms
+        private volatile long lastAccess = System.nanoTime();
+        private long lastAccessSnapshot; // only used by evicting thread
+
+        CachedRegistration(Registration registration, long expirationTime) {
+            this.registration = registration;
+            this.expirationTime = expirationTime;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expirationTime;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+/**
+ * Lua scripts used by {@link RedisRegistrationStore} to modify a registration and all its indexes atomically.
+ * <p>
+ * Registration modifications are optimistic: the registration is read, modified in Java, then the script applies the
+ * modification only if the stored registration is still the one which was read. Else the script returns
+ * {@link #CONFLICT} and the modification must be retried.
+ */
+class RegistrationScripts {
+
+    /** Value returned by a script when the stored registration is not the expected one. */
+    static final long CONFLICT = 0;
+    /** Value returned by a script when the registration does not exist. */
+    static final long NOT_FOUND = -1;
+
+    // Functions shared by the scripts.
+    // ep: endpoint name, channel: near cache invalidation channel or empty string.
+    private static final String FUNCTIONS = "" //
+            // Set a secondary index and invalidate the endpoint which used it before
+            + "local function setIndex(key, ep, channel)\n" //
+            + "  local previous = redis.call('GETSET', key, ep)\n" //
+            + "  if previous and previous ~= ep and channel ~= '' then\n" //
+            + "    redis.call('PUBLISH', channel, previous)\n" //
+            + "  end\n" //
+            + "end\n" //
+            // Remove a secondary index if it is still used by the given endpoint
+            + "local function removeIndex(key, ep)\n" //
+            + "  if redis.call('GET', key) == ep then\n" //
+            + "    redis.call('DEL', key)\n" //
+            + "  end\n" //
+            + "end\n" //
+            // Remove all observations of a registration and return them
+            + "local function removeObservations(tokensKey, obsPrefix)\n" //
+            + "  local removed = {}\n" //
+            + "  for _, token in ipairs(redis.call('LRANGE', tokensKey, 0, -1)) do\n" //
+            + "    local obs = redis.call('GET', obsPrefix .. token)\n" //
+            + "    if obs then\n" //
+            + "      table.insert(removed, obs)\n" //
+            + "    end\n" //
+            + "    redis.call('DEL', obsPrefix .. token)\n" //
+            + "  end\n" //
+            + "  redis.call('DEL', tokensKey)\n" //
+            + "  return removed\n" //
+            + "end\n";
+
+    /**
+     * Get the endpoint and the registration of a registration id.
+     * <p>
+     * KEYS: registration id index. ARGV: registration key prefix.
+     * <p>
+     * Returns <code>nil</code> or [endpoint, registration].
+     */
+    static final RedisScript GET_BY_REGID = new RedisScript("" //
+            + "local ep = redis.call('GET', KEYS[1])\n" //
+            + "if not ep then return nil end\n" //
+            + "local data = redis.call('GET', ARGV[1] .. ep)\n" //
+            + "if not data then return nil end\n" //
+            + "return {ep, data}\n");
+
+    /**
+     * Add a registration, replacing the previous registration of the same endpoint.
+     * <p>
+     * KEYS: registration, registration id index, address index, identity index, expiration sorted set, previous
+     * registration id index, previous address index, previous identity index, previous observation list.<br>
+     * ARGV: expected previous registration (empty if none), new registration, endpoint, expiration timestamp,
+     * observation key prefix, invalidation channel.
+     * <p>
+     * Returns {@link #CONFLICT} or the list of removed observations.
+     */
+    static final RedisScript ADD = new RedisScript(FUNCTIONS //
+            + "local current = redis.call('GET', KEYS[1])\n" //
+            + "if (current or '') ~= ARGV[1] then return " + CONFLICT + " end\n" //
+            + "redis.call('SET', KEYS[1], ARGV[2])\n" //
+            + "redis.call('SET', KEYS[2], ARGV[3])\n" //
+            + "setIndex(KEYS[3], ARGV[3], ARGV[6])\n" //
+            + "setIndex(KEYS[4], ARGV[3], ARGV[6])\n" //
+            + "redis.call('ZADD', KEYS[5], ARGV[4], ARGV[3])\n" //
+            + "local removed = {}\n" //
+            + "if current then\n" //
+            + "  if KEYS[6] ~= KEYS[2] then redis.call('DEL', KEYS[6]) end\n" //
+            + "  if KEYS[7] ~= KEYS[3] then removeIndex(KEYS[7], ARGV[3]) end\n" //
+            + "  if KEYS[8] ~= KEYS[4] then removeIndex(KEYS[8], ARGV[3]) end\n" //
+            + "  removed = removeObservations(KEYS[9], ARGV[5])\n" //
+            + "end\n" //
+            + "if ARGV[6] ~= '' then redis.call('PUBLISH', ARGV[6], ARGV[3]) end\n" //
+            + "return removed\n");
+
+    /**
+     * Update a registration.
+     * <p>
+     * KEYS: registration, address index, identity index, expiration sorted set, previous address index, previous
+     * identity index.<br>
+     * ARGV: expected registration, updated registration, endpoint, expiration timestamp, invalidation channel.
+     * <p>
+     * Returns {@link #CONFLICT} or 1.
+     */
+    static final RedisScript UPDATE = new RedisScript(FUNCTIONS //
+            + "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return " + CONFLICT + " end\n" //
+            + "redis.call('SET', KEYS[1], ARGV[2])\n" //
+            + "redis.call('ZADD', KEYS[4], ARGV[4], ARGV[3])\n" //
+            + "setIndex(KEYS[2], ARGV[3], ARGV[5])\n" //
+            + "if KEYS[5] ~= KEYS[2] then removeIndex(KEYS[5], ARGV[3]) end\n" //
+            + "setIndex(KEYS[3], ARGV[3], ARGV[5])\n" //
+            + "if KEYS[6] ~= KEYS[3] then removeIndex(KEYS[6], ARGV[3]) end\n" //
+            + "if ARGV[5] ~= '' then redis.call('PUBLISH', ARGV[5], ARGV[3]) end\n" //
+            + "return 1\n");
+
+    /**
+     * Remove a registration.
+     * <p>
+     * KEYS: registration, registration id index, address index, identity index, expiration sorted set, observation
+     * list.<br>
+     * ARGV: expected registration, endpoint, observation key prefix, invalidation channel.
+     * <p>
+     * Returns {@link #CONFLICT}, {@link #NOT_FOUND} or the list of removed observations.
+     */
+    static final RedisScript REMOVE = new RedisScript(FUNCTIONS //
+            + "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return " + CONFLICT + " end\n" //
+            + "if redis.call('DEL', KEYS[2]) == 0 then return " + NOT_FOUND + " end\n" //
+            + "redis.call('DEL', KEYS[1])\n" //
+            + "local removed = removeObservations(KEYS[6], ARGV[3])\n" //
+            + "removeIndex(KEYS[3], ARGV[2])\n" //
+            + "removeIndex(KEYS[4], ARGV[2])\n" //
+            + "redis.call('ZREM', KEYS[5], ARGV[2])\n" //
+            + "if ARGV[4] ~= '' then redis.call('PUBLISH', ARGV[4], ARGV[2]) end\n" //
+            + "return removed\n");
+
+    /**
+     * Add an observation if its registration exists.
+     * <p>
+     * KEYS: registration id index, observation, observation list.<br>
+     * ARGV: observation, token, "1" to add only if absent.
+     * <p>
+     * Returns {@link #NOT_FOUND} or [1 if observation was added else 0, previous observation or empty].
+     */
+    static final RedisScript ADD_OBSERVATION = new RedisScript("" //
+            + "if redis.call('EXISTS', KEYS[1]) == 0 then return " + NOT_FOUND + " end\n" //
+            + "local previous = redis.call('GET', KEYS[2]) or ''\n" //
+            + "if ARGV[3] == '1' and previous ~= '' then return {0, previous} end\n" //
+            + "redis.call('SET', KEYS[2], ARGV[1])\n" //
+            + "redis.call('LPUSH', KEYS[3], ARGV[2])\n" //
+            + "return {1, previous}\n");
+
+    private RegistrationScripts() {
+    }
+}
@@ -0,0 +1,642 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
+import org.eclipse.leshan.core.LwM2m.Version;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.link.attributes.Attribute;
+import org.eclipse.leshan.core.link.attributes.AttributeModel;
+import org.eclipse.leshan.core.link.attributes.AttributeParser;
+import org.eclipse.leshan.core.link.attributes.Attributes;
+import org.eclipse.leshan.core.link.attributes.DefaultAttributeParser;
+import org.eclipse.leshan.core.link.attributes.InvalidAttributeException;
+import org.eclipse.leshan.core.link.lwm2m.MixedLwM2mLink;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributes;
+import org.eclipse.leshan.core.link.lwm2m.attributes.MixedLwM2mAttributeSet;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Functions for serialize and deserialize a Registration in a compact binary format.
+ * <p>
+ * Integers are varint encoded, well-known attribute names are replaced by an index, each distinct attribute is written
+ * only once by registration and LWM2M links are stored as path ids. Deserialized attributes are interned, so attribute
+ * values are parsed only the first time they are met.
+ * <p>
+ * Data serialized in JSON by {@link RegistrationSerDes} can still be deserialized. To migrate a cluster, deploy first
+ * with <code>writeBinary</code> set to <code>false</code> (binary and JSON can be read, JSON is written), then once all
+ * nodes are upgraded, set <code>writeBinary</code> to <code>true</code>.
+ */
+public class BinaryRegistrationSerDes extends RegistrationSerDes {
+
+    /** Current version of the binary format. It is the first byte of serialized data. */
+    public static final byte FORMAT_V1 = 1;
+
+    /** Maximum number of interned attributes */
+    public static final int DEFAULT_ATTRIBUTE_CACHE_SIZE = 1024;
+
+    // Well-known attribute names, index of a name in this list is part of the format and so must not be changed.
+    // New names must be appended at the end.
+    private static final List<String> KNOWN_ATTRIBUTE_NAMES = Arrays.asList("ct", "rt", "ver", "lwm2m", "dim", "ssid",
+            "uri", "pmin", "pmax", "gt", "lt", "st", "epmin", "epmax", "hb", "if", "obs", "anchor", "title", "sz");
+
+    // Identity types
+    private static final byte IDENTITY_UNSECURE = 0;
+    private static final byte IDENTITY_PSK = 1;
+    private static final byte IDENTITY_RPK = 2;
+    private static final byte IDENTITY_X509 = 3;
+
+    // Link types
+    private static final byte LINK_URI = 0;
+    private static final byte LINK_LWM2M_PATH = 1;
+
+    private final AttributeParser attributeParser;
+    private final boolean writeBinary;
+    private final int attributeCacheSize;
+    private final ConcurrentMap<AttributeKey, Attribute> attributeCache = new ConcurrentHashMap<>();
+    private final Map<String, Integer> knownAttributeIndexes = new HashMap<>();
+
+    public BinaryRegistrationSerDes() {
+        this(true);
+    }
+
+    /**
+     * @param writeBinary <code>true</code> to serialize in binary format, <code>false</code> to serialize in JSON.
+     */
+    public BinaryRegistrationSerDes(boolean writeBinary) {
+        this(defaultAttributeParser(), writeBinary, DEFAULT_ATTRIBUTE_CACHE_SIZE);
+    }
+
+    /**
+     * @param attributeParser parser used to create attributes from their CoRE Link value.
+     * @param writeBinary <code>true</code> to serialize in binary format, <code>false</code> to serialize in JSON.
+     * @param attributeCacheSize maximum number of interned attributes.
+     */
+    public BinaryRegistrationSerDes(AttributeParser attributeParser, boolean writeBinary, int attributeCacheSize) {
+        super(attributeParser);
+        this.attributeParser = attributeParser;
+        this.writeBinary = writeBinary;
+        this.attributeCacheSize = attributeCacheSize;
+        for (int i = 0; i < KNOWN_ATTRIBUTE_NAMES.size(); i++) {
+            knownAttributeIndexes.put(KNOWN_ATTRIBUTE_NAMES.get(i), i);
+        }
+    }
+
+    @Override
+    public byte[] bSerialize(Registration r) {
+        if (!writeBinary) {
+            return super.bSerialize(r);
+        }
+
+        BinaryOutput out = new BinaryOutput(256);
+        out.writeByte(FORMAT_V1);
+        out.writeString(r.getId());
+        out.writeString(r.getEndpoint());
+        writeIdentity(out, r.getIdentity());
+        out.writeVarLong(r.getRegistrationDate().getTime());
+        out.writeVarLong(r.getLastUpdate().getTime());
+        out.writeVarLong(r.getLifeTimeInSec());
+        out.writeNullableString(r.getSmsNumber());
+        out.writeString(r.getLwM2mVersion().toString());
+        out.writeString(BindingMode.toString(r.getBindingMode()));
+        out.writeByte(r.getQueueMode() == null ? 0 : r.getQueueMode() ? 2 : 1);
+        String rootPath = r.getRootPath();
+        out.writeString(rootPath);
+
+        // write each distinct attribute once
+        Link[] links = r.getObjectLinks();
+        Map<Attribute, Integer> attributeIndexes = new LinkedHashMap<>();
+        for (Link l : links) {
+            for (Attribute a : l.getAttributes()) {
+                if (!attributeIndexes.containsKey(a)) {
+                    attributeIndexes.put(a, attributeIndexes.size());
+                }
+            }
+        }
+        out.writeVarInt(attributeIndexes.size());
+        for (Attribute a : attributeIndexes.keySet()) {
+            Integer nameIndex = knownAttributeIndexes.get(a.getName());
+            if (nameIndex != null) {
+                out.writeVarInt(nameIndex + 1);
+            } else {
+                out.writeVarInt(0);
+                out.writeString(a.getName());
+            }
+            out.writeNullableString(a.hasValue() ? a.getCoreLinkValue() : null);
+        }
+
+        // write links
+        out.writeVarInt(links.length);
+        for (Link l : links) {
+            if (l instanceof MixedLwM2mLink) {
+                MixedLwM2mLink lwm2mLink = (MixedLwM2mLink) l;
+                out.writeByte(LINK_LWM2M_PATH);
+                // root path is generally the registration one
+                out.writeNullableString(rootPath.equals(lwm2mLink.getRootPath()) ? null : lwm2mLink.getRootPath());
+                writePath(out, lwm2mLink.getPath());
+            } else {
+                out.writeByte(LINK_URI);
+                out.writeString(l.getUriReference());
+            }
+            out.writeVarInt(l.getAttributes().asCollection().size());
+            for (Attribute a : l.getAttributes()) {
+                out.writeVarInt(attributeIndexes.get(a));
+            }
+        }
+
+        writeMap(out, r.getAdditionalRegistrationAttributes());
+
+        Set<ContentFormat> supportedContentFormats = r.getSupportedContentFormats();
+        out.writeVarInt(supportedContentFormats.size());
+        for (ContentFormat contentFormat : supportedContentFormats) {
+            out.writeVarInt(contentFormat.getCode());
+        }
+
+        Map<Integer, Version> supportedObjects = r.getSupportedObject();
+        out.writeVarInt(supportedObjects.size());
+        for (Entry<Integer, Version> supportedObject : supportedObjects.entrySet()) {
+            out.writeVarInt(supportedObject.getKey());
+            out.writeString(supportedObject.getValue().toString());
+        }
+
+        Set<LwM2mPath> availableInstances = r.getAvailableInstances();
+        out.writeVarInt(availableInstances.size());
+        for (LwM2mPath instance : availableInstances) {
+            writePath(out, instance);
+        }
+
+        writeMap(out, r.getApplicationData());
+        return out.toByteArray();
+    }
+
+    @Override
+    public Registration deserialize(byte[] data) {
+        if (data.length > 0 && data[0] == '{') {
+            // JSON format
+            return super.deserialize(data);
+        }
+        if (data.length == 0 || data[0] != FORMAT_V1) {
+            throw new IllegalArgumentException(
+                    String.format("Unable to deserialize Registration : unsupported format %s",
+                            data.length == 0 ? "<empty>" : Byte.toString(data[0])));
+        }
+
+        BinaryInput in = new BinaryInput(data, 1);
+        String registrationId = in.readString();
+        String endpoint = in.readString();
+        Registration.Builder b = new Registration.Builder(registrationId, endpoint, readIdentity(in));
+        b.registrationDate(new Date(in.readVarLong()));
+        b.lastUpdate(new Date(in.readVarLong()));
+        b.lifeTimeInSec(in.readVarLong());
+        b.smsNumber(in.readNullableString());
+        b.lwM2mVersion(LwM2mVersion.get(in.readString()));
+        b.bindingMode(BindingMode.parse(in.readString()));
+        byte queueMode = in.readByte();
+        if (queueMode != 0) {
+            b.queueMode(queueMode == 2);
+        }
+        String rootPath = in.readString();
+        b.rootPath(rootPath);
+
+        // read distinct attributes
+        Attribute[] attributes = new Attribute[in.readVarInt()];
+        for (int i = 0; i < attributes.length; i++) {
+            int nameIndex = in.readVarInt();
+            String name = nameIndex == 0 ? in.readString() : KNOWN_ATTRIBUTE_NAMES.get(nameIndex - 1);
+            String value = in.readNullableString();
+            attributes[i] = getAttribute(name, value, registrationId, endpoint);
+        }
+
+        // read links
+        Link[] links = new Link[in.readVarInt()];
+        for (int i = 0; i < links.length; i++) {
+            byte linkType = in.readByte();
+            LwM2mPath path = null;
+            String uri = null;
+            String linkRootPath = rootPath;
+            if (linkType == LINK_LWM2M_PATH) {
+                String specificRootPath = in.readNullableString();
+                if (specificRootPath != null) {
+                    linkRootPath = specificRootPath;
+                }
+                path = readPath(in);
+            } else {
+                uri = in.readString();
+            }
+            List<Attribute> linkAttributes = new ArrayList<>();
+            int nbAttributes = in.readVarInt();
+            for (int j = 0; j < nbAttributes; j++) {
+                linkAttributes.add(attributes[in.readVarInt()]);
+            }
+            if (path != null) {
+                links[i] = new MixedLwM2mLink(linkRootPath, path, new MixedLwM2mAttributeSet(linkAttributes));
+            } else {
+                links[i] = new Link(uri, linkAttributes);
+            }
+        }
+        b.objectLinks(links);
+
+        b.additionalRegistrationAttributes(readMap(in));
+
+        int nbContentFormats = in.readVarInt();
+        Set<ContentFormat> supportedContentFormats = new HashSet<>();
+        for (int i = 0; i < nbContentFormats; i++) {
+            supportedContentFormats.add(ContentFormat.fromCode(in.readVarInt()));
+        }
+        b.supportedContentFormats(supportedContentFormats);
+
+        int nbSupportedObjects = in.readVarInt();
+        Map<Integer, Version> supportedObjects = new HashMap<>();
+        for (int i = 0; i < nbSupportedObjects; i++) {
+            int objectId = in.readVarInt();
+            supportedObjects.put(objectId, new Version(in.readString()));
+        }
+        b.supportedObjects(supportedObjects);
+
+        int nbAvailableInstances = in.readVarInt();
+        Set<LwM2mPath> availableInstances = new HashSet<>();
+        for (int i = 0; i < nbAvailableInstances; i++) {
+            availableInstances.add(readPath(in));
+        }
+        b.availableInstances(availableInstances);
+
+        b.applicationData(readMap(in));
+
+        return b.build();
+    }
+
+    private Attribute getAttribute(String name, String value, String registrationId, String endpoint) {
+        AttributeKey key = new AttributeKey(name, value);
+        Attribute attribute = attributeCache.get(key);
+        if (attribute == null) {
+            try {
+                attribute = attributeParser.parseCoreLinkValue(name, value);
+            } catch (InvalidAttributeException e) {
+                throw new IllegalStateException(
+                        String.format("Unable to deserialize attribute value from links of registration %s/%s",
+                                registrationId, endpoint),
+                        e);
+            }
+            // Attributes are immutable so they can be shared between registrations
+            if (attributeCache.size() < attributeCacheSize) {
+                attributeCache.putIfAbsent(key, attribute);
+            }
+        }
+        return attribute;
+    }
+
+    private static void writePath(BinaryOutput out, LwM2mPath path) {
+        if (path.isRoot()) {
+            out.writeVarInt(0);
+        } else if (path.isObject()) {
+            out.writeVarInt(1);
+            out.writeVarInt(path.getObjectId());
+        } else if (path.isObjectInstance()) {
+            out.writeVarInt(2);
+            out.writeVarInt(path.getObjectId());
+            out.writeVarInt(path.getObjectInstanceId());
+        } else if (path.isResource()) {
+            out.writeVarInt(3);
+            out.writeVarInt(path.getObjectId());
+            out.writeVarInt(path.getObjectInstanceId());
+            out.writeVarInt(path.getResourceId());
+        } else {
+            out.writeVarInt(4);
+            out.writeVarInt(path.getObjectId());
+            out.writeVarInt(path.getObjectInstanceId());
+            out.writeVarInt(path.getResourceId());
+            out.writeVarInt(path.getResourceInstanceId());
+        }
+    }
+
+    private static LwM2mPath readPath(BinaryInput in) {
+        int nbIds = in.readVarInt();
+        switch (nbIds) {
+        case 0:
+            return LwM2mPath.ROOTPATH;
+        case 1:
+            return new LwM2mPath(in.readVarInt());
+        case 2:
+            return new LwM2mPath(in.readVarInt(), in.readVarInt());
+        case 3:
+            return new LwM2mPath(in.readVarInt(), in.readVarInt(), in.readVarInt());
+        case 4:
+            return new LwM2mPath(in.readVarInt(), in.readVarInt(), in.readVarInt(), in.readVarInt());
+        default:
+            throw new IllegalArgumentException(String.format("Invalid path depth %d", nbIds));
+        }
+    }
+
+    private static void writeIdentity(BinaryOutput out, Identity identity) {
+        if (identity.isPSK()) {
+            out.writeByte(IDENTITY_PSK);
+            out.writeString(identity.getPskIdentity());
+        } else if (identity.isRPK()) {
+            out.writeByte(IDENTITY_RPK);
+            out.writeBytes(identity.getRawPublicKey().getEncoded());
+        } else if (identity.isX509()) {
+            out.writeByte(IDENTITY_X509);
+            out.writeString(identity.getX509CommonName());
+        } else {
+            out.writeByte(IDENTITY_UNSECURE);
+        }
+        InetSocketAddress peerAddress = identity.getPeerAddress();
+        if (peerAddress.getAddress() != null) {
+            out.writeBytes(peerAddress.getAddress().getAddress());
+        } else {
+            // unresolved address : store host instead of raw address
+            out.writeVarInt(0);
+            out.writeString(peerAddress.getHostString());
+        }
+        out.writeVarInt(peerAddress.getPort());
+    }
+
+    private static Identity readIdentity(BinaryInput in) {
+        byte type = in.readByte();
+        String pskIdentity = null;
+        PublicKey publicKey = null;
+        String commonName = null;
+        switch (type) {
+        case IDENTITY_PSK:
+            pskIdentity = in.readString();
+            break;
+        case IDENTITY_RPK:
+            try {
+                X509EncodedKeySpec spec = new X509EncodedKeySpec(in.readBytes());
+                publicKey = KeyFactory.getInstance("EC").generatePublic(spec);
+            } catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Invalid security info content", e);
+            }
+            break;
+        case IDENTITY_X509:
+            commonName = in.readString();
+            break;
+        case IDENTITY_UNSECURE:
+            break;
+        default:
+            throw new IllegalArgumentException(String.format("Invalid identity type %d", type));
+        }
+
+        InetSocketAddress peerAddress;
+        byte[] rawAddress = in.readBytes();
+        if (rawAddress.length == 0) {
+            String host = in.readString();
+            peerAddress = new InetSocketAddress(host, in.readVarInt());
+        } else {
+            try {
+                peerAddress = new InetSocketAddress(InetAddress.getByAddress(rawAddress), in.readVarInt());
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("Invalid identity address", e);
+            }
+        }
+
+        switch (type) {
+        case IDENTITY_PSK:
+            return Identity.psk(peerAddress, pskIdentity);
+        case IDENTITY_RPK:
+            return Identity.rpk(peerAddress, publicKey);
+        case IDENTITY_X509:
+            return Identity.x509(peerAddress, commonName);
+        default:
+            return Identity.unsecure(peerAddress);
+        }
+    }
+
+    private static void writeMap(BinaryOutput out, Map<String, String> map) {
+        out.writeVarInt(map.size());
+        for (Entry<String, String> entry : map.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeNullableString(entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readMap(BinaryInput in) {
+        int size = in.readVarInt();
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = in.readString();
+            map.put(key, in.readNullableString());
+        }
+        return map;
+    }
+
+    private static AttributeParser defaultAttributeParser() {
+        Collection<AttributeModel<?>> suppportedAttributes = new ArrayList<AttributeModel<?>>();
+        suppportedAttributes.addAll(Attributes.ALL);
+        suppportedAttributes.addAll(LwM2mAttributes.ALL);
+        return new DefaultAttributeParser(suppportedAttributes);
+    }
+
+    /**
+     * Key used to intern attributes.
+     */
+    private static class AttributeKey {
+        private final String name;
+        private final String value;
+        private final int hash;
+
+        AttributeKey(String name, String value) {
+            this.name = name;
+            this.value = value;
+            this.hash = 31 * name.hashCode() + (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof AttributeKey))
+                return false;
+            AttributeKey other = (AttributeKey) obj;
+            return name.equals(other.name) && (value == null ? other.value == null : value.equals(other.value));
+        }
+    }
+
+    /**
+     * A growable byte array with varint encoding support.
+     */
+    private static class BinaryOutput {
+        private byte[] buffer;
+        private int position;
+
+        BinaryOutput(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        private void ensureCapacity(int extra) {
+            if (position + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+            }
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) b;
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeString(String value) {
+            writeBytes(value.getBytes(UTF_8));
+        }
+
+        // length is shifted by one, 0 means null
+        void writeNullableString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+            } else {
+                byte[] bytes = value.getBytes(UTF_8);
+                writeVarInt(bytes.length + 1);
+                ensureCapacity(bytes.length);
+                System.arraycopy(bytes, 0, buffer, position, bytes.length);
+                position += bytes.length;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    /**
+     * A reader of data written by {@link BinaryOutput}.
+     */
+    private static class BinaryInput {
+        private final byte[] buffer;
+        private int position;
+
+        BinaryInput(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        byte readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Unable to deserialize Registration : unexpected end of data");
+            }
+            return buffer[position++];
+        }
+
+        int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) {
+                    throw new IllegalArgumentException("Unable to deserialize Registration : invalid varint");
+                }
+                b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        byte[] readBytes() {
+            int length = readVarInt();
+            return readRaw(length);
+        }
+
+        private byte[] readRaw(int length) {
+            if (length < 0 || position + length > buffer.length) {
+                throw new IllegalArgumentException("Unable to deserialize Registration : unexpected end of data");
+            }
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String readString() {
+            int length = readVarInt();
+            String value = new String(buffer, position, checkLength(length), UTF_8);
+            position += length;
+            return value;
+        }
+
+        String readNullableString() {
+            int length = readVarInt();
+            if (length == 0) {
+                return null;
+            }
+            length--;
+            String value = new String(buffer, position, checkLength(length), UTF_8);
+            position += length;
+            return value;
+        }
+
+        private int checkLength(int length) {
+            if (length < 0 || position + length > buffer.length) {
+                throw new IllegalArgumentException("Unable to deserialize Registration : unexpected end of data");
+            }
+            return length;
+        }
+    }
+}
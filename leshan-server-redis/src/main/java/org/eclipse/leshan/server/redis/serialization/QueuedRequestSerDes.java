@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.DeleteRequest;
+import org.eclipse.leshan.core.request.DiscoverRequest;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ExecuteRequest;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.SimpleDownlinkRequest;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.request.WriteRequest.Mode;
+import org.eclipse.leshan.core.util.Hex;
+import org.eclipse.leshan.core.util.datatype.ULong;
+import org.eclipse.leshan.server.queue.QueuedRequest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Functions for serializing and deserializing a {@link QueuedRequest} in JSON.
+ * <p>
+ * Supported requests are {@link ReadRequest}, {@link DiscoverRequest}, {@link ObserveRequest}, {@link DeleteRequest},
+ * {@link ExecuteRequest} and {@link WriteRequest} of a single value resource.
+ */
+public class QueuedRequestSerDes {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static byte[] serialize(QueuedRequest queued) {
+        ObjectNode o = JsonNodeFactory.instance.objectNode();
+        o.put("id", queued.getId());
+        o.put("ep", queued.getEndpoint());
+        o.put("prio", queued.getPriority());
+        o.put("ct", queued.getCreationTime());
+        o.put("exp", queued.getExpirationTime());
+        o.put("to", queued.getTimeout());
+        o.set("req", serializeRequest(queued.getRequest()));
+        return o.toString().getBytes(UTF_8);
+    }
+
+    private static ObjectNode serializeRequest(DownlinkRequest<?> request) {
+        if (!(request instanceof SimpleDownlinkRequest)) {
+            throw new IllegalArgumentException(String.format("Unsupported request %s", request));
+        }
+        ObjectNode o = JsonNodeFactory.instance.objectNode();
+        o.put("path", ((SimpleDownlinkRequest<?>) request).getPath().toString());
+        if (request instanceof ReadRequest) {
+            o.put("type", "read");
+            putContentFormat(o, ((ReadRequest) request).getContentFormat());
+        } else if (request instanceof DiscoverRequest) {
+            o.put("type", "discover");
+        } else if (request instanceof ObserveRequest) {
+            ObserveRequest observe = (ObserveRequest) request;
+            o.put("type", "observe");
+            putContentFormat(o, observe.getContentFormat());
+            if (!observe.getContext().isEmpty()) {
+                ObjectNode ctxObject = JsonNodeFactory.instance.objectNode();
+                for (Entry<String, String> e : observe.getContext().entrySet()) {
+                    ctxObject.put(e.getKey(), e.getValue());
+                }
+                o.set("context", ctxObject);
+            }
+        } else if (request instanceof DeleteRequest) {
+            o.put("type", "delete");
+        } else if (request instanceof ExecuteRequest) {
+            o.put("type", "execute");
+            o.put("args", ((ExecuteRequest) request).getArguments().serialize());
+        } else if (request instanceof WriteRequest) {
+            WriteRequest write = (WriteRequest) request;
+            LwM2mNode node = write.getNode();
+            if (!(node instanceof LwM2mSingleResource)) {
+                throw new IllegalArgumentException(
+                        String.format("Unsupported write request %s: only single resource can be queued", request));
+            }
+            o.put("type", "write");
+            o.put("mode", write.isReplaceRequest() ? Mode.REPLACE.name() : Mode.UPDATE.name());
+            putContentFormat(o, write.getContentFormat());
+            serializeResource(o, (LwM2mSingleResource) node);
+        } else {
+            throw new IllegalArgumentException(String.format("Unsupported request %s", request));
+        }
+        return o;
+    }
+
+    private static void putContentFormat(ObjectNode o, ContentFormat format) {
+        if (format != null) {
+            o.put("ct", format.getCode());
+        }
+    }
+
+    private static void serializeResource(ObjectNode o, LwM2mSingleResource resource) {
+        o.put("rtype", resource.getType().name());
+        switch (resource.getType()) {
+        case STRING:
+            o.put("value", (String) resource.getValue());
+            break;
+        case INTEGER:
+            o.put("value", (Long) resource.getValue());
+            break;
+        case UNSIGNED_INTEGER:
+            o.put("value", resource.getValue().toString());
+            break;
+        case FLOAT:
+            o.put("value", (Double) resource.getValue());
+            break;
+        case BOOLEAN:
+            o.put("value", (Boolean) resource.getValue());
+            break;
+        case OPAQUE:
+            o.put("value", Hex.encodeHexString((byte[]) resource.getValue()));
+            break;
+        case TIME:
+            o.put("value", ((Date) resource.getValue()).getTime());
+            break;
+        default:
+            throw new IllegalArgumentException(
+                    String.format("Unsupported resource type %s for queued write request", resource.getType()));
+        }
+    }
+
+    public static QueuedRequest deserialize(byte[] data) {
+        String json = new String(data, UTF_8);
+        try {
+            JsonNode v = MAPPER.readTree(json);
+            return new QueuedRequest(v.get("id").asText(), v.get("ep").asText(), deserializeRequest(v.get("req")),
+                    v.get("prio").asInt(), v.get("ct").asLong(), v.get("exp").asLong(), v.get("to").asLong());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(String.format("Unable to deserialize QueuedRequest %s", json), e);
+        }
+    }
+
+    private static DownlinkRequest<?> deserializeRequest(JsonNode v) {
+        String path = v.get("path").asText();
+        ContentFormat format = v.has("ct") ? ContentFormat.fromCode(v.get("ct").asInt()) : null;
+        String type = v.get("type").asText();
+        switch (type) {
+        case "read":
+            return new ReadRequest(format, path);
+        case "discover":
+            return new DiscoverRequest(path);
+        case "observe":
+            Map<String, String> context = null;
+            JsonNode ctxValue = v.get("context");
+            if (ctxValue != null) {
+                context = new HashMap<>();
+                for (Iterator<String> it = ctxValue.fieldNames(); it.hasNext();) {
+                    String name = it.next();
+                    context.put(name, ctxValue.get(name).asText());
+                }
+            }
+            return new ObserveRequest(format, path, context);
+        case "delete":
+            return new DeleteRequest(path);
+        case "execute":
+            return new ExecuteRequest(path, v.get("args").asText());
+        case "write":
+            LwM2mPath target = new LwM2mPath(path);
+            return new WriteRequest(Mode.valueOf(v.get("mode").asText()), format, target,
+                    deserializeResource(target.getResourceId(), v), null);
+        default:
+            throw new IllegalArgumentException(String.format("Unsupported request type %s", type));
+        }
+    }
+
+    private static LwM2mSingleResource deserializeResource(int id, JsonNode v) {
+        Type type = Type.valueOf(v.get("rtype").asText());
+        JsonNode value = v.get("value");
+        switch (type) {
+        case STRING:
+            return LwM2mSingleResource.newStringResource(id, value.asText());
+        case INTEGER:
+            return LwM2mSingleResource.newIntegerResource(id, value.asLong());
+        case UNSIGNED_INTEGER:
+            return LwM2mSingleResource.newUnsignedIntegerResource(id, ULong.valueOf(value.asText()));
+        case FLOAT:
+            return LwM2mSingleResource.newFloatResource(id, value.asDouble());
+        case BOOLEAN:
+            return LwM2mSingleResource.newBooleanResource(id, value.asBoolean());
+        case OPAQUE:
+            return LwM2mSingleResource.newBinaryResource(id, Hex.decodeHex(value.asText().toCharArray()));
+        case TIME:
+            return LwM2mSingleResource.newDateResource(id, new Date(value.asLong()));
+        default:
+            throw new IllegalArgumentException(
+                    String.format("Unsupported resource type %s for queued write request", type));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.InetSocketAddress;
+
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RegistrationNearCacheTest {
+
+    private RegistrationNearCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new RegistrationNearCache(null, 2, 60_000);
+        cache.subscribed();
+    }
+
+    @Test
+    public void cached_registration_can_be_found_by_all_keys() {
+        Registration registration = newRegistration("regId", "endpoint", 5683);
+        cache.put(registration, cache.getVersion());
+
+        assertEquals(registration, cache.getByEndpoint("endpoint"));
+        assertEquals(registration, cache.getByRegistrationId("regId"));
+        assertEquals(registration, cache.getByAddress(registration.getSocketAddress()));
+        assertEquals(registration, cache.getByIdentity(registration.getIdentity()));
+    }
+
+    @Test
+    public void invalidated_registration_is_not_found_anymore() {
+        Registration registration = newRegistration("regId", "endpoint", 5683);
+        cache.put(registration, cache.getVersion());
+
+        cache.invalidate("endpoint");
+
+        assertNull(cache.getByEndpoint("endpoint"));
+        assertNull(cache.getByRegistrationId("regId"));
+        assertNull(cache.getByAddress(registration.getSocketAddress()));
+        assertNull(cache.getByIdentity(registration.getIdentity()));
+    }
+
+    @Test
+    public void registration_read_before_invalidation_is_not_cached() {
+        long version = cache.getVersion();
+        cache.invalidate("endpoint");
+        cache.put(newRegistration("regId", "endpoint", 5683), version);
+
+        assertNull(cache.getByEndpoint("endpoint"));
+    }
+
+    @Test
+    public void invalidation_of_another_endpoint_does_not_prevent_caching() {
+        Registration registration = newRegistration("regId", "endpoint", 5683);
+        long version = cache.getVersion();
+        cache.invalidate("other");
+        cache.put(registration, version);
+
+        assertEquals(registration, cache.getByEndpoint("endpoint"));
+    }
+
+    @Test
+    public void registration_read_before_clear_is_not_cached() {
+        long version = cache.getVersion();
+        cache.clear();
+        cache.put(newRegistration("regId", "endpoint", 5683), version);
+
+        assertNull(cache.getByEndpoint("endpoint"));
+    }
+
+    @Test
+    public void registration_read_before_invalidation_is_not_cached_once_invalidations_are_pruned() {
+        long version = cache.getVersion();
+        // more invalidations than max size, old invalidations are pruned
+        cache.invalidate("endpoint");
+        cache.invalidate("other1");
+        cache.invalidate("other2");
+        cache.put(newRegistration("regId", "endpoint", 5683), version);
+
+        assertNull(cache.getByEndpoint("endpoint"));
+
+        Registration registration = newRegistration("regId", "endpoint", 5683);
+        cache.put(registration, cache.getVersion());
+        assertEquals(registration, cache.getByEndpoint("endpoint"));
+    }
+
+    @Test
+    public void registration_is_not_cached_without_subscription() {
+        cache.unsubscribed();
+        cache.put(newRegistration("regId", "endpoint", 5683), cache.getVersion());
+
+        assertNull(cache.getByEndpoint("endpoint"));
+    }
+
+    @Test
+    public void least_recently_used_registration_is_evicted() {
+        Registration registration1 = newRegistration("regId1", "endpoint1", 5681);
+        cache.put(registration1, cache.getVersion());
+        cache.put(newRegistration("regId2", "endpoint2", 5682), cache.getVersion());
+        // use endpoint1, so endpoint2 is the least recently used
+        cache.getByEndpoint("endpoint1");
+        cache.put(newRegistration("regId3", "endpoint3", 5683), cache.getVersion());
+
+        assertEquals(2, cache.size());
+        assertEquals(registration1, cache.getByRegistrationId("regId1"));
+        assertNull(cache.getByRegistrationId("regId2"));
+    }
+
+    @Test
+    public void expired_registration_is_not_found() throws InterruptedException {
+        cache = new RegistrationNearCache(null, 2, 0);
+        cache.subscribed();
+        cache.put(newRegistration("regId", "endpoint", 5683), cache.getVersion());
+        Thread.sleep(5);
+
+        assertNull(cache.getByRegistrationId("regId"));
+        assertEquals(0, cache.size());
+    }
+
+    private Registration newRegistration(String registrationId, String endpoint, int port) {
+        return new Registration.Builder(registrationId, endpoint,
+                Identity.unsecure(new InetSocketAddress("127.0.0.1", port))).build();
+    }
+}
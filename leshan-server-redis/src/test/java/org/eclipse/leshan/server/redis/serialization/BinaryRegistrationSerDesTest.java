@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.LwM2m.Version;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.link.attributes.ContentFormatAttribute;
+import org.eclipse.leshan.core.link.attributes.QuotedStringAttribute;
+import org.eclipse.leshan.core.link.attributes.ResourceTypeAttribute;
+import org.eclipse.leshan.core.link.attributes.UnquotedStringAttribute;
+import org.eclipse.leshan.core.link.attributes.ValuelessAttribute;
+import org.eclipse.leshan.core.link.lwm2m.MixedLwM2mLink;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributes;
+import org.eclipse.leshan.core.link.lwm2m.attributes.MixedLwM2mAttributeSet;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Test;
+
+public class BinaryRegistrationSerDesTest {
+
+    private BinaryRegistrationSerDes registrationSerDes = new BinaryRegistrationSerDes();
+
+    @Test
+    public void ser_and_des_are_equals() {
+        Registration r = newRegistration(Identity.unsecure(Inet4Address.getLoopbackAddress(), 1), "/");
+
+        byte[] ser = registrationSerDes.bSerialize(r);
+        assertEquals(BinaryRegistrationSerDes.FORMAT_V1, ser[0]);
+        Registration r2 = registrationSerDes.deserialize(ser);
+
+        assertEquals(r, r2);
+    }
+
+    @Test
+    public void ser_and_des_are_equals_with_alternate_path_and_secure_identity() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        PublicKey publicKey = generator.generateKeyPair().getPublic();
+
+        Identity[] identities = new Identity[] { //
+                Identity.psk(new InetSocketAddress("127.0.0.1", 5684), "pskIdentity"), //
+                Identity.rpk(new InetSocketAddress("::1", 5684), publicKey), //
+                Identity.x509(new InetSocketAddress("10.0.0.1", 5684), "commonName"), //
+                Identity.unsecure(InetSocketAddress.createUnresolved("unresolved.host", 5683)) };
+
+        for (Identity identity : identities) {
+            Registration r = newRegistration(identity, "/lwm2m");
+            Registration r2 = registrationSerDes.deserialize(registrationSerDes.bSerialize(r));
+            assertEquals(r, r2);
+        }
+    }
+
+    @Test
+    public void binary_format_is_smaller_than_json() {
+        Registration r = newRegistration(Identity.unsecure(Inet4Address.getLoopbackAddress(), 1), "/");
+
+        byte[] binary = registrationSerDes.bSerialize(r);
+        byte[] json = new RegistrationSerDes().bSerialize(r);
+
+        assertTrue(binary.length < json.length / 2);
+    }
+
+    @Test
+    public void json_data_can_be_deserialized() {
+        Registration r = newRegistration(Identity.unsecure(Inet4Address.getLoopbackAddress(), 1), "/");
+
+        byte[] json = new RegistrationSerDes().bSerialize(r);
+        Registration r2 = registrationSerDes.deserialize(json);
+
+        assertEquals(r, r2);
+    }
+
+    @Test
+    public void json_is_written_in_migration_mode() {
+        Registration r = newRegistration(Identity.unsecure(Inet4Address.getLoopbackAddress(), 1), "/");
+
+        byte[] ser = new BinaryRegistrationSerDes(false).bSerialize(r);
+        Registration r2 = new RegistrationSerDes().deserialize(ser);
+
+        assertEquals(r, r2);
+    }
+
+    private Registration newRegistration(Identity identity, String rootPath) {
+        Link[] objs = new Link[4];
+        MixedLwM2mAttributeSet attrs = new MixedLwM2mAttributeSet( //
+                new UnquotedStringAttribute("us", "12"), //
+                new QuotedStringAttribute("qt", "test"), //
+                new ResourceTypeAttribute("oma.lwm2m"), //
+                new ContentFormatAttribute(ContentFormat.CBOR, ContentFormat.JSON), //
+                new ValuelessAttribute("hb"));
+        objs[0] = new MixedLwM2mLink(rootPath, LwM2mPath.ROOTPATH, attrs);
+        objs[1] = new MixedLwM2mLink(rootPath, new LwM2mPath(0, 2));
+        objs[2] = new MixedLwM2mLink(rootPath, new LwM2mPath(3, 0),
+                LwM2mAttributes.create(LwM2mAttributes.OBJECT_VERSION, new Version("1.1")));
+        objs[3] = rootPath.equals("/") ? new MixedLwM2mLink(rootPath, new LwM2mPath(3442))
+                : new Link("/other/path", new ResourceTypeAttribute("oma.lwm2m"));
+
+        Map<String, String> appData = new HashMap<>();
+        appData.put("string", "string test");
+        appData.put("null", null);
+
+        Registration.Builder builder = new Registration.Builder("registrationId", "endpoint", identity)
+                .objectLinks(objs).rootPath(rootPath).supportedContentFormats(ContentFormat.TLV, ContentFormat.TEXT)
+                .applicationData(appData).bindingMode(BindingMode.parse("UQ")).smsNumber("0123456789")
+                .lifeTimeInSec(86400L);
+
+        builder.registrationDate(new Date(100L));
+        builder.lastUpdate(new Date(101L));
+        builder.extractDataFromObjectLink(true);
+        return builder.build();
+    }
+}
@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import static org.junit.Assert.assertEquals;
+
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ExecuteRequest;
+import org.eclipse.leshan.core.request.ReadCompositeRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.request.WriteRequest.Mode;
+import org.eclipse.leshan.server.queue.QueuedRequest;
+import org.junit.Test;
+
+public class QueuedRequestSerDesTest {
+
+    @Test
+    public void queued_read_ser_des_then_equal() {
+        assertSerDes(new ReadRequest(ContentFormat.TLV, 3, 0, 1));
+    }
+
+    @Test
+    public void queued_execute_ser_des_then_equal() {
+        assertSerDes(new ExecuteRequest("/3/0/4", "0='param'"));
+    }
+
+    @Test
+    public void queued_write_ser_des_then_equal() {
+        assertSerDes(new WriteRequest(Mode.REPLACE, ContentFormat.TLV, "/3/0/14",
+                LwM2mSingleResource.newStringResource(14, "+02")));
+        assertSerDes(new WriteRequest(Mode.REPLACE, ContentFormat.TLV, "/3/0/13",
+                LwM2mSingleResource.newBinaryResource(13, new byte[] { 1, 2, 3 })));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void queued_composite_request_is_not_supported() {
+        QueuedRequestSerDes.serialize(new QueuedRequest("id", "urn:client",
+                new ReadCompositeRequest(ContentFormat.SENML_JSON, ContentFormat.SENML_JSON, "/3/0/1"), 0, 0, 0, 0));
+    }
+
+    private void assertSerDes(DownlinkRequest<?> request) {
+        QueuedRequest queued = new QueuedRequest("id", "urn:client", request, 10, 1000, 2000, 3000);
+
+        QueuedRequest result = QueuedRequestSerDes.deserialize(QueuedRequestSerDes.serialize(queued));
+
+        assertEquals(queued.getId(), result.getId());
+        assertEquals(queued.getEndpoint(), result.getEndpoint());
+        assertEquals(queued.getPriority(), result.getPriority());
+        assertEquals(queued.getCreationTime(), result.getCreationTime());
+        assertEquals(queued.getExpirationTime(), result.getExpirationTime());
+        assertEquals(queued.getTimeout(), result.getTimeout());
+        assertEquals(request, result.getRequest());
+    }
+}